@@ -0,0 +1,74 @@
+package com.example.todo.analytics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Map of per-key aggregates that stops admitting new keys at a fixed capacity, so memory
+ * stays bounded however many distinct users, views or actions a log contains. Values for
+ * keys that did not fit go to a single {@value #OTHER} entry.
+ */
+final class BoundedMap<V> {
+    static final String OTHER = "(other)";
+
+    private final int capacity;
+    private final Supplier<V> factory;
+    private final BiConsumer<V, V> merger;
+    private final Map<String, V> values = new HashMap<>();
+
+    BoundedMap(int capacity, Supplier<V> factory, BiConsumer<V, V> merger) {
+        this.capacity = capacity;
+        this.factory = factory;
+        this.merger = merger;
+    }
+
+    V get(String key) {
+        V value = values.get(key);
+        if (value == null) {
+            String admitted = values.size() < capacity ? key : OTHER;
+            value = values.computeIfAbsent(admitted, k -> factory.get());
+        }
+        return value;
+    }
+
+    /**
+     * Like {@link #get(String)}, but returns null instead of the shared entry when the key
+     * does not fit; for values that must not be mixed across keys.
+     */
+    V getIfAdmitted(String key) {
+        V value = values.get(key);
+        if (value == null && values.size() < capacity) {
+            value = factory.get();
+            values.put(key, value);
+        }
+        return value;
+    }
+
+    void forEach(BiConsumer<String, V> action) {
+        values.forEach(action);
+    }
+
+    void merge(BoundedMap<V> other) {
+        other.values.forEach((key, value) -> merger.accept(get(key), value));
+    }
+
+    int size() {
+        return values.size();
+    }
+
+    /**
+     * Returns up to {@code limit} entries ordered by the given weight, largest first.
+     */
+    List<Map.Entry<String, V>> top(int limit, ToLongFunction<V> weight) {
+        List<Map.Entry<String, V>> entries = new ArrayList<>(values.entrySet());
+        entries.sort(Comparator.comparingLong((Map.Entry<String, V> e) -> weight.applyAsLong(e.getValue()))
+                .reversed().thenComparing(Map.Entry::getKey));
+        return entries.size() > limit ? entries.subList(0, limit) : entries;
+    }
+}
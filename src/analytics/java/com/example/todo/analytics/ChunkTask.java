@@ -0,0 +1,114 @@
+package com.example.todo.analytics;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Fork/join task over a range of {@link Chunk}s: splits the range in half until one chunk is
+ * left, analyzes it, and merges the halves in log order on the way back up.
+ */
+final class ChunkTask extends RecursiveTask<LogStats> {
+    private static final long serialVersionUID = 1L;
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final List<Chunk> chunks;
+    private final int from;
+    private final int to;
+    private final int maxKeys;
+
+    ChunkTask(List<Chunk> chunks, int from, int to, int maxKeys) {
+        this.chunks = chunks;
+        this.from = from;
+        this.to = to;
+        this.maxKeys = maxKeys;
+    }
+
+    @Override
+    protected LogStats compute() {
+        if (to - from == 1) {
+            try {
+                return analyze(chunks.get(from));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read " + chunks.get(from), e);
+            }
+        }
+        int middle = (from + to) >>> 1;
+        ChunkTask earlier = new ChunkTask(chunks, from, middle, maxKeys);
+        earlier.fork();
+        LogStats later = new ChunkTask(chunks, middle, to, maxKeys).compute();
+        LogStats result = earlier.join();
+        result.merge(later);
+        return result;
+    }
+
+    private LogStats analyze(Chunk chunk) throws IOException {
+        LogStats stats = new LogStats(maxKeys);
+        LineParser parser = new LineParser();
+        LogRecord record = new LogRecord();
+
+        try (InputStream in = chunk.open()) {
+            LineReader reader = new LineReader(in, Math.max(0, chunk.start - 1), BUFFER_SIZE);
+            // A chunk owns the lines that start inside it; the line running into it belongs to the previous one
+            if (chunk.start > 0) {
+                reader.skipLine();
+            }
+            String line;
+            while (reader.offset() < chunk.end && (line = reader.readLine()) != null) {
+                stats.lines++;
+                if (!line.isEmpty() && parser.parse(line, record)) {
+                    stats.accept(record);
+                } else {
+                    stats.skippedLines++;
+                }
+            }
+        }
+        stats.endOfChunk();
+        return stats;
+    }
+
+    /**
+     * A byte range of a log file. Gzipped files cannot be split and form a single chunk.
+     */
+    static final class Chunk {
+        final Path path;
+        final long start;
+        final long end;
+
+        Chunk(Path path, long start, long end) {
+            this.path = path;
+            this.start = start;
+            this.end = end;
+        }
+
+        static boolean isGzip(Path path) {
+            return path.getFileName().toString().endsWith(".gz");
+        }
+
+        /**
+         * Opens the file positioned one byte before the chunk so that {@link ChunkTask} can
+         * tell whether the chunk starts on a line boundary.
+         */
+        InputStream open() throws IOException {
+            if (isGzip(path)) {
+                return new GZIPInputStream(Files.newInputStream(path), BUFFER_SIZE);
+            }
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+            channel.position(Math.max(0, start - 1));
+            return Channels.newInputStream(channel);
+        }
+
+        @Override
+        public String toString() {
+            return path + " [" + start + ", " + (end == Long.MAX_VALUE ? "end" : end) + ")";
+        }
+    }
+}
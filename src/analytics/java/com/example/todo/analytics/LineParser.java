@@ -0,0 +1,282 @@
+package com.example.todo.analytics;
+
+import java.time.LocalDate;
+
+/**
+ * Parses the two log formats the application writes into a {@link LogRecord}:
+ * <ul>
+ *   <li>JSON lines from {@code CompactJsonLayout} ({@code todo-app.json}), one flat object per line</li>
+ *   <li>pattern lines ({@code todo-app.log}):
+ *       {@code 2024-05-01 12:00:00 INFO  [requestId userId] logger - message}, where structured
+ *       messages read {@code type key=value ...} and audit events {@code key="value" ...}</li>
+ * </ul>
+ * Continuation lines (stack traces) and free-text messages are skipped or kept without fields.
+ * Pattern timestamps carry no zone and are read as UTC; only differences between them are used.
+ */
+final class LineParser {
+    private static final String[] EVENT_TYPES = {"interaction", "todo", "auth", "phase"};
+
+    private String cachedDate;
+    private long cachedEpochDayMillis;
+
+    /**
+     * Returns false when the line is not a log event (blank, continuation or garbage).
+     */
+    boolean parse(String line, LogRecord record) {
+        record.clear();
+        if (line.startsWith("{")) {
+            return parseJson(line, record);
+        }
+        return parsePattern(line, record);
+    }
+
+    // ---- pattern layout -------------------------------------------------------------------
+
+    private boolean parsePattern(String line, LogRecord record) {
+        if (line.length() < 24 || line.charAt(4) != '-' || line.charAt(10) != ' ' || line.charAt(13) != ':') {
+            return false;
+        }
+        long timestamp = parseTimestamp(line);
+        if (timestamp < 0) {
+            return false;
+        }
+        record.timestampMillis = timestamp;
+
+        int levelEnd = line.indexOf(' ', 20);
+        int open = line.indexOf('[', 20);
+        int close = open < 0 ? -1 : line.indexOf(']', open);
+        int dash = close < 0 ? -1 : line.indexOf(" - ", close);
+        if (levelEnd < 0 || dash < 0) {
+            return false;
+        }
+        record.level = line.substring(20, levelEnd);
+
+        int space = line.indexOf(' ', open);
+        if (space > open && space < close) {
+            record.requestId = emptyToNull(line.substring(open + 1, space));
+            record.userId = emptyToNull(line.substring(space + 1, close));
+        }
+        record.logger = line.substring(close + 2, dash);
+
+        int messageStart = dash + 3;
+        if (LogRecord.AUDIT_LOGGER.equals(record.logger)) {
+            record.event = "audit";
+            parseKeyValues(line, messageStart, record);
+            return true;
+        }
+        for (String type : EVENT_TYPES) {
+            if (line.startsWith(type, messageStart)
+                    && (line.length() == messageStart + type.length() || line.charAt(messageStart + type.length()) == ' ')) {
+                record.event = type;
+                parseKeyValues(line, messageStart + type.length(), record);
+                break;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads {@code yyyy-MM-dd HH:mm:ss} without going through a date formatter.
+     */
+    private long parseTimestamp(String line) {
+        String date = line.substring(0, 10);
+        if (!date.equals(cachedDate)) {
+            try {
+                LocalDate day = LocalDate.of(digits(line, 0, 4), digits(line, 5, 2), digits(line, 8, 2));
+                cachedEpochDayMillis = day.toEpochDay() * 86_400_000L;
+                cachedDate = date;
+            } catch (RuntimeException e) {
+                return -1;
+            }
+        }
+        int hours = digits(line, 11, 2);
+        int minutes = digits(line, 14, 2);
+        int seconds = digits(line, 17, 2);
+        if (hours < 0 || minutes < 0 || seconds < 0) {
+            return -1;
+        }
+        return cachedEpochDayMillis + ((hours * 60L + minutes) * 60L + seconds) * 1000L;
+    }
+
+    private static int digits(String s, int start, int length) {
+        int value = 0;
+        for (int i = start; i < start + length; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Reads {@code key=value} and {@code key="quoted \"value\""} pairs separated by spaces.
+     */
+    private static void parseKeyValues(String line, int start, LogRecord record) {
+        int i = start;
+        int length = line.length();
+        while (i < length) {
+            while (i < length && line.charAt(i) == ' ') {
+                i++;
+            }
+            int equals = line.indexOf('=', i);
+            if (equals < 0) {
+                return;
+            }
+            String key = line.substring(i, equals);
+            i = equals + 1;
+            if (i < length && line.charAt(i) == '"') {
+                StringBuilder value = new StringBuilder();
+                i++;
+                while (i < length && line.charAt(i) != '"') {
+                    char c = line.charAt(i);
+                    if (c == '\\' && i + 1 < length) {
+                        char next = line.charAt(++i);
+                        value.append(next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+                    } else {
+                        value.append(c);
+                    }
+                    i++;
+                }
+                record.fields.put(key, value.toString());
+                i++;
+            } else {
+                int end = line.indexOf(' ', i);
+                end = end < 0 ? length : end;
+                record.fields.put(key, line.substring(i, end));
+                i = end;
+            }
+        }
+    }
+
+    // ---- JSON lines -----------------------------------------------------------------------
+
+    private boolean parseJson(String line, LogRecord record) {
+        int i = 1;
+        int length = line.length();
+        StringBuilder text = new StringBuilder();
+        while (i < length) {
+            i = skipWhitespace(line, i);
+            if (i >= length || line.charAt(i) == '}') {
+                break;
+            }
+            if (line.charAt(i) == ',') {
+                i++;
+                continue;
+            }
+            if (line.charAt(i) != '"') {
+                return false;
+            }
+            i = readString(line, i + 1, text);
+            String key = text.toString();
+            i = skipWhitespace(line, i);
+            if (i >= length || line.charAt(i) != ':') {
+                return false;
+            }
+            i = skipWhitespace(line, i + 1);
+            String value;
+            if (i < length && line.charAt(i) == '"') {
+                i = readString(line, i + 1, text);
+                value = text.toString();
+            } else {
+                int end = i;
+                while (end < length && line.charAt(end) != ',' && line.charAt(end) != '}') {
+                    end++;
+                }
+                value = line.substring(i, end).trim();
+                i = end;
+            }
+            assign(key, value, record);
+        }
+        return record.timestampMillis > 0;
+    }
+
+    private static void assign(String key, String value, LogRecord record) {
+        switch (key) {
+            case "ts":
+                try {
+                    record.timestampMillis = Long.parseLong(value);
+                } catch (NumberFormatException e) {
+                    record.timestampMillis = 0;
+                }
+                break;
+            case "level":
+                record.level = value;
+                break;
+            case "logger":
+                record.logger = value;
+                if (LogRecord.AUDIT_LOGGER.equals(value) && record.event == null) {
+                    record.event = "audit";
+                }
+                break;
+            case "requestId":
+                record.requestId = emptyToNull(value);
+                break;
+            case "userId":
+                record.userId = emptyToNull(value);
+                break;
+            case "event":
+                record.event = value;
+                break;
+            default:
+                record.fields.put(key, value);
+        }
+    }
+
+    private static int skipWhitespace(String s, int i) {
+        while (i < s.length() && s.charAt(i) <= ' ') {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Reads a JSON string body starting after the opening quote; returns the index after the
+     * closing quote.
+     */
+    private static int readString(String s, int i, StringBuilder out) {
+        out.setLength(0);
+        while (i < s.length()) {
+            char c = s.charAt(i++);
+            if (c == '"') {
+                return i;
+            }
+            if (c != '\\' || i >= s.length()) {
+                out.append(c);
+                continue;
+            }
+            char escaped = s.charAt(i++);
+            switch (escaped) {
+                case 'n':
+                    out.append('\n');
+                    break;
+                case 'r':
+                    out.append('\r');
+                    break;
+                case 't':
+                    out.append('\t');
+                    break;
+                case 'b':
+                    out.append('\b');
+                    break;
+                case 'f':
+                    out.append('\f');
+                    break;
+                case 'u':
+                    if (i + 4 <= s.length()) {
+                        out.append((char) Integer.parseInt(s.substring(i, i + 4), 16));
+                        i += 4;
+                    }
+                    break;
+                default:
+                    out.append(escaped);
+            }
+        }
+        return i;
+    }
+
+    private static String emptyToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.todo.analytics;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reads UTF-8 lines through a fixed-size buffer, tracking the byte offset so a reader can
+ * stop at the end of its chunk. Lines longer than {@value #MAX_LINE_BYTES} bytes are returned
+ * as empty strings.
+ */
+final class LineReader {
+    static final int MAX_LINE_BYTES = 1 << 20;
+
+    private final InputStream in;
+    private final byte[] buffer;
+    private int position;
+    private int limit;
+    private long offset;
+    private byte[] line = new byte[256];
+    private int lineLength;
+
+    LineReader(InputStream in, long startOffset, int bufferSize) {
+        this.in = in;
+        this.buffer = new byte[bufferSize];
+        this.offset = startOffset;
+    }
+
+    /**
+     * Byte offset of the next unread line.
+     */
+    long offset() {
+        return offset;
+    }
+
+    /**
+     * Discards input up to and including the next line break.
+     */
+    void skipLine() throws IOException {
+        while (true) {
+            if (position == limit && !fill()) {
+                return;
+            }
+            byte b = buffer[position++];
+            offset++;
+            if (b == '\n') {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the next line without its terminator, or null at end of input.
+     */
+    String readLine() throws IOException {
+        lineLength = 0;
+        boolean oversized = false;
+        boolean any = false;
+        while (true) {
+            if (position == limit && !fill()) {
+                if (!any) {
+                    return null;
+                }
+                break;
+            }
+            any = true;
+            int start = position;
+            while (position < limit && buffer[position] != '\n') {
+                position++;
+            }
+            int length = position - start;
+            offset += length;
+            if (!oversized) {
+                if (lineLength + length > MAX_LINE_BYTES) {
+                    oversized = true;
+                } else {
+                    append(start, length);
+                }
+            }
+            if (position < limit) {
+                position++;
+                offset++;
+                break;
+            }
+        }
+        if (oversized) {
+            return "";
+        }
+        int length = lineLength > 0 && line[lineLength - 1] == '\r' ? lineLength - 1 : lineLength;
+        return new String(line, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private void append(int start, int length) {
+        if (lineLength + length > line.length) {
+            line = Arrays.copyOf(line, Math.max(line.length * 2, lineLength + length));
+        }
+        System.arraycopy(buffer, start, line, lineLength, length);
+        lineLength += length;
+    }
+
+    private boolean fill() throws IOException {
+        int read = in.read(buffer);
+        if (read <= 0) {
+            return false;
+        }
+        position = 0;
+        limit = read;
+        return true;
+    }
+}
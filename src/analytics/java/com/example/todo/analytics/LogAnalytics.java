@@ -0,0 +1,250 @@
+package com.example.todo.analytics;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Offline analysis of the application's logs: per-user action counts, hottest views,
+ * action-to-render latency distributions and login sessions reconstructed from the
+ * {@code auth} and audit events.
+ *
+ * Arguments are log files or directories ({@code todo-app.log*}, {@code todo-app.json*},
+ * optionally gzipped). Files are ordered by their first timestamp, cut into chunks at line
+ * boundaries and analyzed in one pass on a fork/join pool; memory is bounded by the read
+ * buffers and the {@code analytics.maxKeys} cap, not by the size of the logs.
+ *
+ * Build it with {@code mvn -Panalytics package} and run
+ * {@code java -jar target/jsf-todo-app-log-analytics.jar logs/} (see README).
+ */
+public class LogAnalytics {
+    private final int threads;
+    private final long chunkBytes;
+    private final int maxKeys;
+    private final int top;
+
+    LogAnalytics() {
+        threads = Integer.getInteger("analytics.threads", Runtime.getRuntime().availableProcessors());
+        chunkBytes = Math.max(1, Long.getLong("analytics.chunkMB", 64L)) << 20;
+        maxKeys = Integer.getInteger("analytics.maxKeys", 10_000);
+        top = Integer.getInteger("analytics.top", 20);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: java [-Danalytics.threads=N] -jar jsf-todo-app-log-analytics.jar <log file or directory>...");
+            System.exit(2);
+        }
+        new LogAnalytics().run(args);
+    }
+
+    void run(String[] args) throws IOException {
+        List<Path> files = orderByFirstTimestamp(collectFiles(args));
+        if (files.isEmpty()) {
+            System.err.println("No log files found");
+            System.exit(2);
+        }
+
+        long bytes = 0;
+        List<ChunkTask.Chunk> chunks = new ArrayList<>();
+        for (Path file : files) {
+            long size = Files.size(file);
+            bytes += size;
+            if (ChunkTask.Chunk.isGzip(file)) {
+                chunks.add(new ChunkTask.Chunk(file, 0, Long.MAX_VALUE));
+                continue;
+            }
+            for (long start = 0; start < size; start += chunkBytes) {
+                chunks.add(new ChunkTask.Chunk(file, start, Math.min(size, start + chunkBytes)));
+            }
+        }
+        if (chunks.isEmpty()) {
+            System.err.println("All log files are empty");
+            return;
+        }
+
+        System.out.printf(Locale.ROOT, "Analyzing %d file(s), %d MB in %d chunk(s) on %d thread(s)%n",
+                files.size(), bytes >> 20, chunks.size(), threads);
+        long start = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        LogStats stats;
+        try {
+            stats = pool.invoke(new ChunkTask(chunks, 0, chunks.size(), maxKeys));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            pool.shutdown();
+        }
+        stats.finish();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        printReport(stats, bytes, seconds);
+    }
+
+    private static List<Path> collectFiles(String[] args) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (String arg : args) {
+            Path path = Paths.get(arg);
+            if (Files.isDirectory(path)) {
+                List<Path> logs;
+                try (Stream<Path> children = Files.list(path)) {
+                    logs = children.filter(Files::isRegularFile)
+                            .filter(p -> p.getFileName().toString().startsWith("todo-app."))
+                            .sorted()
+                            .collect(Collectors.toList());
+                }
+                // Both formats hold the same events; read the JSON lines if there are any
+                List<Path> json = logs.stream().filter(LogAnalytics::isJson).collect(Collectors.toList());
+                if (!json.isEmpty() && json.size() < logs.size()) {
+                    System.out.printf(Locale.ROOT, "%s: reading the JSON logs, skipping %d pattern log file(s)%n",
+                            path, logs.size() - json.size());
+                    logs = json;
+                }
+                files.addAll(logs);
+            } else if (Files.isRegularFile(path)) {
+                files.add(path);
+            } else {
+                System.err.println("Skipping " + arg + ": not a file or directory");
+            }
+        }
+        return files;
+    }
+
+    private static boolean isJson(Path file) {
+        return file.getFileName().toString().startsWith("todo-app.json");
+    }
+
+    /**
+     * Rotated files are named differently by different policies, so order them by content;
+     * sessions can only be stitched together across files in log order.
+     */
+    private static List<Path> orderByFirstTimestamp(List<Path> files) throws IOException {
+        Map<Path, Long> first = new HashMap<>();
+        LineParser parser = new LineParser();
+        LogRecord record = new LogRecord();
+        for (Path file : files) {
+            long timestamp = Long.MAX_VALUE;
+            try (InputStream in = new ChunkTask.Chunk(file, 0, Long.MAX_VALUE).open()) {
+                LineReader reader = new LineReader(in, 0, 64 * 1024);
+                String line;
+                for (int i = 0; i < 1000 && (line = reader.readLine()) != null; i++) {
+                    if (parser.parse(line, record)) {
+                        timestamp = record.timestampMillis;
+                        break;
+                    }
+                }
+            }
+            first.put(file, timestamp);
+        }
+        List<Path> ordered = new ArrayList<>(files);
+        ordered.sort(Comparator.comparing((Path p) -> first.get(p)).thenComparing(Path::toString));
+        return ordered;
+    }
+
+    // ---- report ---------------------------------------------------------------------------
+
+    private void printReport(LogStats stats, long bytes, double seconds) {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format(Locale.ROOT, "%n=== Log analytics (%.1f s, %.1f MB/s) ===%n",
+                seconds, seconds > 0 ? (bytes >> 20) / seconds : 0));
+        report.append(String.format(Locale.ROOT, "%d lines, %d events, %d skipped (continuations, free text), %d requests without render%n",
+                stats.lines, stats.events, stats.skippedLines, stats.requests.incomplete));
+        if (stats.events > 0) {
+            report.append(String.format(Locale.ROOT, "From %s to %s%n",
+                    Instant.ofEpochMilli(stats.firstMillis), Instant.ofEpochMilli(stats.lastMillis)));
+        }
+
+        report.append(String.format(Locale.ROOT, "%n-- Users (top %d by actions) --%n", top));
+        report.append(String.format(Locale.ROOT, "%-24s %9s %12s %9s %7s %13s  %s%n",
+                "user", "actions", "interactions", "mutations", "logins", "failedLogins", "top actions"));
+        Map<String, List<String>> topActions = topActionsByUser(stats);
+        for (Map.Entry<String, LogStats.UserStats> entry : stats.users.top(top, u -> u.actions)) {
+            LogStats.UserStats user = entry.getValue();
+            report.append(String.format(Locale.ROOT, "%-24s %9d %12d %9d %7d %13d  %s%n",
+                    entry.getKey(), user.actions, user.interactions, user.mutations, user.logins, user.failedLogins,
+                    String.join(", ", topActions.getOrDefault(entry.getKey(), List.of()))));
+        }
+
+        report.append(String.format(Locale.ROOT, "%n-- Hottest views (top %d by requests) --%n", top));
+        report.append(String.format(Locale.ROOT, "%-40s %9s %10s %9s %9s %9s%n",
+                "view", "requests", "renders", "render50", "render95", "renderMax"));
+        for (Map.Entry<String, LogStats.ViewStats> entry : stats.views.top(top, v -> v.requests)) {
+            LogStats.ViewStats view = entry.getValue();
+            report.append(String.format(Locale.ROOT, "%-40s %9d %10d %9s %9s %9s%n",
+                    entry.getKey(), view.requests, view.renderMicros.getCount(),
+                    millis(view.renderMicros.quantile(0.50)), millis(view.renderMicros.quantile(0.95)),
+                    millis(view.renderMicros.getMax())));
+        }
+
+        report.append(String.format(Locale.ROOT, "%n-- Action-to-render latency (top %d by count) --%n", top));
+        report.append(String.format(Locale.ROOT, "%-40s %9s %9s %9s %9s %9s %9s%n",
+                "action", "count", "mean", "p50", "p95", "p99", "max"));
+        report.append(latencyLine("(all)", stats.requests.all));
+        for (Map.Entry<String, Histogram> entry : stats.requests.actionToRender.top(top, Histogram::getCount)) {
+            report.append(latencyLine(entry.getKey(), entry.getValue()));
+        }
+
+        SessionStats sessions = stats.sessionStats;
+        report.append(String.format(Locale.ROOT, "%n-- Sessions --%n"));
+        report.append(String.format(Locale.ROOT,
+                "%d completed (%d by logout, %d by a new login), %d still open at end of log, %d started before the log%n",
+                sessions.durationSeconds.getCount(), sessions.endedByLogout, sessions.endedByLogin,
+                sessions.openAtEnd, sessions.startedBeforeLog));
+        report.append(String.format(Locale.ROOT, "Duration: p50 %s, p95 %s, max %s%n",
+                duration(sessions.durationSeconds.quantile(0.50)), duration(sessions.durationSeconds.quantile(0.95)),
+                duration(sessions.durationSeconds.getMax())));
+        report.append(String.format(Locale.ROOT, "Actions per session: mean %.1f, p50 %d, p95 %d, max %d; %d actions outside any session%n",
+                sessions.actionsPerSession.getMean(), sessions.actionsPerSession.quantile(0.50),
+                sessions.actionsPerSession.quantile(0.95), sessions.actionsPerSession.getMax(), sessions.orphanActions));
+
+        if (stats.users.size() >= maxKeys || stats.views.size() >= maxKeys || stats.userActions.size() >= maxKeys) {
+            report.append(String.format(Locale.ROOT, "%nNote: more than %d distinct keys; the rest are counted as %s "
+                    + "(raise -Danalytics.maxKeys)%n", maxKeys, BoundedMap.OTHER));
+        }
+        System.out.print(report);
+    }
+
+    private Map<String, List<String>> topActionsByUser(LogStats stats) {
+        Map<String, List<String>> result = new HashMap<>();
+        for (Map.Entry<String, long[]> entry : stats.userActions.top(Integer.MAX_VALUE, counts -> counts[0])) {
+            String key = entry.getKey();
+            int tab = key.indexOf('\t');
+            if (tab < 0) {
+                continue;
+            }
+            List<String> actions = result.computeIfAbsent(key.substring(0, tab), k -> new ArrayList<>());
+            if (actions.size() < 3) {
+                actions.add(key.substring(tab + 1) + "=" + entry.getValue()[0]);
+            }
+        }
+        return result;
+    }
+
+    private static String latencyLine(String name, Histogram histogram) {
+        return String.format(Locale.ROOT, "%-40s %9d %9s %9s %9s %9s %9s%n",
+                name, histogram.getCount(), millis((long) histogram.getMean()), millis(histogram.quantile(0.50)),
+                millis(histogram.quantile(0.95)), millis(histogram.quantile(0.99)), millis(histogram.getMax()));
+    }
+
+    private static String millis(long micros) {
+        return String.format(Locale.ROOT, "%.1fms", micros / 1000.0);
+    }
+
+    private static String duration(long seconds) {
+        return seconds >= 3600
+                ? String.format(Locale.ROOT, "%dh%02dm", seconds / 3600, seconds % 3600 / 60)
+                : String.format(Locale.ROOT, "%dm%02ds", seconds / 60, seconds % 60);
+    }
+}
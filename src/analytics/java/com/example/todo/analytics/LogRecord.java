@@ -0,0 +1,46 @@
+package com.example.todo.analytics;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * One parsed log line. Instances are reused line after line by a single chunk task.
+ */
+final class LogRecord {
+    static final String AUDIT_LOGGER = "com.example.todo.audit";
+
+    long timestampMillis;
+    String level;
+    String logger;
+    String requestId;
+    String userId;
+    /** Event type of a structured message ({@code interaction}, {@code todo}, {@code auth}, {@code phase}), {@code audit}, or null. */
+    String event;
+    final Map<String, String> fields = new HashMap<>();
+
+    void clear() {
+        timestampMillis = 0;
+        level = null;
+        logger = null;
+        requestId = null;
+        userId = null;
+        event = null;
+        fields.clear();
+    }
+
+    String field(String name) {
+        return fields.get(name);
+    }
+
+    long longField(String name, long defaultValue) {
+        String value = fields.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.example.todo.analytics;
+
+/**
+ * Aggregates computed over one chunk of log lines; results of adjacent chunks are combined
+ * with {@link #merge(LogStats)}, earlier chunk first. Every structure is either fixed-size or
+ * capped at {@code maxKeys} entries, so memory does not grow with the size of the logs.
+ */
+final class LogStats {
+    static final String ANONYMOUS = "(anonymous)";
+    private static final String RESTORE_VIEW = "RESTORE_VIEW";
+    private static final String RENDER_RESPONSE = "RENDER_RESPONSE";
+
+    long lines;
+    long events;
+    long skippedLines;
+    long firstMillis = Long.MAX_VALUE;
+    long lastMillis = Long.MIN_VALUE;
+
+    final BoundedMap<UserStats> users;
+    final BoundedMap<long[]> userActions;
+    final BoundedMap<ViewStats> views;
+    final RequestTracker requests;
+    final BoundedMap<SessionSegment> sessions;
+    final SessionStats sessionStats = new SessionStats();
+
+    LogStats(int maxKeys) {
+        users = new BoundedMap<>(maxKeys, UserStats::new, UserStats::merge);
+        userActions = new BoundedMap<>(maxKeys, () -> new long[1], (a, b) -> a[0] += b[0]);
+        views = new BoundedMap<>(maxKeys, ViewStats::new, ViewStats::merge);
+        requests = new RequestTracker(maxKeys);
+        sessions = new BoundedMap<>(maxKeys, SessionSegment::new, (a, b) -> {
+            throw new UnsupportedOperationException("sessions are merged in order");
+        });
+    }
+
+    void accept(LogRecord record) {
+        events++;
+        firstMillis = Math.min(firstMillis, record.timestampMillis);
+        lastMillis = Math.max(lastMillis, record.timestampMillis);
+        if (record.event == null) {
+            return;
+        }
+
+        switch (record.event) {
+            case "interaction":
+                interaction(record);
+                break;
+            case "audit":
+                audit(record);
+                break;
+            case "auth":
+                auth(record);
+                break;
+            case "todo":
+                users.get(user(record.userId)).mutations++;
+                break;
+            case "phase":
+                phase(record);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void interaction(LogRecord record) {
+        users.get(user(record.userId)).interactions++;
+        if ("click".equals(record.field("kind")) && record.requestId != null) {
+            requests.click(record.requestId, record.field("view"));
+        }
+    }
+
+    private void audit(LogRecord record) {
+        String user = user(record.userId);
+        String action = record.field("action");
+        if (action == null) {
+            return;
+        }
+        users.get(user).actions++;
+        userActions.get(user + '\t' + action)[0]++;
+        if (record.requestId != null) {
+            requests.action(record.requestId, action);
+        }
+        // Login and logout delimit sessions rather than count as activity in them
+        if (!action.startsWith("LoginBean.")) {
+            SessionSegment session = sessions.getIfAdmitted(user);
+            if (session != null) {
+                session.action(record.timestampMillis, sessionStats);
+            }
+        }
+    }
+
+    private void auth(LogRecord record) {
+        String user = user(record.field("username"));
+        UserStats stats = users.get(user);
+        SessionSegment session = sessions.getIfAdmitted(user);
+        boolean success = "success".equals(record.field("outcome"));
+        if ("login".equals(record.field("action"))) {
+            if (success) {
+                stats.logins++;
+                if (session != null) {
+                    session.login(record.timestampMillis, sessionStats);
+                }
+            } else {
+                stats.failedLogins++;
+            }
+        } else if ("logout".equals(record.field("action")) && session != null) {
+            session.logout(record.timestampMillis, sessionStats);
+        }
+    }
+
+    private void phase(LogRecord record) {
+        String phase = record.field("phase");
+        String view = record.field("view");
+        if (view == null) {
+            view = record.field("viewId");
+        }
+        long micros = record.longField("durationMicros", 0);
+        if (RESTORE_VIEW.equals(phase)) {
+            if (view != null) {
+                views.get(view).requests++;
+            }
+            if (record.requestId != null) {
+                requests.restoreView(record.requestId);
+            }
+            return;
+        }
+
+        boolean render = RENDER_RESPONSE.equals(phase);
+        if (render && view != null) {
+            views.get(view).renderMicros.record(micros);
+        }
+        if (record.requestId != null) {
+            requests.phase(record.requestId, micros, render, view);
+        }
+    }
+
+    private static String user(String user) {
+        return user != null && !user.isEmpty() ? user : ANONYMOUS;
+    }
+
+    void endOfChunk() {
+        requests.endOfChunk();
+    }
+
+    /**
+     * Adds the aggregates of the chunk that directly follows this one.
+     */
+    void merge(LogStats next) {
+        lines += next.lines;
+        events += next.events;
+        skippedLines += next.skippedLines;
+        firstMillis = Math.min(firstMillis, next.firstMillis);
+        lastMillis = Math.max(lastMillis, next.lastMillis);
+        users.merge(next.users);
+        userActions.merge(next.userActions);
+        views.merge(next.views);
+        requests.merge(next.requests);
+        sessionStats.merge(next.sessionStats);
+
+        next.sessions.forEach((user, segment) -> {
+            SessionSegment current = sessions.getIfAdmitted(user);
+            if (current != null) {
+                current.append(segment, sessionStats);
+            }
+        });
+    }
+
+    /**
+     * Closes the sessions left open at either end of the analyzed logs.
+     */
+    void finish() {
+        requests.finish();
+        sessions.forEach((user, segment) -> segment.finish(sessionStats));
+    }
+
+    static final class UserStats {
+        long actions;
+        long interactions;
+        long mutations;
+        long logins;
+        long failedLogins;
+
+        void merge(UserStats other) {
+            actions += other.actions;
+            interactions += other.interactions;
+            mutations += other.mutations;
+            logins += other.logins;
+            failedLogins += other.failedLogins;
+        }
+    }
+
+    static final class ViewStats {
+        long requests;
+        final Histogram renderMicros = new Histogram();
+
+        void merge(ViewStats other) {
+            requests += other.requests;
+            renderMicros.merge(other.renderMicros);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.todo.analytics;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Follows JSF requests from the click that triggered them to the end of their render phase
+ * and records the time spent in between (the phases after RESTORE_VIEW) per action.
+ *
+ * A request can straddle a chunk boundary. Requests still waiting for their render at the
+ * end of a chunk are kept (up to {@value #MAX_PENDING} of them), and events near the start of
+ * a chunk that belong to a request it did not see start are kept aside as the chunk's
+ * <em>head</em>; {@link #merge(RequestTracker)} joins the two.
+ */
+final class RequestTracker {
+    private static final int MAX_PENDING = 4096;
+    private static final int HEAD_EVENTS = 2000;
+
+    final BoundedMap<Histogram> actionToRender;
+    final Histogram all = new Histogram();
+    long incomplete;
+
+    private final Map<String, RequestState> pending = new LinkedHashMap<String, RequestState>() {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, RequestState> eldest) {
+            if (size() > MAX_PENDING) {
+                incomplete++;
+                return true;
+            }
+            return false;
+        }
+    };
+    private final Map<String, RequestState> head = new HashMap<>();
+    private final Set<String> startedInHead = new HashSet<>();
+    private int seen;
+
+    RequestTracker(int maxKeys) {
+        actionToRender = new BoundedMap<>(maxKeys, Histogram::new, Histogram::merge);
+    }
+
+    /**
+     * RESTORE_VIEW of a request.
+     */
+    void restoreView(String requestId) {
+        seen++;
+        if (inHead()) {
+            startedInHead.add(requestId);
+        }
+    }
+
+    void click(String requestId, String view) {
+        seen++;
+        if (inHead()) {
+            startedInHead.add(requestId);
+        }
+        RequestState request = pending.computeIfAbsent(requestId, id -> new RequestState());
+        request.clicked = true;
+        if (request.view == null) {
+            request.view = view;
+        }
+    }
+
+    void action(String requestId, String action) {
+        seen++;
+        RequestState request = lookup(requestId);
+        if (request == null) {
+            request = pending.computeIfAbsent(requestId, id -> new RequestState());
+        }
+        request.action = action;
+    }
+
+    void phase(String requestId, long micros, boolean render, String view) {
+        seen++;
+        RequestState request = lookup(requestId);
+        if (request == null) {
+            return;
+        }
+        request.micros += micros;
+        if (request.view == null) {
+            request.view = view;
+        }
+        if (render) {
+            request.rendered = true;
+            if (pending.remove(requestId) != null) {
+                complete(request);
+            }
+        }
+    }
+
+    /**
+     * Finds the state of a request that is pending, or that started before this chunk while
+     * the chunk's head is being read.
+     */
+    private RequestState lookup(String requestId) {
+        RequestState request = pending.get(requestId);
+        if (request == null && inHead() && !startedInHead.contains(requestId)) {
+            request = head.computeIfAbsent(requestId, id -> new RequestState());
+        }
+        return request;
+    }
+
+    private boolean inHead() {
+        return seen <= HEAD_EVENTS;
+    }
+
+    private void complete(RequestState request) {
+        if (request.clicked) {
+            String key = request.action != null ? request.action : "click on " + request.view;
+            actionToRender.get(key).record(request.micros);
+            all.record(request.micros);
+        }
+    }
+
+    void endOfChunk() {
+        startedInHead.clear();
+    }
+
+    /**
+     * Adds the tracker of the chunk that directly follows this one, completing requests that
+     * crossed the boundary.
+     */
+    void merge(RequestTracker next) {
+        next.head.forEach((requestId, continued) -> {
+            RequestState request = pending.remove(requestId);
+            if (request == null) {
+                return;
+            }
+            request.micros += continued.micros;
+            if (continued.action != null) {
+                request.action = continued.action;
+            }
+            if (continued.rendered) {
+                complete(request);
+            } else {
+                pending.put(requestId, request);
+            }
+        });
+        pending.putAll(next.pending);
+        incomplete += next.incomplete;
+        actionToRender.merge(next.actionToRender);
+        all.merge(next.all);
+    }
+
+    /**
+     * Counts the requests that never rendered (redirects, errors, cut off by the end of the log).
+     */
+    void finish() {
+        incomplete += pending.size();
+        pending.clear();
+    }
+
+    private static final class RequestState {
+        String view;
+        String action;
+        boolean clicked;
+        boolean rendered;
+        long micros;
+    }
+}
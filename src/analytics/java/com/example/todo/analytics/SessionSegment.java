@@ -0,0 +1,110 @@
+package com.example.todo.analytics;
+
+/**
+ * One user's session activity within a contiguous stretch of the log. Segments from adjacent
+ * chunks are merged left to right, which lets sessions that span chunk (and file) boundaries
+ * be reconstructed without keeping their events in memory:
+ * <ul>
+ *   <li>the <em>head</em> is activity before the first login of the stretch, which belongs
+ *       to a session opened earlier (possibly ended by a logout in the stretch)</li>
+ *   <li>the <em>tail</em> is the session opened by the last login, if it is still open</li>
+ * </ul>
+ * Sessions that start and end inside the stretch are handed to {@link SessionStats} at once.
+ */
+final class SessionSegment {
+    private long headActions;
+    private long headLastMillis = -1;
+    private boolean headLoggedOut;
+
+    private boolean sawLogin;
+    private boolean tailOpen;
+    private long tailStartMillis;
+    private long tailLastMillis;
+    private long tailActions;
+
+    void login(long timestamp, SessionStats stats) {
+        if (sawLogin && tailOpen) {
+            stats.completed(tailStartMillis, tailLastMillis, tailActions, false);
+        }
+        sawLogin = true;
+        tailOpen = true;
+        tailStartMillis = timestamp;
+        tailLastMillis = timestamp;
+        tailActions = 0;
+    }
+
+    void logout(long timestamp, SessionStats stats) {
+        if (!sawLogin) {
+            headLoggedOut = true;
+            headLastMillis = Math.max(headLastMillis, timestamp);
+        } else if (tailOpen) {
+            stats.completed(tailStartMillis, timestamp, tailActions, true);
+            tailOpen = false;
+        }
+    }
+
+    void action(long timestamp, SessionStats stats) {
+        if (!sawLogin) {
+            if (headLoggedOut) {
+                stats.orphanActions++;
+            } else {
+                headActions++;
+                headLastMillis = Math.max(headLastMillis, timestamp);
+            }
+        } else if (tailOpen) {
+            tailActions++;
+            tailLastMillis = Math.max(tailLastMillis, timestamp);
+        } else {
+            stats.orphanActions++;
+        }
+    }
+
+    /**
+     * Appends the following stretch {@code next} to this one.
+     */
+    void append(SessionSegment next, SessionStats stats) {
+        if (!sawLogin) {
+            if (headLoggedOut) {
+                stats.orphanActions += next.headActions;
+            } else {
+                headActions += next.headActions;
+                headLastMillis = Math.max(headLastMillis, next.headLastMillis);
+                headLoggedOut = next.headLoggedOut;
+            }
+        } else if (tailOpen) {
+            tailActions += next.headActions;
+            tailLastMillis = Math.max(tailLastMillis, next.headLastMillis);
+            if (next.headLoggedOut) {
+                stats.completed(tailStartMillis, tailLastMillis, tailActions, true);
+                tailOpen = false;
+            } else if (next.sawLogin) {
+                stats.completed(tailStartMillis, tailLastMillis, tailActions, false);
+                tailOpen = false;
+            }
+        } else {
+            stats.orphanActions += next.headActions;
+        }
+
+        if (next.sawLogin) {
+            sawLogin = true;
+            tailOpen = next.tailOpen;
+            tailStartMillis = next.tailStartMillis;
+            tailLastMillis = next.tailLastMillis;
+            tailActions = next.tailActions;
+        }
+    }
+
+    /**
+     * Called once on the fully merged segment: counts sessions cut off by the start or end of
+     * the analyzed logs.
+     */
+    void finish(SessionStats stats) {
+        if (headActions > 0 || headLoggedOut) {
+            stats.startedBeforeLog++;
+        }
+        if (sawLogin && tailOpen) {
+            stats.openAtEnd++;
+            stats.openActions.record(tailActions);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.todo.analytics;
+
+/**
+ * Aggregates over reconstructed login sessions.
+ */
+final class SessionStats {
+    final Histogram durationSeconds = new Histogram();
+    final Histogram actionsPerSession = new Histogram();
+    final Histogram openActions = new Histogram();
+    long endedByLogout;
+    long endedByLogin;
+    long startedBeforeLog;
+    long openAtEnd;
+    long orphanActions;
+
+    void completed(long startMillis, long endMillis, long actions, boolean loggedOut) {
+        durationSeconds.record((endMillis - startMillis) / 1000);
+        actionsPerSession.record(actions);
+        if (loggedOut) {
+            endedByLogout++;
+        } else {
+            endedByLogin++;
+        }
+    }
+
+    void merge(SessionStats other) {
+        durationSeconds.merge(other.durationSeconds);
+        actionsPerSession.merge(other.actionsPerSession);
+        openActions.merge(other.openActions);
+        endedByLogout += other.endedByLogout;
+        endedByLogin += other.endedByLogin;
+        startedBeforeLog += other.startedBeforeLog;
+        openAtEnd += other.openAtEnd;
+        orphanActions += other.orphanActions;
+    }
+}
@@ -0,0 +1,223 @@
+package com.example.todo.loadtest;
+
+import java.io.IOException;
+import java.net.CookieManager;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Browser-like HTTP client for one virtual user. Keeps the session cookie and the current
+ * view's {@code javax.faces.ViewState}, and speaks the PrimeFaces partial-request protocol:
+ * form-encoded posts with {@code javax.faces.partial.*} parameters, answered by a
+ * {@code <partial-response>} carrying updates, redirects, errors and callback params.
+ */
+class JsfSession {
+    private static final String VIEW_STATE = "javax.faces.ViewState";
+    private static final Pattern VIEW_STATE_INPUT = Pattern.compile(
+            "<input[^>]*name=\"" + Pattern.quote(VIEW_STATE) + "\"[^>]*>");
+    private static final Pattern VALUE_ATTRIBUTE = Pattern.compile("value=\"([^\"]*)\"");
+    private static final Pattern VIEW_STATE_UPDATE = Pattern.compile(
+            "<update id=\"[^\"]*" + Pattern.quote(VIEW_STATE) + "[^\"]*\"><!\\[CDATA\\[(.*?)\\]\\]></update>", Pattern.DOTALL);
+    private static final Pattern REDIRECT = Pattern.compile("<redirect url=\"([^\"]*)\"");
+    private static final Pattern ERROR = Pattern.compile("<error>.*?<error-message><!\\[CDATA\\[(.*?)\\]\\]>", Pattern.DOTALL);
+    private static final Pattern CALLBACK_ARGS = Pattern.compile(
+            "<extension ln=\"primefaces\" type=\"args\">(?:<!\\[CDATA\\[)?(\\{.*?\\})(?:\\]\\]>)?</extension>", Pattern.DOTALL);
+
+    private final String baseUrl;
+    private final HttpClient client;
+    private String viewState;
+
+    JsfSession(String baseUrl, Duration timeout) {
+        this.baseUrl = baseUrl;
+        this.client = HttpClient.newBuilder()
+                .cookieHandler(new CookieManager())
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .connectTimeout(timeout)
+                .build();
+    }
+
+    /**
+     * GETs a page, following redirects, and remembers its view state.
+     */
+    String get(String path) throws IOException, InterruptedException {
+        HttpResponse<String> response = send(HttpRequest.newBuilder(resolve(path)).GET());
+        for (int redirects = 0; isRedirect(response.statusCode()) && redirects < 5; redirects++) {
+            String location = response.headers().firstValue("Location")
+                    .orElseThrow(() -> new IOException("Redirect without Location"));
+            response = send(HttpRequest.newBuilder(resolve(location)).GET());
+        }
+        checkStatus(response);
+        viewState = extractViewState(response.body());
+        return response.body();
+    }
+
+    /**
+     * Full (non-AJAX) form post; returns the redirect target or null if the page re-rendered.
+     */
+    String submit(String path, String formId, String buttonId, Map<String, String> fields)
+            throws IOException, InterruptedException {
+        Map<String, String> params = new LinkedHashMap<>();
+        params.put(formId, formId);
+        params.putAll(fields);
+        params.put(buttonId, "");
+        params.put(VIEW_STATE, requireViewState());
+
+        HttpResponse<String> response = send(formPost(path, params));
+        if (isRedirect(response.statusCode())) {
+            viewState = null;
+            return response.headers().firstValue("Location").orElse(null);
+        }
+        checkStatus(response);
+        viewState = extractViewState(response.body());
+        return null;
+    }
+
+    /**
+     * PrimeFaces AJAX request as sent by a command button, remote command or poll.
+     */
+    PartialResponse ajax(String path, String formId, String sourceId, String execute, String render,
+                         Map<String, String> fields) throws IOException, InterruptedException {
+        Map<String, String> params = new LinkedHashMap<>();
+        params.put("javax.faces.partial.ajax", "true");
+        params.put("javax.faces.source", sourceId);
+        params.put("javax.faces.partial.execute", execute);
+        params.put("javax.faces.partial.render", render);
+        params.put(sourceId, sourceId);
+        params.put(formId, formId);
+        params.putAll(fields);
+        params.put(VIEW_STATE, requireViewState());
+
+        HttpResponse<String> response = send(formPost(path, params)
+                .header("Faces-Request", "partial/ajax")
+                .header("X-Requested-With", "XMLHttpRequest"));
+        checkStatus(response);
+
+        String body = response.body();
+        Matcher update = VIEW_STATE_UPDATE.matcher(body);
+        if (update.find()) {
+            viewState = update.group(1);
+        }
+        Matcher redirect = REDIRECT.matcher(body);
+        Matcher error = ERROR.matcher(body);
+        Matcher args = CALLBACK_ARGS.matcher(body);
+        return new PartialResponse(
+                redirect.find() ? redirect.group(1) : null,
+                error.find() ? error.group(1) : null,
+                args.find() ? args.group(1) : "");
+    }
+
+    /**
+     * Plain GET without view-state handling, e.g. for admin endpoints.
+     */
+    String fetch(String path) throws IOException, InterruptedException {
+        return fetch(path, null, null);
+    }
+
+    /**
+     * Plain GET with Basic credentials, as the admin endpoints require.
+     */
+    String fetch(String path, String username, String password) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(resolve(path)).GET();
+        if (username != null) {
+            String credentials = username + ":" + password;
+            request.header("Authorization", "Basic "
+                    + Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8)));
+        }
+        HttpResponse<String> response = send(request);
+        checkStatus(response);
+        return response.body();
+    }
+
+    private HttpRequest.Builder formPost(String path, Map<String, String> params) {
+        StringBuilder form = new StringBuilder();
+        for (Map.Entry<String, String> param : params.entrySet()) {
+            if (form.length() > 0) {
+                form.append('&');
+            }
+            form.append(URLEncoder.encode(param.getKey(), StandardCharsets.UTF_8)).append('=')
+                    .append(URLEncoder.encode(param.getValue(), StandardCharsets.UTF_8));
+        }
+        return HttpRequest.newBuilder(resolve(path))
+                .header("Content-Type", "application/x-www-form-urlencoded; charset=UTF-8")
+                .POST(HttpRequest.BodyPublishers.ofString(form.toString()));
+    }
+
+    private HttpResponse<String> send(HttpRequest.Builder request) throws IOException, InterruptedException {
+        return client.send(request.timeout(Duration.ofSeconds(30)).build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private URI resolve(String pathOrUrl) {
+        if (pathOrUrl.startsWith("http://") || pathOrUrl.startsWith("https://")) {
+            return URI.create(pathOrUrl);
+        }
+        URI base = URI.create(baseUrl);
+        if (pathOrUrl.startsWith(base.getPath() + "/")) {
+            // Absolute path including the context root, as in redirects
+            return base.resolve(pathOrUrl);
+        }
+        return URI.create(baseUrl + pathOrUrl);
+    }
+
+    private String requireViewState() throws IOException {
+        if (viewState == null) {
+            throw new IOException("No view state; load a page first");
+        }
+        return viewState;
+    }
+
+    private static String extractViewState(String html) {
+        Matcher input = VIEW_STATE_INPUT.matcher(html);
+        if (!input.find()) {
+            return null;
+        }
+        Matcher value = VALUE_ATTRIBUTE.matcher(input.group());
+        return value.find() ? value.group(1) : null;
+    }
+
+    private static boolean isRedirect(int status) {
+        return status == 301 || status == 302 || status == 303 || status == 307;
+    }
+
+    private static void checkStatus(HttpResponse<String> response) throws IOException {
+        if (response.statusCode() >= 400) {
+            throw new IOException("HTTP " + response.statusCode() + " for " + response.uri());
+        }
+    }
+
+    /**
+     * The parts of a partial response the scenario checks.
+     */
+    static final class PartialResponse {
+        final String redirect;
+        final String error;
+        final String callbackArgs;
+
+        PartialResponse(String redirect, String error, String callbackArgs) {
+            this.redirect = redirect;
+            this.error = error;
+            this.callbackArgs = callbackArgs;
+        }
+
+        /**
+         * Numeric callback param, e.g. {@code todoId}, or null if absent.
+         */
+        Long longArg(String name) {
+            Matcher matcher = Pattern.compile("\"" + Pattern.quote(name) + "\"\\s*:\\s*(\\d+)").matcher(callbackArgs);
+            return matcher.find() ? Long.valueOf(matcher.group(1)) : null;
+        }
+
+        boolean validationFailed() {
+            return callbackArgs.contains("\"validationFailed\":true");
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.todo.loadtest;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free per-step request statistics: counts, errors and a latency histogram with
+ * 1 ms buckets up to 10 s plus an overflow bucket.
+ */
+class LatencyStats {
+    private static final int MAX_MILLIS = 10_000;
+
+    private final String step;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder totalMicros = new LongAdder();
+    private final AtomicLongArray buckets = new AtomicLongArray(MAX_MILLIS + 1);
+
+    LatencyStats(String step) {
+        this.step = step;
+    }
+
+    void record(long nanos, boolean failed) {
+        count.increment();
+        if (failed) {
+            errors.increment();
+        }
+        totalMicros.add(nanos / 1000);
+        buckets.incrementAndGet((int) Math.min(nanos / 1_000_000, MAX_MILLIS));
+    }
+
+    String getStep() {
+        return step;
+    }
+
+    long getCount() {
+        return count.sum();
+    }
+
+    long getErrors() {
+        return errors.sum();
+    }
+
+    double getMeanMillis() {
+        long n = count.sum();
+        return n > 0 ? totalMicros.sum() / 1000.0 / n : 0;
+    }
+
+    /**
+     * Latency at the given quantile in whole milliseconds (upper bucket bound).
+     */
+    long percentileMillis(double quantile) {
+        long n = count.sum();
+        if (n == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(quantile * n);
+        long seen = 0;
+        for (int i = 0; i <= MAX_MILLIS; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                return i + 1;
+            }
+        }
+        return MAX_MILLIS;
+    }
+
+    long maxMillis() {
+        for (int i = MAX_MILLIS; i >= 0; i--) {
+            if (buckets.get(i) > 0) {
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,218 @@
+package com.example.todo.loadtest;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Closed-loop load test of the todo application: {@code loadtest.users} virtual users run
+ * {@link VirtualUser} sessions against {@code loadtest.baseUrl} for {@code loadtest.durationSeconds},
+ * ramping up over {@code loadtest.rampUpSeconds}. Prints progress every 10 seconds and a final
+ * report with throughput, latency percentiles and error rate per step, plus server heap and
+ * session counts sampled from {@code /admin/runtime} as {@code loadtest.adminCredentials}.
+ *
+ * Run it with {@code mvn -Ploadtest verify}, which starts the WAR in TomEE first (see README).
+ */
+public class LoadTest {
+    private final String baseUrl;
+    private final int users;
+    private final long durationSeconds;
+    private final long rampUpSeconds;
+    private final long thinkMillis;
+    private final int todosPerSession;
+    private final List<String[]> credentials = new ArrayList<>();
+    private final String[] adminCredentials;
+
+    private final Map<String, LatencyStats> stats = new ConcurrentHashMap<>();
+    private final LongAdder sessions = new LongAdder();
+    private final Map<String, LongAdder> errorSamples = new ConcurrentHashMap<>();
+    private final AtomicLong peakHeapBytes = new AtomicLong();
+    private final AtomicLong peakSessions = new AtomicLong();
+    private volatile String lastRuntime = "n/a";
+
+    LoadTest() {
+        baseUrl = System.getProperty("loadtest.baseUrl", "http://localhost:8080/jsf-todo-app").replaceAll("/+$", "");
+        users = Integer.getInteger("loadtest.users", 20);
+        durationSeconds = Long.getLong("loadtest.durationSeconds", 60L);
+        rampUpSeconds = Long.getLong("loadtest.rampUpSeconds", 10L);
+        thinkMillis = Long.getLong("loadtest.thinkMillis", 500L);
+        todosPerSession = Integer.getInteger("loadtest.todosPerSession", 3);
+        adminCredentials = System.getProperty("loadtest.adminCredentials", "admin:admin123").split(":", 2);
+        for (String pair : System.getProperty("loadtest.credentials", "user1:user123,user2:user123,admin:admin123").split(",")) {
+            String[] parts = pair.trim().split(":", 2);
+            if (parts.length == 2) {
+                credentials.add(parts);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTest test = new LoadTest();
+        test.awaitServer();
+        test.run();
+        if (test.totalErrors() > 0 && Boolean.getBoolean("loadtest.failOnErrors")) {
+            System.exit(1);
+        }
+    }
+
+    void run() throws InterruptedException {
+        System.out.printf(Locale.ROOT, "Load test: %d users, %d s (ramp-up %d s), think %d ms, %d todos/session against %s%n",
+                users, durationSeconds, rampUpSeconds, thinkMillis, todosPerSession, baseUrl);
+
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.SECONDS.toNanos(durationSeconds);
+        ExecutorService pool = Executors.newFixedThreadPool(users);
+        ScheduledExecutorService monitor = Executors.newSingleThreadScheduledExecutor();
+        monitor.scheduleAtFixedRate(this::sampleServer, 0, 2, TimeUnit.SECONDS);
+        monitor.scheduleAtFixedRate(() -> printProgress(start), 10, 10, TimeUnit.SECONDS);
+
+        for (int i = 0; i < users; i++) {
+            String[] credential = credentials.get(i % credentials.size());
+            pool.execute(new VirtualUser(this, credential[0], credential[1], deadline));
+            if (rampUpSeconds > 0 && users > 1) {
+                Thread.sleep(TimeUnit.SECONDS.toMillis(rampUpSeconds) / users);
+            }
+        }
+
+        pool.shutdown();
+        // Sessions in flight at the deadline finish their current step, then stop
+        pool.awaitTermination(durationSeconds + 120, TimeUnit.SECONDS);
+        pool.shutdownNow();
+        sampleServer();
+        monitor.shutdownNow();
+        printReport((System.nanoTime() - start) / 1e9);
+    }
+
+    /**
+     * Waits until the server reports ready, i.e. has finished its warm-up, so the test can
+     * start right after the server without measuring a cold application.
+     */
+    void awaitServer() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(Long.getLong("loadtest.startupTimeoutSeconds", 180L));
+        while (true) {
+            try {
+                new JsfSession(baseUrl, Duration.ofSeconds(5)).fetch("/health/ready");
+                return;
+            } catch (IOException e) {
+                if (System.nanoTime() > deadline) {
+                    throw new IllegalStateException("Server at " + baseUrl + " did not become ready: " + e.getMessage());
+                }
+                Thread.sleep(1000);
+            }
+        }
+    }
+
+    void record(String step, long nanos, boolean failed) {
+        stats.computeIfAbsent(step, LatencyStats::new).record(nanos, failed);
+    }
+
+    void reportError(String step, Exception e) {
+        String key = step + ": " + e.getClass().getSimpleName() + (e.getMessage() != null ? " " + e.getMessage() : "");
+        if (errorSamples.size() < 50 || errorSamples.containsKey(key)) {
+            errorSamples.computeIfAbsent(key, k -> new LongAdder()).increment();
+        }
+    }
+
+    void sessionCompleted() {
+        sessions.increment();
+    }
+
+    String getBaseUrl() {
+        return baseUrl;
+    }
+
+    long getThinkMillis() {
+        return thinkMillis;
+    }
+
+    int getTodosPerSession() {
+        return todosPerSession;
+    }
+
+    private void sampleServer() {
+        try {
+            String runtime = new JsfSession(baseUrl, Duration.ofSeconds(5)).fetch("/admin/runtime",
+                    adminCredentials[0], adminCredentials.length > 1 ? adminCredentials[1] : "");
+            long heap = value(runtime, "heapUsedBytes");
+            long active = value(runtime, "activeSessions");
+            peakHeapBytes.accumulateAndGet(heap, Math::max);
+            peakSessions.accumulateAndGet(active, Math::max);
+            lastRuntime = String.format(Locale.ROOT, "heap %d MB, %d sessions", heap >> 20, active);
+        } catch (IOException | RuntimeException e) {
+            lastRuntime = "n/a (" + e.getMessage() + ")";
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static long value(String runtime, String key) {
+        for (String line : runtime.split("\n")) {
+            if (line.startsWith(key + "=")) {
+                return Long.parseLong(line.substring(key.length() + 1).trim());
+            }
+        }
+        return 0;
+    }
+
+    private long totalRequests() {
+        return stats.values().stream().mapToLong(LatencyStats::getCount).sum();
+    }
+
+    private long totalErrors() {
+        return stats.values().stream().mapToLong(LatencyStats::getErrors).sum();
+    }
+
+    private void printProgress(long start) {
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        System.out.printf(Locale.ROOT, "[%4.0fs] %d requests (%.1f/s), %d errors, %d sessions, server: %s%n",
+                elapsed, totalRequests(), totalRequests() / elapsed, totalErrors(), sessions.sum(), lastRuntime);
+    }
+
+    private void printReport(double elapsedSeconds) {
+        long requests = totalRequests();
+        long errors = totalErrors();
+        StringBuilder report = new StringBuilder();
+        report.append(String.format(Locale.ROOT, "%n=== Load test report (%.0f s, %d users) ===%n", elapsedSeconds, users));
+        report.append(String.format(Locale.ROOT, "%-10s %9s %7s %7s %8s %7s %7s %7s %7s %7s%n",
+                "step", "requests", "errors", "err%", "req/s", "mean", "p50", "p95", "p99", "max"));
+
+        Collection<LatencyStats> steps = new ArrayList<>(stats.values());
+        for (String name : new String[]{"loginPage", "login", "list", "add", "toggle", "heartbeat", "delete", "logout"}) {
+            for (LatencyStats step : steps) {
+                if (step.getStep().equals(name)) {
+                    report.append(line(step, elapsedSeconds));
+                }
+            }
+        }
+
+        report.append(String.format(Locale.ROOT, "%nTotal: %d requests, %.1f req/s, %d errors (%.2f%%), %d sessions completed (%.2f/s)%n",
+                requests, requests / elapsedSeconds, errors, requests > 0 ? 100.0 * errors / requests : 0,
+                sessions.sum(), sessions.sum() / elapsedSeconds));
+        report.append(String.format(Locale.ROOT, "Server: peak heap %d MB, peak sessions %d, last sample %s%n",
+                peakHeapBytes.get() >> 20, peakSessions.get(), lastRuntime));
+        if (!errorSamples.isEmpty()) {
+            report.append("Errors:\n");
+            errorSamples.forEach((key, count) -> report.append(String.format(Locale.ROOT, "  %6d  %s%n", count.sum(), key)));
+        }
+        System.out.print(report);
+    }
+
+    private static String line(LatencyStats step, double elapsedSeconds) {
+        long count = step.getCount();
+        return String.format(Locale.ROOT, "%-10s %9d %7d %6.2f%% %8.1f %6.1fms %5dms %5dms %5dms %5dms%n",
+                step.getStep(), count, step.getErrors(), count > 0 ? 100.0 * step.getErrors() / count : 0,
+                count / elapsedSeconds, step.getMeanMillis(), step.percentileMillis(0.50),
+                step.percentileMillis(0.95), step.percentileMillis(0.99), step.maxMillis());
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.todo.loadtest;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * One simulated user repeating a browser session until the deadline: open the login page,
+ * log in, load the todo list, add todos, toggle and delete them, send the keep-alive poll
+ * and log out. Every step is timed into {@link LoadTest}'s statistics; a failed step ends
+ * the session and the user starts over with a fresh one.
+ */
+class VirtualUser implements Runnable {
+    private static final String LIST = "/todo/list.xhtml";
+    private static final String FORM = "mainTodoForm";
+
+    private final LoadTest test;
+    private final String username;
+    private final String password;
+    private final long deadlineNanos;
+
+    VirtualUser(LoadTest test, String username, String password, long deadlineNanos) {
+        this.test = test;
+        this.username = username;
+        this.password = password;
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    @Override
+    public void run() {
+        while (System.nanoTime() < deadlineNanos && !Thread.currentThread().isInterrupted()) {
+            try {
+                session();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (StepFailedException e) {
+                // Already recorded as an error; start a new session
+            }
+        }
+    }
+
+    private void session() throws InterruptedException, StepFailedException {
+        JsfSession browser = new JsfSession(test.getBaseUrl(), Duration.ofSeconds(10));
+
+        step("loginPage", () -> browser.get("/login.xhtml"));
+        step("login", () -> {
+            JsfSession.PartialResponse response = browser.ajax("/login.xhtml", "loginForm", "loginForm:loginBtn",
+                    "loginForm", "loginForm", Map.of("loginForm:username", username, "loginForm:password", password));
+            if (response.redirect == null) {
+                throw new IllegalStateException("Login did not redirect" + (response.error != null ? ": " + response.error : ""));
+            }
+        });
+        step("list", () -> browser.get(LIST));
+
+        List<Long> created = new ArrayList<>();
+        for (int i = 0; i < test.getTodosPerSession(); i++) {
+            think();
+            int n = i;
+            step("add", () -> {
+                JsfSession.PartialResponse response = browser.ajax(LIST, FORM, FORM + ":saveTodoBtn", FORM,
+                        FORM + ":rowFragment " + FORM + ":todoCount messages",
+                        Map.of(FORM + ":dialogTitle", "Load test " + username + " #" + n,
+                                FORM + ":dialogDescription", "Created by the load-test harness"));
+                Long todoId = response.longArg("todoId");
+                if (response.error != null || response.validationFailed() || todoId == null) {
+                    throw new IllegalStateException("Add failed" + (response.error != null ? ": " + response.error : ""));
+                }
+                created.add(todoId);
+            });
+        }
+
+        for (Long todoId : created) {
+            think();
+            step("toggle", () -> remoteCommand(browser, "toggleTodoCommand", todoId));
+        }
+
+        think();
+        step("heartbeat", () -> {
+            JsfSession.PartialResponse response = browser.ajax(LIST, "pollForm", "pollForm:keepAlivePoll",
+                    "pollForm:keepAlivePoll", "@none", Map.of());
+            if (response.error != null) {
+                throw new IllegalStateException("Heartbeat failed: " + response.error);
+            }
+        });
+
+        for (Long todoId : created) {
+            think();
+            step("delete", () -> remoteCommand(browser, "deleteTodoCommand", todoId));
+        }
+
+        think();
+        step("logout", () -> {
+            String redirect = browser.submit(LIST, "logoutForm", "logoutForm:logoutBtn", Map.of());
+            if (redirect == null) {
+                throw new IllegalStateException("Logout did not redirect");
+            }
+        });
+        test.sessionCompleted();
+    }
+
+    private static void remoteCommand(JsfSession browser, String command, Long todoId) throws Exception {
+        String source = FORM + ":" + command;
+        JsfSession.PartialResponse response = browser.ajax(LIST, FORM, source, source,
+                FORM + ":rowFragment " + FORM + ":todoCount messages", Map.of("todoId", String.valueOf(todoId)));
+        if (response.error != null || !response.callbackArgs.contains("rowAction")) {
+            throw new IllegalStateException(command + " failed for todo " + todoId
+                    + (response.error != null ? ": " + response.error : ""));
+        }
+    }
+
+    private void step(String name, Step step) throws StepFailedException {
+        long start = System.nanoTime();
+        try {
+            step.run();
+            test.record(name, System.nanoTime() - start, false);
+        } catch (Exception e) {
+            test.record(name, System.nanoTime() - start, true);
+            test.reportError(name, e);
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            throw new StepFailedException();
+        }
+    }
+
+    private void think() throws InterruptedException {
+        long thinkMillis = test.getThinkMillis();
+        if (thinkMillis > 0) {
+            // +/- 50% so users do not move in lockstep
+            Thread.sleep(thinkMillis / 2 + ThreadLocalRandom.current().nextLong(thinkMillis + 1));
+        }
+    }
+
+    @FunctionalInterface
+    private interface Step {
+        void run() throws Exception;
+    }
+
+    private static final class StepFailedException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        StepFailedException() {
+            super(null, null, false, false);
+        }
+    }
+}
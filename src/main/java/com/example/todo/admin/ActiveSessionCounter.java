@@ -0,0 +1,34 @@
+package com.example.todo.admin;
+
+import javax.servlet.annotation.WebListener;
+import javax.servlet.http.HttpSessionEvent;
+import javax.servlet.http.HttpSessionListener;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts live HTTP sessions for {@link RuntimeServlet}.
+ */
+@WebListener
+public class ActiveSessionCounter implements HttpSessionListener {
+    private static final AtomicLong ACTIVE = new AtomicLong();
+    private static final AtomicLong PEAK = new AtomicLong();
+
+    @Override
+    public void sessionCreated(HttpSessionEvent event) {
+        long active = ACTIVE.incrementAndGet();
+        PEAK.accumulateAndGet(active, Math::max);
+    }
+
+    @Override
+    public void sessionDestroyed(HttpSessionEvent event) {
+        ACTIVE.decrementAndGet();
+    }
+
+    public static long getActive() {
+        return ACTIVE.get();
+    }
+
+    public static long getPeak() {
+        return PEAK.get();
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.todo.admin;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Base class for operational endpoints under {@code /admin}. Shiro only lets callers with the
+ * {@code admin} role through, authenticated with Basic credentials (see shiro.ini); in addition
+ * they must come from the client addresses listed in the {@code todo.admin.allowedAddresses}
+ * system property (default: loopback only).
+ */
+public abstract class AdminServlet extends HttpServlet {
+    private static final long serialVersionUID = 1L;
+    private static final Logger logger = LogManager.getLogger(AdminServlet.class);
+
+    private static final Set<String> ALLOWED_ADDRESSES = new HashSet<>(Arrays.asList(
+            System.getProperty("todo.admin.allowedAddresses", "127.0.0.1,0:0:0:0:0:0:0:1,::1").split("\\s*,\\s*")));
+
+    @Override
+    protected void service(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        String remoteAddr = request.getRemoteAddr();
+        if (!ALLOWED_ADDRESSES.contains(remoteAddr)) {
+            logger.warn("Rejected admin request to {} from {}", request.getRequestURI(), remoteAddr);
+            response.sendError(HttpServletResponse.SC_FORBIDDEN);
+            return;
+        }
+        super.service(request, response);
+    }
+
+    protected void writeText(HttpServletResponse response, int status, String body) throws IOException {
+        response.setStatus(status);
+        response.setContentType("text/plain;charset=UTF-8");
+        response.getWriter().write(body);
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.todo.admin;
+
+import com.example.todo.service.TodoArchiver;
+
+import javax.ejb.EJB;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Reports the last archival run ({@code GET /admin/archive}) and archives due todos right away
+ * ({@code POST /admin/archive}) instead of waiting for the hourly run.
+ */
+@WebServlet("/admin/archive")
+public class ArchiveServlet extends AdminServlet {
+    private static final long serialVersionUID = 1L;
+
+    @EJB
+    private TodoArchiver archiver;
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String status = archiver.isRunning() ? "Archival in progress" : archiver.getLastResult();
+        writeText(response, HttpServletResponse.SC_OK, status + "\n");
+    }
+
+    @Override
+    protected void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String result = archiver.archive();
+        if (result == null) {
+            writeText(response, HttpServletResponse.SC_CONFLICT, "Archival already in progress\n");
+            return;
+        }
+        writeText(response, HttpServletResponse.SC_OK, result + "\n");
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.todo.admin;
+
+import com.example.todo.db.DatabaseBackupService;
+import com.example.todo.trace.RequestTrace;
+
+import javax.ejb.EJB;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Triggers an online database backup ({@code POST /admin/backup}) and reports the status of
+ * the current or last backup ({@code GET /admin/backup}).
+ */
+@WebServlet("/admin/backup")
+public class BackupServlet extends AdminServlet {
+    private static final long serialVersionUID = 1L;
+
+    @EJB
+    private DatabaseBackupService backupService;
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String status = backupService.isRunning() ? "Backup in progress" : backupService.getLastResult();
+        writeText(response, HttpServletResponse.SC_OK, status + "\n");
+    }
+
+    @Override
+    protected void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Path target = backupService.reserveBackup();
+        if (target == null) {
+            writeText(response, HttpServletResponse.SC_CONFLICT, "Backup already in progress\n");
+            return;
+        }
+        backupService.backup(target, RequestTrace.captureContext());
+        writeText(response, HttpServletResponse.SC_ACCEPTED, "Backup started: " + target + "\n");
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.todo.admin;
+
+import com.example.todo.warmup.WarmupState;
+
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Probes for load balancers and orchestrators: {@code GET /health/live} answers 200 while the
+ * application is deployed, {@code GET /health/ready} only once the warm-up finished (503
+ * before, and again while stopping). Unlike the admin endpoints these are open to any
+ * client, as they reveal nothing but the state.
+ */
+@WebServlet({"/health/live", "/health/ready"})
+public class HealthServlet extends HttpServlet {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setContentType("text/plain;charset=UTF-8");
+        response.setHeader("Cache-Control", "no-store");
+        if ("/health/live".equals(request.getServletPath())) {
+            response.getWriter().write("LIVE\n");
+        } else if (WarmupState.isReady()) {
+            response.getWriter().write("READY\n");
+        } else {
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            response.getWriter().write("NOT READY\n");
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.todo.admin;
+
+import com.example.todo.db.PoolMetrics;
+import com.example.todo.metrics.LatencyHistogram;
+import com.example.todo.metrics.MethodMetrics;
+import com.example.todo.metrics.MetricsRegistry;
+import com.example.todo.warmup.WarmupState;
+
+import javax.inject.Inject;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+/**
+ * Exposes the {@link MetricsRegistry}, the connection pool {@link PoolMetrics} and the
+ * {@link WarmupState} in the Prometheus text exposition format ({@code GET /admin/metrics}).
+ */
+@WebServlet("/admin/metrics")
+public class MetricsServlet extends AdminServlet {
+    private static final long serialVersionUID = 1L;
+
+    @Inject
+    private MetricsRegistry registry;
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        StringBuilder out = new StringBuilder(4096);
+        out.append("# HELP todo_method_calls_total Calls of instrumented service methods.\n")
+                .append("# TYPE todo_method_calls_total counter\n");
+        for (MethodMetrics metrics : registry.getAll()) {
+            out.append("todo_method_calls_total").append(labels(metrics)).append(' ')
+                    .append(metrics.getCalls()).append('\n');
+        }
+
+        out.append("# HELP todo_method_errors_total Calls of instrumented service methods that threw.\n")
+                .append("# TYPE todo_method_errors_total counter\n");
+        for (MethodMetrics metrics : registry.getAll()) {
+            out.append("todo_method_errors_total").append(labels(metrics)).append(' ')
+                    .append(metrics.getErrors()).append('\n');
+        }
+
+        out.append("# HELP todo_method_duration_seconds Latency of instrumented service methods.\n")
+                .append("# TYPE todo_method_duration_seconds histogram\n");
+        for (MethodMetrics metrics : registry.getAll()) {
+            appendHistogram(out, "todo_method_duration_seconds", labels(metrics), metrics.getLatency());
+        }
+
+        appendPools(out);
+        appendWarmup(out);
+        writeText(response, HttpServletResponse.SC_OK, out.toString());
+    }
+
+    private static void appendPools(StringBuilder out) {
+        out.append("# HELP todo_pool_connections Connections of each datasource pool by state.\n")
+                .append("# TYPE todo_pool_connections gauge\n");
+        for (PoolMetrics pool : PoolMetrics.getAll()) {
+            out.append("todo_pool_connections").append(poolLabels(pool, ",state=\"active\"")).append(' ')
+                    .append(pool.getActive()).append('\n');
+            out.append("todo_pool_connections").append(poolLabels(pool, ",state=\"idle\"")).append(' ')
+                    .append(pool.getIdle()).append('\n');
+        }
+        appendPoolGauge(out, "todo_pool_max_active", "Current maxActive of each datasource pool.", "gauge",
+                PoolMetrics::getMaxActive);
+        appendPoolGauge(out, "todo_pool_waiting_threads", "Threads waiting for a connection.", "gauge",
+                PoolMetrics::getWaitingThreads);
+        appendPoolGauge(out, "todo_pool_borrows_total", "Connections borrowed from each pool.", "counter",
+                PoolMetrics::getBorrows);
+        appendPoolGauge(out, "todo_pool_returns_total", "Connections returned to each pool.", "counter",
+                PoolMetrics::getReturns);
+        appendPoolGauge(out, "todo_pool_statement_cache_hits_total", "Prepared statements served from the pool's cache.",
+                "counter", PoolMetrics::getStatementCacheHits);
+        appendPoolGauge(out, "todo_pool_statement_cache_misses_total", "Prepared statements the pool had to prepare.",
+                "counter", PoolMetrics::getStatementCacheMisses);
+
+        out.append("# HELP todo_pool_wait_seconds Time spent waiting to borrow a connection.\n")
+                .append("# TYPE todo_pool_wait_seconds histogram\n");
+        for (PoolMetrics pool : PoolMetrics.getAll()) {
+            appendHistogram(out, "todo_pool_wait_seconds", poolLabels(pool, ""), pool.getWaits());
+        }
+    }
+
+    private static void appendWarmup(StringBuilder out) {
+        out.append("# HELP todo_ready Whether the warm-up finished and the application reports ready.\n")
+                .append("# TYPE todo_ready gauge\n")
+                .append("todo_ready ").append(WarmupState.isReady() ? 1 : 0).append('\n');
+
+        out.append("# HELP todo_warmup_step_seconds Duration of each warm-up step, on its cold and warm run.\n")
+                .append("# TYPE todo_warmup_step_seconds gauge\n");
+        for (WarmupState.Step step : WarmupState.getSteps()) {
+            String labels = "{step=\"" + escape(step.getName()) + "\",run=\"";
+            out.append("todo_warmup_step_seconds").append(labels).append("cold\"} ")
+                    .append(String.format(Locale.ROOT, "%.6f", step.getColdNanos() / 1e9)).append('\n');
+            if (step.getWarmNanos() >= 0) {
+                out.append("todo_warmup_step_seconds").append(labels).append("warm\"} ")
+                        .append(String.format(Locale.ROOT, "%.6f", step.getWarmNanos() / 1e9)).append('\n');
+            }
+        }
+
+        out.append("# HELP todo_first_request_seconds Latency of the first request to each path since the deploy.\n")
+                .append("# TYPE todo_first_request_seconds gauge\n");
+        for (Map.Entry<String, WarmupState.FirstRequest> entry : WarmupState.getFirstRequests().entrySet()) {
+            out.append("todo_first_request_seconds{request=\"").append(escape(entry.getKey())).append("\"} ")
+                    .append(String.format(Locale.ROOT, "%.6f", entry.getValue().getNanos() / 1e9)).append('\n');
+        }
+    }
+
+    private static void appendPoolGauge(StringBuilder out, String name, String help, String type,
+                                        ToLongFunction<PoolMetrics> value) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n')
+                .append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        for (PoolMetrics pool : PoolMetrics.getAll()) {
+            out.append(name).append(poolLabels(pool, "")).append(' ').append(value.applyAsLong(pool)).append('\n');
+        }
+    }
+
+    /**
+     * Appends the series of one histogram; {@code labels} is a label set such as {@code {pool="todoDS"}}.
+     */
+    private static void appendHistogram(StringBuilder out, String name, String labels, LatencyHistogram histogram) {
+        String bucketLabels = labels.substring(0, labels.length() - 1) + ",le=\"";
+        long[] counts = histogram.snapshot();
+        long cumulative = 0;
+        for (int i = 0; i < counts.length; i++) {
+            cumulative += counts[i];
+            long bound = LatencyHistogram.upperBoundNanos(i);
+            String le = bound == Long.MAX_VALUE ? "+Inf" : String.format(Locale.ROOT, "%.6f", bound / 1e9);
+            out.append(name).append("_bucket").append(bucketLabels).append(le).append("\"} ")
+                    .append(cumulative).append('\n');
+        }
+        out.append(name).append("_sum").append(labels).append(' ')
+                .append(String.format(Locale.ROOT, "%.6f", histogram.getSumNanos() / 1e9)).append('\n');
+        out.append(name).append("_count").append(labels).append(' ')
+                .append(cumulative).append('\n');
+    }
+
+    private static String poolLabels(PoolMetrics pool, String extra) {
+        return "{pool=\"" + escape(pool.getName()) + "\"" + extra + "}";
+    }
+
+    private static String labels(MethodMetrics metrics) {
+        return "{bean=\"" + escape(metrics.getBeanName()) + "\",method=\"" + escape(metrics.getMethodName()) + "\"}";
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+}
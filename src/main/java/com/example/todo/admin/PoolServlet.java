@@ -0,0 +1,55 @@
+package com.example.todo.admin;
+
+import com.example.todo.db.PoolMetrics;
+import com.example.todo.db.PoolTelemetryInterceptor;
+
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Connection pool report ({@code GET /admin/pool}): size, borrow wait and hold times and
+ * statement cache effectiveness per datasource, followed by the connections suspected of
+ * leaking, with their borrowing stacks when {@code todo.pool.captureStacks} is set.
+ */
+@WebServlet("/admin/pool")
+public class PoolServlet extends AdminServlet {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        StringWriter body = new StringWriter();
+        PrintWriter out = new PrintWriter(body);
+        if (PoolMetrics.getAll().isEmpty()) {
+            out.println("No instrumented connection pool has been used yet");
+        }
+        for (PoolMetrics pool : PoolMetrics.getAll()) {
+            out.printf(Locale.ROOT, "%s: %d active, %d idle, max %d, %d waiting%n",
+                    pool.getName(), pool.getActive(), pool.getIdle(), pool.getMaxActive(), pool.getWaitingThreads());
+            out.printf(Locale.ROOT, "  borrows %d, returns %d, wait p50 %.2f ms, p95 %.2f ms, p99 %.2f ms, hold p95 %.2f ms%n",
+                    pool.getBorrows(), pool.getReturns(), pool.getWaitP50Millis(), pool.getWaitP95Millis(),
+                    pool.getWaitP99Millis(), pool.getHoldP95Millis());
+            out.printf(Locale.ROOT, "  statement cache: %d hits, %d misses (%.1f%%), %d not cached%n",
+                    pool.getStatementCacheHits(), pool.getStatementCacheMisses(),
+                    pool.getStatementCacheHitRatio() * 100, pool.getStatementsNotCached());
+            List<PoolTelemetryInterceptor> leaks = pool.getSuspectedLeakList();
+            for (PoolTelemetryInterceptor connection : leaks) {
+                long heldMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - connection.getBorrowedNanos());
+                out.printf(Locale.ROOT, "  suspected leak: held for %d ms by %s%n", heldMillis, connection.getBorrowedBy());
+                if (connection.getBorrowStack() != null) {
+                    for (StackTraceElement element : connection.getBorrowStack().getStackTrace()) {
+                        out.println("    at " + element);
+                    }
+                }
+            }
+        }
+        out.flush();
+        writeText(response, HttpServletResponse.SC_OK, body.toString());
+    }
+}
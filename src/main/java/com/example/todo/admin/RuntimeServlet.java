@@ -0,0 +1,29 @@
+package com.example.todo.admin;
+
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+
+/**
+ * Reports heap, thread and session counts as {@code key=value} lines
+ * ({@code GET /admin/runtime}), e.g. for the load-test harness.
+ */
+@WebServlet("/admin/runtime")
+public class RuntimeServlet extends AdminServlet {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        String body = "heapUsedBytes=" + heap.getUsed() + "\n"
+                + "heapCommittedBytes=" + heap.getCommitted() + "\n"
+                + "heapMaxBytes=" + heap.getMax() + "\n"
+                + "threads=" + ManagementFactory.getThreadMXBean().getThreadCount() + "\n"
+                + "activeSessions=" + ActiveSessionCounter.getActive() + "\n"
+                + "peakSessions=" + ActiveSessionCounter.getPeak() + "\n";
+        writeText(response, HttpServletResponse.SC_OK, body);
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.todo.admin;
+
+import com.example.todo.shard.ShardMigrator;
+
+import javax.ejb.EJB;
+import javax.ejb.EJBException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Shard status ({@code GET /admin/shards}) and user moves: {@code POST /admin/shards?user=42&shard=todoShard2DS}
+ * moves one user's todos, {@code POST /admin/shards?action=rebalance} moves every user whose
+ * shard differs from the one the hash ring assigns.
+ */
+@WebServlet("/admin/shards")
+public class ShardServlet extends AdminServlet {
+    private static final long serialVersionUID = 1L;
+
+    @EJB
+    private ShardMigrator migrator;
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        writeText(response, HttpServletResponse.SC_OK, migrator.status());
+    }
+
+    @Override
+    protected void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if ("rebalance".equals(request.getParameter("action"))) {
+            writeText(response, HttpServletResponse.SC_OK, String.join("\n", migrator.rebalance()) + "\n");
+            return;
+        }
+
+        String user = request.getParameter("user");
+        String shard = request.getParameter("shard");
+        if (user == null || shard == null) {
+            writeText(response, HttpServletResponse.SC_BAD_REQUEST, "Expected action=rebalance or user and shard\n");
+            return;
+        }
+        Long userId;
+        try {
+            userId = Long.valueOf(user);
+        } catch (NumberFormatException e) {
+            writeText(response, HttpServletResponse.SC_BAD_REQUEST, "Invalid user id: " + user + "\n");
+            return;
+        }
+        try {
+            int moved = migrator.moveUser(userId, shard);
+            writeText(response, HttpServletResponse.SC_OK, "Moved " + moved + " todo(s) of user " + userId + " to " + shard + "\n");
+        } catch (EJBException e) {
+            Throwable cause = e;
+            while (cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            writeText(response, cause instanceof IllegalArgumentException
+                    ? HttpServletResponse.SC_BAD_REQUEST : HttpServletResponse.SC_CONFLICT, cause.getMessage() + "\n");
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.todo.admin;
+
+import com.example.todo.service.TodoService;
+import com.example.todo.service.UserService;
+import com.example.todo.transfer.ImportJob;
+import com.example.todo.transfer.TodoFormat;
+import com.example.todo.transfer.TodoImportService;
+
+import javax.inject.Inject;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Locale;
+
+/**
+ * Todo export and import for operators: {@code GET /admin/export?user=42&format=csv} streams a
+ * user's todos like {@code /api/todos/export}, and {@code GET /admin/imports} lists the import
+ * jobs of all users with their progress.
+ */
+@WebServlet({"/admin/export", "/admin/imports"})
+public class TransferServlet extends AdminServlet {
+    private static final long serialVersionUID = 1L;
+
+    @Inject
+    private TodoService todoService;
+
+    @Inject
+    private TodoImportService importService;
+
+    @Inject
+    private UserService userService;
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if ("/admin/imports".equals(request.getServletPath())) {
+            writeText(response, HttpServletResponse.SC_OK, imports());
+            return;
+        }
+
+        Long userId;
+        try {
+            userId = Long.valueOf(request.getParameter("user"));
+        } catch (NumberFormatException e) {
+            writeText(response, HttpServletResponse.SC_BAD_REQUEST, "Expected user=<user id>\n");
+            return;
+        }
+        if (userService.findById(userId) == null) {
+            writeText(response, HttpServletResponse.SC_NOT_FOUND, "No user with id " + userId + "\n");
+            return;
+        }
+        String formatName = request.getParameter("format");
+        TodoFormat format = formatName == null ? TodoFormat.JSON : TodoFormat.of(formatName);
+        if (format == null) {
+            writeText(response, HttpServletResponse.SC_BAD_REQUEST, "format must be csv or json\n");
+            return;
+        }
+
+        response.setContentType(format.getMediaType() + ";charset=UTF-8");
+        response.setHeader("Content-Disposition",
+                "attachment; filename=\"todos-" + userId + "." + format.getExtension() + "\"");
+        try (TodoFormat.Writer writer = format.writer(response.getOutputStream())) {
+            todoService.forEachByUser(userId, null, Integer.MAX_VALUE, todo -> {
+                try {
+                    writer.write(todo);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private String imports() {
+        StringBuilder out = new StringBuilder(String.format(Locale.ROOT, "%-36s %8s %-9s %5s %4s %10s %8s  %s%n",
+                "job", "user", "state", "fmt", "%", "imported", "rejected", "failure"));
+        for (ImportJob job : importService.getJobs()) {
+            out.append(String.format(Locale.ROOT, "%-36s %8d %-9s %5s %4d %10d %8d  %s%n",
+                    job.getId(), job.getUserId(), job.getState(), job.getFormat().getExtension(), job.getPercent(),
+                    job.getImported(), job.getRejected(), job.getFailure() != null ? job.getFailure() : ""));
+        }
+        return out.toString();
+    }
+}
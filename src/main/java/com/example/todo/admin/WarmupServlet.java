@@ -0,0 +1,39 @@
+package com.example.todo.admin;
+
+import com.example.todo.warmup.WarmupState;
+
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Reports the warm-up ({@code GET /admin/warmup}): each step's cold and warm timings, and the
+ * latency of the first real request to each path since the deploy.
+ */
+@WebServlet("/admin/warmup")
+public class WarmupServlet extends AdminServlet {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        StringBuilder out = new StringBuilder(2048);
+        out.append(WarmupState.isReady() ? "Ready: " : "Not ready: ").append(WarmupState.getSummary()).append("\n\n");
+        out.append(String.format(Locale.ROOT, "%-44s %10s %10s%n", "Step", "Cold ms", "Warm ms"));
+        for (WarmupState.Step step : WarmupState.getSteps()) {
+            out.append(String.format(Locale.ROOT, "%-44s %10.1f %10s%s%n", step.getName(), step.getColdNanos() / 1e6,
+                    step.getWarmNanos() < 0 ? "-" : String.format(Locale.ROOT, "%.1f", step.getWarmNanos() / 1e6),
+                    step.getError() != null ? "  FAILED: " + step.getError() : ""));
+        }
+
+        out.append(String.format(Locale.ROOT, "%n%-44s %10s %6s %s%n", "First request", "ms", "Status", "After warm-up"));
+        for (Map.Entry<String, WarmupState.FirstRequest> entry : WarmupState.getFirstRequests().entrySet()) {
+            WarmupState.FirstRequest first = entry.getValue();
+            out.append(String.format(Locale.ROOT, "%-44s %10.1f %6d %s%n", entry.getKey(), first.getNanos() / 1e6,
+                    first.getStatus(), first.isAfterWarmup() ? "yes" : "no"));
+        }
+        writeText(response, HttpServletResponse.SC_OK, out.toString());
+    }
+}
@@ -0,0 +1,225 @@
+package com.example.todo.audit;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * Hashing and file format shared by {@link HashChainAppender} and {@link AuditChainVerifier}.
+ *
+ * Audit records are written as lines, in batches. Each batch is followed by a seal line
+ * <pre>{"seal":7,"records":42,"ts":1700000000000,"root":"..","prev":"..","hash":".."}</pre>
+ * where {@code root} is the Merkle root of the batch (RFC 6962 tree hash, node
+ * {@code SHA-256(0x01 || left || right)}) and {@code hash = SHA-256(prev || root || seal ||
+ * records || ts)} chains the seal to the previous one. The first seal of a chain has
+ * {@code seal} 0 and an all-zero {@code prev}.
+ *
+ * The leaves of the tree are groups of {@value #LEAF_RECORDS} consecutive records,
+ * {@code SHA-256(0x00 || line || '\n' || line || '\n' ...)}: hashing a group in one pass
+ * costs little more than hashing the bytes, where a leaf per record would double the hashing
+ * done per record.
+ */
+final class AuditChain {
+    static final int HASH_BYTES = 32;
+    static final int LEAF_RECORDS = 16;
+    static final byte[] GENESIS = new byte[HASH_BYTES];
+    static final String SEAL_PREFIX = "{\"seal\":";
+    static final byte[] SEAL_PREFIX_BYTES = SEAL_PREFIX.getBytes(StandardCharsets.US_ASCII);
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private AuditChain() {
+    }
+
+    static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    static byte[] sealHash(MessageDigest digest, byte[] prev, byte[] root, long seal, long records, long timestamp) {
+        digest.update(prev);
+        digest.update(root);
+        updateLong(digest, seal);
+        updateLong(digest, records);
+        updateLong(digest, timestamp);
+        return digest.digest();
+    }
+
+    private static void updateLong(MessageDigest digest, long value) {
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            digest.update((byte) (value >>> shift));
+        }
+    }
+
+    static String sealLine(Seal seal) {
+        return SEAL_PREFIX + seal.seq + ",\"records\":" + seal.records + ",\"ts\":" + seal.timestamp
+                + ",\"root\":\"" + hex(seal.root) + "\",\"prev\":\"" + hex(seal.prev)
+                + "\",\"hash\":\"" + hex(seal.hash) + "\"}\n";
+    }
+
+    static boolean isSeal(byte[] line, int offset, int length) {
+        if (length < SEAL_PREFIX_BYTES.length) {
+            return false;
+        }
+        for (int i = 0; i < SEAL_PREFIX_BYTES.length; i++) {
+            if (line[offset + i] != SEAL_PREFIX_BYTES[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parses a seal line as written by {@link #sealLine(Seal)}; returns null if it is malformed.
+     */
+    static Seal parseSeal(String line) {
+        try {
+            long seq = Long.parseLong(value(line, "\"seal\":", ','));
+            long records = Long.parseLong(value(line, "\"records\":", ','));
+            long timestamp = Long.parseLong(value(line, "\"ts\":", ','));
+            byte[] root = unhex(value(line, "\"root\":\"", '"'));
+            byte[] prev = unhex(value(line, "\"prev\":\"", '"'));
+            byte[] hash = unhex(value(line, "\"hash\":\"", '"'));
+            return new Seal(seq, records, timestamp, root, prev, hash);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static String value(String line, String key, char terminator) {
+        int start = line.indexOf(key);
+        if (start < 0) {
+            throw new IllegalArgumentException("missing " + key);
+        }
+        start += key.length();
+        int end = line.indexOf(terminator, start);
+        return line.substring(start, end < 0 ? line.length() : end);
+    }
+
+    static String hex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+            chars[i * 2 + 1] = HEX[bytes[i] & 0xF];
+        }
+        return new String(chars);
+    }
+
+    static byte[] unhex(String hex) {
+        if (hex.length() != HASH_BYTES * 2) {
+            throw new IllegalArgumentException("bad hash length");
+        }
+        byte[] bytes = new byte[HASH_BYTES];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(hex.substring(i * 2, i * 2 + 2), 16);
+        }
+        return bytes;
+    }
+
+    static final class Seal {
+        final long seq;
+        final long records;
+        final long timestamp;
+        final byte[] root;
+        final byte[] prev;
+        final byte[] hash;
+
+        Seal(long seq, long records, long timestamp, byte[] root, byte[] prev, byte[] hash) {
+            this.seq = seq;
+            this.records = records;
+            this.timestamp = timestamp;
+            this.root = root;
+            this.prev = prev;
+            this.hash = hash;
+        }
+
+        /**
+         * Returns true if this seal directly follows {@code previous} (or starts a chain when
+         * there is none).
+         */
+        boolean follows(Seal previous) {
+            return previous == null
+                    ? seq == 0 && Arrays.equals(prev, GENESIS)
+                    : seq == previous.seq + 1 && Arrays.equals(prev, previous.hash);
+        }
+    }
+
+    /**
+     * Computes the Merkle root of a batch incrementally, keeping only the roots of the perfect
+     * subtrees seen so far (at most 64), so batch size does not affect memory.
+     */
+    static final class Merkle {
+        private final MessageDigest leafDigest = sha256();
+        private final MessageDigest nodeDigest = sha256();
+        private final byte[][] roots = new byte[64][];
+        private final long[] sizes = new long[64];
+        private int depth;
+        private long count;
+
+        /**
+         * Adds a record line, given without its terminator.
+         */
+        void add(byte[] line, int offset, int length) {
+            if (count % LEAF_RECORDS == 0) {
+                leafDigest.update((byte) 0);
+            }
+            leafDigest.update(line, offset, length);
+            leafDigest.update((byte) '\n');
+            count++;
+            if (count % LEAF_RECORDS == 0) {
+                addLeaf(leafDigest.digest());
+            }
+        }
+
+        private void addLeaf(byte[] leafHash) {
+            roots[depth] = leafHash;
+            sizes[depth] = 1;
+            depth++;
+            while (depth >= 2 && sizes[depth - 1] == sizes[depth - 2]) {
+                roots[depth - 2] = node(roots[depth - 2], roots[depth - 1]);
+                sizes[depth - 2] *= 2;
+                depth--;
+            }
+        }
+
+        long count() {
+            return count;
+        }
+
+        /**
+         * Root of the records added since the last reset; the hash of the empty string for none.
+         * Closes the current group, so call it once per batch.
+         */
+        byte[] root() {
+            if (count % LEAF_RECORDS != 0) {
+                addLeaf(leafDigest.digest());
+            }
+            if (depth == 0) {
+                return nodeDigest.digest();
+            }
+            byte[] root = roots[depth - 1];
+            for (int i = depth - 2; i >= 0; i--) {
+                root = node(roots[i], root);
+            }
+            return root;
+        }
+
+        void reset() {
+            leafDigest.reset();
+            Arrays.fill(roots, 0, depth, null);
+            depth = 0;
+            count = 0;
+        }
+
+        private byte[] node(byte[] left, byte[] right) {
+            nodeDigest.update((byte) 1);
+            nodeDigest.update(left);
+            nodeDigest.update(right);
+            return nodeDigest.digest();
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package com.example.todo.audit;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Checks an audit file written by {@link HashChainAppender}: every batch must hash to the root
+ * in its seal, and every seal must chain to the one before it.
+ *
+ * The file is cut into chunks ({@code verify.chunkMB}, default 64) that are verified in
+ * parallel ({@code verify.threads}, default one per CPU). A chunk verifies the batches that
+ * start in it, reading past its end to finish the last one; the records at the start of a
+ * chunk that belong to the previous chunk's batch are skipped up to their seal. The seals at
+ * the chunk boundaries are then linked up in order.
+ *
+ * <pre>java -cp WEB-INF/classes com.example.todo.audit.AuditChainVerifier logs/todo-audit.log</pre>
+ *
+ * Exits with 1 if the file has been modified. Removing records from the end cannot be detected
+ * from the file alone: compare the printed head hash with one recorded elsewhere.
+ */
+public final class AuditChainVerifier {
+    private static final int MAX_ERRORS = 100;
+    private static final int BUFFER_BYTES = 1 << 20;
+
+    private final Path file;
+    private final int threads;
+    private final long chunkBytes;
+
+    private AuditChainVerifier(Path file) {
+        this.file = file;
+        threads = Integer.getInteger("verify.threads", Runtime.getRuntime().availableProcessors());
+        chunkBytes = Math.max(1, Long.getLong("verify.chunkMB", 64L)) << 20;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length != 1) {
+            System.err.println("Usage: java [-Dverify.threads=N] [-Dverify.chunkMB=N] "
+                    + AuditChainVerifier.class.getName() + " <audit file>");
+            System.exit(2);
+        }
+        Path file = Paths.get(args[0]);
+        if (!Files.isRegularFile(file)) {
+            System.err.println(args[0] + ": not a file");
+            System.exit(2);
+        }
+        System.exit(new AuditChainVerifier(file).verify() ? 0 : 1);
+    }
+
+    private boolean verify() throws IOException, InterruptedException {
+        long size = Files.size(file);
+        long start = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
+        List<Future<ChunkResult>> futures = new ArrayList<>();
+        try {
+            for (long offset = 0; offset < size; offset += chunkBytes) {
+                long from = offset;
+                long to = Math.min(size, offset + chunkBytes);
+                futures.add(executor.submit(() -> verifyChunk(from, to)));
+            }
+
+            List<String> errors = new ArrayList<>();
+            AuditChain.Seal head = null;
+            long records = 0;
+            long batches = 0;
+            long unsealed = 0;
+            for (Future<ChunkResult> future : futures) {
+                ChunkResult chunk = get(future);
+                if (chunk.leadingSeal != null && (head == null || !Arrays.equals(head.hash, chunk.leadingSeal.hash))) {
+                    errors.add(String.format(Locale.ROOT, "offset %d: the records before seal %d do not belong to its batch",
+                            chunk.from, chunk.leadingSeal.seq));
+                }
+                if (chunk.firstSeal != null && !chunk.firstSeal.follows(chunk.leadingSeal != null ? chunk.leadingSeal : head)) {
+                    errors.add(brokenLink(chunk.firstSealOffset, chunk.firstSeal, chunk.leadingSeal != null ? chunk.leadingSeal : head));
+                }
+                errors.addAll(chunk.errors);
+                if (chunk.lastSeal != null) {
+                    head = chunk.lastSeal;
+                }
+                records += chunk.records;
+                batches += chunk.batches;
+                unsealed += chunk.unsealed;
+            }
+
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf(Locale.ROOT, "%s: %d records in %d batches, %d MB in %.1f s on %d thread(s)%n",
+                    file, records, batches, size >> 20, seconds, threads);
+            if (head != null) {
+                System.out.printf(Locale.ROOT, "Head: seal %d at %s, hash %s%n",
+                        head.seq, Instant.ofEpochMilli(head.timestamp), AuditChain.hex(head.hash));
+            }
+            if (unsealed > 0) {
+                System.out.printf(Locale.ROOT, "Warning: the last %d record(s) are not sealed yet%n", unsealed);
+            }
+            for (int i = 0; i < Math.min(errors.size(), MAX_ERRORS); i++) {
+                System.out.println("Error: " + errors.get(i));
+            }
+            if (errors.size() > MAX_ERRORS) {
+                System.out.printf(Locale.ROOT, "... %d more error(s)%n", errors.size() - MAX_ERRORS);
+            }
+            System.out.println(errors.isEmpty() ? "Chain intact" : "Chain BROKEN");
+            return errors.isEmpty();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static ChunkResult get(Future<ChunkResult> future) throws IOException, InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Verifies the batches that start in {@code [from, to)}.
+     */
+    private ChunkResult verifyChunk(long from, long to) throws IOException {
+        ChunkResult result = new ChunkResult(from);
+        MessageDigest digest = AuditChain.sha256();
+        AuditChain.Merkle merkle = new AuditChain.Merkle();
+        AuditChain.Seal previous = null;
+        // Records seen before the first seal of a chunk may continue the previous chunk's batch
+        boolean leading = from > 0;
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            LineReader reader = new LineReader(Channels.newInputStream(channel.position(Math.max(0, from - 1))),
+                    Math.max(0, from - 1));
+            if (from > 0) {
+                reader.next();
+            }
+            while (reader.next()) {
+                if (reader.lineStart >= to && merkle.count() == 0 && !leading) {
+                    break;
+                }
+                if (!AuditChain.isSeal(reader.line, 0, reader.length)) {
+                    merkle.add(reader.line, 0, reader.length);
+                    continue;
+                }
+
+                AuditChain.Seal seal = AuditChain.parseSeal(new String(reader.line, 0, reader.length, StandardCharsets.US_ASCII));
+                if (seal == null) {
+                    result.error("offset %d: malformed seal line", reader.lineStart);
+                    merkle.reset();
+                    continue;
+                }
+                if (leading) {
+                    leading = false;
+                    if (merkle.count() != seal.records) {
+                        // The batch started in the previous chunk, which verifies it
+                        result.leadingSeal = seal;
+                        previous = seal;
+                        merkle.reset();
+                        continue;
+                    }
+                }
+                verifySeal(result, reader.lineStart, seal, merkle, digest);
+                if (result.firstSeal == null) {
+                    result.firstSeal = seal;
+                    result.firstSealOffset = reader.lineStart;
+                } else if (!seal.follows(previous)) {
+                    result.errors.add(brokenLink(reader.lineStart, seal, previous));
+                }
+                result.lastSeal = seal;
+                result.records += seal.records;
+                result.batches++;
+                previous = seal;
+                merkle.reset();
+            }
+        }
+        if (!leading) {
+            result.unsealed = merkle.count();
+        }
+        return result;
+    }
+
+    private static void verifySeal(ChunkResult result, long offset, AuditChain.Seal seal,
+                                   AuditChain.Merkle merkle, MessageDigest digest) {
+        if (merkle.count() != seal.records) {
+            result.error("offset %d: seal %d covers %d records, found %d", offset, seal.seq, seal.records, merkle.count());
+        } else if (!Arrays.equals(merkle.root(), seal.root)) {
+            result.error("offset %d: records of seal %d have been modified", offset, seal.seq);
+        }
+        byte[] hash = AuditChain.sealHash(digest, seal.prev, seal.root, seal.seq, seal.records, seal.timestamp);
+        if (!Arrays.equals(hash, seal.hash)) {
+            result.error("offset %d: seal %d has been modified", offset, seal.seq);
+        }
+    }
+
+    private static String brokenLink(long offset, AuditChain.Seal seal, AuditChain.Seal previous) {
+        return previous == null
+                ? String.format(Locale.ROOT, "offset %d: seal %d does not start the chain", offset, seal.seq)
+                : String.format(Locale.ROOT, "offset %d: seal %d does not follow seal %d", offset, seal.seq, previous.seq);
+    }
+
+    private static final class ChunkResult {
+        final long from;
+        final List<String> errors = new ArrayList<>();
+        AuditChain.Seal leadingSeal;
+        AuditChain.Seal firstSeal;
+        long firstSealOffset;
+        AuditChain.Seal lastSeal;
+        long records;
+        long batches;
+        long unsealed;
+
+        ChunkResult(long from) {
+            this.from = from;
+        }
+
+        void error(String format, Object... args) {
+            if (errors.size() < MAX_ERRORS) {
+                errors.add(String.format(Locale.ROOT, format, args));
+            }
+        }
+    }
+
+    /**
+     * Reads lines as bytes (they are hashed as written) and tracks their file offsets.
+     */
+    private static final class LineReader {
+        private final InputStream in;
+        private final byte[] buffer = new byte[BUFFER_BYTES];
+        private int position;
+        private int limit;
+        private long bufferOffset;
+
+        byte[] line = new byte[4096];
+        int length;
+        long lineStart;
+
+        LineReader(InputStream in, long offset) {
+            this.in = in;
+            this.bufferOffset = offset;
+        }
+
+        /**
+         * Reads the next line without its terminator; false at the end of the file. A last
+         * line without a terminator is still being written and is ignored.
+         */
+        boolean next() throws IOException {
+            lineStart = bufferOffset + position;
+            length = 0;
+            while (true) {
+                if (position == limit) {
+                    bufferOffset += limit;
+                    position = 0;
+                    limit = Math.max(0, in.read(buffer));
+                    if (limit == 0) {
+                        return false;
+                    }
+                }
+                int end = position;
+                while (end < limit && buffer[end] != '\n') {
+                    end++;
+                }
+                append(end - position);
+                if (end < limit) {
+                    position = end + 1;
+                    return true;
+                }
+                position = limit;
+            }
+        }
+
+        private void append(int count) {
+            if (length + count > line.length) {
+                line = Arrays.copyOf(line, Math.max(line.length * 2, length + count));
+            }
+            System.arraycopy(buffer, position, line, length, count);
+            length += count;
+        }
+    }
+}
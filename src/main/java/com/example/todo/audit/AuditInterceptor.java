@@ -0,0 +1,78 @@
+package com.example.todo.audit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.message.StringMapMessage;
+
+import javax.annotation.Priority;
+import javax.faces.application.FacesMessage;
+import javax.faces.context.FacesContext;
+import javax.interceptor.AroundInvoke;
+import javax.interceptor.Interceptor;
+import javax.interceptor.InvocationContext;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Writes a single structured event for every {@link Audited} action once it returns:
+ * action name, outcome, duration and (optionally) arguments, e.g.
+ * {@code action="TodoBean.deleteTodo" outcome="ok" durationMs="2.4" args="[42]"}.
+ *
+ * The outcome is {@code ok}, {@code failed} when the action reported an error through a
+ * {@link FacesMessage} (as JSF actions do instead of throwing), or {@code error} when it threw.
+ * Events go to the {@code com.example.todo.audit} logger at INFO; correlation id and user come
+ * from the ThreadContext like every other log line.
+ */
+@Audited
+@Interceptor
+@Priority(Interceptor.Priority.APPLICATION + 20)
+public class AuditInterceptor {
+    private static final Logger auditLogger = LogManager.getLogger("com.example.todo.audit");
+
+    @AroundInvoke
+    public Object audit(InvocationContext context) throws Exception {
+        if (!auditLogger.isInfoEnabled()) {
+            return context.proceed();
+        }
+
+        long start = System.nanoTime();
+        String outcome = "error";
+        Throwable failure = null;
+        try {
+            Object result = context.proceed();
+            outcome = reportedError() ? "failed" : "ok";
+            return result;
+        } catch (Exception | Error e) {
+            failure = e;
+            throw e;
+        } finally {
+            Method method = context.getMethod();
+            StringMapMessage event = new StringMapMessage(6)
+                    .with("action", method.getDeclaringClass().getSimpleName() + "." + method.getName())
+                    .with("outcome", outcome)
+                    .with("durationMs", String.format(Locale.ROOT, "%.1f", (System.nanoTime() - start) / 1_000_000.0));
+            if (context.getParameters().length > 0 && logArguments(method)) {
+                event.with("args", Arrays.toString(context.getParameters()));
+            }
+            if (failure != null) {
+                event.with("exception", failure.toString());
+            }
+            auditLogger.info(AuditTrail.MARKER, event);
+        }
+    }
+
+    private static boolean reportedError() {
+        FacesContext facesContext = FacesContext.getCurrentInstance();
+        if (facesContext == null) {
+            return false;
+        }
+        FacesMessage.Severity severity = facesContext.getMaximumSeverity();
+        return severity != null && severity.compareTo(FacesMessage.SEVERITY_ERROR) >= 0;
+    }
+
+    private static boolean logArguments(Method method) {
+        Audited audited = method.getAnnotation(Audited.class);
+        return audited == null || audited.logArguments();
+    }
+}
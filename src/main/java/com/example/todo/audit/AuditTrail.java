@@ -0,0 +1,16 @@
+package com.example.todo.audit;
+
+import org.apache.logging.log4j.Marker;
+import org.apache.logging.log4j.MarkerManager;
+
+/**
+ * Marks the log events that belong in the tamper-evident audit trail: audited actions,
+ * logins and logouts, todo mutations and entity change records. log4j2.xml routes events
+ * carrying {@link #MARKER} to the {@link HashChainAppender}.
+ */
+public final class AuditTrail {
+    public static final Marker MARKER = MarkerManager.getMarker("AUDIT");
+
+    private AuditTrail() {
+    }
+}
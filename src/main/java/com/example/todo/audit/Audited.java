@@ -0,0 +1,28 @@
+package com.example.todo.audit;
+
+import javax.enterprise.util.Nonbinding;
+import javax.interceptor.InterceptorBinding;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Logs one audit event per invocation of the annotated action method (see
+ * {@link AuditInterceptor}). Put it on action methods only, never on a bean class, so EL
+ * getter evaluations during rendering are not audited.
+ */
+@Inherited
+@InterceptorBinding
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.METHOD})
+public @interface Audited {
+
+    /**
+     * Whether the method arguments are included in the event. Disable for actions that take
+     * sensitive input.
+     */
+    @Nonbinding
+    boolean logArguments() default true;
+}
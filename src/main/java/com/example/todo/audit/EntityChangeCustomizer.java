@@ -0,0 +1,16 @@
+package com.example.todo.audit;
+
+import org.eclipse.persistence.config.DescriptorCustomizer;
+import org.eclipse.persistence.descriptors.ClassDescriptor;
+
+/**
+ * Installs {@link EntityChangeListener} on an entity. Registered per entity through
+ * {@code eclipselink.descriptor.customizer.<Entity>} in {@code persistence.xml}.
+ */
+public class EntityChangeCustomizer implements DescriptorCustomizer {
+
+    @Override
+    public void customize(ClassDescriptor descriptor) {
+        descriptor.getEventManager().addListener(new EntityChangeListener());
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.todo.audit;
+
+import com.example.todo.logging.EntityChangeMessage;
+import com.example.todo.logging.EntityChangeMessage.FieldChange;
+import com.example.todo.logging.EntityChangeMessage.Operation;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.eclipse.persistence.descriptors.DescriptorEvent;
+import org.eclipse.persistence.descriptors.DescriptorEventAdapter;
+import org.eclipse.persistence.internal.sessions.AbstractSession;
+import org.eclipse.persistence.mappings.DatabaseMapping;
+import org.eclipse.persistence.queries.ObjectLevelModifyQuery;
+import org.eclipse.persistence.sessions.Session;
+import org.eclipse.persistence.sessions.changesets.ChangeRecord;
+import org.eclipse.persistence.sessions.changesets.DirectToFieldChangeRecord;
+import org.eclipse.persistence.sessions.changesets.ObjectChangeSet;
+import org.eclipse.persistence.sessions.changesets.ObjectReferenceChangeRecord;
+
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * EclipseLink descriptor listener that turns the change set of every written entity into an
+ * {@link EntityChangeMessage} for the audit trail. Installed on the audited entities by
+ * {@link EntityChangeCustomizer}.
+ *
+ * The diff is taken from what EclipseLink actually writes, so it covers only the attributes
+ * that changed. Messages are held until the JTA transaction commits and dropped if it rolls
+ * back; outside a transaction they are logged right away. Collection attributes are not
+ * recorded (the owning side of the relationship is), and the values of {@link #REDACTED}
+ * attributes are never logged.
+ */
+public class EntityChangeListener extends DescriptorEventAdapter {
+    private static final Logger logger = LogManager.getLogger(EntityChangeListener.class);
+    private static final Set<String> REDACTED = Set.of("password");
+    private static final String PENDING_KEY = EntityChangeListener.class.getName() + ".pending";
+
+    private static volatile TransactionSynchronizationRegistry transactionRegistry;
+
+    @Override
+    public void postInsert(DescriptorEvent event) {
+        if (logger.isInfoEnabled()) {
+            record(Operation.INSERT, event, initialValues(event));
+        }
+    }
+
+    @Override
+    public void postUpdate(DescriptorEvent event) {
+        ObjectChangeSet changeSet = event.getQuery() instanceof ObjectLevelModifyQuery
+                ? ((ObjectLevelModifyQuery) event.getQuery()).getObjectChangeSet() : null;
+        if (logger.isInfoEnabled() && changeSet != null && changeSet.hasChanges()) {
+            List<FieldChange> changes = diff(changeSet, event.getSession());
+            if (!changes.isEmpty()) {
+                record(Operation.UPDATE, event, changes);
+            }
+        }
+    }
+
+    @Override
+    public void postDelete(DescriptorEvent event) {
+        if (logger.isInfoEnabled()) {
+            record(Operation.DELETE, event, Collections.emptyList());
+        }
+    }
+
+    /**
+     * The change set of a new object has no change records, so its non-null attribute values
+     * are read from the object itself.
+     */
+    private static List<FieldChange> initialValues(DescriptorEvent event) {
+        Object object = event.getObject();
+        Session session = event.getSession();
+        List<FieldChange> changes = new ArrayList<>();
+        for (DatabaseMapping mapping : event.getDescriptor().getMappings()) {
+            if (mapping.isPrimaryKeyMapping()) {
+                continue;
+            }
+            String attribute = mapping.getAttributeName();
+            String value = null;
+            if (mapping.isDirectToFieldMapping()) {
+                value = render(mapping.getAttributeValueFromObject(object));
+            } else if (mapping.isOneToOneMapping()) {
+                Object target = mapping.getRealAttributeValueFromObject(object, (AbstractSession) session);
+                value = target != null ? render(session.getId(target)) : null;
+            }
+            if (value != null) {
+                changes.add(REDACTED.contains(attribute)
+                        ? new FieldChange(attribute, null, null) : new FieldChange(attribute, null, value));
+            }
+        }
+        return changes;
+    }
+
+    private static List<FieldChange> diff(ObjectChangeSet changeSet, Session session) {
+        List<FieldChange> changes = new ArrayList<>();
+        for (ChangeRecord change : changeSet.getChanges()) {
+            String attribute = change.getAttribute();
+            if (REDACTED.contains(attribute)) {
+                changes.add(new FieldChange(attribute, null, null));
+            } else if (change instanceof DirectToFieldChangeRecord) {
+                DirectToFieldChangeRecord direct = (DirectToFieldChangeRecord) change;
+                changes.add(new FieldChange(attribute, render(direct.getOldValue()), render(direct.getNewValue())));
+            } else if (change instanceof ObjectReferenceChangeRecord) {
+                ObjectReferenceChangeRecord reference = (ObjectReferenceChangeRecord) change;
+                ObjectChangeSet target = reference.getNewValue();
+                Object oldTarget = reference.getOldValue();
+                changes.add(new FieldChange(attribute,
+                        oldTarget != null ? render(session.getId(oldTarget)) : null,
+                        target != null ? render(target.getId()) : null));
+            }
+        }
+        return changes;
+    }
+
+    private static String render(Object value) {
+        return value != null ? value.toString() : null;
+    }
+
+    private static void record(Operation operation, DescriptorEvent event, List<FieldChange> changes) {
+        Object id = event.getSession().getId(event.getObject());
+        emit(EntityChangeMessage.of(operation, event.getDescriptor().getAlias(), id, changes));
+    }
+
+    private static void emit(EntityChangeMessage change) {
+        TransactionSynchronizationRegistry registry = registry();
+        if (registry == null || registry.getTransactionStatus() != Status.STATUS_ACTIVE) {
+            logger.info(AuditTrail.MARKER, change);
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        List<EntityChangeMessage> pending = (List<EntityChangeMessage>) registry.getResource(PENDING_KEY);
+        if (pending == null) {
+            List<EntityChangeMessage> changes = new ArrayList<>();
+            registry.putResource(PENDING_KEY, changes);
+            registry.registerInterposedSynchronization(new Synchronization() {
+                @Override
+                public void beforeCompletion() {
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == Status.STATUS_COMMITTED) {
+                        changes.forEach(committed -> logger.info(AuditTrail.MARKER, committed));
+                    }
+                }
+            });
+            pending = changes;
+        }
+        pending.add(change);
+    }
+
+    private static TransactionSynchronizationRegistry registry() {
+        TransactionSynchronizationRegistry registry = transactionRegistry;
+        if (registry == null) {
+            try {
+                registry = InitialContext.doLookup("java:comp/TransactionSynchronizationRegistry");
+                transactionRegistry = registry;
+            } catch (NamingException e) {
+                logger.trace("No transaction synchronization registry, logging changes immediately", e);
+            }
+        }
+        return registry;
+    }
+}
@@ -0,0 +1,313 @@
+package com.example.todo.audit;
+
+import com.example.todo.logging.CompactJsonLayout;
+import org.apache.logging.log4j.core.Appender;
+import org.apache.logging.log4j.core.Core;
+import org.apache.logging.log4j.core.Filter;
+import org.apache.logging.log4j.core.Layout;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.appender.AbstractAppender;
+import org.apache.logging.log4j.core.appender.AppenderLoggingException;
+import org.apache.logging.log4j.core.config.Property;
+import org.apache.logging.log4j.core.config.plugins.Plugin;
+import org.apache.logging.log4j.core.config.plugins.PluginAttribute;
+import org.apache.logging.log4j.core.config.plugins.PluginElement;
+import org.apache.logging.log4j.core.config.plugins.PluginFactory;
+import org.apache.logging.log4j.core.layout.ByteBufferDestination;
+import org.apache.logging.log4j.core.util.Log4jThreadFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes audit records to a tamper-evident file: records are grouped into batches and every
+ * batch is closed by a seal line holding the batch's Merkle root, chained by hash to the
+ * previous seal (format in {@link AuditChain}; check files with {@link AuditChainVerifier}).
+ *
+ * Meant to sit behind an {@code <Async>} appender, so records are hashed on its writer thread
+ * and never on the request thread. A batch is sealed once it holds {@code maxBatchSize}
+ * records, or by a timer after at most {@code maxDelayMillis}; records are flushed whenever
+ * the writer thread drains its queue. Appending to an existing file continues its chain;
+ * records left unsealed by a crash are sealed on startup.
+ *
+ * <pre>{@code <HashChain name="AuditChainFile" fileName="logs/todo-audit.log" maxBatchSize="512" maxDelayMillis="1000"/>}</pre>
+ */
+@Plugin(name = "HashChain", category = Core.CATEGORY_NAME, elementType = Appender.ELEMENT_TYPE, printObject = true)
+public final class HashChainAppender extends AbstractAppender {
+    private static final int TAIL_BYTES = 8 << 20;
+    private static final int BUFFER_BYTES = 256 << 10;
+
+    private final Path file;
+    private final int maxBatchSize;
+    private final long maxDelayMillis;
+    private final MessageDigest digest = AuditChain.sha256();
+    private final AuditChain.Merkle merkle = new AuditChain.Merkle();
+    private final RecordBuffer record = new RecordBuffer();
+
+    private OutputStream out;
+    private AuditChain.Seal lastSeal;
+    private ScheduledExecutorService sealer;
+
+    private HashChainAppender(String name, Filter filter, Layout<? extends Serializable> layout, Path file,
+                              int maxBatchSize, long maxDelayMillis) {
+        super(name, filter, layout, true, Property.EMPTY_ARRAY);
+        this.file = file;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayMillis = maxDelayMillis;
+    }
+
+    @PluginFactory
+    public static HashChainAppender createAppender(
+            @PluginAttribute("name") String name,
+            @PluginAttribute("fileName") String fileName,
+            @PluginAttribute(value = "maxBatchSize", defaultInt = 512) int maxBatchSize,
+            @PluginAttribute(value = "maxDelayMillis", defaultLong = 1000) long maxDelayMillis,
+            @PluginElement("Layout") Layout<? extends Serializable> layout,
+            @PluginElement("Filter") Filter filter) {
+        if (name == null || fileName == null) {
+            LOGGER.error("HashChain appender requires a name and a fileName");
+            return null;
+        }
+        if (layout == null) {
+            layout = CompactJsonLayout.createLayout(StandardCharsets.UTF_8, false);
+        }
+        return new HashChainAppender(name, filter, layout, Paths.get(fileName),
+                Math.max(1, maxBatchSize), Math.max(1, maxDelayMillis));
+    }
+
+    @Override
+    public void start() {
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            byte[][] unsealed = recoverTail();
+            out = new BufferedOutputStream(Files.newOutputStream(file,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND), BUFFER_BYTES);
+            if (unsealed.length > 0) {
+                LOGGER.warn("Sealing {} audit record(s) left unsealed in {}", unsealed.length, file);
+                for (byte[] line : unsealed) {
+                    merkle.add(line, 0, line.length);
+                }
+                seal();
+            }
+        } catch (IOException e) {
+            LOGGER.error("Unable to open audit chain file {}", file, e);
+        }
+        sealer = Executors.newSingleThreadScheduledExecutor(Log4jThreadFactory.createDaemonThreadFactory(getName()));
+        sealer.scheduleWithFixedDelay(this::sealPending, maxDelayMillis, maxDelayMillis, TimeUnit.MILLISECONDS);
+        super.start();
+    }
+
+    @Override
+    public void append(LogEvent event) {
+        synchronized (this) {
+            if (out == null) {
+                throw new AppenderLoggingException("Audit chain file " + file + " is not open");
+            }
+            try {
+                record.encode(event);
+                out.write(record.bytes, 0, record.length);
+                out.write('\n');
+                merkle.add(record.bytes, 0, record.length);
+                if (merkle.count() >= maxBatchSize) {
+                    seal();
+                } else if (event.isEndOfBatch()) {
+                    out.flush();
+                }
+            } catch (IOException e) {
+                throw new AppenderLoggingException("Failed to write audit record to " + file, e);
+            }
+        }
+    }
+
+    @Override
+    public boolean stop(long timeout, TimeUnit timeUnit) {
+        setStopping();
+        boolean stopped = super.stop(timeout, timeUnit, false);
+        if (sealer != null) {
+            sealer.shutdownNow();
+        }
+        synchronized (this) {
+            if (out != null) {
+                try {
+                    seal();
+                    out.close();
+                } catch (IOException e) {
+                    LOGGER.error("Failed to close audit chain file {}", file, e);
+                }
+                out = null;
+            }
+        }
+        setStopped();
+        return stopped;
+    }
+
+    private synchronized void sealPending() {
+        if (out == null) {
+            return;
+        }
+        try {
+            seal();
+        } catch (IOException e) {
+            LOGGER.error("Failed to seal audit chain file {}", file, e);
+        }
+    }
+
+    /**
+     * Closes the current batch with a seal line and flushes the file.
+     */
+    private void seal() throws IOException {
+        if (merkle.count() == 0) {
+            return;
+        }
+        byte[] root = merkle.root();
+        long seq = lastSeal != null ? lastSeal.seq + 1 : 0;
+        byte[] prev = lastSeal != null ? lastSeal.hash : AuditChain.GENESIS;
+        long timestamp = System.currentTimeMillis();
+        byte[] hash = AuditChain.sealHash(digest, prev, root, seq, merkle.count(), timestamp);
+        AuditChain.Seal seal = new AuditChain.Seal(seq, merkle.count(), timestamp, root, prev, hash);
+
+        out.write(AuditChain.sealLine(seal).getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+        lastSeal = seal;
+        merkle.reset();
+    }
+
+    /**
+     * Reads the end of an existing file to continue its chain. Returns the record lines after
+     * the last seal, terminating a line cut short by a crash.
+     */
+    private byte[][] recoverTail() throws IOException {
+        if (!Files.isRegularFile(file) || Files.size(file) == 0) {
+            return new byte[0][];
+        }
+        byte[] tail;
+        long tailStart;
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            long size = raf.length();
+            tailStart = Math.max(0, size - TAIL_BYTES);
+            tail = new byte[(int) (size - tailStart)];
+            raf.seek(tailStart);
+            raf.readFully(tail);
+            if (tail[tail.length - 1] != '\n') {
+                raf.seek(size);
+                raf.write('\n');
+                tail = Arrays.copyOf(tail, tail.length + 1);
+                tail[tail.length - 1] = '\n';
+            }
+        }
+
+        int start = 0;
+        if (tailStart > 0) {
+            while (start < tail.length && tail[start] != '\n') {
+                start++;
+            }
+            start++;
+        }
+        List<byte[]> unsealed = new ArrayList<>();
+        boolean sealFound = false;
+        for (int lineStart = start; lineStart < tail.length; ) {
+            int end = lineStart;
+            while (tail[end] != '\n') {
+                end++;
+            }
+            int length = end - lineStart;
+            if (AuditChain.isSeal(tail, lineStart, length)) {
+                AuditChain.Seal seal = AuditChain.parseSeal(new String(tail, lineStart, length, StandardCharsets.US_ASCII));
+                if (seal != null) {
+                    lastSeal = seal;
+                    sealFound = true;
+                    unsealed.clear();
+                }
+            } else if (length > 0) {
+                unsealed.add(Arrays.copyOfRange(tail, lineStart, end));
+            }
+            lineStart = end + 1;
+        }
+        if (!sealFound && tailStart > 0) {
+            LOGGER.error("No seal found in the last {} bytes of {}; starting a new audit chain", TAIL_BYTES, file);
+            unsealed.clear();
+        }
+        return unsealed.toArray(new byte[0][]);
+    }
+
+    /**
+     * Collects one encoded record without going through a String, reusing its buffers, the
+     * way file appenders encode into their output buffer.
+     */
+    private final class RecordBuffer implements ByteBufferDestination {
+        private final ByteBuffer buffer = ByteBuffer.allocate(8192);
+        byte[] bytes = new byte[8192];
+        int length;
+
+        /**
+         * Encodes the event; {@link #bytes} then holds the line without its terminator.
+         */
+        void encode(LogEvent event) {
+            length = 0;
+            buffer.clear();
+            getLayout().encode(event, this);
+            drain(buffer);
+            while (length > 0 && (bytes[length - 1] == '\n' || bytes[length - 1] == '\r')) {
+                length--;
+            }
+        }
+
+        @Override
+        public ByteBuffer getByteBuffer() {
+            return buffer;
+        }
+
+        @Override
+        public ByteBuffer drain(ByteBuffer buf) {
+            buf.flip();
+            put(buf);
+            buf.clear();
+            return buf;
+        }
+
+        @Override
+        public void writeBytes(ByteBuffer data) {
+            drain(buffer);
+            put(data);
+        }
+
+        @Override
+        public void writeBytes(byte[] data, int offset, int count) {
+            drain(buffer);
+            ensureCapacity(count);
+            System.arraycopy(data, offset, bytes, length, count);
+            length += count;
+        }
+
+        private void put(ByteBuffer data) {
+            int count = data.remaining();
+            ensureCapacity(count);
+            data.get(bytes, length, count);
+            length += count;
+        }
+
+        private void ensureCapacity(int count) {
+            if (length + count > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + count));
+            }
+        }
+    }
+}
@@ -1,7 +1,13 @@
 package com.example.todo.bean;
 
+import com.example.todo.audit.AuditTrail;
+import com.example.todo.audit.Audited;
+import com.example.todo.logging.AuthMessage;
 import com.example.todo.model.User;
+import com.example.todo.security.LoginThrottle;
 import com.example.todo.service.UserService;
+import com.example.todo.trace.SpanKind;
+import com.example.todo.trace.Traced;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.shiro.SecurityUtils;
@@ -13,6 +19,7 @@ import javax.faces.application.FacesMessage;
 import javax.faces.context.FacesContext;
 import javax.inject.Inject;
 import javax.inject.Named;
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpSession;
 import java.io.IOException;
 import java.io.Serializable;
@@ -26,12 +33,26 @@ public class LoginBean implements Serializable {
     @Inject
     private UserService userService;
 
+    @Inject
+    private LoginThrottle loginThrottle;
+
     private String username;
     private String password;
     private User currentUser;
 
+    @Audited
+    @Traced(SpanKind.ACTION)
     public String login() {
-        logger.info("Attempting login for user: {}", username);
+        // Reject throttled attempts before they reach the realm; others are counted as failures
+        // until they succeed
+        String clientIp = getClientIp();
+        if (!loginThrottle.tryAcquire(username, clientIp)) {
+            logger.warn(AuditTrail.MARKER, AuthMessage.loginRejected(username, clientIp, "throttled"));
+            FacesContext.getCurrentInstance().addMessage(null,
+                    new FacesMessage(FacesMessage.SEVERITY_ERROR, "Login Failed", 
+                            "Too many failed attempts. Please try again later."));
+            return null;
+        }
         
         Subject currentUser = SecurityUtils.getSubject();
         UsernamePasswordToken token = new UsernamePasswordToken(username, password);
@@ -39,7 +60,8 @@ public class LoginBean implements Serializable {
         try {
             // Perform authentication using Shiro
             currentUser.login(token);
-            logger.info("Login successful for user: {}", username);
+            loginThrottle.release(username, clientIp);
+            logger.info(AuditTrail.MARKER, AuthMessage.loginSucceeded(username, clientIp));
             
             // Load user details and store in bean
             this.currentUser = userService.findByUsername(username);
@@ -54,23 +76,31 @@ public class LoginBean implements Serializable {
             }
             
             return "/todo/list.xhtml?faces-redirect=true";
+        } catch (ExcessiveAttemptsException e) {
+            loginThrottle.release(username, clientIp);
+            logger.warn(AuditTrail.MARKER, AuthMessage.loginRejected(username, clientIp, "too-many-attempts"));
+            FacesContext.getCurrentInstance().addMessage(null,
+                    new FacesMessage(FacesMessage.SEVERITY_ERROR, "Login Failed", 
+                            "Too many login attempts. Please try again later."));
         } catch (UnknownAccountException e) {
-            logger.warn("Login failed - unknown account: {}", username);
+            logger.warn(AuditTrail.MARKER, AuthMessage.loginFailed(username, clientIp, "unknown-account"));
             FacesContext.getCurrentInstance().addMessage(null,
                     new FacesMessage(FacesMessage.SEVERITY_ERROR, "Login Failed", 
                             "Unknown account"));
         } catch (IncorrectCredentialsException e) {
-            logger.warn("Login failed - incorrect credentials for user: {}", username);
+            logger.warn(AuditTrail.MARKER, AuthMessage.loginFailed(username, clientIp, "incorrect-credentials"));
             FacesContext.getCurrentInstance().addMessage(null,
                     new FacesMessage(FacesMessage.SEVERITY_ERROR, "Login Failed", 
                             "Invalid username or password"));
         } catch (LockedAccountException e) {
-            logger.warn("Login failed - locked account: {}", username);
+            loginThrottle.release(username, clientIp);
+            logger.warn(AuditTrail.MARKER, AuthMessage.loginFailed(username, clientIp, "locked-account"));
             FacesContext.getCurrentInstance().addMessage(null,
                     new FacesMessage(FacesMessage.SEVERITY_ERROR, "Login Failed", 
                             "Account is locked"));
         } catch (AuthenticationException e) {
-            logger.warn("Login failed for user: {}", username, e);
+            logger.warn(AuditTrail.MARKER, AuthMessage.loginFailed(username, clientIp, e.getMessage()));
+            logger.debug("Authentication failure details", e);
             FacesContext.getCurrentInstance().addMessage(null,
                     new FacesMessage(FacesMessage.SEVERITY_ERROR, "Login Failed", 
                             "Authentication failed: " + e.getMessage()));
@@ -79,14 +109,23 @@ public class LoginBean implements Serializable {
         return null;
     }
 
+    private String getClientIp() {
+        FacesContext facesContext = FacesContext.getCurrentInstance();
+        if (facesContext == null) {
+            return null;
+        }
+        Object request = facesContext.getExternalContext().getRequest();
+        return request instanceof HttpServletRequest ? ((HttpServletRequest) request).getRemoteAddr() : null;
+    }
+
+    @Audited
+    @Traced(SpanKind.ACTION)
     public String logout() {
-        logger.info("Logging out user: {}", username);
-        
         Subject currentSubject = SecurityUtils.getSubject();
         if (currentSubject != null && currentSubject.isAuthenticated()) {
             // Logout using Shiro
             currentSubject.logout();
-            logger.info("Shiro logout successful");
+            logger.info(AuditTrail.MARKER, AuthMessage.logout(username, "user"));
         }
         
         // Clear bean state
@@ -114,7 +153,6 @@ public class LoginBean implements Serializable {
             }
         }
         
-        logger.info("User logged out successfully");
         return null;
     }
 
@@ -171,12 +209,11 @@ public class LoginBean implements Serializable {
      * This method invalidates the session and can be called from JavaScript
      */
     public void logoutAjax() {
-        logger.info("Logging out user via AJAX (back button detected): {}", username);
-        
         Subject currentSubject = SecurityUtils.getSubject();
         if (currentSubject != null && currentSubject.isAuthenticated()) {
             // Logout using Shiro
             currentSubject.logout();
+            logger.info(AuditTrail.MARKER, AuthMessage.logout(username, "back-button"));
         }
         
         // Clear bean state
@@ -191,8 +228,6 @@ public class LoginBean implements Serializable {
                 session.invalidate();
             }
         }
-        
-        logger.info("User logged out successfully via AJAX");
     }
 
     // Getters and Setters
@@ -2,7 +2,12 @@ package com.example.todo.bean;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import javax.annotation.PostConstruct;
 import javax.faces.application.FacesMessage;
@@ -13,17 +18,34 @@ import javax.inject.Named;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.primefaces.PrimeFaces;
 
+import com.example.todo.audit.Audited;
+import com.example.todo.model.ArchivedTodo;
 import com.example.todo.model.Todo;
 import com.example.todo.model.User;
 import com.example.todo.service.TodoService;
 import com.example.todo.service.UserService;
+import com.example.todo.trace.SpanKind;
+import com.example.todo.trace.Traced;
 
 @ViewScoped
 @Named
 public class TodoBean implements Serializable {
     private static final Logger logger = LogManager.getLogger(TodoBean.class);
     private static final long serialVersionUID = 1L;
+    private static final String TODOS_REQUEST_KEY = TodoBean.class.getName() + ".todos";
+    private static final String CHANGED_TODOS_REQUEST_KEY = TodoBean.class.getName() + ".changedTodos";
+    private static final String TODO_COUNT_REQUEST_KEY = TodoBean.class.getName() + ".todoCount";
+    private static final String ARCHIVED_TODOS_REQUEST_KEY = TodoBean.class.getName() + ".archivedTodos";
+    private static final String ARCHIVED_COUNT_REQUEST_KEY = TodoBean.class.getName() + ".archivedCount";
+    private static final int ARCHIVED_PAGE_SIZE = 100;
+    // Push messages list at most this many ids (see TodoPushService); more is not a real refresh
+    private static final int MAX_REFRESH_IDS = Integer.getInteger("todo.push.maxChangesPerMessage", 100);
+    private static final String ROW_INSERT = "insert";
+    private static final String ROW_REPLACE = "replace";
+    private static final String ROW_REMOVE = "remove";
+    private static final String ROW_UPSERT = "upsert";
 
     @Inject
     private TodoService todoService;
@@ -34,304 +56,389 @@ public class TodoBean implements Serializable {
     @Inject
     private LoginBean loginBean;
 
-    private List<Todo> todos;
-    private Todo selectedTodo;
+    // The todo list is cached per request (see getTodos) and the selection is kept by id,
+    // so the view-scoped state stays small regardless of how many todos the user has
+    private Long selectedTodoId;
     private String title;
     private String description;
     private Long currentUserId;
+    private boolean showArchived;
 
     @PostConstruct
     public void init() {
-        logger.info("=== TodoBean @PostConstruct initialized ===");
         loadTodos();
     }
 
     public void loadTodos() {
-        logger.info("=== loadTodos() CALLED ===");
-        
-        if (loginBean == null) {
-            logger.error("LoginBean is NULL!");
-            this.todos = new ArrayList<>();
-            return;
-        }
-        
-        if (!loginBean.isLoggedIn()) {
-            logger.error("User is NOT logged in!");
-            this.todos = new ArrayList<>();
-            return;
-        }
-        
-        User currentUser = loginBean.getCurrentUser();
+        User currentUser = loginBean != null && loginBean.isLoggedIn() ? loginBean.getCurrentUser() : null;
         if (currentUser == null) {
-            logger.error("Current user is NULL!");
-            this.todos = new ArrayList<>();
+            logger.warn("Cannot load todos: no user is logged in");
+            setRequestTodos(new ArrayList<>());
             return;
         }
-        
         currentUserId = currentUser.getId();
-        logger.info("Current user ID: {}, username: {}", currentUserId, currentUser.getUsername());
-        
+
+        List<Todo> todos;
         try {
             List<Todo> fetchedTodos = todoService.findByUser(currentUserId);
-            logger.info("Service returned {} todos", fetchedTodos != null ? fetchedTodos.size() : "NULL");
-            
-            if (fetchedTodos == null) {
-                this.todos = new ArrayList<>();
-                logger.warn("Service returned NULL, created empty list");
-            } else {
-                this.todos = new ArrayList<>(fetchedTodos);
-                logger.info("Created new ArrayList with {} todos", this.todos.size());
-                
-                for (int i = 0; i < this.todos.size(); i++) {
-                    Todo t = this.todos.get(i);
-                    logger.info("  [{}] Todo: id={}, title='{}', userId={}", 
-                               i, t.getId(), t.getTitle(), t.getUser() != null ? t.getUser().getId() : "NULL");
-                }
-            }
+            todos = fetchedTodos != null ? new ArrayList<>(fetchedTodos) : new ArrayList<>();
         } catch (Exception e) {
-            logger.error("ERROR loading todos: ", e);
-            this.todos = new ArrayList<>();
+            logger.error("Failed to load todos for user id {}", currentUserId, e);
+            todos = new ArrayList<>();
         }
-        
-        logger.info("=== loadTodos() COMPLETED - Final list size: {} ===", this.todos.size());
+        setRequestTodos(todos);
     }
 
     public void addTodo() {
-        logger.info("=== addTodo() CALLED ===");
-        logger.info("Title: '{}'", title);
-        logger.info("Description: '{}'", description);
-        
         if (loginBean == null || !loginBean.isLoggedIn()) {
-            logger.error("User not logged in!");
             FacesContext.getCurrentInstance().addMessage(null,
                     new FacesMessage(FacesMessage.SEVERITY_ERROR, "Error", "You must be logged in"));
             return;
         }
         
         if (title == null || title.trim().isEmpty()) {
-            logger.error("Title is empty!");
             FacesContext.getCurrentInstance().addMessage(null,
                     new FacesMessage(FacesMessage.SEVERITY_ERROR, "Error", "Title is required"));
             return;
         }
         
         try {
-            User user = loginBean.getCurrentUser();
-            logger.info("Creating todo for user: id={}, username={}", user.getId(), user.getUsername());
-            
-            Todo newTodo = todoService.createTodo(title, description, user);
-            
-            logger.info("Todo created by service: id={}, title='{}'", newTodo.getId(), newTodo.getTitle());
-            
-            // Verify the todo was actually saved
-            List<Todo> verifyList = todoService.findByUser(user.getId());
-            logger.info("Verification: Service now has {} todos for this user", 
-                       verifyList != null ? verifyList.size() : "NULL");
+            Todo newTodo = todoService.createTodo(title, description, loginBean.getCurrentUser());
             
             // Clear form
             this.title = null;
             this.description = null;
-            this.selectedTodo = null;
+            this.selectedTodoId = null;
             
-            // Reload the list
-            logger.info("Calling loadTodos() to refresh the list...");
-            loadTodos();
+            // Prepend only the new row
+            renderRow(newTodo.getId(), newTodo, ROW_INSERT);
             
             FacesContext.getCurrentInstance().addMessage(null,
                     new FacesMessage(FacesMessage.SEVERITY_INFO, "Success", 
-                                   "Todo added successfully. Total todos: " + (todos != null ? todos.size() : 0)));
+                                   "Todo added successfully. Total todos: " + getTodoCount()));
             
         } catch (Exception e) {
-            logger.error("ERROR adding todo: ", e);
+            logger.error("Failed to add todo", e);
             FacesContext.getCurrentInstance().addMessage(null,
                     new FacesMessage(FacesMessage.SEVERITY_ERROR, "Error", 
                                    "Failed to add todo: " + e.getMessage()));
         }
-        
-        logger.info("=== addTodo() COMPLETED ===");
     }
 
     public void updateTodo() {
-        logger.info("=== updateTodo() CALLED ===");
-        
-        if (selectedTodo == null) {
-            logger.error("selectedTodo is NULL!");
+        if (selectedTodoId == null) {
             return;
         }
         
         if (title == null || title.trim().isEmpty()) {
-            logger.error("Title is empty!");
             FacesContext.getCurrentInstance().addMessage(null,
                     new FacesMessage(FacesMessage.SEVERITY_ERROR, "Error", "Title is required"));
             return;
         }
         
         try {
-            logger.info("Updating todo id={} with title='{}'", selectedTodo.getId(), title);
-            
-            selectedTodo.setTitle(title);
-            selectedTodo.setDescription(description);
-            todoService.updateTodo(selectedTodo);
+            Todo updated = todoService.updateTodo(selectedTodoId, currentUserId, title, description);
+            if (updated == null) {
+                this.selectedTodoId = null;
+                FacesContext.getCurrentInstance().addMessage(null,
+                        new FacesMessage(FacesMessage.SEVERITY_ERROR, "Error", "Todo no longer exists"));
+                return;
+            }
             
-            logger.info("Todo updated successfully");
+            // Re-render only the updated row
+            renderRow(updated.getId(), updated, ROW_REPLACE);
             
             // Clear form
-            this.selectedTodo = null;
+            this.selectedTodoId = null;
             this.title = null;
             this.description = null;
             
-            // Reload
-            loadTodos();
-            
             FacesContext.getCurrentInstance().addMessage(null,
                     new FacesMessage(FacesMessage.SEVERITY_INFO, "Success", "Todo updated successfully"));
             
         } catch (Exception e) {
-            logger.error("ERROR updating todo: ", e);
+            logger.error("Failed to update todo id {}", selectedTodoId, e);
             FacesContext.getCurrentInstance().addMessage(null,
                     new FacesMessage(FacesMessage.SEVERITY_ERROR, "Error", 
                                    "Failed to update todo: " + e.getMessage()));
         }
-        
-        logger.info("=== updateTodo() COMPLETED ===");
     }
 
+    @Audited
+    @Traced(SpanKind.ACTION)
     public void deleteTodo(Long id) {
-        logger.info("=== deleteTodo() CALLED for id={} ===", id);
-        
         try {
-            todoService.deleteTodo(id);
-            logger.info("Todo deleted successfully");
+            todoService.deleteTodo(id, currentUserId);
             
-            loadTodos();
+            renderRow(id, null, ROW_REMOVE);
             
             FacesContext.getCurrentInstance().addMessage(null,
                     new FacesMessage(FacesMessage.SEVERITY_INFO, "Success", "Todo deleted successfully"));
             
         } catch (Exception e) {
-            logger.error("ERROR deleting todo: ", e);
+            logger.error("Failed to delete todo id {}", id, e);
             FacesContext.getCurrentInstance().addMessage(null,
                     new FacesMessage(FacesMessage.SEVERITY_ERROR, "Error", 
                                    "Failed to delete todo: " + e.getMessage()));
         }
-        
-        logger.info("=== deleteTodo() COMPLETED ===");
     }
 
+    @Audited
+    @Traced(SpanKind.ACTION)
     public void toggleComplete(Long id) {
-        logger.info("=== toggleComplete() CALLED for id={} ===", id);
-        
         try {
-            todoService.toggleComplete(id);
-            logger.info("Todo completion toggled successfully");
+            Todo toggled = todoService.toggleComplete(id, currentUserId);
             
-            loadTodos();
+            renderRow(id, toggled, toggled != null ? ROW_REPLACE : ROW_REMOVE);
             
         } catch (Exception e) {
-            logger.error("ERROR toggling todo completion: ", e);
+            logger.error("Failed to toggle todo id {}", id, e);
             FacesContext.getCurrentInstance().addMessage(null,
                     new FacesMessage(FacesMessage.SEVERITY_ERROR, "Error", 
                                    "Failed to update todo: " + e.getMessage()));
         }
-        
-        logger.info("=== toggleComplete() COMPLETED ===");
     }
 
     public void selectTodo(Todo todo) {
-        logger.info("=== selectTodo() CALLED for id={} ===", todo != null ? todo.getId() : "NULL");
-        
         if (todo == null) {
-            logger.error("todo parameter is NULL!");
             return;
         }
         
-        this.selectedTodo = todo;
+        this.selectedTodoId = todo.getId();
         this.title = todo.getTitle();
         this.description = todo.getDescription();
-        
-        logger.info("Selected todo: id={}, title='{}'", todo.getId(), todo.getTitle());
+    }
+
+    @Audited
+    @Traced(SpanKind.ACTION)
+    public void selectTodoById(Long id) {
+        selectTodo(id != null && currentUserId != null ? todoService.findByIdForUser(id, currentUserId) : null);
+    }
+
+    /**
+     * Renders the given todos into the row fragment after another tab or session changed
+     * them (see TodoPushService); ids that no longer exist are reported as removed. The ids
+     * come from the client, so at most {@code todo.push.maxChangesPerMessage} are read, with
+     * one query.
+     */
+    @Audited
+    @Traced(SpanKind.ACTION)
+    public void refreshRows(String todoIds) {
+        if (currentUserId == null || todoIds == null || todoIds.isEmpty()) {
+            return;
+        }
+
+        Set<Long> ids = new LinkedHashSet<>();
+        for (String value : todoIds.split(",")) {
+            if (ids.size() >= MAX_REFRESH_IDS) {
+                logger.warn("Refresh of more than {} todos requested; ignoring the rest", MAX_REFRESH_IDS);
+                break;
+            }
+            try {
+                ids.add(Long.valueOf(value.trim()));
+            } catch (NumberFormatException e) {
+                logger.warn("Ignoring invalid todo id in refresh: '{}'", value);
+            }
+        }
+
+        Map<Long, Todo> found = new HashMap<>();
+        for (Todo todo : todoService.findByIdsForUser(ids, currentUserId)) {
+            found.put(todo.getId(), todo);
+        }
+        List<Todo> rows = new ArrayList<>();
+        List<Long> removed = new ArrayList<>();
+        for (Long id : ids) {
+            Todo todo = found.get(id);
+            if (todo != null) {
+                rows.add(todo);
+            } else {
+                removed.add(id);
+            }
+        }
+
+        FacesContext.getCurrentInstance().getAttributes().put(CHANGED_TODOS_REQUEST_KEY, rows);
+        PrimeFaces.current().ajax().addCallbackParam("rowAction", ROW_UPSERT);
+        PrimeFaces.current().ajax().addCallbackParam("removedIds", removed);
     }
 
     public void cancelEdit() {
-        logger.info("=== cancelEdit() CALLED ===");
-        this.selectedTodo = null;
+        this.selectedTodoId = null;
         this.title = null;
         this.description = null;
     }
 
     public void prepareAddTodo() {
-        logger.info("=== prepareAddTodo() CALLED ===");
-        this.selectedTodo = null;
+        this.selectedTodoId = null;
         this.title = null;
         this.description = null;
     }
 
+    /**
+     * Dialog action; the add and update paths are audited as one "saveTodo" event.
+     */
+    @Audited
+    @Traced(SpanKind.ACTION)
     public void saveTodo() {
-        logger.info("=== saveTodo() CALLED ===");
-        logger.info("editMode: {}", isEditMode());
-        logger.info("title: '{}'", title);
-        logger.info("description: '{}'", description);
-        logger.info("selectedTodo: {}", selectedTodo != null ? selectedTodo.getId() : "NULL");
-        
-        if (selectedTodo == null) {
-            logger.info("Calling addTodo()...");
+        if (selectedTodoId == null) {
             addTodo();
         } else {
-            logger.info("Calling updateTodo()...");
             updateTodo();
         }
-        
-        logger.info("=== saveTodo() COMPLETED ===");
+    }
+
+    @Audited
+    @Traced(SpanKind.ACTION)
+    public void toggleArchived() {
+        showArchived = !showArchived;
+    }
+
+    public boolean isShowArchived() {
+        return showArchived;
+    }
+
+    /**
+     * The newest archived todos, read only while the archive is shown and once per request.
+     */
+    @SuppressWarnings("unchecked")
+    public List<ArchivedTodo> getArchivedTodos() {
+        if (!showArchived || currentUserId == null) {
+            return Collections.emptyList();
+        }
+        FacesContext facesContext = FacesContext.getCurrentInstance();
+        List<ArchivedTodo> archived = (List<ArchivedTodo>) facesContext.getAttributes().get(ARCHIVED_TODOS_REQUEST_KEY);
+        if (archived == null) {
+            try {
+                archived = todoService.findArchivedByUser(currentUserId, null, ARCHIVED_PAGE_SIZE);
+            } catch (Exception e) {
+                logger.error("Failed to load archived todos for user id {}", currentUserId, e);
+                archived = Collections.emptyList();
+            }
+            facesContext.getAttributes().put(ARCHIVED_TODOS_REQUEST_KEY, archived);
+        }
+        return archived;
+    }
+
+    /**
+     * Number of archived todos for the badge. Only counted in the database when the shown page
+     * is full; a shorter page already holds all of them.
+     */
+    public long getArchivedCount() {
+        List<ArchivedTodo> archived = getArchivedTodos();
+        if (archived.size() < ARCHIVED_PAGE_SIZE) {
+            return archived.size();
+        }
+        FacesContext facesContext = FacesContext.getCurrentInstance();
+        Long count = (Long) facesContext.getAttributes().get(ARCHIVED_COUNT_REQUEST_KEY);
+        if (count == null) {
+            try {
+                count = todoService.countArchivedByUser(currentUserId);
+            } catch (Exception e) {
+                logger.error("Failed to count archived todos for user id {}", currentUserId, e);
+                count = (long) archived.size();
+            }
+            facesContext.getAttributes().put(ARCHIVED_COUNT_REQUEST_KEY, count);
+        }
+        return count;
     }
 
     public boolean isEditMode() {
-        boolean editMode = selectedTodo != null;
-        logger.debug("isEditMode() = {}", editMode);
-        return editMode;
+        return selectedTodoId != null;
     }
 
     // Getters and Setters
     public List<Todo> getTodos() {
-        logger.debug("getTodos() called - returning {} todos", todos != null ? todos.size() : "NULL");
-        
-        if (todos == null && loginBean != null && loginBean.isLoggedIn()) {
-            logger.warn("todos is NULL but user is logged in - loading todos");
+        List<Todo> todos = getRequestTodos();
+        if (todos == null) {
             loadTodos();
+            todos = getRequestTodos();
         }
         
         return todos;
     }
 
     public void setTodos(List<Todo> todos) {
-        logger.debug("setTodos() called with {} todos", todos != null ? todos.size() : "NULL");
-        this.todos = todos;
+        setRequestTodos(todos);
+    }
+
+    /**
+     * Number of todos for the header badge; uses the list if this request loaded it,
+     * otherwise a count query so row actions never load the whole list. The count is queried
+     * once per request, after the action, as the success message and the badge both show it.
+     */
+    public long getTodoCount() {
+        List<Todo> todos = getRequestTodos();
+        if (todos != null) {
+            return todos.size();
+        }
+        if (currentUserId == null) {
+            return 0;
+        }
+        FacesContext facesContext = FacesContext.getCurrentInstance();
+        Long count = (Long) facesContext.getAttributes().get(TODO_COUNT_REQUEST_KEY);
+        if (count == null) {
+            count = todoService.countByUser(currentUserId);
+            facesContext.getAttributes().put(TODO_COUNT_REQUEST_KEY, count);
+        }
+        return count;
+    }
+
+    /**
+     * The row (if any) changed by the current action, rendered into the row fragment.
+     */
+    @SuppressWarnings("unchecked")
+    public List<Todo> getChangedTodos() {
+        FacesContext facesContext = FacesContext.getCurrentInstance();
+        List<Todo> changed = facesContext != null
+                ? (List<Todo>) facesContext.getAttributes().get(CHANGED_TODOS_REQUEST_KEY) : null;
+        return changed != null ? changed : Collections.emptyList();
+    }
+
+    private void renderRow(Long id, Todo todo, String rowAction) {
+        FacesContext facesContext = FacesContext.getCurrentInstance();
+        if (facesContext != null) {
+            facesContext.getAttributes().put(CHANGED_TODOS_REQUEST_KEY,
+                    todo != null ? Collections.singletonList(todo) : Collections.emptyList());
+        }
+        if (PrimeFaces.current().isAjaxRequest()) {
+            PrimeFaces.current().ajax().addCallbackParam("rowAction", rowAction);
+            PrimeFaces.current().ajax().addCallbackParam("todoId", id);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Todo> getRequestTodos() {
+        FacesContext facesContext = FacesContext.getCurrentInstance();
+        return facesContext != null ? (List<Todo>) facesContext.getAttributes().get(TODOS_REQUEST_KEY) : null;
+    }
+
+    private void setRequestTodos(List<Todo> todos) {
+        FacesContext facesContext = FacesContext.getCurrentInstance();
+        if (facesContext != null) {
+            facesContext.getAttributes().put(TODOS_REQUEST_KEY, todos);
+        }
     }
 
     public Todo getSelectedTodo() {
-        return selectedTodo;
+        return selectedTodoId != null && currentUserId != null ? todoService.findByIdForUser(selectedTodoId, currentUserId) : null;
     }
 
     public void setSelectedTodo(Todo selectedTodo) {
-        this.selectedTodo = selectedTodo;
+        this.selectedTodoId = selectedTodo != null ? selectedTodo.getId() : null;
     }
 
     public String getTitle() {
-        logger.debug("getTitle() = '{}'", title);
         return title;
     }
 
     public void setTitle(String title) {
-        logger.debug("setTitle('{}') called", title);
         this.title = title;
     }
 
     public String getDescription() {
-        logger.debug("getDescription() = '{}'", description);
         return description;
     }
 
     public void setDescription(String description) {
-        logger.debug("setDescription('{}') called", description);
         this.description = description;
     }
 
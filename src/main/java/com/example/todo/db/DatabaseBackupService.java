@@ -0,0 +1,123 @@
+package com.example.todo.db;
+
+import com.example.todo.shard.ShardingConfig;
+import org.apache.logging.log4j.CloseableThreadContext;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.annotation.Resource;
+import javax.ejb.AsyncResult;
+import javax.ejb.Asynchronous;
+import javax.ejb.Lock;
+import javax.ejb.LockType;
+import javax.ejb.Singleton;
+import javax.ejb.TransactionManagement;
+import javax.ejb.TransactionManagementType;
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Takes online snapshots of the file-backed H2 store with {@code BACKUP TO}. The MVStore
+ * backup reads a consistent snapshot while the application keeps reading and writing, and
+ * runs asynchronously so the caller is never blocked. Only one backup runs at a time.
+ *
+ * Backups are written to the directory in the {@code todo.backup.dir} system property
+ * (default {@code backups}). Each shard datasource other than {@code todoDS} gets its own
+ * file next to the primary's, e.g. {@code todoShard1-<timestamp>.zip}.
+ */
+@Singleton
+@Lock(LockType.READ)
+@TransactionManagement(TransactionManagementType.BEAN)
+public class DatabaseBackupService {
+    private static final Logger logger = LogManager.getLogger(DatabaseBackupService.class);
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    @Resource(lookup = "java:openejb/Resource/todoDS")
+    private DataSource dataSource;
+
+    @Resource(lookup = "java:openejb/Resource/todoShards")
+    private ShardingConfig shards;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile String lastResult = "No backup has run yet";
+
+    /**
+     * Returns the path the next backup will be written to, or null if a backup is already running.
+     */
+    public Path reserveBackup() {
+        if (!running.compareAndSet(false, true)) {
+            return null;
+        }
+        Path dir = Paths.get(System.getProperty("todo.backup.dir", "backups")).toAbsolutePath();
+        return dir.resolve("todoDB-" + LocalDateTime.now().format(FILE_TIMESTAMP) + ".zip");
+    }
+
+    /**
+     * Runs the backup on a container thread. {@code loggingContext} is the caller's Log4j
+     * ThreadContext so the backup's log lines keep the request's correlation id.
+     */
+    @Asynchronous
+    public Future<Path> backup(Path target, Map<String, String> loggingContext) {
+        CloseableThreadContext.Instance context = CloseableThreadContext.putAll(loggingContext);
+        try {
+            return runBackup(target);
+        } finally {
+            context.close();
+        }
+    }
+
+    private Future<Path> runBackup(Path target) {
+        logger.info("Starting online database backup to {}", target);
+        long start = System.nanoTime();
+        try {
+            Files.createDirectories(target.getParent());
+            backup(dataSource, target);
+            for (String shard : shards.getShards().subList(1, shards.getShards().size())) {
+                Path shardTarget = target.resolveSibling(target.getFileName().toString()
+                        .replaceFirst("^todoDB", shard.substring(0, shard.length() - 2)));
+                backup(InitialContext.doLookup(ShardingConfig.dataSourceName(shard)), shardTarget);
+                logger.info("Backed up shard {} to {}", shard, shardTarget);
+            }
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+            lastResult = "Backup completed in " + elapsedMillis + " ms: " + target;
+            logger.info("Online database backup completed in {} ms: {} ({} bytes)",
+                    elapsedMillis, target, Files.size(target));
+            return new AsyncResult<>(target);
+        } catch (SQLException | IOException | NamingException e) {
+            lastResult = "Backup failed: " + e.getMessage();
+            logger.error("Online database backup to {} failed", target, e);
+            return new AsyncResult<>(null);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private void backup(DataSource source, Path target) throws SQLException {
+        try (Connection connection = source.getConnection();
+             PreparedStatement statement = connection.prepareStatement("BACKUP TO ?")) {
+            statement.setString(1, target.toString());
+            statement.execute();
+        }
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    public String getLastResult() {
+        return lastResult;
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.todo.db;
+
+import org.apache.tomcat.jdbc.pool.ConnectionPool;
+import org.apache.tomcat.jdbc.pool.PoolProperties.InterceptorProperty;
+import org.apache.tomcat.jdbc.pool.PooledConnection;
+import org.apache.tomcat.jdbc.pool.interceptor.StatementCache;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+
+/**
+ * tomcat-jdbc {@link StatementCache} that counts its hits and misses in {@link PoolMetrics}.
+ * A statement that cannot be cached because the connection's or the pool's limit is reached
+ * counts as not cached; a steady stream of those means {@code max} is too small.
+ *
+ * <pre>JdbcInterceptors = com.example.todo.db.MeteredStatementCache(pool=todoDS,prepared=true,callable=false,max=256)</pre>
+ */
+public class MeteredStatementCache extends StatementCache {
+    private String poolName;
+    private PoolMetrics metrics;
+
+    @Override
+    public void setProperties(Map<String, InterceptorProperty> properties) {
+        super.setProperties(properties);
+        InterceptorProperty pool = properties.get("pool");
+        poolName = pool != null ? pool.getValue() : null;
+    }
+
+    @Override
+    public void reset(ConnectionPool parent, PooledConnection con) {
+        if (metrics == null && parent != null) {
+            metrics = PoolMetrics.forPool(poolName != null ? poolName : parent.getName());
+        }
+        super.reset(parent, con);
+    }
+
+    @Override
+    public CachedStatement isCached(Method method, Object[] args) {
+        CachedStatement cached = super.isCached(method, args);
+        if (metrics != null) {
+            metrics.statementLookup(cached != null);
+        }
+        return cached;
+    }
+
+    @Override
+    public boolean cacheStatement(CachedStatement proxy) {
+        boolean cached = super.cacheStatement(proxy);
+        if (!cached && metrics != null) {
+            metrics.statementNotCached();
+        }
+        return cached;
+    }
+}
@@ -0,0 +1,234 @@
+package com.example.todo.db;
+
+import com.example.todo.metrics.LatencyHistogram;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.tomcat.jdbc.pool.ConnectionPool;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Borrow, wait, hold and statement cache statistics of one datasource pool, fed by
+ * {@link PoolTelemetryInterceptor} and {@link MeteredStatementCache}.
+ *
+ * The interceptors are created by tomcat-jdbc rather than CDI, so the metrics live in a static
+ * registry keyed by datasource name, the way Log4j plugins reach shared state. Each pool is
+ * published as an MXBean while it is open.
+ */
+public class PoolMetrics implements PoolMetricsMXBean {
+    private static final Logger logger = LogManager.getLogger(PoolMetrics.class);
+    private static final Map<String, PoolMetrics> POOLS = new ConcurrentHashMap<>();
+    private static final long LEAK_THRESHOLD_NANOS =
+            TimeUnit.MILLISECONDS.toNanos(Long.getLong("todo.pool.leakThresholdMillis", 30_000L));
+
+    private final String name;
+    private final LatencyHistogram waits = new LatencyHistogram();
+    private final LatencyHistogram holds = new LatencyHistogram();
+    private final LongAdder borrows = new LongAdder();
+    private final LongAdder returns = new LongAdder();
+    private final LongAdder statementHits = new LongAdder();
+    private final LongAdder statementMisses = new LongAdder();
+    private final LongAdder statementsNotCached = new LongAdder();
+    private final Set<PoolTelemetryInterceptor> borrowed = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger peakActive = new AtomicInteger();
+    private volatile ConnectionPool pool;
+    private ObjectName objectName;
+
+    private PoolMetrics(String name) {
+        this.name = name;
+    }
+
+    public static PoolMetrics forPool(String name) {
+        PoolMetrics existing = POOLS.get(name);
+        return existing != null ? existing : POOLS.computeIfAbsent(name, PoolMetrics::create);
+    }
+
+    /**
+     * All open pools, ordered by name.
+     */
+    public static Collection<PoolMetrics> getAll() {
+        List<PoolMetrics> all = new ArrayList<>(POOLS.values());
+        all.sort(Comparator.comparing(PoolMetrics::getName));
+        return all;
+    }
+
+    static void closed(String name) {
+        PoolMetrics metrics = POOLS.remove(name);
+        if (metrics != null && metrics.objectName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(metrics.objectName);
+            } catch (JMException e) {
+                logger.debug("Could not unregister {}: {}", metrics.objectName, e.getMessage());
+            }
+        }
+    }
+
+    private static PoolMetrics create(String name) {
+        PoolMetrics created = new PoolMetrics(name);
+        try {
+            ObjectName objectName = new ObjectName("com.example.todo:type=ConnectionPool,pool=" + ObjectName.quote(name));
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (!server.isRegistered(objectName)) {
+                server.registerMBean(created, objectName);
+                created.objectName = objectName;
+            }
+        } catch (JMException e) {
+            logger.debug("Metrics of pool {} not registered with JMX: {}", name, e.getMessage());
+        }
+        return created;
+    }
+
+    void attach(ConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    void borrowed(PoolTelemetryInterceptor connection, long waitMillis) {
+        borrows.increment();
+        waits.record(TimeUnit.MILLISECONDS.toNanos(waitMillis));
+        borrowed.add(connection);
+        peakActive.accumulateAndGet(borrowed.size(), Math::max);
+    }
+
+    void returned(PoolTelemetryInterceptor connection, long heldNanos) {
+        if (borrowed.remove(connection)) {
+            returns.increment();
+            holds.record(heldNanos);
+        }
+    }
+
+    void statementLookup(boolean hit) {
+        (hit ? statementHits : statementMisses).increment();
+    }
+
+    void statementNotCached() {
+        statementsNotCached.increment();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    ConnectionPool getPool() {
+        return pool;
+    }
+
+    public LatencyHistogram getWaits() {
+        return waits;
+    }
+
+    /**
+     * The most connections borrowed at once since the last call.
+     */
+    int takePeakActive() {
+        return peakActive.getAndSet(borrowed.size());
+    }
+
+    /**
+     * Connections borrowed for longer than {@code todo.pool.leakThresholdMillis}, oldest first.
+     */
+    public List<PoolTelemetryInterceptor> getSuspectedLeakList() {
+        long now = System.nanoTime();
+        List<PoolTelemetryInterceptor> suspects = new ArrayList<>();
+        for (PoolTelemetryInterceptor connection : borrowed) {
+            long since = connection.getBorrowedNanos();
+            if (since != 0 && now - since > LEAK_THRESHOLD_NANOS) {
+                suspects.add(connection);
+            }
+        }
+        suspects.sort(Comparator.comparingLong(PoolTelemetryInterceptor::getBorrowedNanos));
+        return suspects;
+    }
+
+    @Override
+    public int getActive() {
+        ConnectionPool current = pool;
+        return current != null ? current.getActive() : borrowed.size();
+    }
+
+    @Override
+    public int getIdle() {
+        ConnectionPool current = pool;
+        return current != null ? current.getIdle() : 0;
+    }
+
+    @Override
+    public int getMaxActive() {
+        ConnectionPool current = pool;
+        return current != null ? current.getPoolProperties().getMaxActive() : 0;
+    }
+
+    @Override
+    public int getWaitingThreads() {
+        ConnectionPool current = pool;
+        return current != null ? current.getWaitCount() : 0;
+    }
+
+    @Override
+    public long getBorrows() {
+        return borrows.sum();
+    }
+
+    @Override
+    public long getReturns() {
+        return returns.sum();
+    }
+
+    @Override
+    public double getWaitP50Millis() {
+        return waits.quantileMillis(0.50);
+    }
+
+    @Override
+    public double getWaitP95Millis() {
+        return waits.quantileMillis(0.95);
+    }
+
+    @Override
+    public double getWaitP99Millis() {
+        return waits.quantileMillis(0.99);
+    }
+
+    @Override
+    public double getHoldP95Millis() {
+        return holds.quantileMillis(0.95);
+    }
+
+    @Override
+    public long getStatementCacheHits() {
+        return statementHits.sum();
+    }
+
+    @Override
+    public long getStatementCacheMisses() {
+        return statementMisses.sum();
+    }
+
+    public long getStatementsNotCached() {
+        return statementsNotCached.sum();
+    }
+
+    @Override
+    public double getStatementCacheHitRatio() {
+        long hits = statementHits.sum();
+        long lookups = hits + statementMisses.sum();
+        return lookups > 0 ? (double) hits / lookups : 0;
+    }
+
+    @Override
+    public int getSuspectedLeaks() {
+        return getSuspectedLeakList().size();
+    }
+}
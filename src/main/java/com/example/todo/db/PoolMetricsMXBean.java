@@ -0,0 +1,36 @@
+package com.example.todo.db;
+
+/**
+ * JMX view of one datasource pool, registered as
+ * {@code com.example.todo:type=ConnectionPool,pool=<datasource>}.
+ */
+public interface PoolMetricsMXBean {
+
+    int getActive();
+
+    int getIdle();
+
+    int getMaxActive();
+
+    int getWaitingThreads();
+
+    long getBorrows();
+
+    long getReturns();
+
+    double getWaitP50Millis();
+
+    double getWaitP95Millis();
+
+    double getWaitP99Millis();
+
+    double getHoldP95Millis();
+
+    long getStatementCacheHits();
+
+    long getStatementCacheMisses();
+
+    double getStatementCacheHitRatio();
+
+    int getSuspectedLeaks();
+}
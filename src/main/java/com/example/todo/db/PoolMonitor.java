@@ -0,0 +1,120 @@
+package com.example.todo.db;
+
+import com.example.todo.metrics.LatencyHistogram;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.tomcat.jdbc.pool.ConnectionPool;
+import org.apache.tomcat.jdbc.pool.PoolConfiguration;
+
+import javax.ejb.Lock;
+import javax.ejb.LockType;
+import javax.ejb.Schedule;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Checks the connection pools every ten seconds: warns once about each connection held longer
+ * than {@code todo.pool.leakThresholdMillis}, and with {@code -Dtodo.pool.adaptive=true}
+ * resizes the pools.
+ *
+ * Adaptive sizing looks at the borrow wait of the last interval. When its p95 reaches
+ * {@code todo.pool.targetWaitMillis}, {@code maxActive} grows by a quarter, up to
+ * {@code todo.pool.maxActiveCeiling}; after {@value #QUIET_INTERVALS} intervals in which no
+ * more than half of the connections were in use, it shrinks by one, never below the
+ * configured size. Growing is only useful while the database has headroom: once it is
+ * saturated, more connections add contention rather than throughput, so keep the ceiling
+ * close to what the database can serve.
+ */
+@Singleton
+@Startup
+@Lock(LockType.WRITE)
+@TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+public class PoolMonitor {
+    private static final Logger logger = LogManager.getLogger(PoolMonitor.class);
+    private static final boolean ADAPTIVE = Boolean.getBoolean("todo.pool.adaptive");
+    private static final double TARGET_WAIT_MILLIS = Double.parseDouble(System.getProperty("todo.pool.targetWaitMillis", "5"));
+    private static final int MAX_ACTIVE_CEILING = Integer.getInteger("todo.pool.maxActiveCeiling", 50);
+    private static final int QUIET_INTERVALS = 6;
+
+    private final Map<String, PoolState> states = new HashMap<>();
+
+    @Schedule(second = "*/10", minute = "*", hour = "*", persistent = false)
+    public void check() {
+        for (PoolMetrics metrics : PoolMetrics.getAll()) {
+            PoolState state = states.computeIfAbsent(metrics.getName(), name -> new PoolState());
+            reportLeaks(metrics, state);
+            ConnectionPool pool = metrics.getPool();
+            if (ADAPTIVE && pool != null && !pool.isClosed()) {
+                resize(metrics, pool, state);
+            }
+        }
+        states.keySet().retainAll(PoolMetrics.getAll().stream().map(PoolMetrics::getName).collect(Collectors.toSet()));
+    }
+
+    private void reportLeaks(PoolMetrics metrics, PoolState state) {
+        Set<Long> current = new HashSet<>();
+        for (PoolTelemetryInterceptor connection : metrics.getSuspectedLeakList()) {
+            long borrowed = connection.getBorrowedNanos();
+            current.add(borrowed);
+            if (!state.reportedLeaks.contains(borrowed)) {
+                long heldMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - borrowed);
+                logger.warn("Possible connection leak in {}: held for {} ms by {}",
+                        metrics.getName(), heldMillis, connection.getBorrowedBy(), connection.getBorrowStack());
+            }
+        }
+        state.reportedLeaks = current;
+    }
+
+    private void resize(PoolMetrics metrics, ConnectionPool pool, PoolState state) {
+        PoolConfiguration config = pool.getPoolProperties();
+        if (state.floor == 0) {
+            state.floor = config.getMaxActive();
+        }
+        long[] waits = metrics.getWaits().snapshot();
+        long[] interval = new long[waits.length];
+        for (int i = 0; i < waits.length; i++) {
+            interval[i] = waits[i] - (state.lastWaits != null ? state.lastWaits[i] : 0);
+        }
+        state.lastWaits = waits;
+        double waitP95 = LatencyHistogram.quantileMillis(interval, 0.95);
+        int peak = metrics.takePeakActive();
+        int maxActive = config.getMaxActive();
+
+        if (waitP95 >= TARGET_WAIT_MILLIS && maxActive < MAX_ACTIVE_CEILING) {
+            int grown = Math.min(MAX_ACTIVE_CEILING, maxActive + Math.max(1, maxActive / 4));
+            setSize(config, grown);
+            state.quietIntervals = 0;
+            logger.info("Pool {}: p95 borrow wait {} ms, growing maxActive {} -> {}",
+                    metrics.getName(), waitP95, maxActive, grown);
+        } else if (maxActive > state.floor && peak <= maxActive / 2) {
+            if (++state.quietIntervals >= QUIET_INTERVALS) {
+                setSize(config, maxActive - 1);
+                state.quietIntervals = 0;
+                logger.info("Pool {}: peak {} of {} connections in use, shrinking maxActive to {}",
+                        metrics.getName(), peak, maxActive, maxActive - 1);
+            }
+        } else {
+            state.quietIntervals = 0;
+        }
+    }
+
+    private static void setSize(PoolConfiguration config, int maxActive) {
+        config.setMaxActive(maxActive);
+        config.setMaxIdle(maxActive);
+    }
+
+    private static final class PoolState {
+        int floor;
+        long[] lastWaits;
+        int quietIntervals;
+        Set<Long> reportedLeaks = new HashSet<>();
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.todo.db;
+
+import org.apache.tomcat.jdbc.pool.ConnectionPool;
+import org.apache.tomcat.jdbc.pool.JdbcInterceptor;
+import org.apache.tomcat.jdbc.pool.PoolProperties.InterceptorProperty;
+import org.apache.tomcat.jdbc.pool.PooledConnection;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+
+/**
+ * tomcat-jdbc interceptor that reports borrow wait and hold times to {@link PoolMetrics} and
+ * remembers who holds each connection, for leak detection.
+ *
+ * The pool creates one instance per physical connection and resets it on every borrow. The
+ * wait is measured from the start of {@code getConnection()}, which the pool stamps on the
+ * connection, to the reset. With {@code -Dtodo.pool.captureStacks=true} the borrowing stack is
+ * kept as well, at the cost of a stack walk per borrow.
+ *
+ * <pre>JdbcInterceptors = com.example.todo.db.PoolTelemetryInterceptor(pool=todoDS)</pre>
+ */
+public class PoolTelemetryInterceptor extends JdbcInterceptor {
+    private static final boolean CAPTURE_STACKS = Boolean.getBoolean("todo.pool.captureStacks");
+
+    private String poolName;
+    private PoolMetrics metrics;
+    private volatile long borrowedNanos;
+    private volatile String borrowedBy;
+    private volatile Throwable borrowStack;
+
+    @Override
+    public void setProperties(Map<String, InterceptorProperty> properties) {
+        super.setProperties(properties);
+        InterceptorProperty pool = properties.get("pool");
+        poolName = pool != null ? pool.getValue() : null;
+    }
+
+    @Override
+    public void poolStarted(ConnectionPool pool) {
+        super.poolStarted(pool);
+        metricsFor(pool).attach(pool);
+    }
+
+    @Override
+    public void poolClosed(ConnectionPool pool) {
+        PoolMetrics.closed(poolName != null ? poolName : pool.getName());
+        super.poolClosed(pool);
+    }
+
+    @Override
+    public void reset(ConnectionPool parent, PooledConnection con) {
+        if (parent == null || con == null) {
+            return;
+        }
+        PoolMetrics current = metricsFor(parent);
+        current.attach(parent);
+        borrowedNanos = System.nanoTime();
+        borrowedBy = Thread.currentThread().getName();
+        borrowStack = CAPTURE_STACKS ? new Throwable("Connection borrowed by " + borrowedBy) : null;
+        current.borrowed(this, Math.max(0, System.currentTimeMillis() - con.getTimestamp()));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (compare(CLOSE_VAL, method)) {
+            returned();
+        }
+        return super.invoke(proxy, method, args);
+    }
+
+    @Override
+    public void disconnected(ConnectionPool parent, PooledConnection con, boolean finalizing) {
+        returned();
+        super.disconnected(parent, con, finalizing);
+    }
+
+    private void returned() {
+        long since = borrowedNanos;
+        if (since != 0 && metrics != null) {
+            borrowedNanos = 0;
+            metrics.returned(this, System.nanoTime() - since);
+        }
+    }
+
+    private PoolMetrics metricsFor(ConnectionPool pool) {
+        if (metrics == null) {
+            metrics = PoolMetrics.forPool(poolName != null ? poolName : pool.getName());
+        }
+        return metrics;
+    }
+
+    /**
+     * {@link System#nanoTime()} of the current borrow, 0 while the connection is idle.
+     */
+    public long getBorrowedNanos() {
+        return borrowedNanos;
+    }
+
+    public String getBorrowedBy() {
+        return borrowedBy;
+    }
+
+    /**
+     * Stack of the current borrow, or null unless {@code todo.pool.captureStacks} is set.
+     */
+    public Throwable getBorrowStack() {
+        return borrowStack;
+    }
+}
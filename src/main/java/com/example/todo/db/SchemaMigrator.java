@@ -0,0 +1,234 @@
+package com.example.todo.db;
+
+import com.example.todo.shard.ShardingConfig;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.ejb.TransactionManagement;
+import javax.ejb.TransactionManagementType;
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Applies the versioned SQL scripts under {@code META-INF} exactly once, at deploy time.
+ * Applied versions and their checksums are recorded in {@code schema_migrations}; a script
+ * that changed after it was applied stops the deployment instead of silently diverging.
+ *
+ * To change the schema, append a new script to {@link #MIGRATIONS} rather than editing an
+ * applied one.
+ *
+ * Schema scripts run on every shard datasource (see {@link ShardingConfig}), data scripts on
+ * the primary {@code todoDS} only. Each shard's todo id sequence is then moved into the
+ * shard's own id range, so ids stay unique when todos move between shards.
+ */
+@Singleton
+@Startup
+@TransactionManagement(TransactionManagementType.BEAN)
+public class SchemaMigrator {
+    private static final Logger logger = LogManager.getLogger(SchemaMigrator.class);
+
+    private static final String ALL_SHARDS = "all";
+    private static final String PRIMARY_ONLY = "primary";
+
+    /** Version, script, and whether it runs on all shards or the primary only. */
+    private static final String[][] MIGRATIONS = {
+            {"1", "META-INF/schema.sql", ALL_SHARDS},
+            {"2", "META-INF/data.sql", PRIMARY_ONLY},
+            {"3", "META-INF/sharding.sql", PRIMARY_ONLY},
+            {"4", "META-INF/archive.sql", ALL_SHARDS},
+            {"5", "META-INF/shard-moves.sql", PRIMARY_ONLY},
+            {"6", "META-INF/password-hashes.sql", PRIMARY_ONLY}
+    };
+
+    private static final String CREATE_HISTORY_TABLE =
+            "CREATE TABLE IF NOT EXISTS schema_migrations ("
+                    + "version INT PRIMARY KEY, "
+                    + "script VARCHAR(255) NOT NULL, "
+                    + "checksum VARCHAR(64) NOT NULL, "
+                    + "applied_at TIMESTAMP NOT NULL, "
+                    + "execution_ms BIGINT NOT NULL)";
+
+    @Resource(lookup = "java:openejb/Resource/todoDS")
+    private DataSource dataSource;
+
+    @Resource(lookup = "java:openejb/Resource/todoShards")
+    private ShardingConfig shards;
+
+    @PostConstruct
+    public void migrate() {
+        for (String shard : shards.getShards()) {
+            migrate(shard);
+        }
+    }
+
+    private void migrate(String shard) {
+        long start = System.nanoTime();
+        int applied = 0;
+        boolean primary = ShardingConfig.PRIMARY.equals(shard);
+
+        try (Connection connection = (primary ? dataSource : shardDataSource(shard)).getConnection()) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(CREATE_HISTORY_TABLE);
+            }
+            Map<Integer, String> history = loadHistory(connection);
+
+            for (String[] migration : MIGRATIONS) {
+                int version = Integer.parseInt(migration[0]);
+                String script = migration[1];
+                if (!primary && PRIMARY_ONLY.equals(migration[2])) {
+                    continue;
+                }
+                String sql = readScript(script);
+                String checksum = checksum(sql);
+
+                String appliedChecksum = history.get(version);
+                if (appliedChecksum != null) {
+                    if (!appliedChecksum.equals(checksum)) {
+                        throw new IllegalStateException("Migration " + version + " (" + script
+                                + ") was modified after it was applied to " + shard + "; add a new migration instead");
+                    }
+                    logger.debug("Migration {} ({}) already applied to {}", version, script, shard);
+                    continue;
+                }
+
+                apply(connection, version, script, sql, checksum);
+                applied++;
+            }
+            if (!primary) {
+                restartTodoIds(connection, shards.ordinal(shard));
+            }
+        } catch (SQLException | IOException e) {
+            logger.error("Schema migration of {} failed", shard, e);
+            throw new IllegalStateException("Schema migration of " + shard + " failed", e);
+        }
+
+        logger.info("Schema migration of {} finished in {} ms: {} migration(s) applied",
+                shard, (System.nanoTime() - start) / 1_000_000, applied);
+    }
+
+    private DataSource shardDataSource(String shard) {
+        try {
+            return InitialContext.doLookup(ShardingConfig.dataSourceName(shard));
+        } catch (NamingException e) {
+            throw new IllegalStateException("Shard datasource " + shard + " is not defined in resources.xml", e);
+        }
+    }
+
+    /**
+     * Continues the todo id sequence after the highest id in the shard's own range.
+     */
+    private void restartTodoIds(Connection connection, int ordinal) throws SQLException {
+        long next = ShardingConfig.firstTodoId(ordinal);
+        try (PreparedStatement select = connection.prepareStatement("SELECT MAX(id) FROM todos WHERE id >= ? AND id < ?")) {
+            select.setLong(1, next);
+            select.setLong(2, ShardingConfig.firstTodoId(ordinal + 1));
+            try (ResultSet rs = select.executeQuery()) {
+                if (rs.next() && rs.getObject(1) != null) {
+                    next = rs.getLong(1) + 1;
+                }
+            }
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("ALTER TABLE todos ALTER COLUMN id RESTART WITH " + next);
+        }
+        logger.debug("Todo ids of shard {} continue at {}", ordinal, next);
+    }
+
+    private Map<Integer, String> loadHistory(Connection connection) throws SQLException {
+        Map<Integer, String> history = new HashMap<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT version, checksum FROM schema_migrations")) {
+            while (rs.next()) {
+                history.put(rs.getInt(1), rs.getString(2));
+            }
+        }
+        return history;
+    }
+
+    private void apply(Connection connection, int version, String script, String sql, String checksum)
+            throws SQLException {
+        logger.info("Applying migration {} ({})", version, script);
+        long start = System.nanoTime();
+
+        try (Statement statement = connection.createStatement()) {
+            for (String sqlStatement : splitStatements(sql)) {
+                statement.execute(sqlStatement);
+            }
+        }
+
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO schema_migrations (version, script, checksum, applied_at, execution_ms) VALUES (?, ?, ?, ?, ?)")) {
+            insert.setInt(1, version);
+            insert.setString(2, script);
+            insert.setString(3, checksum);
+            insert.setTimestamp(4, new Timestamp(System.currentTimeMillis()));
+            insert.setLong(5, elapsedMillis);
+            insert.executeUpdate();
+        }
+        logger.info("Migration {} applied in {} ms", version, elapsedMillis);
+    }
+
+    private String readScript(String script) throws IOException {
+        try (InputStream in = SchemaMigrator.class.getClassLoader().getResourceAsStream(script)) {
+            if (in == null) {
+                throw new IOException("Migration script not found on classpath: " + script);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Splits a script into statements, dropping {@code --} comment lines.
+     */
+    private List<String> splitStatements(String sql) {
+        StringBuilder withoutComments = new StringBuilder();
+        for (String line : sql.split("\\R")) {
+            if (!line.trim().startsWith("--")) {
+                withoutComments.append(line).append('\n');
+            }
+        }
+
+        List<String> statements = new ArrayList<>();
+        for (String statement : withoutComments.toString().split(";")) {
+            String trimmed = statement.trim();
+            if (!trimmed.isEmpty()) {
+                statements.add(trimmed);
+            }
+        }
+        return statements;
+    }
+
+    private String checksum(String sql) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(sql.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
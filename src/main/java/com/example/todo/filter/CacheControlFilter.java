@@ -8,15 +8,47 @@ import javax.servlet.annotation.WebFilter;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
- * Filter to prevent caching of pages to avoid security issues with browser back/forward buttons.
- * This ensures that pages are always fetched from the server, not from browser cache.
+ * Applies the HTTP caching policy for the application.
+ *
+ * Pages are never cached, to avoid security issues with browser back/forward buttons; they
+ * are always fetched from the server, not from browser cache.
+ *
+ * JSF resources ({@code /javax.faces.resource/}) are served with strong, content-derived ETags
+ * and answer conditional requests with 304. Versioned resources (a {@code v} parameter, or a
+ * webjars library whose path carries the version) are cached as {@code immutable} for a year;
+ * unversioned resources such as {@code session-timeout.js} are revalidated on every use.
  */
 @WebFilter(urlPatterns = {"*.xhtml", "/"})
 public class CacheControlFilter implements Filter {
     private static final Logger logger = LogManager.getLogger(CacheControlFilter.class);
 
+    private static final String RESOURCE_PREFIX = "/javax.faces.resource/";
+    private static final String IMMUTABLE_CACHE_CONTROL = "public, max-age=31536000, immutable";
+    private static final String REVALIDATE_CACHE_CONTROL = "no-cache";
+    private static final int MAX_CACHED_ETAGS = 1000;
+
+    /**
+     * ETags of versioned resources by request URI and query; their content never changes.
+     * Bounded LRU, so a flood of distinct versions only evicts the least recently used entries.
+     */
+    private final Map<String, String> versionedETags = Collections.synchronizedMap(
+            new LinkedHashMap<String, String>(64, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                    return size() > MAX_CACHED_ETAGS;
+                }
+            });
+
     @Override
     public void init(FilterConfig filterConfig) throws ServletException {
         logger.info("CacheControlFilter initialized");
@@ -28,15 +60,110 @@ public class CacheControlFilter implements Filter {
         HttpServletRequest httpRequest = (HttpServletRequest) request;
         HttpServletResponse httpResponse = (HttpServletResponse) response;
 
-        // Wrap response to ensure no-cache headers are always set and can't be overridden
-        NoCacheResponseWrapper wrappedResponse = new NoCacheResponseWrapper(httpResponse);
-        
         // For HTTPS, also set security headers
         if (httpRequest.isSecure()) {
-            wrappedResponse.setHeader("Strict-Transport-Security", "max-age=31536000; includeSubDomains");
+            httpResponse.setHeader("Strict-Transport-Security", "max-age=31536000; includeSubDomains");
+        }
+
+        if (isResourceRequest(httpRequest)) {
+            serveResource(httpRequest, httpResponse, chain);
+            return;
+        }
+
+        // Wrap response to ensure no-cache headers are always set and can't be overridden
+        NoCacheResponseWrapper wrappedResponse = new NoCacheResponseWrapper(httpResponse);
+        chain.doFilter(request, wrappedResponse);
+    }
+
+    private boolean isResourceRequest(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return path.startsWith(RESOURCE_PREFIX);
+    }
+
+    private boolean isVersioned(HttpServletRequest request) {
+        return request.getParameter("v") != null || "webjars".equals(request.getParameter("ln"));
+    }
+
+    private void serveResource(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        boolean versioned = isVersioned(request);
+        String key = request.getRequestURI() + "?" + request.getQueryString();
+        String ifNoneMatch = request.getHeader("If-None-Match");
+
+        // Versioned content cannot change, so a known ETag answers the request without rendering
+        if (versioned) {
+            String etag = versionedETags.get(key);
+            if (etag != null && etagMatches(ifNoneMatch, etag)) {
+                sendNotModified(response, etag, true);
+                return;
+            }
         }
 
+        StaticResourceResponseWrapper wrappedResponse = new StaticResourceResponseWrapper(response);
         chain.doFilter(request, wrappedResponse);
+
+        int status = wrappedResponse.getStatus();
+        byte[] body = wrappedResponse.getBody();
+        if (status != HttpServletResponse.SC_OK) {
+            // Errors and handler-issued 304s pass through uncached
+            if (body.length > 0 && !response.isCommitted()) {
+                response.setContentLength(body.length);
+                response.getOutputStream().write(body);
+            }
+            return;
+        }
+
+        String etag = computeETag(body);
+        if (versioned) {
+            versionedETags.put(key, etag);
+        }
+
+        if (etagMatches(ifNoneMatch, etag)) {
+            sendNotModified(response, etag, versioned);
+            return;
+        }
+
+        setResourceCacheHeaders(response, etag, versioned);
+        response.setContentLength(body.length);
+        if (!"HEAD".equals(request.getMethod())) {
+            response.getOutputStream().write(body);
+        }
+    }
+
+    private void sendNotModified(HttpServletResponse response, String etag, boolean versioned) {
+        response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        setResourceCacheHeaders(response, etag, versioned);
+    }
+
+    private void setResourceCacheHeaders(HttpServletResponse response, String etag, boolean versioned) {
+        response.setHeader("Cache-Control", versioned ? IMMUTABLE_CACHE_CONTROL : REVALIDATE_CACHE_CONTROL);
+        response.setHeader("ETag", etag);
+        response.setHeader("X-Content-Type-Options", "nosniff");
+    }
+
+    private static boolean etagMatches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String trimmed = candidate.trim();
+            if (trimmed.startsWith("W/")) {
+                trimmed = trimmed.substring(2);
+            }
+            if (trimmed.equals("*") || trimmed.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String computeETag(byte[] body) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+            return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(digest).substring(0, 22) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
     }
 
     @Override
@@ -44,4 +171,3 @@ public class CacheControlFilter implements Filter {
         logger.info("CacheControlFilter destroyed");
     }
 }
-
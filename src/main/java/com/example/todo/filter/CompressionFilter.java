@@ -0,0 +1,192 @@
+package com.example.todo.filter;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.servlet.*;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Compresses pages, JSF partial responses and text resources with gzip or deflate,
+ * negotiated from the request's {@code Accept-Encoding} header.
+ *
+ * Responses are compressed as they stream, using pooled {@link java.util.zip.Deflater}
+ * instances. Responses below {@code minSize} bytes, responses that already carry a
+ * {@code Content-Encoding} and content types outside {@code compressibleTypes} pass through
+ * unchanged. Per-request bytes on the wire and compression time are logged at DEBUG and
+ * totals are kept for the life of the filter.
+ *
+ * Registered in web.xml so that it wraps {@link CacheControlFilter}; ETags set by inner
+ * filters get an encoding suffix, which is stripped again from {@code If-None-Match}.
+ */
+public class CompressionFilter implements Filter {
+    private static final Logger logger = LogManager.getLogger(CompressionFilter.class);
+
+    static final String GZIP = "gzip";
+    static final String DEFLATE = "deflate";
+    static final String ETAG_SUFFIX_SEPARATOR = "-";
+
+    private static final String DEFAULT_COMPRESSIBLE_TYPES =
+            "text/html,text/xml,text/plain,text/css,text/javascript,application/javascript,"
+                    + "application/xml,application/xhtml+xml,application/json,image/svg+xml";
+
+    private int minSize;
+    private Set<String> compressibleTypes;
+    private DeflaterPool gzipPool;
+    private DeflaterPool deflatePool;
+
+    private final LongAdder compressedResponses = new LongAdder();
+    private final LongAdder uncompressedResponses = new LongAdder();
+    private final LongAdder bytesIn = new LongAdder();
+    private final LongAdder bytesOut = new LongAdder();
+    private final LongAdder compressNanos = new LongAdder();
+
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+        minSize = intParam(filterConfig, "minSize", 1024);
+        int level = intParam(filterConfig, "level", 6);
+        int poolSize = intParam(filterConfig, "poolSize", Runtime.getRuntime().availableProcessors() * 4);
+        String types = filterConfig.getInitParameter("compressibleTypes");
+        compressibleTypes = new HashSet<>(Arrays.asList(
+                (types != null ? types : DEFAULT_COMPRESSIBLE_TYPES).trim().split("\\s*,\\s*")));
+        gzipPool = new DeflaterPool(level, true, poolSize);
+        deflatePool = new DeflaterPool(level, false, poolSize);
+
+        logger.info("CompressionFilter initialized: minSize={} bytes, level={}, pool size={}, types={}",
+                minSize, level, poolSize, compressibleTypes);
+    }
+
+    private static int intParam(FilterConfig filterConfig, String name, int defaultValue) {
+        String value = filterConfig.getInitParameter(name);
+        return value != null ? Integer.parseInt(value.trim()) : defaultValue;
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        HttpServletRequest httpRequest = (HttpServletRequest) request;
+        HttpServletResponse httpResponse = (HttpServletResponse) response;
+
+        String encoding = negotiateEncoding(httpRequest.getHeader("Accept-Encoding"));
+        if (encoding == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        String suffix = ETAG_SUFFIX_SEPARATOR + encoding + "\"";
+        String ifNoneMatch = httpRequest.getHeader("If-None-Match");
+        boolean encodedETag = ifNoneMatch != null && ifNoneMatch.contains(suffix);
+        HttpServletRequest wrappedRequest = encodedETag
+                ? new ETagStrippingRequestWrapper(httpRequest, ifNoneMatch.replace(suffix, "\""))
+                : httpRequest;
+
+        CompressionResponseWrapper wrappedResponse =
+                new CompressionResponseWrapper(httpResponse, this, encoding, encodedETag);
+        try {
+            chain.doFilter(wrappedRequest, wrappedResponse);
+        } finally {
+            wrappedResponse.finish();
+        }
+    }
+
+    /**
+     * Picks gzip or deflate from the Accept-Encoding header, honouring q=0 exclusions.
+     */
+    static String negotiateEncoding(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return null;
+        }
+        boolean deflate = false;
+        for (String part : acceptEncoding.toLowerCase(Locale.ROOT).split(",")) {
+            String[] tokens = part.trim().split("\\s*;\\s*");
+            boolean rejected = tokens.length > 1 && tokens[1].matches("q=0(\\.0*)?");
+            if (rejected) {
+                continue;
+            }
+            if (GZIP.equals(tokens[0])) {
+                return GZIP;
+            }
+            if (DEFLATE.equals(tokens[0])) {
+                deflate = true;
+            }
+        }
+        return deflate ? DEFLATE : null;
+    }
+
+    int getMinSize() {
+        return minSize;
+    }
+
+    DeflaterPool getPool(boolean gzip) {
+        return gzip ? gzipPool : deflatePool;
+    }
+
+    boolean isCompressible(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        int separator = contentType.indexOf(';');
+        String mimeType = (separator >= 0 ? contentType.substring(0, separator) : contentType)
+                .trim().toLowerCase(Locale.ROOT);
+        return compressibleTypes.contains(mimeType);
+    }
+
+    void record(boolean compressed, long in, long out, long nanos) {
+        if (compressed) {
+            compressedResponses.increment();
+        } else {
+            uncompressedResponses.increment();
+        }
+        bytesIn.add(in);
+        bytesOut.add(out);
+        compressNanos.add(nanos);
+        if (logger.isDebugEnabled()) {
+            logger.debug("Response {}: {} bytes -> {} bytes on wire, compression time {} us",
+                    compressed ? "compressed" : "not compressed", in, out, nanos / 1000);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        long in = bytesIn.sum();
+        long out = bytesOut.sum();
+        logger.info("CompressionFilter destroyed: {} compressed / {} uncompressed responses, {} bytes -> {} bytes on wire, {} ms compressing",
+                compressedResponses.sum(), uncompressedResponses.sum(), in, out, compressNanos.sum() / 1_000_000);
+        gzipPool.close();
+        deflatePool.close();
+    }
+
+    /**
+     * Presents inner filters with If-None-Match tags stripped of the encoding suffix.
+     */
+    private static final class ETagStrippingRequestWrapper extends HttpServletRequestWrapper {
+        private final String ifNoneMatch;
+
+        ETagStrippingRequestWrapper(HttpServletRequest request, String ifNoneMatch) {
+            super(request);
+            this.ifNoneMatch = ifNoneMatch;
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return "If-None-Match".equalsIgnoreCase(name) ? ifNoneMatch : super.getHeader(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaders(String name) {
+            return "If-None-Match".equalsIgnoreCase(name)
+                    ? Collections.enumeration(Collections.singletonList(ifNoneMatch))
+                    : super.getHeaders(name);
+        }
+    }
+}
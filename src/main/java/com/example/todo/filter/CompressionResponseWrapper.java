@@ -0,0 +1,486 @@
+package com.example.todo.filter;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Response wrapper that streams the body through gzip or deflate once it grows past the
+ * minimum size. The first {@code minSize} bytes are held back so that small responses,
+ * already-encoded responses and non-compressible content types are sent unchanged.
+ *
+ * Content-Length and ETag headers are held until the compression decision is made; a
+ * compressed response drops Content-Length and gets an encoding-specific ETag.
+ *
+ * {@link #reset()}, {@link #resetBuffer()} and {@code sendError} discard the body written so
+ * far, as JSF error handling expects: after a reset the compression decision is made again,
+ * and after {@code sendError} the container's error page is sent uncompressed.
+ */
+public class CompressionResponseWrapper extends HttpServletResponseWrapper {
+
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+    private final HttpServletResponse response;
+    private final CompressionFilter filter;
+    private final String encoding;
+    private final boolean clientSentEncodedETag;
+
+    private long contentLength = -1;
+    private String etag;
+    private CompressingOutputStream stream;
+    private PrintWriter writer;
+    private boolean usingOutputStream;
+    private boolean errorSent;
+
+    public CompressionResponseWrapper(HttpServletResponse response, CompressionFilter filter,
+                                      String encoding, boolean clientSentEncodedETag) {
+        super(response);
+        this.response = response;
+        this.filter = filter;
+        this.encoding = encoding;
+        this.clientSentEncodedETag = clientSentEncodedETag;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() {
+        if (writer != null) {
+            throw new IllegalStateException("getWriter() has already been called on this response");
+        }
+        usingOutputStream = true;
+        return getStream();
+    }
+
+    @Override
+    public PrintWriter getWriter() {
+        if (writer == null) {
+            if (usingOutputStream) {
+                throw new IllegalStateException("getOutputStream() has already been called on this response");
+            }
+            String characterEncoding = getCharacterEncoding();
+            Charset charset = characterEncoding != null ? Charset.forName(characterEncoding) : StandardCharsets.ISO_8859_1;
+            writer = new PrintWriter(new OutputStreamWriter(getStream(), charset));
+        }
+        return writer;
+    }
+
+    private CompressingOutputStream getStream() {
+        if (stream == null) {
+            stream = new CompressingOutputStream();
+        }
+        return stream;
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        } else if (stream != null) {
+            stream.flush();
+        }
+        super.flushBuffer();
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        discardBody(false);
+        writer = null;
+        usingOutputStream = false;
+        etag = null;
+        contentLength = -1;
+    }
+
+    @Override
+    public void resetBuffer() {
+        super.resetBuffer();
+        discardBody(true);
+    }
+
+    @Override
+    public void sendError(int sc) throws IOException {
+        prepareError();
+        super.sendError(sc);
+    }
+
+    @Override
+    public void sendError(int sc, String msg) throws IOException {
+        prepareError();
+        super.sendError(sc, msg);
+    }
+
+    /**
+     * Drops the body before the container renders its error page, including the
+     * Content-Encoding and ETag headers set for a compressed body.
+     */
+    private void prepareError() {
+        if (response.isCommitted()) {
+            return;
+        }
+        boolean compressing = stream != null && stream.state == State.COMPRESSING;
+        discardBody(false);
+        if (compressing) {
+            super.reset();
+        }
+        if (stream != null) {
+            stream.state = State.CLOSED;
+        }
+        errorSent = true;
+        etag = null;
+        contentLength = -1;
+    }
+
+    /**
+     * Throws away held-back and buffered output, including characters the writer has not yet
+     * encoded, and returns the stream to its initial state. With {@code keepEncoding}, a
+     * stream that was compressing starts a new compressed body, since Content-Encoding has
+     * already been set.
+     */
+    private void discardBody(boolean keepEncoding) {
+        if (stream == null) {
+            return;
+        }
+        boolean compressing = stream.state == State.COMPRESSING;
+        stream.discard();
+        if (writer != null) {
+            writer.flush();
+        }
+        stream.restart(keepEncoding && compressing);
+    }
+
+    @Override
+    public void setContentLength(int len) {
+        setContentLengthLong(len);
+    }
+
+    @Override
+    public void setContentLengthLong(long len) {
+        contentLength = len;
+        if (stream != null && stream.state == State.PASSTHROUGH) {
+            super.setContentLengthLong(len);
+        }
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        if (interceptHeader(name, value)) {
+            return;
+        }
+        super.setHeader(name, value);
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        if (interceptHeader(name, value)) {
+            return;
+        }
+        super.addHeader(name, value);
+    }
+
+    private boolean interceptHeader(String name, String value) {
+        if ("content-length".equalsIgnoreCase(name)) {
+            setContentLengthLong(Long.parseLong(value));
+            return true;
+        }
+        if ("etag".equalsIgnoreCase(name) && (stream == null || stream.state == State.BUFFERING)) {
+            etag = value;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Completes the response: writes any held-back bytes and the compression trailer.
+     */
+    public void finish() throws IOException {
+        if (errorSent) {
+            return;
+        }
+        if (writer != null) {
+            writer.flush();
+        }
+        if (stream != null) {
+            stream.close();
+        } else {
+            addVaryWithoutBody();
+            if (etag != null) {
+                // Keep the tag the client knows this representation by
+                super.setHeader("ETag", clientSentEncodedETag ? encodedETag(etag) : etag);
+            }
+        }
+        if (contentLength >= 0 && stream == null && !response.isCommitted()) {
+            super.setContentLengthLong(contentLength);
+        }
+    }
+
+    /**
+     * A response without body (e.g. 304) carries no content type, but must vary like the
+     * representation it stands for.
+     */
+    private void addVaryWithoutBody() {
+        String contentType = getContentType();
+        if (contentType == null || filter.isCompressible(contentType)) {
+            addVary();
+        }
+    }
+
+    private void addVary() {
+        if (response.isCommitted()) {
+            return;
+        }
+        for (String vary : response.getHeaders("Vary")) {
+            if (vary.toLowerCase(Locale.ROOT).contains("accept-encoding")) {
+                return;
+            }
+        }
+        super.addHeader("Vary", "Accept-Encoding");
+    }
+
+    private String encodedETag(String tag) {
+        return tag.endsWith("\"")
+                ? tag.substring(0, tag.length() - 1) + CompressionFilter.ETAG_SUFFIX_SEPARATOR + encoding + "\""
+                : tag;
+    }
+
+    private boolean shouldCompress(int bufferedBytes) {
+        if (contentLength >= 0 && contentLength < filter.getMinSize()) {
+            return false;
+        }
+        if (bufferedBytes < filter.getMinSize() && contentLength < 0) {
+            return false;
+        }
+        if (response.containsHeader("Content-Encoding") || response.isCommitted()) {
+            return false;
+        }
+        return filter.isCompressible(getContentType());
+    }
+
+    private enum State { BUFFERING, COMPRESSING, PASSTHROUGH, DISCARDING, CLOSED }
+
+    private final class CompressingOutputStream extends ServletOutputStream {
+        private final byte[] holdBack = new byte[filter.getMinSize()];
+        private final byte[] deflateBuffer = new byte[8192];
+        private int held;
+        private State state = State.BUFFERING;
+
+        private ServletOutputStream out;
+        private Deflater deflater;
+        private DeflaterPool pool;
+        private CRC32 crc;
+        private long bytesIn;
+        private long bytesOut;
+        private long compressNanos;
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return;
+            }
+            switch (state) {
+                case BUFFERING:
+                    if (held + len <= holdBack.length) {
+                        System.arraycopy(b, off, holdBack, held, len);
+                        held += len;
+                        return;
+                    }
+                    decide(held + len);
+                    write(b, off, len);
+                    return;
+                case COMPRESSING:
+                    deflate(b, off, len);
+                    return;
+                case PASSTHROUGH:
+                    out.write(b, off, len);
+                    bytesIn += len;
+                    bytesOut += len;
+                    return;
+                case DISCARDING:
+                    return;
+                default:
+                    throw new IOException("Stream already closed");
+            }
+        }
+
+        private void decide(int totalBytes) throws IOException {
+            String contentType = getContentType();
+            if (filter.isCompressible(contentType)) {
+                addVary();
+            }
+
+            if (shouldCompress(totalBytes)) {
+                response.setHeader("Content-Encoding", encoding);
+                if (etag != null) {
+                    response.setHeader("ETag", encodedETag(etag));
+                }
+                out = response.getOutputStream();
+                startCompressing();
+            } else {
+                state = State.PASSTHROUGH;
+                if (etag != null) {
+                    response.setHeader("ETag", etag);
+                }
+                if (contentLength >= 0) {
+                    response.setContentLengthLong(contentLength);
+                }
+                out = response.getOutputStream();
+            }
+
+            int pending = held;
+            held = 0;
+            if (pending > 0) {
+                write(holdBack, 0, pending);
+            }
+        }
+
+        private void startCompressing() throws IOException {
+            state = State.COMPRESSING;
+            boolean gzip = CompressionFilter.GZIP.equals(encoding);
+            pool = filter.getPool(gzip);
+            deflater = pool.borrow();
+            if (gzip) {
+                crc = new CRC32();
+                out.write(GZIP_HEADER);
+                bytesOut += GZIP_HEADER.length;
+            }
+        }
+
+        /**
+         * Drops held-back bytes and returns the deflater; writes are ignored until {@link #restart}.
+         */
+        void discard() {
+            if (deflater != null) {
+                pool.release(deflater);
+                deflater = null;
+            }
+            crc = null;
+            held = 0;
+            state = State.DISCARDING;
+        }
+
+        void restart(boolean compressing) {
+            bytesIn = 0;
+            bytesOut = 0;
+            compressNanos = 0;
+            state = State.BUFFERING;
+            if (compressing) {
+                try {
+                    startCompressing();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            } else {
+                out = null;
+            }
+        }
+
+        private void deflate(byte[] b, int off, int len) throws IOException {
+            long start = System.nanoTime();
+            bytesIn += len;
+            if (crc != null) {
+                crc.update(b, off, len);
+            }
+            deflater.setInput(b, off, len);
+            while (!deflater.needsInput()) {
+                drain(Deflater.NO_FLUSH);
+            }
+            compressNanos += System.nanoTime() - start;
+        }
+
+        private void drain(int flushMode) throws IOException {
+            int n = deflater.deflate(deflateBuffer, 0, deflateBuffer.length, flushMode);
+            if (n > 0) {
+                out.write(deflateBuffer, 0, n);
+                bytesOut += n;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            // Held-back bytes stay buffered until the compression decision can be made
+            if (state == State.COMPRESSING) {
+                long start = System.nanoTime();
+                int n;
+                do {
+                    n = deflater.deflate(deflateBuffer, 0, deflateBuffer.length, Deflater.SYNC_FLUSH);
+                    if (n > 0) {
+                        out.write(deflateBuffer, 0, n);
+                        bytesOut += n;
+                    }
+                } while (n == deflateBuffer.length);
+                compressNanos += System.nanoTime() - start;
+                out.flush();
+            } else if (state == State.PASSTHROUGH) {
+                out.flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (state == State.CLOSED || state == State.DISCARDING) {
+                return;
+            }
+            if (state == State.BUFFERING) {
+                if (held == 0) {
+                    addVaryWithoutBody();
+                    if (etag != null) {
+                        response.setHeader("ETag", clientSentEncodedETag ? encodedETag(etag) : etag);
+                    }
+                    state = State.CLOSED;
+                    return;
+                }
+                decide(held);
+            }
+            if (state == State.COMPRESSING) {
+                long start = System.nanoTime();
+                try {
+                    deflater.finish();
+                    while (!deflater.finished()) {
+                        drain(Deflater.NO_FLUSH);
+                    }
+                    if (crc != null) {
+                        writeIntLE((int) crc.getValue());
+                        writeIntLE((int) bytesIn);
+                    }
+                } finally {
+                    pool.release(deflater);
+                    deflater = null;
+                }
+                compressNanos += System.nanoTime() - start;
+            }
+            filter.record(state == State.COMPRESSING, bytesIn, bytesOut, compressNanos);
+            state = State.CLOSED;
+        }
+
+        private void writeIntLE(int value) throws IOException {
+            out.write(value & 0xff);
+            out.write((value >> 8) & 0xff);
+            out.write((value >> 16) & 0xff);
+            out.write((value >> 24) & 0xff);
+            bytesOut += 4;
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            throw new UnsupportedOperationException("Async writes are not supported for compressed responses");
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.todo.filter;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Response wrapper that buffers a static resource body so a strong ETag can be computed
+ * from its content. Caching headers set by the resource handler are ignored; the filter
+ * sets the final policy once the body is known.
+ */
+public class StaticResourceResponseWrapper extends HttpServletResponseWrapper {
+
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(8192);
+    private ServletOutputStream outputStream;
+    private PrintWriter writer;
+
+    public StaticResourceResponseWrapper(HttpServletResponse response) {
+        super(response);
+    }
+
+    /**
+     * Returns the buffered body, flushing any pending writer output first.
+     */
+    public byte[] getBody() {
+        if (writer != null) {
+            writer.flush();
+        }
+        return buffer.toByteArray();
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() {
+        if (writer != null) {
+            throw new IllegalStateException("getWriter() has already been called on this response");
+        }
+        if (outputStream == null) {
+            outputStream = new ServletOutputStream() {
+                @Override
+                public void write(int b) {
+                    buffer.write(b);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) {
+                    buffer.write(b, off, len);
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setWriteListener(WriteListener writeListener) {
+                    throw new UnsupportedOperationException("Async writes are not supported for buffered resources");
+                }
+            };
+        }
+        return outputStream;
+    }
+
+    @Override
+    public PrintWriter getWriter() {
+        if (outputStream != null) {
+            throw new IllegalStateException("getOutputStream() has already been called on this response");
+        }
+        if (writer == null) {
+            String encoding = getCharacterEncoding();
+            Charset charset = encoding != null ? Charset.forName(encoding) : StandardCharsets.ISO_8859_1;
+            writer = new PrintWriter(new OutputStreamWriter(buffer, charset));
+        }
+        return writer;
+    }
+
+    @Override
+    public void flushBuffer() {
+        // Body is written by the filter once the ETag is known
+    }
+
+    @Override
+    public void setContentLength(int len) {
+        // Set by the filter from the buffered body
+    }
+
+    @Override
+    public void setContentLengthLong(long len) {
+        // Set by the filter from the buffered body
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        if (!isCachingHeader(name)) {
+            super.setHeader(name, value);
+        }
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        if (!isCachingHeader(name)) {
+            super.addHeader(name, value);
+        }
+    }
+
+    @Override
+    public void setDateHeader(String name, long date) {
+        if (!isCachingHeader(name)) {
+            super.setDateHeader(name, date);
+        }
+    }
+
+    @Override
+    public void addDateHeader(String name, long date) {
+        if (!isCachingHeader(name)) {
+            super.addDateHeader(name, date);
+        }
+    }
+
+    private static boolean isCachingHeader(String name) {
+        String lowerName = name.toLowerCase();
+        return lowerName.equals("cache-control")
+                || lowerName.equals("pragma")
+                || lowerName.equals("expires")
+                || lowerName.equals("etag")
+                || lowerName.equals("content-length");
+    }
+}
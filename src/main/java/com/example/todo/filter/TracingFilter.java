@@ -0,0 +1,112 @@
+package com.example.todo.filter;
+
+import com.example.todo.trace.RequestTrace;
+import com.example.todo.trace.SpanKind;
+import com.example.todo.warmup.WarmupState;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Assigns each request a correlation id, exposes it as the {@code requestId} ThreadContext key
+ * and the {@code X-Request-Id} response header, and logs one summary line per request with its
+ * latency broken down into JSF phases, bean actions, service calls and JPA queries.
+ *
+ * Declared in web.xml directly after the Log4j filter so the whole chain, including Shiro, is
+ * timed. A well-formed incoming {@code X-Request-Id} is reused so ids can be followed across
+ * a proxy. Requests slower than the {@code slowRequestMillis} init-param are logged at WARN
+ * with their span breakdown; JSF resource requests are only summarized at DEBUG. The latency of
+ * the first request to each page or endpoint is kept for the warm-up report, except for the
+ * warm-up's own requests.
+ */
+public class TracingFilter implements Filter {
+    private static final Logger logger = LogManager.getLogger(TracingFilter.class);
+
+    static final String REQUEST_ID_HEADER = "X-Request-Id";
+    private static final Pattern VALID_REQUEST_ID = Pattern.compile("[A-Za-z0-9._-]{8,64}");
+
+    private long slowRequestNanos;
+
+    @Override
+    public void init(FilterConfig filterConfig) {
+        String slowRequestMillis = filterConfig.getInitParameter("slowRequestMillis");
+        slowRequestNanos = (slowRequestMillis != null ? Long.parseLong(slowRequestMillis.trim()) : 1000L) * 1_000_000L;
+        logger.info("TracingFilter initialized: slow request threshold {} ms", slowRequestNanos / 1_000_000L);
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        if (!(request instanceof HttpServletRequest) || RequestTrace.current() != null) {
+            chain.doFilter(request, response);
+            return;
+        }
+        HttpServletRequest httpRequest = (HttpServletRequest) request;
+        HttpServletResponse httpResponse = (HttpServletResponse) response;
+
+        RequestTrace trace = RequestTrace.begin(requestId(httpRequest));
+        httpResponse.setHeader(REQUEST_ID_HEADER, trace.getRequestId());
+        Throwable failure = null;
+        RequestTrace.Span span = RequestTrace.span(SpanKind.FILTER, "chain");
+        try {
+            chain.doFilter(request, response);
+        } catch (IOException | ServletException | RuntimeException | Error e) {
+            failure = e;
+            throw e;
+        } finally {
+            span.close();
+            try {
+                logSummary(httpRequest, httpResponse, trace, failure);
+            } finally {
+                RequestTrace.end();
+            }
+        }
+    }
+
+    private void logSummary(HttpServletRequest request, HttpServletResponse response, RequestTrace trace,
+                            Throwable failure) {
+        long elapsed = trace.elapsedNanos();
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        int status = failure != null ? HttpServletResponse.SC_INTERNAL_SERVER_ERROR : response.getStatus();
+
+        boolean resource = path.startsWith("/javax.faces.resource/") || path.startsWith("/resources/");
+        if (!resource && !path.startsWith("/health/") && !WarmupState.isWarmupRequest(request.getHeader(WarmupState.WARMUP_HEADER))) {
+            WarmupState.recordRequest(request.getMethod(), path, status, elapsed);
+        }
+
+        if (elapsed >= slowRequestNanos) {
+            logger.warn("Slow request {} {} status={} {}{}", request.getMethod(), path, status,
+                    trace.summary(), trace.spanTree());
+        } else if (resource) {
+            logger.debug("{} {} status={} {}", request.getMethod(), path, status, trace.summary());
+        } else {
+            logger.info("{} {} status={} {}", request.getMethod(), path, status, trace.summary());
+            if (logger.isTraceEnabled()) {
+                logger.trace("Span breakdown:{}", trace.spanTree());
+            }
+        }
+    }
+
+    private static String requestId(HttpServletRequest request) {
+        String incoming = request.getHeader(REQUEST_ID_HEADER);
+        if (incoming != null && VALID_REQUEST_ID.matcher(incoming).matches()) {
+            return incoming;
+        }
+        return UUID.randomUUID().toString().replace("-", "").substring(0, 16);
+    }
+
+    @Override
+    public void destroy() {
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.todo.listener.phase;
+
+import javax.faces.component.UIViewRoot;
+import javax.faces.context.FacesContext;
+import javax.faces.event.PhaseEvent;
+import javax.faces.event.PhaseId;
+import javax.faces.event.PhaseListener;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.ThreadContext;
+import org.apache.shiro.SecurityUtils;
+import org.apache.shiro.UnavailableSecurityManagerException;
+
+import com.example.todo.logging.PhaseTimingMessage;
+import com.example.todo.trace.RequestTrace;
+import com.example.todo.trace.SpanKind;
+
+/**
+ * Records every JSF phase as a span of the request trace and adds the user and view id to
+ * the Log4j ThreadContext once the view is restored. Phase durations are also logged at DEBUG
+ * as {@link PhaseTimingMessage} events.
+ */
+public class TracingPhaseListener implements PhaseListener {
+    private static final long serialVersionUID = 1L;
+    private static final Logger logger = LogManager.getLogger(TracingPhaseListener.class);
+
+    private static final String SPAN_ATTRIBUTE = TracingPhaseListener.class.getName() + ".span";
+
+    @Override
+    public PhaseId getPhaseId() {
+        return PhaseId.ANY_PHASE;
+    }
+
+    @Override
+    public void beforePhase(PhaseEvent event) {
+        if (event.getPhaseId() == PhaseId.RESTORE_VIEW) {
+            putUserId();
+        }
+        if (RequestTrace.current() != null) {
+            event.getFacesContext().getAttributes().put(SPAN_ATTRIBUTE,
+                    RequestTrace.span(SpanKind.PHASE, event.getPhaseId().getName()));
+        }
+    }
+
+    @Override
+    public void afterPhase(PhaseEvent event) {
+        FacesContext context = event.getFacesContext();
+        RequestTrace.Span span = (RequestTrace.Span) context.getAttributes().remove(SPAN_ATTRIBUTE);
+        UIViewRoot viewRoot = context.getViewRoot();
+        if (span != null) {
+            span.close();
+            if (logger.isDebugEnabled()) {
+                logger.debug(new PhaseTimingMessage(event.getPhaseId().getName(),
+                        viewRoot != null ? viewRoot.getViewId() : null, span.getDurationNanos()));
+            }
+        }
+        if (event.getPhaseId() == PhaseId.RESTORE_VIEW && viewRoot != null) {
+            ThreadContext.put(RequestTrace.VIEW_ID, viewRoot.getViewId());
+        }
+    }
+
+    private void putUserId() {
+        try {
+            Object principal = SecurityUtils.getSubject().getPrincipal();
+            if (principal != null) {
+                ThreadContext.put(RequestTrace.USER_ID, principal.toString());
+            }
+        } catch (UnavailableSecurityManagerException e) {
+            // Shiro not initialized for this request; leave the user out of the context
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.todo.listener.phase;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.faces.context.ExternalContext;
+import javax.faces.context.FacesContext;
+import javax.faces.event.PhaseEvent;
+import javax.faces.event.PhaseId;
+import javax.faces.event.PhaseListener;
+import javax.servlet.http.HttpSession;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Samples how much view state sessions hold. After a sampled render the session's MyFaces view
+ * state attribute, which holds the views already serialized and compressed, is written into a
+ * counting stream to measure bytes per session, which is divided by the number of views the
+ * session retains (capped by {@code org.apache.myfaces.NUMBER_OF_VIEWS_IN_SESSION}) to estimate
+ * bytes per view. Other session attributes are left alone, so the cost on the sampled request
+ * stays small and does not depend on what else the session holds.
+ *
+ * One in {@code todo.viewState.sampleRate} renders is measured (system property, default
+ * 100; 0 disables sampling).
+ */
+public class ViewStateAccountingPhaseListener implements PhaseListener {
+    private static final long serialVersionUID = 1L;
+
+    private static final Logger logger = LogManager.getLogger(ViewStateAccountingPhaseListener.class);
+
+    private static final String VIEW_COUNT_ATTRIBUTE = ViewStateAccountingPhaseListener.class.getName() + ".views";
+    private static final String SERIALIZED_VIEW_ATTRIBUTE =
+            "org.apache.myfaces.application.viewstate.ServerSideStateCacheImpl.SERIALIZED_VIEW";
+    private static final int SAMPLE_RATE = Integer.getInteger("todo.viewState.sampleRate", 100);
+
+    private final AtomicLong renders = new AtomicLong();
+    private final LongAdder samples = new LongAdder();
+    private final LongAdder sampledSessionBytes = new LongAdder();
+
+    @Override
+    public PhaseId getPhaseId() {
+        return PhaseId.RENDER_RESPONSE;
+    }
+
+    @Override
+    public void beforePhase(PhaseEvent event) {
+
+    }
+
+    @Override
+    public void afterPhase(PhaseEvent event) {
+        ExternalContext externalContext = event.getFacesContext().getExternalContext();
+        Object sessionObject = externalContext.getSession(false);
+        if (!(sessionObject instanceof HttpSession)) {
+            return;
+        }
+        HttpSession session = (HttpSession) sessionObject;
+
+        int views = countView(event.getFacesContext(), session);
+        if (SAMPLE_RATE <= 0 || renders.incrementAndGet() % SAMPLE_RATE != 0) {
+            return;
+        }
+
+        long sessionBytes = measureViewState(session);
+        if (sessionBytes < 0) {
+            return;
+        }
+        samples.increment();
+        sampledSessionBytes.add(sessionBytes);
+
+        int retainedViews = Math.max(1, Math.min(views, getMaxViewsInSession(externalContext)));
+        logger.debug("View state: session {} holds {} bytes across {} retained views (~{} bytes/view); average session {} bytes over {} samples",
+                session.getId(), sessionBytes, retainedViews, sessionBytes / retainedViews,
+                sampledSessionBytes.sum() / samples.sum(), samples.sum());
+    }
+
+    private int countView(FacesContext context, HttpSession session) {
+        AtomicInteger counter = (AtomicInteger) session.getAttribute(VIEW_COUNT_ATTRIBUTE);
+        if (counter == null) {
+            counter = new AtomicInteger();
+            session.setAttribute(VIEW_COUNT_ATTRIBUTE, counter);
+        }
+        // Only full renders create a new view; AJAX updates reuse the current one
+        return context.getPartialViewContext().isAjaxRequest() ? Math.max(1, counter.get()) : counter.incrementAndGet();
+    }
+
+    private int getMaxViewsInSession(ExternalContext externalContext) {
+        String value = externalContext.getInitParameter("org.apache.myfaces.NUMBER_OF_VIEWS_IN_SESSION");
+        return value != null ? Integer.parseInt(value.trim()) : 20;
+    }
+
+    /**
+     * Serialized size of the session's view state, or -1 if there is none or it could not be
+     * written; a view changed by a concurrent request of the same session must not fail this one.
+     */
+    private long measureViewState(HttpSession session) {
+        Object viewState;
+        try {
+            viewState = session.getAttribute(SERIALIZED_VIEW_ATTRIBUTE);
+        } catch (IllegalStateException e) {
+            return -1; // Session invalidated during the render, e.g. by logout
+        }
+        if (viewState == null) {
+            return -1;
+        }
+        CountingOutputStream counter = new CountingOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(counter)) {
+            out.writeObject(viewState);
+        } catch (IOException | RuntimeException e) {
+            logger.debug("Could not measure the view state of session {}: {}", session.getId(), e.toString());
+            return -1;
+        }
+        return counter.count;
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.todo.logging;
+
+/**
+ * The result of a login attempt, or a logout.
+ */
+public final class AuthMessage extends StructuredMessage {
+    private static final long serialVersionUID = 1L;
+
+    private final String action;
+    private final String outcome;
+    private final String username;
+    private final String reason;
+    private final String clientIp;
+
+    private AuthMessage(String action, String outcome, String username, String reason, String clientIp) {
+        this.action = action;
+        this.outcome = outcome;
+        this.username = username;
+        this.reason = reason;
+        this.clientIp = clientIp;
+    }
+
+    public static AuthMessage loginSucceeded(String username, String clientIp) {
+        return new AuthMessage("login", "success", username, null, clientIp);
+    }
+
+    /**
+     * @param reason short machine-readable cause, e.g. {@code incorrect-credentials}
+     */
+    public static AuthMessage loginFailed(String username, String clientIp, String reason) {
+        return new AuthMessage("login", "failed", username, reason, clientIp);
+    }
+
+    /**
+     * A login rejected before authentication, e.g. by the login throttle.
+     */
+    public static AuthMessage loginRejected(String username, String clientIp, String reason) {
+        return new AuthMessage("login", "rejected", username, reason, clientIp);
+    }
+
+    /**
+     * @param reason why the session ended, e.g. {@code user} or {@code back-button}
+     */
+    public static AuthMessage logout(String username, String reason) {
+        return new AuthMessage("logout", "success", username, reason, null);
+    }
+
+    @Override
+    public String getEventType() {
+        return "auth";
+    }
+
+    @Override
+    public void writeFields(FieldWriter out) {
+        out.field("action", action)
+                .field("outcome", outcome)
+                .field("username", username)
+                .field("reason", reason)
+                .field("clientIp", clientIp);
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.todo.logging;
+
+import org.apache.logging.log4j.core.Layout;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.config.Node;
+import org.apache.logging.log4j.core.config.plugins.Plugin;
+import org.apache.logging.log4j.core.config.plugins.PluginAttribute;
+import org.apache.logging.log4j.core.config.plugins.PluginFactory;
+import org.apache.logging.log4j.core.layout.AbstractStringLayout;
+import org.apache.logging.log4j.core.layout.ByteBufferDestination;
+import org.apache.logging.log4j.message.MapMessage;
+import org.apache.logging.log4j.message.Message;
+import org.apache.logging.log4j.util.StringBuilderFormattable;
+import org.apache.logging.log4j.util.TriConsumer;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.Charset;
+
+/**
+ * Writes each log event as one JSON object per line, e.g.
+ * {@code {"ts":1700000000000,"level":"INFO","logger":"com.example.todo.service.TodoService",
+ * "thread":"http-nio-8080-exec-3","requestId":"5f2c..","userId":"user1","event":"todo",
+ * "operation":"create","todoId":42,"ownerId":2,"count":1,"completed":false}}.
+ *
+ * {@link StructuredMessage} fields and {@link MapMessage} entries become top-level fields and
+ * are encoded straight into the layout's reusable buffer; any other message is written as
+ * {@code msg}. ThreadContext entries are always included.
+ *
+ * <pre>{@code <CompactJsonLayout includeStacktrace="true"/>}</pre>
+ */
+@Plugin(name = "CompactJsonLayout", category = Node.CATEGORY, elementType = Layout.ELEMENT_TYPE, printObject = true)
+public final class CompactJsonLayout extends AbstractStringLayout {
+
+    private static final TriConsumer<String, Object, JsonFieldWriter> CONTEXT_WRITER =
+            (key, value, out) -> out.field(key, value != null ? value.toString() : null);
+
+    private static final ThreadLocal<StringBuilder> SCRATCH = ThreadLocal.withInitial(() -> new StringBuilder(256));
+
+    private final boolean includeStacktrace;
+
+    private CompactJsonLayout(Charset charset, boolean includeStacktrace) {
+        super(charset);
+        this.includeStacktrace = includeStacktrace;
+    }
+
+    @PluginFactory
+    public static CompactJsonLayout createLayout(
+            @PluginAttribute(value = "charset", defaultString = "UTF-8") Charset charset,
+            @PluginAttribute(value = "includeStacktrace", defaultBoolean = true) boolean includeStacktrace) {
+        return new CompactJsonLayout(charset, includeStacktrace);
+    }
+
+    @Override
+    public String getContentType() {
+        return "application/x-ndjson; charset=" + getCharset();
+    }
+
+    @Override
+    public String toSerializable(LogEvent event) {
+        StringBuilder text = getStringBuilder();
+        write(event, text);
+        return text.toString();
+    }
+
+    @Override
+    public void encode(LogEvent event, ByteBufferDestination destination) {
+        StringBuilder text = getStringBuilder();
+        write(event, text);
+        getStringBuilderEncoder().encode(text, destination);
+        trimToMaxSize(text);
+    }
+
+    private void write(LogEvent event, StringBuilder text) {
+        JsonFieldWriter out = new JsonFieldWriter(text);
+        text.append('{');
+        out.field("ts", event.getTimeMillis())
+                .field("level", event.getLevel().name())
+                .field("logger", event.getLoggerName())
+                .field("thread", event.getThreadName());
+        event.getContextData().forEach(CONTEXT_WRITER, out);
+
+        Message message = event.getMessage();
+        if (message instanceof StructuredMessage) {
+            StructuredMessage structured = (StructuredMessage) message;
+            out.field("event", structured.getEventType());
+            structured.writeFields(out);
+        } else if (message instanceof MapMessage) {
+            ((MapMessage<?, ?>) message).forEach((key, value) -> out.field(key, value != null ? value.toString() : null));
+        } else if (message instanceof StringBuilderFormattable) {
+            StringBuilder scratch = SCRATCH.get();
+            scratch.setLength(0);
+            ((StringBuilderFormattable) message).formatTo(scratch);
+            out.field("msg", scratch);
+        } else if (message != null) {
+            out.field("msg", message.getFormattedMessage());
+        }
+
+        Throwable thrown = event.getThrown();
+        if (thrown != null) {
+            out.field("exception", thrown.toString());
+            if (includeStacktrace) {
+                StringWriter stack = new StringWriter();
+                thrown.printStackTrace(new PrintWriter(stack));
+                out.field("stack", stack.toString());
+            }
+        }
+        text.append("}\n");
+    }
+
+    /**
+     * Appends {@code "name":value} pairs, escaping strings as it copies them.
+     */
+    private static final class JsonFieldWriter implements FieldWriter {
+        private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+        private final StringBuilder text;
+        private boolean first = true;
+
+        JsonFieldWriter(StringBuilder text) {
+            this.text = text;
+        }
+
+        @Override
+        public FieldWriter field(String name, CharSequence value) {
+            if (value != null) {
+                name(name);
+                text.append('"');
+                escape(value);
+                text.append('"');
+            }
+            return this;
+        }
+
+        @Override
+        public FieldWriter field(String name, long value) {
+            name(name);
+            text.append(value);
+            return this;
+        }
+
+        @Override
+        public FieldWriter field(String name, boolean value) {
+            name(name);
+            text.append(value);
+            return this;
+        }
+
+        private void name(String name) {
+            if (!first) {
+                text.append(',');
+            }
+            first = false;
+            text.append('"');
+            escape(name);
+            text.append("\":");
+        }
+
+        private void escape(CharSequence value) {
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                switch (c) {
+                    case '"':
+                        text.append("\\\"");
+                        break;
+                    case '\\':
+                        text.append("\\\\");
+                        break;
+                    case '\n':
+                        text.append("\\n");
+                        break;
+                    case '\r':
+                        text.append("\\r");
+                        break;
+                    case '\t':
+                        text.append("\\t");
+                        break;
+                    default:
+                        if (c < 0x20) {
+                            text.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xF]);
+                        } else {
+                            text.append(c);
+                        }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.todo.logging;
+
+import java.util.List;
+
+/**
+ * Field-level diff of one persisted entity, as captured from the persistence provider's change
+ * set: the names of the changed attributes in {@code changed}, then each attribute's new value
+ * under its own name and its previous value under {@code <attribute>.old}. A changed attribute
+ * without a value field was set to null (or is redacted).
+ */
+public final class EntityChangeMessage extends StructuredMessage {
+    private static final long serialVersionUID = 1L;
+
+    public enum Operation {
+        INSERT("insert"), UPDATE("update"), DELETE("delete");
+
+        private final String label;
+
+        Operation(String label) {
+            this.label = label;
+        }
+    }
+
+    private final Operation operation;
+    private final String entity;
+    private final Object id;
+    private final List<FieldChange> changes;
+
+    private EntityChangeMessage(Operation operation, String entity, Object id, List<FieldChange> changes) {
+        this.operation = operation;
+        this.entity = entity;
+        this.id = id;
+        this.changes = changes;
+    }
+
+    public static EntityChangeMessage of(Operation operation, String entity, Object id, List<FieldChange> changes) {
+        return new EntityChangeMessage(operation, entity, id, List.copyOf(changes));
+    }
+
+    @Override
+    public String getEventType() {
+        return "change";
+    }
+
+    @Override
+    public void writeFields(FieldWriter out) {
+        out.field("operation", operation.label).field("entity", entity);
+        if (id instanceof Number) {
+            out.field("id", ((Number) id).longValue());
+        } else if (id != null) {
+            out.field("id", id.toString());
+        }
+        if (changes.isEmpty()) {
+            return;
+        }
+        StringBuilder changed = new StringBuilder();
+        for (FieldChange change : changes) {
+            changed.append(changed.length() > 0 ? "," : "").append(change.attribute);
+        }
+        out.field("changed", changed);
+        for (FieldChange change : changes) {
+            out.field(change.attribute, change.newValue).field(change.attribute + ".old", change.oldValue);
+        }
+    }
+
+    /**
+     * One changed attribute, with values already rendered as strings (null for null).
+     */
+    public static final class FieldChange {
+        private final String attribute;
+        private final String oldValue;
+        private final String newValue;
+
+        public FieldChange(String attribute, String oldValue, String newValue) {
+            this.attribute = attribute;
+            this.oldValue = oldValue;
+            this.newValue = newValue;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.todo.logging;
+
+/**
+ * Receives the fields of a {@link StructuredMessage}. Layouts implement it to encode fields
+ * straight into their output buffer.
+ */
+public interface FieldWriter {
+
+    /**
+     * Writes a string field; null values are skipped.
+     */
+    FieldWriter field(String name, CharSequence value);
+
+    FieldWriter field(String name, long value);
+
+    FieldWriter field(String name, boolean value);
+}
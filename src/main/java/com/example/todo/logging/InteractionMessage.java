@@ -0,0 +1,38 @@
+package com.example.todo.logging;
+
+/**
+ * A user clicking a command component on a postback.
+ */
+public final class InteractionMessage extends StructuredMessage {
+    private static final long serialVersionUID = 1L;
+
+    private final String view;
+    private final String component;
+    private final String name;
+    private final String clientId;
+
+    private InteractionMessage(String view, String component, String name, String clientId) {
+        this.view = view;
+        this.component = component;
+        this.name = name;
+        this.clientId = clientId;
+    }
+
+    public static InteractionMessage click(String view, String component, String name, String clientId) {
+        return new InteractionMessage(view, component, name, clientId);
+    }
+
+    @Override
+    public String getEventType() {
+        return "interaction";
+    }
+
+    @Override
+    public void writeFields(FieldWriter out) {
+        out.field("kind", "click")
+                .field("view", view)
+                .field("component", component)
+                .field("name", name)
+                .field("clientId", clientId);
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.todo.logging;
+
+/**
+ * How long one JSF lifecycle phase took for a view.
+ */
+public final class PhaseTimingMessage extends StructuredMessage {
+    private static final long serialVersionUID = 1L;
+
+    private final String phase;
+    private final String view;
+    private final long durationMicros;
+
+    public PhaseTimingMessage(String phase, String view, long durationNanos) {
+        this.phase = phase;
+        this.view = view;
+        this.durationMicros = durationNanos / 1_000;
+    }
+
+    @Override
+    public String getEventType() {
+        return "phase";
+    }
+
+    @Override
+    public void writeFields(FieldWriter out) {
+        out.field("phase", phase)
+                .field("view", view)
+                .field("durationMicros", durationMicros);
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.todo.logging;
+
+import org.apache.logging.log4j.message.Message;
+import org.apache.logging.log4j.util.StringBuilderFormattable;
+
+/**
+ * Base class for typed domain log events. Each event has a fixed type and a fixed set of
+ * fields that it hands to a {@link FieldWriter}, so {@link CompactJsonLayout} can encode them
+ * directly while pattern layouts still get a readable {@code type key=value ...} line.
+ *
+ * Field names must not clash with the keys the layout writes itself ({@code ts}, {@code level},
+ * {@code logger}, {@code thread}, {@code event}, {@code msg}, {@code exception}, {@code stack})
+ * or with ThreadContext keys such as {@code requestId}, {@code userId} and {@code viewId}.
+ */
+public abstract class StructuredMessage implements Message, StringBuilderFormattable {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Returns the event type, written as the {@code event} field.
+     */
+    public abstract String getEventType();
+
+    /**
+     * Writes this event's fields, in a stable order.
+     */
+    public abstract void writeFields(FieldWriter out);
+
+    @Override
+    public void formatTo(StringBuilder buffer) {
+        buffer.append(getEventType());
+        writeFields(new TextFieldWriter(buffer));
+    }
+
+    @Override
+    public String getFormattedMessage() {
+        StringBuilder buffer = new StringBuilder(128);
+        formatTo(buffer);
+        return buffer.toString();
+    }
+
+    @Override
+    public String getFormat() {
+        return getEventType();
+    }
+
+    @Override
+    public Object[] getParameters() {
+        return null;
+    }
+
+    @Override
+    public Throwable getThrowable() {
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return getFormattedMessage();
+    }
+
+    /**
+     * Writes fields as {@code key=value}, quoting values that contain spaces or quotes and
+     * escaping line breaks so an event always stays on one line.
+     */
+    private static final class TextFieldWriter implements FieldWriter {
+        private final StringBuilder buffer;
+
+        TextFieldWriter(StringBuilder buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public FieldWriter field(String name, CharSequence value) {
+            if (value != null) {
+                buffer.append(' ').append(name).append('=');
+                if (needsQuotes(value)) {
+                    buffer.append('"');
+                    for (int i = 0; i < value.length(); i++) {
+                        char c = value.charAt(i);
+                        if (c == '"' || c == '\\') {
+                            buffer.append('\\').append(c);
+                        } else if (c == '\n') {
+                            buffer.append("\\n");
+                        } else if (c == '\r') {
+                            buffer.append("\\r");
+                        } else {
+                            buffer.append(c);
+                        }
+                    }
+                    buffer.append('"');
+                } else {
+                    buffer.append(value);
+                }
+            }
+            return this;
+        }
+
+        @Override
+        public FieldWriter field(String name, long value) {
+            buffer.append(' ').append(name).append('=').append(value);
+            return this;
+        }
+
+        @Override
+        public FieldWriter field(String name, boolean value) {
+            buffer.append(' ').append(name).append('=').append(value);
+            return this;
+        }
+
+        private static boolean needsQuotes(CharSequence value) {
+            if (value.length() == 0) {
+                return true;
+            }
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c <= ' ' || c == '"' || c == '=') {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.todo.logging;
+
+import com.example.todo.model.Todo;
+
+/**
+ * A committed change to one todo, or to several todos of one owner in a bulk operation.
+ */
+public final class TodoMutationMessage extends StructuredMessage {
+    private static final long serialVersionUID = 1L;
+
+    public enum Operation {
+        CREATE("create"), UPDATE("update"), DELETE("delete"), TOGGLE("toggle"), ARCHIVE("archive");
+
+        private final String label;
+
+        Operation(String label) {
+            this.label = label;
+        }
+    }
+
+    private final Operation operation;
+    private final Long todoId;
+    private final Long ownerId;
+    private final int count;
+    private final Boolean completed;
+
+    private TodoMutationMessage(Operation operation, Long todoId, Long ownerId, int count, Boolean completed) {
+        this.operation = operation;
+        this.todoId = todoId;
+        this.ownerId = ownerId;
+        this.count = count;
+        this.completed = completed;
+    }
+
+    public static TodoMutationMessage of(Operation operation, Todo todo) {
+        Long ownerId = todo.getUser() != null ? todo.getUser().getId() : null;
+        return new TodoMutationMessage(operation, todo.getId(), ownerId, 1, todo.getCompleted());
+    }
+
+    public static TodoMutationMessage bulk(Operation operation, Long ownerId, int count) {
+        return new TodoMutationMessage(operation, null, ownerId, count, null);
+    }
+
+    @Override
+    public String getEventType() {
+        return "todo";
+    }
+
+    @Override
+    public void writeFields(FieldWriter out) {
+        out.field("operation", operation.label);
+        if (todoId != null) {
+            out.field("todoId", todoId);
+        }
+        if (ownerId != null) {
+            out.field("ownerId", ownerId);
+        }
+        out.field("count", count);
+        if (completed != null) {
+            out.field("completed", completed);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.todo.metrics;
+
+import javax.annotation.Priority;
+import javax.inject.Inject;
+import javax.interceptor.AroundInvoke;
+import javax.interceptor.Interceptor;
+import javax.interceptor.InvocationContext;
+
+/**
+ * Times {@link Instrumented} calls and records them in the {@link MetricsRegistry}.
+ * A call that throws counts as an error.
+ */
+@Instrumented
+@Interceptor
+@Priority(Interceptor.Priority.APPLICATION + 10)
+public class InstrumentedInterceptor {
+
+    @Inject
+    private MetricsRegistry registry;
+
+    @AroundInvoke
+    public Object measure(InvocationContext context) throws Exception {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            Object result = context.proceed();
+            failed = false;
+            return result;
+        } finally {
+            registry.forMethod(context.getMethod()).record(System.nanoTime() - start, failed);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.todo.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-memory latency histogram with exponentially growing buckets.
+ *
+ * Bucket upper bounds run from 50 microseconds to about 26 seconds, doubling each step,
+ * plus an overflow bucket. Recording is a bucket lookup and a {@link LongAdder} increment,
+ * so it is lock-free and cheap under contention. Percentiles are reported as the upper
+ * bound of the bucket that contains them, i.e. with at most 2x overestimation.
+ */
+public class LatencyHistogram {
+    private static final long FIRST_BOUND_NANOS = 50_000L;
+    static final int BUCKETS = 20;
+    private static final long[] BOUNDS_NANOS = new long[BUCKETS];
+
+    static {
+        long bound = FIRST_BOUND_NANOS;
+        for (int i = 0; i < BUCKETS; i++) {
+            BOUNDS_NANOS[i] = bound;
+            bound *= 2;
+        }
+    }
+
+    private final LongAdder[] counts = new LongAdder[BUCKETS + 1];
+    private final LongAdder sumNanos = new LongAdder();
+
+    public LatencyHistogram() {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = new LongAdder();
+        }
+    }
+
+    public void record(long nanos) {
+        counts[bucketOf(nanos)].increment();
+        sumNanos.add(nanos);
+    }
+
+    private static int bucketOf(long nanos) {
+        if (nanos <= FIRST_BOUND_NANOS) {
+            return 0;
+        }
+        // Index of the smallest bound >= nanos: bounds are FIRST_BOUND_NANOS * 2^i
+        long ratio = (nanos - 1) / FIRST_BOUND_NANOS;
+        int bucket = 64 - Long.numberOfLeadingZeros(ratio);
+        return Math.min(bucket, BUCKETS);
+    }
+
+    /**
+     * Upper bound of bucket {@code i} in nanoseconds; {@link Long#MAX_VALUE} for the overflow bucket.
+     */
+    public static long upperBoundNanos(int i) {
+        return i < BUCKETS ? BOUNDS_NANOS[i] : Long.MAX_VALUE;
+    }
+
+    /**
+     * Snapshot of the per-bucket counts (not cumulative), overflow bucket last.
+     */
+    public long[] snapshot() {
+        long[] snapshot = new long[counts.length];
+        for (int i = 0; i < counts.length; i++) {
+            snapshot[i] = counts[i].sum();
+        }
+        return snapshot;
+    }
+
+    public long getSumNanos() {
+        return sumNanos.sum();
+    }
+
+    /**
+     * Estimated latency at the given quantile (0..1) in milliseconds, or 0 if nothing was recorded.
+     */
+    public double quantileMillis(double quantile) {
+        return quantileMillis(snapshot(), quantile);
+    }
+
+    /**
+     * Estimated latency at the given quantile of per-bucket counts, such as the difference of
+     * two snapshots.
+     */
+    public static double quantileMillis(long[] snapshot, double quantile) {
+        long total = 0;
+        for (long count : snapshot) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return upperBoundNanos(Math.min(i, BUCKETS - 1)) / 1_000_000.0;
+            }
+        }
+        return upperBoundNanos(BUCKETS - 1) / 1_000_000.0;
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.todo.metrics;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Call, error and latency statistics of one instrumented method.
+ */
+public class MethodMetrics implements MethodMetricsMXBean {
+    private final String beanName;
+    private final String methodName;
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Long::max, 0L);
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    MethodMetrics(String beanName, String methodName) {
+        this.beanName = beanName;
+        this.methodName = methodName;
+    }
+
+    void record(long nanos, boolean failed) {
+        calls.increment();
+        if (failed) {
+            errors.increment();
+        }
+        maxNanos.accumulate(nanos);
+        latency.record(nanos);
+    }
+
+    public String getBeanName() {
+        return beanName;
+    }
+
+    public String getMethodName() {
+        return methodName;
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    @Override
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    @Override
+    public double getMeanMillis() {
+        long count = calls.sum();
+        return count > 0 ? latency.getSumNanos() / 1_000_000.0 / count : 0;
+    }
+
+    @Override
+    public double getMaxMillis() {
+        return maxNanos.get() / 1_000_000.0;
+    }
+
+    @Override
+    public double getP50Millis() {
+        return latency.quantileMillis(0.50);
+    }
+
+    @Override
+    public double getP95Millis() {
+        return latency.quantileMillis(0.95);
+    }
+
+    @Override
+    public double getP99Millis() {
+        return latency.quantileMillis(0.99);
+    }
+}
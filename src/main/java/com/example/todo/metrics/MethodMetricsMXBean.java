@@ -0,0 +1,22 @@
+package com.example.todo.metrics;
+
+/**
+ * JMX view of one instrumented method, registered as
+ * {@code com.example.todo:type=MethodMetrics,bean=<Class>,method=<method>}.
+ */
+public interface MethodMetricsMXBean {
+
+    long getCalls();
+
+    long getErrors();
+
+    double getMeanMillis();
+
+    double getMaxMillis();
+
+    double getP50Millis();
+
+    double getP95Millis();
+
+    double getP99Millis();
+}
@@ -0,0 +1,82 @@
+package com.example.todo.metrics;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds the {@link MethodMetrics} of every {@link Instrumented} method and publishes each
+ * one as an MXBean the first time the method is called.
+ */
+@ApplicationScoped
+public class MetricsRegistry {
+    private static final Logger logger = LogManager.getLogger(MetricsRegistry.class);
+
+    private final Map<Method, MethodMetrics> metrics = new ConcurrentHashMap<>();
+    private final List<ObjectName> registeredNames = new ArrayList<>();
+
+    /**
+     * Returns the metrics of the given method, creating and registering them on first use.
+     */
+    public MethodMetrics forMethod(Method method) {
+        MethodMetrics existing = metrics.get(method);
+        return existing != null ? existing : metrics.computeIfAbsent(method, this::create);
+    }
+
+    /**
+     * All recorded methods, ordered by bean and method name.
+     */
+    public Collection<MethodMetrics> getAll() {
+        List<MethodMetrics> all = new ArrayList<>(metrics.values());
+        all.sort(Comparator.comparing(MethodMetrics::getBeanName).thenComparing(MethodMetrics::getMethodName));
+        return all;
+    }
+
+    private MethodMetrics create(Method method) {
+        MethodMetrics created = new MethodMetrics(method.getDeclaringClass().getSimpleName(), method.getName());
+        try {
+            ObjectName name = new ObjectName("com.example.todo:type=MethodMetrics,bean="
+                    + ObjectName.quote(created.getBeanName()) + ",method=" + ObjectName.quote(created.getMethodName()));
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (!server.isRegistered(name)) {
+                server.registerMBean(created, name);
+                synchronized (registeredNames) {
+                    registeredNames.add(name);
+                }
+            }
+        } catch (JMException e) {
+            // Overloads share a name; the first one registered is exposed over JMX
+            logger.debug("Metrics for {}.{} not registered with JMX: {}",
+                    created.getBeanName(), created.getMethodName(), e.getMessage());
+        }
+        return created;
+    }
+
+    @PreDestroy
+    public void unregister() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        synchronized (registeredNames) {
+            for (ObjectName name : registeredNames) {
+                try {
+                    server.unregisterMBean(name);
+                } catch (JMException e) {
+                    logger.debug("Could not unregister {}: {}", name, e.getMessage());
+                }
+            }
+            registeredNames.clear();
+        }
+    }
+}
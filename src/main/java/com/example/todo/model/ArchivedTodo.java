@@ -0,0 +1,80 @@
+package com.example.todo.model;
+
+import org.eclipse.persistence.annotations.ReadOnly;
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * A completed todo moved to {@code todos_archive} by the archiver. Rows are written with SQL
+ * only, so the entity is read-only and kept out of the shared cache.
+ */
+@Entity
+@ReadOnly
+@Cacheable(false)
+@Table(name = "todos_archive")
+@NamedQueries({
+    @NamedQuery(name = "ArchivedTodo.findByUserBefore", query = "SELECT t FROM ArchivedTodo t WHERE t.userId = :userId AND t.id < :beforeId ORDER BY t.id DESC"),
+    @NamedQuery(name = "ArchivedTodo.countByUser", query = "SELECT COUNT(t) FROM ArchivedTodo t WHERE t.userId = :userId")
+})
+public class ArchivedTodo implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @Column(name = "id")
+    private Long id;
+
+    @Column(name = "title", nullable = false, length = 500)
+    private String title;
+
+    @Column(name = "description", length = 2000)
+    private String description;
+
+    @Column(name = "completed", nullable = false)
+    private Boolean completed;
+
+    @Column(name = "createdDate", nullable = false)
+    private LocalDateTime createdDate;
+
+    @Column(name = "completedDate")
+    private LocalDateTime completedDate;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "archivedDate", nullable = false)
+    private LocalDateTime archivedDate;
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public Boolean getCompleted() {
+        return completed;
+    }
+
+    public LocalDateTime getCreatedDate() {
+        return createdDate;
+    }
+
+    public LocalDateTime getCompletedDate() {
+        return completedDate;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public LocalDateTime getArchivedDate() {
+        return archivedDate;
+    }
+}
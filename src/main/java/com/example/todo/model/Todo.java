@@ -6,7 +6,13 @@ import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "todos")
-@NamedQuery(name = "Todo.findByUser", query = "SELECT t FROM Todo t WHERE t.user.id = :userId ORDER BY t.createdDate DESC")
+@NamedQueries({
+    @NamedQuery(name = "Todo.findByUser", query = "SELECT t FROM Todo t WHERE t.user.id = :userId ORDER BY t.createdDate DESC"),
+    @NamedQuery(name = "Todo.findByUserBefore", query = "SELECT t FROM Todo t WHERE t.user.id = :userId AND t.id < :beforeId ORDER BY t.id DESC"),
+    @NamedQuery(name = "Todo.findByIdAndUser", query = "SELECT t FROM Todo t WHERE t.id = :id AND t.user.id = :userId"),
+    @NamedQuery(name = "Todo.findByIdsAndUser", query = "SELECT t FROM Todo t WHERE t.id IN :ids AND t.user.id = :userId"),
+    @NamedQuery(name = "Todo.countByUser", query = "SELECT COUNT(t) FROM Todo t WHERE t.user.id = :userId")
+})
 public class Todo implements Serializable {
     private static final long serialVersionUID = 1L;
 
@@ -80,9 +86,9 @@ public class Todo implements Serializable {
 
     public void setCompleted(Boolean completed) {
         this.completed = completed;
-        if (completed && this.completedDate == null) {
+        if (Boolean.TRUE.equals(completed) && this.completedDate == null) {
             this.completedDate = LocalDateTime.now();
-        } else if (!completed) {
+        } else if (Boolean.FALSE.equals(completed)) {
             this.completedDate = null;
         }
     }
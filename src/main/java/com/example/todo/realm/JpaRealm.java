@@ -13,6 +13,7 @@ import org.apache.shiro.subject.PrincipalCollection;
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 import javax.inject.Named;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -20,15 +21,20 @@ import java.util.Set;
 @ApplicationScoped
 public class JpaRealm extends AuthorizingRealm {
     private static final Logger logger = LogManager.getLogger(JpaRealm.class);
+    // Accounts granted the admin role, which the /admin endpoints require (see shiro.ini)
+    private static final Set<String> ADMIN_USERNAMES = new HashSet<>(Arrays.asList(
+            System.getProperty("todo.admin.usernames", "admin").split("\\s*,\\s*")));
 
     @Inject
     private UserService userService;
 
+    @Inject
+    private PasswordHashService passwordHashService;
+
     public JpaRealm() {
         setName("JpaRealm");
-        // Use simple credentials matcher for plain text passwords
-        // In production, you should use HashedCredentialsMatcher with proper hashing
-        setCredentialsMatcher(new org.apache.shiro.authc.credential.SimpleCredentialsMatcher());
+        // Stored credentials are salted, iterated hashes verified by PasswordHashService
+        setCredentialsMatcher(this::credentialsMatch);
     }
 
     @Override
@@ -45,11 +51,12 @@ public class JpaRealm extends AuthorizingRealm {
         User user = userService.findByUsername(username);
         if (user == null) {
             logger.warn("No account found for user: {}", username);
+            // Hash anyway so the response time does not reveal whether the username exists
+            passwordHashService.verifyDummy(upToken.getPassword());
             throw new UnknownAccountException("No account found for user [" + username + "]");
         }
 
-        // Return authentication info with user's password
-        // Note: In production, you should hash passwords and use HashedCredentialsMatcher
+        // Return authentication info with the user's stored (hashed) password
         SimpleAuthenticationInfo info = new SimpleAuthenticationInfo(
                 user.getUsername(),  // principal
                 user.getPassword(),  // credentials
@@ -60,6 +67,36 @@ public class JpaRealm extends AuthorizingRealm {
         return info;
     }
 
+    @Override
+    protected void assertCredentialsMatch(AuthenticationToken token, AuthenticationInfo info) throws AuthenticationException {
+        super.assertCredentialsMatch(token, info);
+
+        // Transparently upgrade plain-text or outdated hashes after a successful login
+        String stored = (String) info.getCredentials();
+        if (passwordHashService.needsRehash(stored)) {
+            UsernamePasswordToken upToken = (UsernamePasswordToken) token;
+            logger.info("Rehashing stored password for user: {}", upToken.getUsername());
+            try {
+                String rehashed = passwordHashService.hash(upToken.getPassword());
+                userService.updatePassword(upToken.getUsername(), rehashed);
+            } catch (RuntimeException e) {
+                if (passwordHashService.isPlaintext(stored)) {
+                    // A plain-text password must not stay usable past the migration login
+                    logger.error("Failed to hash plain-text password for user: {}", upToken.getUsername(), e);
+                    throw new AuthenticationException("Password migration failed, please retry", e);
+                }
+                // The user is already authenticated; retry the upgrade on the next login
+                logger.warn("Failed to rehash password for user: {}", upToken.getUsername(), e);
+            }
+        }
+    }
+
+    private boolean credentialsMatch(AuthenticationToken token, AuthenticationInfo info) {
+        UsernamePasswordToken upToken = (UsernamePasswordToken) token;
+        return passwordHashService.verify(upToken.getUsername(), upToken.getPassword(),
+                (String) info.getCredentials());
+    }
+
     @Override
     protected AuthorizationInfo doGetAuthorizationInfo(PrincipalCollection principals) {
         String username = (String) principals.getPrimaryPrincipal();
@@ -76,6 +113,9 @@ public class JpaRealm extends AuthorizingRealm {
         // Add roles (you can extend User model to include roles if needed)
         Set<String> roles = new HashSet<>();
         roles.add("user"); // Default role for all authenticated users
+        if (ADMIN_USERNAMES.contains(user.getUsername())) {
+            roles.add("admin");
+        }
         info.setRoles(roles);
 
         // Add permissions if needed
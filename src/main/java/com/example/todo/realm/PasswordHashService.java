@@ -0,0 +1,296 @@
+package com.example.todo.realm;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.shiro.authc.AuthenticationException;
+import org.apache.shiro.authc.ExcessiveAttemptsException;
+import org.apache.shiro.authc.credential.DefaultPasswordService;
+import org.apache.shiro.crypto.hash.DefaultHashService;
+import org.apache.shiro.crypto.hash.Hash;
+import org.apache.shiro.crypto.hash.format.Shiro1CryptFormat;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import javax.enterprise.context.ApplicationScoped;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hashes and verifies user passwords with an iterated, salted SHA-256 hash stored in
+ * Shiro's {@code $shiro1$} crypt format.
+ *
+ * Expensive hash work runs on a small dedicated executor with a bounded queue so that a
+ * login storm cannot tie up the container's request threads; when the queue is full the
+ * attempt is rejected immediately. Successful verifications are remembered for a short
+ * time so repeat authentications of the same user skip the expensive hash.
+ *
+ * Plain-text stored passwords are rejected unless the one-time migration window is
+ * explicitly opened; while it is open, a matching plain-text login is rehashed before it
+ * succeeds. Lookups of unknown users are verified against a dummy hash so they cost the
+ * same as a wrong password and do not reveal which usernames exist.
+ *
+ * Tuning is done through system properties:
+ * <ul>
+ *   <li>{@code todo.password.hashIterations} - hash cost (default 50000)</li>
+ *   <li>{@code todo.password.verifierThreads} - executor threads (default: available processors)</li>
+ *   <li>{@code todo.password.queueCapacity} - pending verifications before rejection (default 64)</li>
+ *   <li>{@code todo.password.verifyTimeoutMillis} - max wait for a verification (default 5000)</li>
+ *   <li>{@code todo.password.cacheTtlSeconds} - verified-credential cache lifetime (default 60, 0 disables)</li>
+ *   <li>{@code todo.password.cacheMaxEntries} - verified-credential cache size (default 10000)</li>
+ *   <li>{@code todo.password.plaintextMigration} - accept and rehash plain-text stored passwords (default false)</li>
+ * </ul>
+ */
+@ApplicationScoped
+public class PasswordHashService {
+    private static final Logger logger = LogManager.getLogger(PasswordHashService.class);
+
+    public static final String HASH_ALGORITHM = "SHA-256";
+    private static final String CACHE_MAC_ALGORITHM = "HmacSHA256";
+
+    private int hashIterations;
+    private long verifyTimeoutMillis;
+    private long cacheTtlMillis;
+    private int cacheMaxEntries;
+    private boolean plaintextMigration;
+
+    private DefaultPasswordService passwordService;
+    private ThreadPoolExecutor executor;
+    private final Shiro1CryptFormat cryptFormat = new Shiro1CryptFormat();
+    private final Map<String, VerifiedCredential> verifiedCache = new ConcurrentHashMap<>();
+    private byte[] cacheKey;
+    private String dummyHash;
+
+    @PostConstruct
+    public void init() {
+        hashIterations = Integer.getInteger("todo.password.hashIterations", 50000);
+        int verifierThreads = Integer.getInteger("todo.password.verifierThreads",
+                Runtime.getRuntime().availableProcessors());
+        int queueCapacity = Integer.getInteger("todo.password.queueCapacity", 64);
+        verifyTimeoutMillis = Long.getLong("todo.password.verifyTimeoutMillis", 5000L);
+        cacheTtlMillis = TimeUnit.SECONDS.toMillis(Long.getLong("todo.password.cacheTtlSeconds", 60L));
+        cacheMaxEntries = Integer.getInteger("todo.password.cacheMaxEntries", 10000);
+        plaintextMigration = Boolean.getBoolean("todo.password.plaintextMigration");
+
+        DefaultHashService hashService = new DefaultHashService();
+        hashService.setHashAlgorithmName(HASH_ALGORITHM);
+        hashService.setHashIterations(hashIterations);
+        hashService.setGeneratePublicSalt(true);
+        passwordService = new DefaultPasswordService();
+        passwordService.setHashService(hashService);
+
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(verifierThreads, verifierThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread t = new Thread(r, "password-verifier-" + threadCount.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.AbortPolicy());
+
+        cacheKey = new byte[32];
+        SecureRandom random = new SecureRandom();
+        random.nextBytes(cacheKey);
+        byte[] dummyPassword = new byte[16];
+        random.nextBytes(dummyPassword);
+        dummyHash = passwordService.encryptPassword(dummyPassword);
+
+        logger.info("PasswordHashService initialized: {} iterations, {} verifier threads, queue capacity {}, cache TTL {} ms",
+                hashIterations, verifierThreads, queueCapacity, cacheTtlMillis);
+        logCalibration(verifierThreads);
+        if (plaintextMigration) {
+            logger.warn("Plain-text password migration is enabled; disable todo.password.plaintextMigration "
+                    + "once all stored passwords are hashed");
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        logger.info("Shutting down password verifier executor");
+        executor.shutdownNow();
+        verifiedCache.clear();
+    }
+
+    /**
+     * Hashes a plain-text password with the configured cost.
+     */
+    public String hash(char[] plaintext) {
+        return runOnVerifier(() -> passwordService.encryptPassword(plaintext));
+    }
+
+    /**
+     * Verifies a submitted password against the stored credential. Plain-text credentials
+     * only match while {@code todo.password.plaintextMigration} is enabled, and the caller
+     * must then rehash them (see {@link #isPlaintext(String)}).
+     */
+    public boolean verify(String username, char[] submitted, String stored) {
+        if (submitted == null) {
+            return false;
+        }
+        if (stored == null) {
+            verifyDummy(submitted);
+            return false;
+        }
+        if (!isHashed(stored)) {
+            if (!plaintextMigration) {
+                logger.warn("Rejecting login for user {}: stored password is not hashed", username);
+                verifyDummy(submitted);
+                return false;
+            }
+            return MessageDigest.isEqual(toBytes(submitted), stored.getBytes(StandardCharsets.UTF_8));
+        }
+
+        byte[] mac = cacheTtlMillis > 0 ? mac(username, submitted) : null;
+        if (mac != null) {
+            VerifiedCredential cached = verifiedCache.get(username);
+            if (cached != null && cached.matches(stored, mac)) {
+                logger.debug("Verified credential cache hit for user: {}", username);
+                return true;
+            }
+        }
+
+        boolean matches = runOnVerifier(() -> passwordService.passwordsMatch(submitted, stored));
+        if (matches && mac != null) {
+            remember(username, stored, mac);
+        }
+        return matches;
+    }
+
+    /**
+     * Spends the same hash work as a real verification without matching anything, so a
+     * login for an unknown user takes as long as one with a wrong password.
+     */
+    public void verifyDummy(char[] submitted) {
+        char[] password = submitted != null ? submitted : new char[0];
+        runOnVerifier(() -> passwordService.passwordsMatch(password, dummyHash));
+    }
+
+    /**
+     * Returns true when the stored credential is not hashed yet.
+     */
+    public boolean isPlaintext(String stored) {
+        return stored != null && !isHashed(stored);
+    }
+
+    /**
+     * Returns true when the stored credential is plain text or was hashed with a different
+     * algorithm or cost than currently configured.
+     */
+    public boolean needsRehash(String stored) {
+        if (!isHashed(stored)) {
+            return true;
+        }
+        Hash hash = cryptFormat.parse(stored);
+        return hash == null
+                || !HASH_ALGORITHM.equals(hash.getAlgorithmName())
+                || hash.getIterations() != hashIterations;
+    }
+
+    /**
+     * Drops any cached verification for the given user, e.g. after a password change.
+     */
+    public void invalidate(String username) {
+        if (username != null) {
+            verifiedCache.remove(username);
+        }
+    }
+
+    private boolean isHashed(String stored) {
+        return stored != null && stored.startsWith("$" + Shiro1CryptFormat.ID + "$");
+    }
+
+    private <T> T runOnVerifier(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            logger.warn("Password verifier queue is full, rejecting authentication attempt");
+            throw new ExcessiveAttemptsException("Too many concurrent authentication attempts, please retry");
+        }
+        try {
+            return future.get(verifyTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new AuthenticationException("Password verification timed out");
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new AuthenticationException("Password verification interrupted");
+        } catch (ExecutionException e) {
+            throw new AuthenticationException("Password verification failed", e.getCause());
+        }
+    }
+
+    private void remember(String username, String stored, byte[] mac) {
+        long now = System.currentTimeMillis();
+        if (verifiedCache.size() >= cacheMaxEntries) {
+            verifiedCache.values().removeIf(entry -> entry.expiresAt <= now);
+            if (verifiedCache.size() >= cacheMaxEntries) {
+                return;
+            }
+        }
+        verifiedCache.put(username, new VerifiedCredential(stored, mac, now + cacheTtlMillis));
+    }
+
+    private byte[] mac(String username, char[] submitted) {
+        try {
+            Mac mac = Mac.getInstance(CACHE_MAC_ALGORITHM);
+            mac.init(new SecretKeySpec(cacheKey, CACHE_MAC_ALGORITHM));
+            mac.update(String.valueOf(username).getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0);
+            return mac.doFinal(toBytes(submitted));
+        } catch (GeneralSecurityException e) {
+            logger.warn("Verified credential cache disabled for this attempt: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static byte[] toBytes(char[] chars) {
+        return new String(chars).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Hashes a sample password once and logs the resulting cost so operators can pick an
+     * iteration count that fits their login throughput.
+     */
+    private void logCalibration(int verifierThreads) {
+        long start = System.nanoTime();
+        passwordService.encryptPassword("calibration");
+        double millis = (System.nanoTime() - start) / 1_000_000.0;
+        double perThread = millis > 0 ? 1000.0 / millis : Double.POSITIVE_INFINITY;
+        logger.info("Password hash cost: {} iterations take {} ms (~{} logins/sec per thread, ~{} logins/sec total)",
+                hashIterations, String.format("%.2f", millis),
+                String.format("%.0f", perThread), String.format("%.0f", perThread * verifierThreads));
+    }
+
+    private static final class VerifiedCredential {
+        private final String stored;
+        private final byte[] mac;
+        private final long expiresAt;
+
+        VerifiedCredential(String stored, byte[] mac, long expiresAt) {
+            this.stored = stored;
+            this.mac = mac;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean matches(String currentStored, byte[] submittedMac) {
+            return expiresAt > System.currentTimeMillis()
+                    && stored.equals(currentStored)
+                    && MessageDigest.isEqual(mac, submittedMac);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.todo.rest;
+
+import org.apache.shiro.web.jaxrs.ShiroFeature;
+
+import javax.ws.rs.ApplicationPath;
+import javax.ws.rs.core.Application;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * JAX-RS application for the JSON API under {@code /api}.
+ * {@link ShiroFeature} enables Shiro's authorization annotations on resources.
+ */
+@ApplicationPath("/api")
+public class RestApplication extends Application {
+
+    @Override
+    public Set<Class<?>> getClasses() {
+        Set<Class<?>> classes = new HashSet<>();
+        classes.add(ShiroFeature.class);
+        classes.add(TodoResource.class);
+        return classes;
+    }
+}
@@ -0,0 +1,444 @@
+package com.example.todo.rest;
+
+import com.example.todo.model.ArchivedTodo;
+import com.example.todo.model.Todo;
+import com.example.todo.model.User;
+import com.example.todo.service.TodoChangeTracker;
+import com.example.todo.service.TodoService;
+import com.example.todo.service.UserService;
+import com.example.todo.trace.RequestTrace;
+import com.example.todo.transfer.ImportJob;
+import com.example.todo.transfer.TodoFormat;
+import com.example.todo.transfer.TodoImportService;
+import com.example.todo.trace.SpanKind;
+import com.example.todo.trace.Traced;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.ThreadContext;
+import org.apache.shiro.SecurityUtils;
+import org.apache.shiro.authz.annotation.RequiresAuthentication;
+
+import javax.enterprise.context.RequestScoped;
+import javax.inject.Inject;
+import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
+import javax.json.JsonValue;
+import javax.json.stream.JsonGenerator;
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.DELETE;
+import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.NotAuthorizedException;
+import javax.ws.rs.NotFoundException;
+import javax.ws.rs.POST;
+import javax.ws.rs.PUT;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.CacheControl;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.core.UriInfo;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * JSON API for the current user's todos.
+ *
+ * Lists are paged by keyset ({@code cursor} is the last id of the previous page) and streamed
+ * to the client row by row, so response memory does not grow with the page size. List and
+ * item responses carry an ETag derived from the user's change version; clients revalidating
+ * with {@code If-None-Match} get {@code 304 Not Modified} without the todos being read.
+ * Create and update accept arrays so clients can batch changes into one transaction.
+ * {@code export} streams the whole list as CSV or JSON; {@code import} takes such a file and
+ * imports it as a background job. Archived todos are only read through {@code archived}.
+ */
+@Path("todos")
+@RequestScoped
+@Traced(SpanKind.ACTION)
+@RequiresAuthentication
+@Produces(MediaType.APPLICATION_JSON)
+public class TodoResource {
+    private static final Logger logger = LogManager.getLogger(TodoResource.class);
+
+    static final int DEFAULT_LIMIT = 100;
+    static final int MAX_LIMIT = 1000;
+    static final int MAX_BATCH = 1000;
+
+    @Inject
+    private TodoService todoService;
+
+    @Inject
+    private UserService userService;
+
+    @Inject
+    private TodoChangeTracker changeTracker;
+
+    @Inject
+    private TodoImportService importService;
+
+    @GET
+    public Response list(@QueryParam("cursor") Long cursor, @QueryParam("limit") Integer limit,
+                         @Context Request request) {
+        Long userId = currentUserId();
+        int pageSize = pageSize(limit);
+
+        EntityTag etag = new EntityTag(changeTracker.getVersion(userId) + "-" + cursor + "-" + pageSize);
+        Response.ResponseBuilder notModified = request.evaluatePreconditions(etag);
+        if (notModified != null) {
+            logger.debug("Todo list for user id {} not modified", userId);
+            return notModified.tag(etag).cacheControl(revalidate()).build();
+        }
+
+        StreamingOutput body = output -> {
+            try (JsonGenerator json = Json.createGenerator(output)) {
+                json.writeStartObject().writeStartArray("todos");
+                long[] lastId = {0};
+                int count = todoService.forEachByUser(userId, cursor, pageSize, todo -> {
+                    write(json, todo);
+                    lastId[0] = todo.getId();
+                });
+                json.writeEnd();
+                if (count == pageSize) {
+                    json.write("nextCursor", lastId[0]);
+                } else {
+                    json.writeNull("nextCursor");
+                }
+                json.writeEnd();
+            }
+        };
+        return Response.ok(body).tag(etag).cacheControl(revalidate()).build();
+    }
+
+    /**
+     * Streams all of the user's todos as CSV or JSON ({@code format}, default JSON) through one
+     * database cursor, newest first.
+     */
+    @GET
+    @Path("export")
+    @Produces({"text/csv", MediaType.APPLICATION_JSON})
+    public Response export(@QueryParam("format") String format) {
+        Long userId = currentUserId();
+        TodoFormat todoFormat = format == null ? TodoFormat.JSON : TodoFormat.of(format);
+        if (todoFormat == null) {
+            throw new BadRequestException("format must be csv or json");
+        }
+
+        StreamingOutput body = output -> {
+            long start = System.nanoTime();
+            int count;
+            try (TodoFormat.Writer writer = todoFormat.writer(output)) {
+                count = todoService.forEachByUser(userId, null, Integer.MAX_VALUE, todo -> {
+                    try {
+                        writer.write(todo);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            logger.info("Exported {} todos as {} for user id: {} in {} ms",
+                    count, todoFormat, userId, (System.nanoTime() - start) / 1_000_000);
+        };
+        return Response.ok(body, todoFormat.getMediaType() + ";charset=UTF-8")
+                .header("Content-Disposition", "attachment; filename=\"todos." + todoFormat.getExtension() + "\"")
+                .cacheControl(revalidate())
+                .build();
+    }
+
+    /**
+     * Starts a background import of a CSV or JSON upload (see {@link TodoFormat}) and returns
+     * {@code 202 Accepted} with the job, whose progress can be polled at the {@code Location}.
+     */
+    @POST
+    @Path("import")
+    @Consumes({"text/csv", MediaType.APPLICATION_JSON})
+    public Response startImport(@HeaderParam(HttpHeaders.CONTENT_TYPE) String contentType, InputStream body,
+                                @Context UriInfo uriInfo) throws IOException {
+        Long userId = currentUserId();
+        ImportJob job;
+        try {
+            job = importService.submit(userId, TodoFormat.of(contentType), body);
+        } catch (IllegalStateException e) {
+            return Response.status(Response.Status.CONFLICT).entity(error(e.getMessage())).build();
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.REQUEST_ENTITY_TOO_LARGE).entity(error(e.getMessage())).build();
+        } catch (RejectedExecutionException e) {
+            return Response.status(Response.Status.SERVICE_UNAVAILABLE).entity(error("Import could not be started")).build();
+        }
+        return Response.accepted(toJson(job))
+                .location(uriInfo.getAbsolutePathBuilder().path(job.getId()).build())
+                .build();
+    }
+
+    @GET
+    @Path("import/{jobId}")
+    public Response importStatus(@PathParam("jobId") String jobId) {
+        return Response.ok(toJson(findJob(jobId))).build();
+    }
+
+    /**
+     * Stops an import after its current batch; the todos imported so far are kept.
+     */
+    @DELETE
+    @Path("import/{jobId}")
+    public Response cancelImport(@PathParam("jobId") String jobId) {
+        ImportJob job = findJob(jobId);
+        job.cancel();
+        return Response.accepted(toJson(job)).build();
+    }
+
+    /**
+     * Pages through the user's archived todos, newest first, with the same {@code cursor} and
+     * {@code limit} as the list of current todos.
+     */
+    @GET
+    @Path("archived")
+    public Response archived(@QueryParam("cursor") Long cursor, @QueryParam("limit") Integer limit) {
+        int pageSize = pageSize(limit);
+        List<ArchivedTodo> todos = todoService.findArchivedByUser(currentUserId(), cursor, pageSize);
+        JsonArrayBuilder array = Json.createArrayBuilder();
+        for (ArchivedTodo todo : todos) {
+            array.add(toJson(todo));
+        }
+        JsonObjectBuilder page = Json.createObjectBuilder().add("todos", array);
+        if (todos.size() == pageSize) {
+            page.add("nextCursor", todos.get(todos.size() - 1).getId());
+        } else {
+            page.addNull("nextCursor");
+        }
+        return Response.ok(page.build()).cacheControl(revalidate()).build();
+    }
+
+    @GET
+    @Path("{id}")
+    public Response get(@PathParam("id") Long id, @Context Request request) {
+        Long userId = currentUserId();
+        EntityTag etag = new EntityTag(changeTracker.getVersion(userId) + "-" + id);
+        Response.ResponseBuilder notModified = request.evaluatePreconditions(etag);
+        if (notModified != null) {
+            return notModified.tag(etag).cacheControl(revalidate()).build();
+        }
+
+        Todo todo = todoService.findByIdForUser(id, userId);
+        if (todo == null) {
+            throw new NotFoundException();
+        }
+        return Response.ok(toJson(todo)).tag(etag).cacheControl(revalidate()).build();
+    }
+
+    @POST
+    @Consumes(MediaType.APPLICATION_JSON)
+    public Response create(JsonArray items) {
+        Long userId = currentUserId();
+        checkBatch(items);
+
+        List<Todo> drafts = new ArrayList<>(items.size());
+        for (JsonValue item : items) {
+            JsonObject fields = asObject(item);
+            String title = fields.getString("title", null);
+            if (title == null || title.trim().isEmpty()) {
+                throw new BadRequestException("title is required");
+            }
+            drafts.add(toTodo(fields, title));
+        }
+
+        List<Todo> created = todoService.createTodos(drafts, userId);
+        logger.info("API created {} todos for user id: {}", created.size(), userId);
+        return Response.status(Response.Status.CREATED).entity(toJson(created)).build();
+    }
+
+    @PUT
+    @Consumes(MediaType.APPLICATION_JSON)
+    public Response update(JsonArray items) {
+        Long userId = currentUserId();
+        checkBatch(items);
+
+        List<Todo> changes = new ArrayList<>(items.size());
+        for (JsonValue item : items) {
+            JsonObject fields = asObject(item);
+            if (!fields.containsKey("id") || fields.get("id").getValueType() != JsonValue.ValueType.NUMBER) {
+                throw new BadRequestException("id is required");
+            }
+            String title = fields.getString("title", null);
+            if (title != null && title.trim().isEmpty()) {
+                throw new BadRequestException("title must not be blank");
+            }
+            Todo change = toTodo(fields, title);
+            change.setId(fields.getJsonNumber("id").longValue());
+            changes.add(change);
+        }
+
+        List<Todo> updated = todoService.updateTodos(changes, userId);
+        logger.info("API updated {} of {} todos for user id: {}", updated.size(), changes.size(), userId);
+        return Response.ok(toJson(updated)).build();
+    }
+
+    @DELETE
+    @Path("{id}")
+    public Response delete(@PathParam("id") Long id) {
+        Long userId = currentUserId();
+        if (todoService.findByIdForUser(id, userId) == null) {
+            throw new NotFoundException();
+        }
+        todoService.deleteTodo(id, userId);
+        logger.info("API deleted todo id: {} for user id: {}", id, userId);
+        return Response.noContent().build();
+    }
+
+    private ImportJob findJob(String jobId) {
+        ImportJob job = importService.find(jobId);
+        if (job == null || !job.getUserId().equals(currentUserId())) {
+            throw new NotFoundException();
+        }
+        return job;
+    }
+
+    private Long currentUserId() {
+        String username = (String) SecurityUtils.getSubject().getPrincipal();
+        User user = username != null ? userService.findByUsername(username) : null;
+        if (user == null) {
+            throw new NotAuthorizedException("Basic realm=\"todo\"");
+        }
+        ThreadContext.put(RequestTrace.USER_ID, username);
+        return user.getId();
+    }
+
+    private static int pageSize(Integer limit) {
+        int pageSize = limit == null ? DEFAULT_LIMIT : limit;
+        if (pageSize < 1 || pageSize > MAX_LIMIT) {
+            throw new BadRequestException("limit must be between 1 and " + MAX_LIMIT);
+        }
+        return pageSize;
+    }
+
+    private static void checkBatch(JsonArray items) {
+        if (items == null || items.isEmpty()) {
+            throw new BadRequestException("Request body must be a non-empty JSON array");
+        }
+        if (items.size() > MAX_BATCH) {
+            throw new BadRequestException("At most " + MAX_BATCH + " todos per request");
+        }
+    }
+
+    private static JsonObject asObject(JsonValue item) {
+        if (item.getValueType() != JsonValue.ValueType.OBJECT) {
+            throw new BadRequestException("Array items must be JSON objects");
+        }
+        return item.asJsonObject();
+    }
+
+    private static Todo toTodo(JsonObject fields, String title) {
+        Todo todo = new Todo();
+        todo.setTitle(title != null ? title.trim() : null);
+        todo.setDescription(fields.getString("description", null));
+        // Absent means "leave unchanged" for updates
+        todo.setCompleted(fields.containsKey("completed") ? fields.getBoolean("completed", false) : null);
+        return todo;
+    }
+
+    private static JsonObject toJson(ImportJob job) {
+        JsonObjectBuilder object = Json.createObjectBuilder()
+                .add("id", job.getId())
+                .add("state", job.getState().name())
+                .add("format", job.getFormat().getExtension())
+                .add("percent", job.getPercent())
+                .add("bytesRead", job.getBytesRead())
+                .add("totalBytes", job.getTotalBytes())
+                .add("imported", job.getImported())
+                .add("rejected", job.getRejected())
+                .add("errors", Json.createArrayBuilder(job.getErrors()));
+        addNullable(object, "failure", job.getFailure());
+        addNullable(object, "finished", job.getFinished() != null ? job.getFinished().toString() : null);
+        return object.build();
+    }
+
+    private static JsonObject error(String message) {
+        return Json.createObjectBuilder().add("error", message).build();
+    }
+
+    private static CacheControl revalidate() {
+        CacheControl cacheControl = new CacheControl();
+        cacheControl.setPrivate(true);
+        cacheControl.setNoCache(true);
+        return cacheControl;
+    }
+
+    private static JsonArray toJson(List<Todo> todos) {
+        JsonArrayBuilder array = Json.createArrayBuilder();
+        for (Todo todo : todos) {
+            array.add(toJson(todo));
+        }
+        return array.build();
+    }
+
+    private static JsonObject toJson(Todo todo) {
+        JsonObjectBuilder object = Json.createObjectBuilder()
+                .add("id", todo.getId())
+                .add("title", todo.getTitle())
+                .add("completed", Boolean.TRUE.equals(todo.getCompleted()));
+        addNullable(object, "description", todo.getDescription());
+        addNullable(object, "createdDate", format(todo.getCreatedDate()));
+        addNullable(object, "completedDate", format(todo.getCompletedDate()));
+        return object.build();
+    }
+
+    private static JsonObject toJson(ArchivedTodo todo) {
+        JsonObjectBuilder object = Json.createObjectBuilder()
+                .add("id", todo.getId())
+                .add("title", todo.getTitle())
+                .add("completed", Boolean.TRUE.equals(todo.getCompleted()));
+        addNullable(object, "description", todo.getDescription());
+        addNullable(object, "createdDate", format(todo.getCreatedDate()));
+        addNullable(object, "completedDate", format(todo.getCompletedDate()));
+        addNullable(object, "archivedDate", format(todo.getArchivedDate()));
+        return object.build();
+    }
+
+    private static void write(JsonGenerator json, Todo todo) {
+        json.writeStartObject()
+                .write("id", todo.getId())
+                .write("title", todo.getTitle())
+                .write("completed", Boolean.TRUE.equals(todo.getCompleted()));
+        writeNullable(json, "description", todo.getDescription());
+        writeNullable(json, "createdDate", format(todo.getCreatedDate()));
+        writeNullable(json, "completedDate", format(todo.getCompletedDate()));
+        json.writeEnd();
+    }
+
+    private static void addNullable(JsonObjectBuilder object, String name, String value) {
+        if (value != null) {
+            object.add(name, value);
+        } else {
+            object.addNull(name);
+        }
+    }
+
+    private static void writeNullable(JsonGenerator json, String name, String value) {
+        if (value != null) {
+            json.write(name, value);
+        } else {
+            json.writeNull(name);
+        }
+    }
+
+    private static String format(LocalDateTime dateTime) {
+        return dateTime != null ? dateTime.toString() : null;
+    }
+}
@@ -0,0 +1,218 @@
+package com.example.todo.security;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Limits failed login attempts per username and per client IP so that credential-stuffing
+ * traffic is rejected before it reaches the realm, the database or the password hasher.
+ * Consulted by {@code LoginBean} for the login page and by {@code ThrottledBasicAuthFilter}
+ * for the REST API.
+ *
+ * Every attempt reserves one failure through {@link #tryAcquire(String, String)} before the
+ * credentials are checked, and the check and the reservation happen in one step, so
+ * concurrent attempts cannot all pass the check before any of them is counted. Attempts that
+ * turn out not to be failures are handed back with {@link #release(String, String)}.
+ *
+ * Failures are counted in a fixed-size count-min sketch of sliding-window counters. Each
+ * cell packs a window index and a count into one long that is updated with CAS, so its
+ * memory use does not grow with the number of keys; only the short check-and-reserve step
+ * takes a lock. The sketch can only over-estimate, so a key is never throttled later than
+ * its limit. Each row
+ * hashes the key with SipHash-2-4 under its own random key, drawn per instance, so keys that
+ * collide cannot be crafted to lock out another username.
+ *
+ * Tuning is done through system properties:
+ * <ul>
+ *   <li>{@code todo.login.maxFailuresPerUser} - failures per username per window (default 5)</li>
+ *   <li>{@code todo.login.maxFailuresPerIp} - failures per client IP per window (default 20)</li>
+ *   <li>{@code todo.login.windowSeconds} - sliding window length (default 300)</li>
+ *   <li>{@code todo.login.sketchWidth} - counters per sketch row, rounded to a power of two (default 4096)</li>
+ * </ul>
+ */
+@ApplicationScoped
+public class LoginThrottle {
+    private static final Logger logger = LogManager.getLogger(LoginThrottle.class);
+
+    private static final int DEPTH = 4;
+    private static final int SLOTS = 2;
+    private static final long COUNT_MASK = 0xFFFFFFFFL;
+
+    private int maxFailuresPerUser;
+    private int maxFailuresPerIp;
+    private long windowMillis;
+    private int widthMask;
+    private AtomicLongArray cells;
+    private final long[] rowKeys = new long[DEPTH * 2];
+    private final Object acquireLock = new Object();
+
+    @PostConstruct
+    public void init() {
+        maxFailuresPerUser = Integer.getInteger("todo.login.maxFailuresPerUser", 5);
+        maxFailuresPerIp = Integer.getInteger("todo.login.maxFailuresPerIp", 20);
+        windowMillis = TimeUnit.SECONDS.toMillis(Long.getLong("todo.login.windowSeconds", 300L));
+        int width = Integer.highestOneBit(Math.max(64, Integer.getInteger("todo.login.sketchWidth", 4096)));
+        widthMask = width - 1;
+        cells = new AtomicLongArray(DEPTH * width * SLOTS);
+        SecureRandom random = new SecureRandom();
+        for (int i = 0; i < rowKeys.length; i++) {
+            rowKeys[i] = random.nextLong();
+        }
+
+        logger.info("LoginThrottle initialized: {} failures/user, {} failures/IP per {} s, sketch width {}",
+                maxFailuresPerUser, maxFailuresPerIp, TimeUnit.MILLISECONDS.toSeconds(windowMillis), width);
+    }
+
+    public long getWindowSeconds() {
+        return TimeUnit.MILLISECONDS.toSeconds(windowMillis);
+    }
+
+    /**
+     * Checks the failure budgets of the username and the client IP and, when neither is
+     * exhausted, counts this attempt as a failure in the same step. Returns false when the
+     * attempt is throttled; nothing is counted then.
+     */
+    public boolean tryAcquire(String username, String clientIp) {
+        synchronized (acquireLock) {
+            long now = System.currentTimeMillis();
+            if (username != null && estimate(userKey(username), now) >= maxFailuresPerUser) {
+                return false;
+            }
+            if (clientIp != null && estimate(ipKey(clientIp), now) >= maxFailuresPerIp) {
+                return false;
+            }
+            if (username != null) {
+                add(userKey(username), now, 1);
+            }
+            if (clientIp != null) {
+                add(ipKey(clientIp), now, 1);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Hands back an attempt reserved by {@link #tryAcquire(String, String)} that did not fail,
+     * e.g. a successful login. An attempt reserved in an earlier window stays counted.
+     */
+    public void release(String username, String clientIp) {
+        long now = System.currentTimeMillis();
+        if (username != null) {
+            add(userKey(username), now, -1);
+        }
+        if (clientIp != null) {
+            add(ipKey(clientIp), now, -1);
+        }
+    }
+
+    private static String userKey(String username) {
+        return "u:" + username.toLowerCase();
+    }
+
+    private static String ipKey(String clientIp) {
+        return "ip:" + clientIp;
+    }
+
+    private void add(String key, long now, int delta) {
+        long window = now / windowMillis;
+        int slot = (int) (window & 1);
+        byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+        for (int row = 0; row < DEPTH; row++) {
+            int index = cellIndex(row, hash(row, bytes), slot);
+            while (true) {
+                long current = cells.get(index);
+                boolean sameWindow = (current >>> 32) == (window & COUNT_MASK);
+                if (delta < 0 && !sameWindow) {
+                    // The reservation was counted in an earlier window
+                    break;
+                }
+                long count = sameWindow ? current & COUNT_MASK : 0;
+                long updated = ((window & COUNT_MASK) << 32) | Math.max(0, Math.min(count + delta, COUNT_MASK));
+                if (cells.compareAndSet(index, current, updated)) {
+                    break;
+                }
+            }
+        }
+    }
+
+    private double estimate(String key, long now) {
+        long window = now / windowMillis;
+        double previousWeight = 1.0 - (double) (now % windowMillis) / windowMillis;
+        byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+        double min = Double.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            long hash = hash(row, bytes);
+            long current = countFor(cellIndex(row, hash, (int) (window & 1)), window);
+            long previous = countFor(cellIndex(row, hash, (int) ((window - 1) & 1)), window - 1);
+            min = Math.min(min, current + previous * previousWeight);
+        }
+        return min;
+    }
+
+    private long countFor(int index, long window) {
+        long cell = cells.get(index);
+        return (cell >>> 32) == (window & COUNT_MASK) ? cell & COUNT_MASK : 0;
+    }
+
+    private int cellIndex(int row, long hash, int slot) {
+        int column = (int) hash & widthMask;
+        return ((row * (widthMask + 1)) + column) * SLOTS + slot;
+    }
+
+    private long hash(int row, byte[] data) {
+        return sipHash24(rowKeys[row * 2], rowKeys[row * 2 + 1], data);
+    }
+
+    /**
+     * SipHash-2-4 of {@code data} under the 128-bit key {@code k0, k1}.
+     */
+    static long sipHash24(long k0, long k1, byte[] data) {
+        long[] v = {k0 ^ 0x736f6d6570736575L, k1 ^ 0x646f72616e646f6dL,
+                k0 ^ 0x6c7967656e657261L, k1 ^ 0x7465646279746573L};
+        int blocks = data.length & ~7;
+        for (int i = 0; i < blocks; i += 8) {
+            long m = 0;
+            for (int b = 7; b >= 0; b--) {
+                m = (m << 8) | (data[i + b] & 0xFFL);
+            }
+            compress(v, m);
+        }
+        long last = ((long) data.length & 0xFF) << 56;
+        for (int b = data.length - blocks - 1; b >= 0; b--) {
+            last |= (data[blocks + b] & 0xFFL) << (8 * b);
+        }
+        compress(v, last);
+        v[2] ^= 0xFF;
+        for (int round = 0; round < 4; round++) {
+            sipRound(v);
+        }
+        return v[0] ^ v[1] ^ v[2] ^ v[3];
+    }
+
+    private static void compress(long[] v, long m) {
+        v[3] ^= m;
+        sipRound(v);
+        sipRound(v);
+        v[0] ^= m;
+    }
+
+    private static void sipRound(long[] v) {
+        v[0] += v[1];
+        v[1] = Long.rotateLeft(v[1], 13) ^ v[0];
+        v[0] = Long.rotateLeft(v[0], 32);
+        v[2] += v[3];
+        v[3] = Long.rotateLeft(v[3], 16) ^ v[2];
+        v[0] += v[3];
+        v[3] = Long.rotateLeft(v[3], 21) ^ v[0];
+        v[2] += v[1];
+        v[1] = Long.rotateLeft(v[1], 17) ^ v[2];
+        v[2] = Long.rotateLeft(v[2], 32);
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.todo.service;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.annotation.Resource;
+import javax.enterprise.context.ApplicationScoped;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Decides where a read runs: in the caller's transaction, on the primary persistence unit, or
+ * on the read-only ones ({@code todoReadPU}, ...), which have their own connection pools.
+ *
+ * Reads of data changed through the same key (a user's todos, a username) within the last
+ * {@code todo.reads.primaryWindowMillis} go to the primary, counted from the commit, so users
+ * see their own writes even when the read datasources point at a lagging replica.
+ */
+@ApplicationScoped
+public class ReadRouting {
+    private static final Logger logger = LogManager.getLogger(ReadRouting.class);
+    private static final long WINDOW_NANOS =
+            TimeUnit.MILLISECONDS.toNanos(Long.getLong("todo.reads.primaryWindowMillis", 2000L));
+    private static final int SWEEP_INTERVAL = 1024;
+
+    public enum Source {
+        /** The caller's transaction, which must see its own changes. */
+        TRANSACTION,
+        /** The primary persistence unit, outside a transaction. */
+        PRIMARY,
+        /** The read-only persistence unit. */
+        REPLICA
+    }
+
+    private final Map<Object, Long> lastWrites = new ConcurrentHashMap<>();
+    private final AtomicInteger writesSinceSweep = new AtomicInteger();
+
+    @Resource
+    private TransactionSynchronizationRegistry transactionRegistry;
+
+    public Source route(Object key) {
+        if (transactionRegistry != null && transactionRegistry.getTransactionStatus() == Status.STATUS_ACTIVE) {
+            return Source.TRANSACTION;
+        }
+        Long written = lastWrites.get(key);
+        if (written != null) {
+            if (System.nanoTime() - written < WINDOW_NANOS) {
+                logger.trace("Reading {} from the primary after a recent write", key);
+                return Source.PRIMARY;
+            }
+            lastWrites.remove(key, written);
+        }
+        return Source.REPLICA;
+    }
+
+    /**
+     * Sends reads for {@code key} to the primary until the window has passed after the
+     * current transaction completes.
+     */
+    public void markWritten(Object key) {
+        stamp(key);
+        if (transactionRegistry != null && transactionRegistry.getTransactionStatus() == Status.STATUS_ACTIVE) {
+            transactionRegistry.registerInterposedSynchronization(new Synchronization() {
+                @Override
+                public void beforeCompletion() {
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    stamp(key);
+                }
+            });
+        }
+        if (writesSinceSweep.incrementAndGet() >= SWEEP_INTERVAL) {
+            writesSinceSweep.set(0);
+            long now = System.nanoTime();
+            lastWrites.values().removeIf(written -> now - written >= WINDOW_NANOS);
+        }
+    }
+
+    private void stamp(Object key) {
+        lastWrites.put(key, System.nanoTime());
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.todo.service;
+
+import com.example.todo.shard.ShardDirectory;
+import com.example.todo.shard.ShardRouter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.ejb.Lock;
+import javax.ejb.LockType;
+import javax.ejb.Schedule;
+import javax.ejb.Singleton;
+import javax.ejb.TransactionManagement;
+import javax.ejb.TransactionManagementType;
+import javax.inject.Inject;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Moves todos completed more than {@code todo.archive.afterDays} days ago from {@code todos}
+ * to {@code todos_archive}, every hour, so the lists and the user index only cover live
+ * todos.
+ *
+ * Each shard is scanned for users with such todos, which are then archived per user in chunks
+ * of {@code todo.archive.chunkSize}, each chunk in a transaction of its own (see
+ * {@link TodoService#archiveCompleted}). Row locks are thus held for one short statement, and
+ * a chunk waits for a move of its user to another shard like any other transaction.
+ */
+@Singleton
+@Lock(LockType.READ)
+@TransactionManagement(TransactionManagementType.BEAN)
+public class TodoArchiver {
+    private static final Logger logger = LogManager.getLogger(TodoArchiver.class);
+    private static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("todo.archive.enabled", "true"));
+    private static final int AFTER_DAYS = Integer.getInteger("todo.archive.afterDays", 30);
+    private static final int CHUNK_SIZE = Integer.getInteger("todo.archive.chunkSize", 500);
+    private static final long PAUSE_MILLIS = Long.getLong("todo.archive.pauseMillis", 20L);
+
+    @Inject
+    private TodoService todoService;
+
+    @Inject
+    private ShardRouter router;
+
+    @Inject
+    private ShardDirectory directory;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile String lastResult = "Archival has not run yet";
+
+    @Schedule(minute = "17", hour = "*", persistent = false)
+    public void scheduled() {
+        if (ENABLED) {
+            archive();
+        }
+    }
+
+    /**
+     * Archives every todo that is due now.
+     *
+     * @return a summary of the run, or null if a run is already in progress
+     */
+    public String archive() {
+        if (!running.compareAndSet(false, true)) {
+            return null;
+        }
+        try {
+            long start = System.nanoTime();
+            LocalDateTime cutoff = LocalDateTime.now().minusDays(AFTER_DAYS);
+            int users = 0;
+            int failed = 0;
+            long archived = 0;
+            for (String shard : router.getShards()) {
+                for (Long userId : usersWithCompletedBefore(shard, cutoff)) {
+                    try {
+                        archived += archiveUser(userId, cutoff);
+                        users++;
+                    } catch (RuntimeException e) {
+                        logger.error("Failed to archive todos of user id: {} on shard {}", userId, shard, e);
+                        failed++;
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        logger.warn("Archival interrupted after {} todo(s)", archived);
+                        return lastResult = "Interrupted after archiving " + archived + " todo(s)";
+                    }
+                }
+            }
+            lastResult = String.format(Locale.ROOT, "Archived %d todo(s) completed before %s for %d user(s) in %d ms%s",
+                    archived, cutoff.withNano(0), users, (System.nanoTime() - start) / 1_000_000,
+                    failed > 0 ? ", " + failed + " user(s) failed" : "");
+            logger.info(lastResult);
+            return lastResult;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    public String getLastResult() {
+        return lastResult;
+    }
+
+    private long archiveUser(Long userId, LocalDateTime cutoff) throws InterruptedException {
+        long archived = 0;
+        int chunk;
+        do {
+            chunk = todoService.archiveCompleted(userId, cutoff, CHUNK_SIZE);
+            archived += chunk;
+            if (chunk == CHUNK_SIZE && PAUSE_MILLIS > 0) {
+                // Leave room for requests between chunks
+                Thread.sleep(PAUSE_MILLIS);
+            }
+        } while (chunk == CHUNK_SIZE);
+        return archived;
+    }
+
+    private List<Long> usersWithCompletedBefore(String shard, LocalDateTime cutoff) {
+        List<Long> users = new ArrayList<>();
+        try (Connection connection = directory.dataSource(shard).getConnection();
+             PreparedStatement select = connection.prepareStatement(
+                     "SELECT DISTINCT user_id FROM todos WHERE completed = TRUE AND completedDate < ?")) {
+            select.setTimestamp(1, Timestamp.valueOf(cutoff));
+            try (ResultSet rs = select.executeQuery()) {
+                while (rs.next()) {
+                    users.add(rs.getLong(1));
+                }
+            }
+        } catch (SQLException e) {
+            logger.error("Failed to find todos to archive on shard {}", shard, e);
+        }
+        return users;
+    }
+}
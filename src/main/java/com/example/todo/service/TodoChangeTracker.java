@@ -0,0 +1,58 @@
+package com.example.todo.service;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.annotation.Resource;
+import javax.enterprise.context.ApplicationScoped;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-user change counter for todos, used to derive ETags for conditional requests.
+ *
+ * The counter is bumped when a change starts and again once its transaction completes, so a
+ * version handed out while the transaction was in flight is never reused for the committed
+ * data. An epoch chosen at startup keeps versions from colliding across restarts.
+ */
+@ApplicationScoped
+public class TodoChangeTracker {
+    private static final Logger logger = LogManager.getLogger(TodoChangeTracker.class);
+
+    private final long epoch = ThreadLocalRandom.current().nextLong(Long.MAX_VALUE);
+    private final Map<Long, AtomicLong> versions = new ConcurrentHashMap<>();
+
+    @Resource
+    private TransactionSynchronizationRegistry transactionRegistry;
+
+    public String getVersion(Long userId) {
+        AtomicLong version = versions.get(userId);
+        return Long.toString(epoch, 36) + "." + (version != null ? version.get() : 0);
+    }
+
+    public void markChanged(Long userId) {
+        increment(userId);
+        if (transactionRegistry != null && transactionRegistry.getTransactionStatus() == Status.STATUS_ACTIVE) {
+            transactionRegistry.registerInterposedSynchronization(new Synchronization() {
+                @Override
+                public void beforeCompletion() {
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    increment(userId);
+                }
+            });
+        }
+    }
+
+    private void increment(Long userId) {
+        long version = versions.computeIfAbsent(userId, id -> new AtomicLong()).incrementAndGet();
+        logger.trace("Todo version for user {} is now {}", userId, version);
+    }
+}
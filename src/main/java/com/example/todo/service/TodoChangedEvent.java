@@ -0,0 +1,34 @@
+package com.example.todo.service;
+
+/**
+ * CDI event fired by {@link TodoService} for every created, updated or deleted todo. Bulk
+ * changes too large to list, such as an import, fire one event without a todo id.
+ */
+public class TodoChangedEvent {
+    private final Long userId;
+    private final Long todoId;
+    private final boolean removed;
+
+    public TodoChangedEvent(Long userId, Long todoId, boolean removed) {
+        this.userId = userId;
+        this.todoId = todoId;
+        this.removed = removed;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public Long getTodoId() {
+        return todoId;
+    }
+
+    public boolean isRemoved() {
+        return removed;
+    }
+
+    @Override
+    public String toString() {
+        return "TodoChangedEvent{userId=" + userId + ", todoId=" + todoId + ", removed=" + removed + "}";
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.todo.service;
+
+import com.example.todo.trace.RequestTrace;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.enterprise.event.TransactionPhase;
+import javax.enterprise.concurrent.ManagedScheduledExecutorService;
+import javax.faces.push.Push;
+import javax.faces.push.PushContext;
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pushes committed todo changes to every open todo list of the owning user over the JSF
+ * {@code todoChanges} WebSocket channel (see {@code <f:websocket>} in {@code list.xhtml}).
+ *
+ * Changes are coalesced per user for a short window so a burst of edits, such as a batch
+ * import, becomes one small message listing the affected todo ids; clients fetch and apply
+ * only those rows. Bursts larger than {@code todo.push.maxChangesPerMessage}, and bulk
+ * changes without todo ids, are sent as a resync message instead.
+ *
+ * Tuning is done through system properties:
+ * <ul>
+ *   <li>{@code todo.push.coalesceMillis} - coalescing window per user (default 250)</li>
+ *   <li>{@code todo.push.maxChangesPerMessage} - ids per message before a resync is sent (default 100)</li>
+ * </ul>
+ */
+@ApplicationScoped
+public class TodoPushService {
+    private static final Logger logger = LogManager.getLogger(TodoPushService.class);
+
+    static final String ACTION_UPSERT = "upsert";
+    static final String ACTION_REMOVE = "remove";
+
+    private long coalesceMillis;
+    private int maxChangesPerMessage;
+
+    /**
+     * Changes per user awaiting their flush. Only touched inside {@code compute} and
+     * {@code remove}, so a change is either in the map a flush takes or starts a new one that
+     * schedules the next flush.
+     */
+    private final Map<Long, Map<Long, String>> pending = new ConcurrentHashMap<>();
+
+    @Resource
+    private ManagedScheduledExecutorService scheduler;
+
+    @Inject
+    @Push(channel = "todoChanges")
+    private PushContext todoChanges;
+
+    @PostConstruct
+    public void init() {
+        coalesceMillis = Long.getLong("todo.push.coalesceMillis", 250L);
+        maxChangesPerMessage = Integer.getInteger("todo.push.maxChangesPerMessage", 100);
+        logger.info("TodoPushService initialized: coalesce window {} ms, max {} changes per message",
+                coalesceMillis, maxChangesPerMessage);
+    }
+
+    /**
+     * Queues a change once its transaction has committed; rolled back changes are never pushed.
+     */
+    public void onTodoChanged(@Observes(during = TransactionPhase.AFTER_SUCCESS) TodoChangedEvent event) {
+        Long userId = event.getUserId();
+        if (userId == null) {
+            return;
+        }
+        boolean[] first = new boolean[1];
+        pending.compute(userId, (id, changes) -> {
+            if (changes == null) {
+                changes = new LinkedHashMap<>();
+                first[0] = true;
+            }
+            changes.put(event.getTodoId(), event.isRemoved() ? ACTION_REMOVE : ACTION_UPSERT);
+            return changes;
+        });
+
+        if (first[0]) {
+            scheduler.schedule(RequestTrace.propagate(() -> flush(userId)), coalesceMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void flush(Long userId) {
+        // Once removed, the map is no longer written to; later changes start a new one
+        Map<Long, String> changes = pending.remove(userId);
+        if (changes == null || changes.isEmpty()) {
+            return;
+        }
+
+        Map<String, Object> message = new LinkedHashMap<>();
+        if (changes.size() > maxChangesPerMessage || changes.containsKey(null)) {
+            message.put("resync", true);
+        } else {
+            List<Long> upserted = new ArrayList<>();
+            List<Long> removed = new ArrayList<>();
+            changes.forEach((todoId, action) -> (ACTION_REMOVE.equals(action) ? removed : upserted).add(todoId));
+            message.put("upserted", upserted);
+            message.put("removed", removed);
+        }
+
+        try {
+            todoChanges.send(message, userId);
+            logger.debug("Pushed {} todo change(s) to user id: {}", changes.size(), userId);
+        } catch (RuntimeException e) {
+            logger.warn("Failed to push todo changes to user id {}: {}", userId, e.getMessage());
+        }
+    }
+}
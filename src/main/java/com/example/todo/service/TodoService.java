@@ -1,25 +1,108 @@
 package com.example.todo.service;
 
+import com.example.todo.audit.AuditTrail;
+import com.example.todo.logging.TodoMutationMessage;
+import com.example.todo.logging.TodoMutationMessage.Operation;
+import com.example.todo.model.ArchivedTodo;
 import com.example.todo.model.Todo;
+import com.example.todo.metrics.Instrumented;
 import com.example.todo.model.User;
+import com.example.todo.shard.ShardRouter;
+import com.example.todo.shard.ShardingConfig;
+import com.example.todo.trace.Traced;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.eclipse.persistence.config.HintValues;
+import org.eclipse.persistence.config.QueryHints;
+import org.eclipse.persistence.queries.ScrollableCursor;
 
+import javax.annotation.Resource;
+import javax.ejb.SessionContext;
 import javax.ejb.Stateless;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.enterprise.event.Event;
+import javax.inject.Inject;
+import javax.persistence.Cache;
 import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
 import javax.persistence.PersistenceContext;
+import javax.persistence.PersistenceContexts;
+import javax.persistence.PersistenceException;
+import javax.persistence.PersistenceUnit;
+import javax.persistence.PersistenceUnits;
+import javax.persistence.Query;
 import javax.persistence.TypedQuery;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
+/**
+ * Todo operations. Every operation works on one user's todos, in the persistence unit of the
+ * shard that {@link ShardRouter} picks for the user.
+ *
+ * Reads called outside a transaction run without one, on the shard's read-only persistence
+ * unit unless {@link ReadRouting} sends them to the primary after a recent write.
+ */
 @Stateless
+@Traced
+@Instrumented
+@PersistenceContexts({
+        @PersistenceContext(name = "persistence/todoPU", unitName = "todoPU"),
+        @PersistenceContext(name = "persistence/todoShard1PU", unitName = "todoShard1PU"),
+        @PersistenceContext(name = "persistence/todoShard2PU", unitName = "todoShard2PU"),
+        @PersistenceContext(name = "persistence/todoShard3PU", unitName = "todoShard3PU")
+})
+@PersistenceUnits({
+        @PersistenceUnit(name = "persistence/factory/todoPU", unitName = "todoPU"),
+        @PersistenceUnit(name = "persistence/factory/todoShard1PU", unitName = "todoShard1PU"),
+        @PersistenceUnit(name = "persistence/factory/todoShard2PU", unitName = "todoShard2PU"),
+        @PersistenceUnit(name = "persistence/factory/todoShard3PU", unitName = "todoShard3PU"),
+        @PersistenceUnit(name = "persistence/factory/todoReadPU", unitName = "todoReadPU"),
+        @PersistenceUnit(name = "persistence/factory/todoShard1ReadPU", unitName = "todoShard1ReadPU"),
+        @PersistenceUnit(name = "persistence/factory/todoShard2ReadPU", unitName = "todoShard2ReadPU"),
+        @PersistenceUnit(name = "persistence/factory/todoShard3ReadPU", unitName = "todoShard3ReadPU")
+})
 public class TodoService {
     private static final Logger logger = LogManager.getLogger(TodoService.class);
+    private static final String PENDING_AUDIT_KEY = TodoService.class.getName() + ".pendingAudit";
 
-    @PersistenceContext(unitName = "todoPU")
-    private EntityManager em;
+    @Resource
+    private SessionContext context;
+
+    @Resource
+    private TransactionSynchronizationRegistry transactionRegistry;
+
+    @Inject
+    private ShardRouter shardRouter;
+
+    private final Map<String, EntityManager> entityManagers = new HashMap<>();
+    private final Map<String, EntityManagerFactory> factories = new HashMap<>();
+
+    @Inject
+    private TodoChangeTracker changeTracker;
+
+    @Inject
+    private ReadRouting readRouting;
+
+    @Inject
+    private Event<TodoChangedEvent> todoChanged;
 
     public Todo createTodo(String title, String description, User user) {
-        logger.info("Creating new todo for user: {}", user.getUsername());
+        EntityManager em = em(user.getId());
         // Ensure the User entity is managed in this persistence context
         User managedUser = em.find(User.class, user.getId());
         if (managedUser == null) {
@@ -28,46 +111,386 @@ public class TodoService {
         Todo todo = new Todo(title, description, managedUser);
         em.persist(todo);
         em.flush(); // Flush to ensure the entity is immediately available for queries
-        logger.info("Todo created successfully with id: {}", todo.getId());
+        markChanged(todo, false);
+        audit(TodoMutationMessage.of(Operation.CREATE, todo));
         return todo;
     }
 
+    /**
+     * Creates several todos for one user in a single transaction.
+     */
+    public List<Todo> createTodos(List<Todo> drafts, Long userId) {
+        EntityManager em = em(userId);
+        User user = em.getReference(User.class, userId);
+        List<Todo> created = new ArrayList<>(drafts.size());
+        for (Todo draft : drafts) {
+            Todo todo = new Todo(draft.getTitle(), draft.getDescription(), user);
+            if (Boolean.TRUE.equals(draft.getCompleted())) {
+                todo.setCompleted(true);
+            }
+            em.persist(todo);
+            created.add(todo);
+        }
+        em.flush();
+        changeTracker.markChanged(userId);
+        readRouting.markWritten(userId);
+        for (Todo todo : created) {
+            todoChanged.fire(new TodoChangedEvent(userId, todo.getId(), false));
+        }
+        audit(TodoMutationMessage.bulk(Operation.CREATE, userId, created.size()));
+        return created;
+    }
+
+    /**
+     * Inserts imported todos for a user with one JDBC batch on the transaction's connection.
+     * EclipseLink cannot batch inserts into identity columns, so the rows bypass the
+     * persistence context; H2 assigns their ids. Creation dates default to now, and the batch
+     * is audited and pushed as one bulk change rather than per todo.
+     *
+     * @return the number of todos inserted
+     */
+    public int importTodos(List<Todo> drafts, Long userId) {
+        Connection connection = em(userId).unwrap(Connection.class);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO todos (title, description, completed, createdDate, completedDate, user_id) VALUES (?, ?, ?, ?, ?, ?)")) {
+            for (Todo draft : drafts) {
+                insert.setString(1, draft.getTitle());
+                insert.setString(2, draft.getDescription());
+                insert.setBoolean(3, Boolean.TRUE.equals(draft.getCompleted()));
+                insert.setTimestamp(4, draft.getCreatedDate() != null ? Timestamp.valueOf(draft.getCreatedDate()) : now);
+                insert.setTimestamp(5, draft.getCompletedDate() != null ? Timestamp.valueOf(draft.getCompletedDate()) : null);
+                insert.setLong(6, userId);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        } catch (SQLException e) {
+            throw new PersistenceException("Failed to import " + drafts.size() + " todos for user id " + userId, e);
+        }
+        changeTracker.markChanged(userId);
+        readRouting.markWritten(userId);
+        todoChanged.fire(new TodoChangedEvent(userId, null, false));
+        audit(TodoMutationMessage.bulk(Operation.CREATE, userId, drafts.size()));
+        return drafts.size();
+    }
+
+    /**
+     * Moves up to {@code maxTodos} of the user's todos completed before {@code cutoff} to
+     * {@code todos_archive}, in one statement on the transaction's connection: the rows are
+     * deleted and inserted together, so a todo reopened meanwhile is never archived. The
+     * archived todos are evicted from the cache once the transaction commits.
+     *
+     * @return the number of todos archived
+     */
+    public int archiveCompleted(Long userId, LocalDateTime cutoff, int maxTodos) {
+        EntityManager em = em(userId);
+        Connection connection = em.unwrap(Connection.class);
+        List<Long> archived = new ArrayList<>();
+        try (PreparedStatement move = connection.prepareStatement(
+                "SELECT id FROM FINAL TABLE (INSERT INTO todos_archive "
+                        + "(id, title, description, completed, createdDate, completedDate, user_id, archivedDate) "
+                        + "SELECT id, title, description, completed, createdDate, completedDate, user_id, ? "
+                        + "FROM OLD TABLE (DELETE FROM todos WHERE user_id = ? AND completed = TRUE AND completedDate < ? "
+                        + "FETCH FIRST ? ROWS ONLY))")) {
+            move.setTimestamp(1, Timestamp.valueOf(LocalDateTime.now()));
+            move.setLong(2, userId);
+            move.setTimestamp(3, Timestamp.valueOf(cutoff));
+            move.setInt(4, maxTodos);
+            try (ResultSet rs = move.executeQuery()) {
+                while (rs.next()) {
+                    archived.add(rs.getLong(1));
+                }
+            }
+        } catch (SQLException e) {
+            throw new PersistenceException("Failed to archive completed todos of user id " + userId, e);
+        }
+        if (archived.isEmpty()) {
+            return 0;
+        }
+
+        Cache cache = em.getEntityManagerFactory().getCache();
+        transactionRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == Status.STATUS_COMMITTED) {
+                    archived.forEach(id -> cache.evict(Todo.class, id));
+                    cache.evict(User.class, userId);
+                }
+            }
+        });
+        changeTracker.markChanged(userId);
+        readRouting.markWritten(userId);
+        for (Long id : archived) {
+            todoChanged.fire(new TodoChangedEvent(userId, id, true));
+        }
+        audit(TodoMutationMessage.bulk(Operation.ARCHIVE, userId, archived.size()));
+        return archived.size();
+    }
+
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
     public List<Todo> findByUser(Long userId) {
         logger.debug("Finding todos for user id: {}", userId);
-        TypedQuery<Todo> query = em.createNamedQuery("Todo.findByUser", Todo.class);
-        query.setParameter("userId", userId);
-        List<Todo> result = query.getResultList();
+        List<Todo> result = read(userId, em -> {
+            TypedQuery<Todo> query = em.createNamedQuery("Todo.findByUser", Todo.class);
+            query.setParameter("userId", userId);
+            return query.getResultList();
+        });
         logger.debug("Found {} todos for user id: {}", result.size(), userId);
         return result;
     }
 
-    public Todo findById(Long id) {
-        logger.debug("Finding todo by id: {}", id);
-        return em.find(Todo.class, id);
+    /**
+     * Streams up to {@code maxResults} of a user's todos, newest id first, starting below
+     * {@code beforeId} (null for the first page). Rows are read through a database cursor
+     * and handed to the consumer one at a time without being kept in the persistence context
+     * or the cache, so memory stays flat however many rows are streamed.
+     *
+     * @return the number of todos passed to the consumer
+     */
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
+    public int forEachByUser(Long userId, Long beforeId, int maxResults, Consumer<Todo> consumer) {
+        logger.debug("Streaming up to {} todos for user id: {} before id: {}", maxResults, userId, beforeId);
+        int count = read(userId, em -> {
+            Query query = em.createNamedQuery("Todo.findByUserBefore");
+            query.setParameter("userId", userId);
+            query.setParameter("beforeId", beforeId != null ? beforeId : Long.MAX_VALUE);
+            query.setMaxResults(maxResults);
+            query.setHint(QueryHints.SCROLLABLE_CURSOR, HintValues.TRUE);
+            query.setHint(QueryHints.READ_ONLY, HintValues.TRUE);
+            query.setHint(QueryHints.MAINTAIN_CACHE, HintValues.FALSE);
+
+            ScrollableCursor cursor = (ScrollableCursor) query.getSingleResult();
+            int streamed = 0;
+            try {
+                while (cursor.hasNext()) {
+                    consumer.accept((Todo) cursor.next());
+                    streamed++;
+                }
+            } finally {
+                cursor.close();
+            }
+            return streamed;
+        });
+        logger.debug("Streamed {} todos for user id: {}", count, userId);
+        return count;
+    }
+
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
+    public long countByUser(Long userId) {
+        logger.debug("Counting todos for user id: {}", userId);
+        return read(userId, em -> {
+            TypedQuery<Long> query = em.createNamedQuery("Todo.countByUser", Long.class);
+            query.setParameter("userId", userId);
+            return query.getSingleResult();
+        });
+    }
+
+    /**
+     * Returns up to {@code maxResults} of the user's archived todos, newest id first, starting
+     * below {@code beforeId} (null for the first page). Only read on demand, so the lists of
+     * current todos never touch the archive.
+     */
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
+    public List<ArchivedTodo> findArchivedByUser(Long userId, Long beforeId, int maxResults) {
+        logger.debug("Finding up to {} archived todos for user id: {} before id: {}", maxResults, userId, beforeId);
+        return read(userId, em -> {
+            TypedQuery<ArchivedTodo> query = em.createNamedQuery("ArchivedTodo.findByUserBefore", ArchivedTodo.class);
+            query.setParameter("userId", userId);
+            query.setParameter("beforeId", beforeId != null ? beforeId : Long.MAX_VALUE);
+            query.setMaxResults(maxResults);
+            return query.getResultList();
+        });
     }
 
-    public Todo updateTodo(Todo todo) {
-        logger.info("Updating todo with id: {}", todo.getId());
-        return em.merge(todo);
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
+    public long countArchivedByUser(Long userId) {
+        return read(userId, em -> {
+            TypedQuery<Long> query = em.createNamedQuery("ArchivedTodo.countByUser", Long.class);
+            query.setParameter("userId", userId);
+            return query.getSingleResult();
+        });
     }
 
-    public void deleteTodo(Long id) {
-        logger.info("Deleting todo with id: {}", id);
-        Todo todo = em.find(Todo.class, id);
+    /**
+     * Returns the todo only if it belongs to the given user; the owner is part of the query, so
+     * an id sent by a client never reaches another user's todo. Within a transaction the todo
+     * is managed by it; otherwise it is detached.
+     */
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
+    public Todo findByIdForUser(Long id, Long userId) {
+        if (id == null || userId == null) {
+            return null;
+        }
+        return read(userId, em -> {
+            List<Todo> todos = em.createNamedQuery("Todo.findByIdAndUser", Todo.class)
+                    .setParameter("id", id)
+                    .setParameter("userId", userId)
+                    .getResultList();
+            return todos.isEmpty() ? null : todos.get(0);
+        });
+    }
+
+    /**
+     * The given todos that belong to the user, in no particular order, with one owner-scoped
+     * query; ids of other users' todos are left out like missing ones.
+     */
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
+    public List<Todo> findByIdsForUser(Collection<Long> ids, Long userId) {
+        if (ids == null || ids.isEmpty() || userId == null) {
+            return new ArrayList<>();
+        }
+        return read(userId, em -> em.createNamedQuery("Todo.findByIdsAndUser", Todo.class)
+                .setParameter("ids", ids)
+                .setParameter("userId", userId)
+                .getResultList());
+    }
+
+    /**
+     * Sets the title and description of one of the user's todos. The todo is loaded in this
+     * transaction, so columns changed meanwhile by another session are kept rather than
+     * overwritten with a stale copy.
+     *
+     * @return the updated todo, or null if it does not exist or belongs to another user
+     */
+    public Todo updateTodo(Long id, Long userId, String title, String description) {
+        Todo todo = findByIdForUser(id, userId);
+        if (todo != null) {
+            todo.setTitle(title);
+            todo.setDescription(description);
+            markChanged(todo, false);
+            audit(TodoMutationMessage.of(Operation.UPDATE, todo));
+        }
+        return todo;
+    }
+
+    /**
+     * Applies title, description and completion changes to several of a user's todos in a
+     * single transaction. Todos that do not exist or belong to another user are skipped.
+     *
+     * @return the updated todos, in request order
+     */
+    public List<Todo> updateTodos(List<Todo> changes, Long userId) {
+        List<Todo> updated = new ArrayList<>(changes.size());
+        for (Todo change : changes) {
+            Todo todo = findByIdForUser(change.getId(), userId);
+            if (todo == null) {
+                logger.warn("Skipping update of todo id: {} - not found for user id: {}", change.getId(), userId);
+                continue;
+            }
+            if (change.getTitle() != null) {
+                todo.setTitle(change.getTitle());
+            }
+            if (change.getDescription() != null) {
+                todo.setDescription(change.getDescription());
+            }
+            if (change.getCompleted() != null) {
+                todo.setCompleted(change.getCompleted());
+            }
+            updated.add(todo);
+            todoChanged.fire(new TodoChangedEvent(userId, todo.getId(), false));
+        }
+        changeTracker.markChanged(userId);
+        readRouting.markWritten(userId);
+        audit(TodoMutationMessage.bulk(Operation.UPDATE, userId, updated.size()));
+        return updated;
+    }
+
+    public void deleteTodo(Long id, Long userId) {
+        Todo todo = findByIdForUser(id, userId);
         if (todo != null) {
-            em.remove(todo);
-            logger.info("Todo deleted successfully: {}", id);
+            em(userId).remove(todo);
+            markChanged(todo, true);
+            audit(TodoMutationMessage.of(Operation.DELETE, todo));
         }
     }
 
-    public void toggleComplete(Long id) {
-        logger.info("Toggling completion status for todo id: {}", id);
-        Todo todo = em.find(Todo.class, id);
+    public Todo toggleComplete(Long id, Long userId) {
+        Todo todo = findByIdForUser(id, userId);
         if (todo != null) {
             todo.setCompleted(!todo.getCompleted());
-            em.merge(todo);
-            logger.info("Todo completion status updated: {}", id);
+            markChanged(todo, false);
+            audit(TodoMutationMessage.of(Operation.TOGGLE, todo));
         }
+        return todo;
+    }
+
+    /**
+     * Bumps the owner's change version and fires a {@link TodoChangedEvent}, which observers
+     * such as {@link TodoPushService} receive once the transaction commits.
+     */
+    private void markChanged(Todo todo, boolean removed) {
+        if (todo.getUser() != null) {
+            Long userId = todo.getUser().getId();
+            changeTracker.markChanged(userId);
+            readRouting.markWritten(userId);
+            todoChanged.fire(new TodoChangedEvent(userId, todo.getId(), removed));
+        }
+    }
+
+    /**
+     * Logs the mutation to the audit trail once the transaction commits, so rolled back
+     * changes are never audited; outside a transaction it is logged right away.
+     */
+    private void audit(TodoMutationMessage mutation) {
+        if (transactionRegistry.getTransactionStatus() != Status.STATUS_ACTIVE) {
+            logger.info(AuditTrail.MARKER, mutation);
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        List<TodoMutationMessage> pending = (List<TodoMutationMessage>) transactionRegistry.getResource(PENDING_AUDIT_KEY);
+        if (pending == null) {
+            List<TodoMutationMessage> mutations = new ArrayList<>();
+            transactionRegistry.putResource(PENDING_AUDIT_KEY, mutations);
+            transactionRegistry.registerInterposedSynchronization(new Synchronization() {
+                @Override
+                public void beforeCompletion() {
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == Status.STATUS_COMMITTED) {
+                        mutations.forEach(committed -> logger.info(AuditTrail.MARKER, committed));
+                    }
+                }
+            });
+            pending = mutations;
+        }
+        pending.add(mutation);
+    }
+
+    /**
+     * The user's shard's entity manager; the container's proxies can be kept across calls.
+     */
+    private EntityManager em(Long userId) {
+        return entityManagers.computeIfAbsent(shardRouter.unitFor(userId),
+                unit -> (EntityManager) context.lookup("persistence/" + unit));
     }
-}
 
+    /**
+     * Runs a read in the current transaction, or else in an entity manager of its own on the
+     * unit {@link ReadRouting} picks, closed once the read is done.
+     */
+    private <T> T read(Long userId, Function<EntityManager, T> query) {
+        ReadRouting.Source source = readRouting.route(userId);
+        if (source == ReadRouting.Source.TRANSACTION) {
+            return query.apply(em(userId));
+        }
+        String unit = shardRouter.unitFor(userId);
+        EntityManager em = factory(source == ReadRouting.Source.PRIMARY ? unit : ShardingConfig.readUnitName(unit))
+                .createEntityManager();
+        try {
+            return query.apply(em);
+        } finally {
+            em.close();
+        }
+    }
+
+    private EntityManagerFactory factory(String unit) {
+        return factories.computeIfAbsent(unit,
+                name -> (EntityManagerFactory) context.lookup("persistence/factory/" + name));
+    }
+}
@@ -1,33 +1,75 @@
 package com.example.todo.service;
 
+import com.example.todo.metrics.Instrumented;
 import com.example.todo.model.User;
+import com.example.todo.realm.PasswordHashService;
+import com.example.todo.trace.Traced;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import javax.ejb.Stateless;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.inject.Inject;
 import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
 import javax.persistence.PersistenceContext;
+import javax.persistence.PersistenceUnit;
 import javax.persistence.TypedQuery;
 import java.util.List;
 
 @Stateless
+@Traced
+@Instrumented
 public class UserService {
     private static final Logger logger = LogManager.getLogger(UserService.class);
 
     @PersistenceContext(unitName = "todoPU")
     private EntityManager em;
 
+    @PersistenceUnit(unitName = "todoPU")
+    private EntityManagerFactory primaryFactory;
+
+    @PersistenceUnit(unitName = "todoReadPU")
+    private EntityManagerFactory readFactory;
+
+    @Inject
+    private ReadRouting readRouting;
+
+    @Inject
+    private PasswordHashService passwordHashService;
+
     public User createUser(String username, String password, String email, String fullName) {
         logger.info("Creating new user: {}", username);
-        User user = new User(username, password, email, fullName);
+        String hashedPassword = passwordHashService.hash(password.toCharArray());
+        User user = new User(username, hashedPassword, email, fullName);
         em.persist(user);
+        readRouting.markWritten(routingKey(username));
         logger.info("User created successfully: {}", username);
         return user;
     }
 
+    /**
+     * Looks the user up in the current transaction if there is one, otherwise on the unit
+     * {@link ReadRouting} picks; the user is then detached.
+     */
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
     public User findByUsername(String username) {
         logger.debug("Finding user by username: {}", username);
-        TypedQuery<User> query = em.createNamedQuery("User.findByUsername", User.class);
+        ReadRouting.Source source = readRouting.route(routingKey(username));
+        if (source == ReadRouting.Source.TRANSACTION) {
+            return findByUsername(em, username);
+        }
+        EntityManager readEm = (source == ReadRouting.Source.PRIMARY ? primaryFactory : readFactory).createEntityManager();
+        try {
+            return findByUsername(readEm, username);
+        } finally {
+            readEm.close();
+        }
+    }
+
+    private User findByUsername(EntityManager entityManager, String username) {
+        TypedQuery<User> query = entityManager.createNamedQuery("User.findByUsername", User.class);
         query.setParameter("username", username);
         List<User> users = query.getResultList();
         return users.isEmpty() ? null : users.get(0);
@@ -46,16 +88,32 @@ public class UserService {
 
     public User updateUser(User user) {
         logger.info("Updating user: {}", user.getUsername());
+        readRouting.markWritten(routingKey(user.getUsername()));
         return em.merge(user);
     }
 
+    public void updatePassword(String username, String hashedPassword) {
+        logger.info("Updating password for user: {}", username);
+        User user = findByUsername(username);
+        if (user != null) {
+            user.setPassword(hashedPassword);
+            readRouting.markWritten(routingKey(username));
+            passwordHashService.invalidate(username);
+            logger.info("Password updated for user: {}", username);
+        }
+    }
+
     public void deleteUser(Long id) {
         logger.info("Deleting user with id: {}", id);
         User user = em.find(User.class, id);
         if (user != null) {
             em.remove(user);
+            readRouting.markWritten(routingKey(user.getUsername()));
             logger.info("User deleted successfully: {}", id);
         }
     }
-}
 
+    private static String routingKey(String username) {
+        return "user:" + username;
+    }
+}
@@ -0,0 +1,204 @@
+package com.example.todo.shard;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.annotation.Resource;
+import javax.ejb.Lock;
+import javax.ejb.LockType;
+import javax.ejb.Singleton;
+import javax.ejb.TransactionManagement;
+import javax.ejb.TransactionManagementType;
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The {@code user_shards} table on the primary datasource, recording which shard holds each
+ * user's todos.
+ *
+ * Bean-managed so its statements commit on their own, outside the caller's transaction: a
+ * placement is recorded once and never rolled back with the request that needed it.
+ */
+@Singleton
+@Lock(LockType.READ)
+@TransactionManagement(TransactionManagementType.BEAN)
+public class ShardDirectory {
+    private static final Logger logger = LogManager.getLogger(ShardDirectory.class);
+
+    @Resource(lookup = "java:openejb/Resource/todoDS")
+    private DataSource primary;
+
+    private final Map<String, DataSource> dataSources = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the user's shard, placing the user on {@code target} if it has none yet.
+     */
+    public String placement(Long userId, String target) {
+        try (Connection connection = primary.getConnection()) {
+            String shard = find(connection, userId);
+            if (shard != null) {
+                return shard;
+            }
+            mirrorUser(connection, userId, target);
+            assign(connection, userId, target, null);
+            logger.info("Placed user id: {} on shard {}", userId, target);
+            return target;
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to look up the shard of user id " + userId, e);
+        }
+    }
+
+    /**
+     * Records that the user's todos now live on {@code shard}, and that copies may remain on
+     * {@code previous} until {@link #clearPrevious} is called.
+     */
+    public void assign(Long userId, String shard, String previous) {
+        try (Connection connection = primary.getConnection()) {
+            assign(connection, userId, shard, previous);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to assign user id " + userId + " to shard " + shard, e);
+        }
+    }
+
+    /**
+     * The shard the user was moved away from if its rows there have not been deleted yet.
+     */
+    public String previousShard(Long userId) {
+        try (Connection connection = primary.getConnection();
+             PreparedStatement select = connection.prepareStatement(
+                     "SELECT previous_shard FROM user_shards WHERE user_id = ?")) {
+            select.setLong(1, userId);
+            try (ResultSet rs = select.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to look up the previous shard of user id " + userId, e);
+        }
+    }
+
+    /**
+     * Records that no rows of the user are left on its previous shard.
+     */
+    public void clearPrevious(Long userId) {
+        try (Connection connection = primary.getConnection();
+             PreparedStatement update = connection.prepareStatement(
+                     "UPDATE user_shards SET previous_shard = NULL WHERE user_id = ?")) {
+            update.setLong(1, userId);
+            update.executeUpdate();
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to clear the previous shard of user id " + userId, e);
+        }
+    }
+
+    /**
+     * Users whose previous shard still holds rows, by user id; each is a move to finish.
+     */
+    public Map<Long, String> unfinishedMoves() {
+        Map<Long, String> moves = new LinkedHashMap<>();
+        try (Connection connection = primary.getConnection();
+             PreparedStatement select = connection.prepareStatement(
+                     "SELECT user_id, previous_shard FROM user_shards WHERE previous_shard IS NOT NULL ORDER BY user_id");
+             ResultSet rs = select.executeQuery()) {
+            while (rs.next()) {
+                moves.put(rs.getLong(1), rs.getString(2));
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to read unfinished shard moves", e);
+        }
+        return moves;
+    }
+
+    /**
+     * Copies the user's row to {@code shard} ahead of moving todos there.
+     */
+    public void mirrorUser(Long userId, String shard) {
+        try (Connection connection = primary.getConnection()) {
+            mirrorUser(connection, userId, shard);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to copy user id " + userId + " to shard " + shard, e);
+        }
+    }
+
+    /**
+     * Returns every recorded placement, by user id.
+     */
+    public Map<Long, String> placements() {
+        Map<Long, String> placements = new LinkedHashMap<>();
+        try (Connection connection = primary.getConnection();
+             PreparedStatement select = connection.prepareStatement("SELECT user_id, shard FROM user_shards ORDER BY user_id");
+             ResultSet rs = select.executeQuery()) {
+            while (rs.next()) {
+                placements.put(rs.getLong(1), rs.getString(2));
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to read shard placements", e);
+        }
+        return placements;
+    }
+
+    public DataSource dataSource(String shard) {
+        return dataSources.computeIfAbsent(shard, name -> {
+            try {
+                return InitialContext.doLookup(ShardingConfig.dataSourceName(name));
+            } catch (NamingException e) {
+                throw new IllegalStateException("Shard datasource " + name + " is not defined in resources.xml", e);
+            }
+        });
+    }
+
+    private String find(Connection connection, Long userId) throws SQLException {
+        try (PreparedStatement select = connection.prepareStatement("SELECT shard FROM user_shards WHERE user_id = ?")) {
+            select.setLong(1, userId);
+            try (ResultSet rs = select.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        }
+    }
+
+    private void assign(Connection connection, Long userId, String shard, String previous) throws SQLException {
+        try (PreparedStatement merge = connection.prepareStatement(
+                "MERGE INTO user_shards (user_id, shard, assigned_at, previous_shard) KEY (user_id) VALUES (?, ?, ?, ?)")) {
+            merge.setLong(1, userId);
+            merge.setString(2, shard);
+            merge.setTimestamp(3, new Timestamp(System.currentTimeMillis()));
+            merge.setString(4, previous);
+            merge.executeUpdate();
+        }
+    }
+
+    /**
+     * Copies the user's row, without the password, to a shard so its todos can reference it.
+     */
+    private void mirrorUser(Connection connection, Long userId, String shard) throws SQLException {
+        if (ShardingConfig.PRIMARY.equals(shard)) {
+            return;
+        }
+        try (PreparedStatement select = connection.prepareStatement(
+                "SELECT username, email, fullName FROM users WHERE id = ?")) {
+            select.setLong(1, userId);
+            try (ResultSet rs = select.executeQuery()) {
+                if (!rs.next()) {
+                    throw new IllegalArgumentException("No user with id " + userId);
+                }
+                try (Connection target = dataSource(shard).getConnection();
+                     PreparedStatement merge = target.prepareStatement(
+                             "MERGE INTO users (id, username, password, email, fullName) KEY (id) VALUES (?, ?, '', ?, ?)")) {
+                    merge.setLong(1, userId);
+                    merge.setString(2, rs.getString(1));
+                    merge.setString(3, rs.getString(2));
+                    merge.setString(4, rs.getString(3));
+                    merge.executeUpdate();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package com.example.todo.shard;
+
+import com.example.todo.model.Todo;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.annotation.Resource;
+import javax.ejb.SessionContext;
+import javax.ejb.Stateless;
+import javax.ejb.TransactionManagement;
+import javax.ejb.TransactionManagementType;
+import javax.inject.Inject;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceUnit;
+import javax.persistence.PersistenceUnits;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Moves users' todos between shards: one user on request, or every user whose shard differs
+ * from the one the ring assigns, after shards were appended to the configuration.
+ *
+ * The user's transactions are held back for the duration of the move (see
+ * {@link ShardRouter#beginMove}). Todos and archived todos are copied with their ids, the
+ * placement is switched, recording the source as the user's previous shard, and only then are
+ * the source rows deleted and the previous shard cleared. A move that fails part-way can
+ * simply be repeated: before copying, and on a rerun to the shard the user is already on, the
+ * rows left on the previous shard are deleted. {@link #rebalance} finishes such moves too.
+ *
+ * The units below are the fixed set of shards declared in {@code resources.xml} and
+ * {@code persistence.xml} (see {@link ShardingConfig#DECLARED}).
+ */
+@Stateless
+@TransactionManagement(TransactionManagementType.BEAN)
+@PersistenceUnits({
+        @PersistenceUnit(name = "persistence/todoPU", unitName = "todoPU"),
+        @PersistenceUnit(name = "persistence/todoShard1PU", unitName = "todoShard1PU"),
+        @PersistenceUnit(name = "persistence/todoShard2PU", unitName = "todoShard2PU"),
+        @PersistenceUnit(name = "persistence/todoShard3PU", unitName = "todoShard3PU")
+})
+public class ShardMigrator {
+    private static final Logger logger = LogManager.getLogger(ShardMigrator.class);
+    private static final int BATCH_SIZE = 500;
+    private static final String TODO_COLUMNS = "id, title, description, completed, createdDate, completedDate, user_id";
+    private static final String ARCHIVE_COLUMNS = "id, title, description, completed, createdDate, completedDate, archivedDate, user_id";
+
+    @Inject
+    private ShardRouter router;
+
+    @Inject
+    private ShardDirectory directory;
+
+    @Resource
+    private SessionContext context;
+
+    /**
+     * Moves the user's todos to {@code target}.
+     *
+     * @return the number of todos moved
+     */
+    public int moveUser(Long userId, String target) {
+        router.ordinal(target);
+        String source = router.shardOf(userId);
+        String previous = directory.previousShard(userId);
+        if (source.equals(target) && previous == null) {
+            return 0;
+        }
+
+        long start = System.nanoTime();
+        try {
+            router.beginMove(userId);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted before moving user id " + userId, e);
+        }
+        String placed = null;
+        try {
+            if (previous != null) {
+                // An earlier move switched the placement but failed to delete its source rows
+                deleteRows(userId, previous);
+                directory.clearPrevious(userId);
+                evictTodos(previous);
+                logger.info("Deleted the rows of user id: {} left on {} by an earlier move", userId, previous);
+                if (source.equals(target)) {
+                    return 0;
+                }
+            }
+            directory.mirrorUser(userId, target);
+            int moved = copyRows(userId, "todos", TODO_COLUMNS, source, target);
+            int archived = copyRows(userId, "todos_archive", ARCHIVE_COLUMNS, source, target);
+            directory.assign(userId, target, source);
+            placed = target;
+            deleteRows(userId, source);
+            directory.clearPrevious(userId);
+            evictTodos(source);
+            evictTodos(target);
+            logger.info("Moved {} todo(s) and {} archived todo(s) of user id: {} from {} to {} in {} ms",
+                    moved, archived, userId, source, target, (System.nanoTime() - start) / 1_000_000);
+            return moved;
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to move user id " + userId + " from " + source + " to " + target, e);
+        } finally {
+            router.endMove(userId, placed);
+        }
+    }
+
+    /**
+     * Moves every placed user whose shard differs from its ring shard, and finishes moves that
+     * left rows on the previous shard.
+     *
+     * @return one line per user moved or failed
+     */
+    public List<String> rebalance() {
+        List<String> report = new ArrayList<>();
+        Map<Long, String> unfinished = directory.unfinishedMoves();
+        for (Map.Entry<Long, String> placement : directory.placements().entrySet()) {
+            Long userId = placement.getKey();
+            String target = router.targetShard(userId);
+            if (target.equals(placement.getValue()) && !unfinished.containsKey(userId)) {
+                continue;
+            }
+            try {
+                int moved = moveUser(userId, target);
+                report.add("user " + userId + ": " + moved + " todo(s) " + placement.getValue() + " -> " + target);
+            } catch (RuntimeException e) {
+                logger.error("Failed to move user id: {} to {}", userId, target, e);
+                report.add("user " + userId + ": FAILED " + placement.getValue() + " -> " + target + ": " + e.getMessage());
+            }
+        }
+        logger.info("Rebalance finished: {} user(s) processed", report.size());
+        return report;
+    }
+
+    /**
+     * Describes each shard: users placed on it, todos stored and users waiting to be moved off.
+     */
+    public String status() {
+        Map<String, int[]> users = new LinkedHashMap<>();
+        for (String shard : router.getShards()) {
+            users.put(shard, new int[2]);
+        }
+        for (Map.Entry<Long, String> placement : directory.placements().entrySet()) {
+            int[] counts = users.computeIfAbsent(placement.getValue(), shard -> new int[2]);
+            counts[0]++;
+            if (!placement.getValue().equals(router.targetShard(placement.getKey()))) {
+                counts[1]++;
+            }
+        }
+
+        StringBuilder status = new StringBuilder(String.format(Locale.ROOT, "%-16s %8s %10s %10s%n",
+                "shard", "users", "todos", "toMove"));
+        for (Map.Entry<String, int[]> entry : users.entrySet()) {
+            String todos;
+            try (Connection connection = directory.dataSource(entry.getKey()).getConnection();
+                 PreparedStatement count = connection.prepareStatement("SELECT COUNT(*) FROM todos");
+                 ResultSet rs = count.executeQuery()) {
+                rs.next();
+                todos = Long.toString(rs.getLong(1));
+            } catch (SQLException | RuntimeException e) {
+                logger.warn("Failed to count todos on shard {}", entry.getKey(), e);
+                todos = "?";
+            }
+            status.append(String.format(Locale.ROOT, "%-16s %8d %10s %10d%n",
+                    entry.getKey(), entry.getValue()[0], todos, entry.getValue()[1]));
+        }
+        return status.toString();
+    }
+
+    /**
+     * Copies the user's rows of {@code table}, which has the given columns, with their ids.
+     */
+    private int copyRows(Long userId, String table, String columns, String source, String target) throws SQLException {
+        int columnCount = columns.split(",").length;
+        StringBuilder placeholders = new StringBuilder("?");
+        for (int i = 1; i < columnCount; i++) {
+            placeholders.append(", ?");
+        }
+        int copied = 0;
+        try (Connection from = directory.dataSource(source).getConnection();
+             Connection to = directory.dataSource(target).getConnection();
+             PreparedStatement select = from.prepareStatement(
+                     "SELECT " + columns + " FROM " + table + " WHERE user_id = ?");
+             PreparedStatement merge = to.prepareStatement(
+                     "MERGE INTO " + table + " (" + columns + ") KEY (id) VALUES (" + placeholders + ")")) {
+            to.setAutoCommit(false);
+            try {
+                select.setLong(1, userId);
+                try (ResultSet rs = select.executeQuery()) {
+                    while (rs.next()) {
+                        for (int i = 1; i <= columnCount; i++) {
+                            merge.setObject(i, rs.getObject(i));
+                        }
+                        merge.addBatch();
+                        if (++copied % BATCH_SIZE == 0) {
+                            merge.executeBatch();
+                        }
+                    }
+                }
+                merge.executeBatch();
+                to.commit();
+            } catch (SQLException e) {
+                to.rollback();
+                throw e;
+            } finally {
+                to.setAutoCommit(true);
+            }
+        }
+        return copied;
+    }
+
+    /**
+     * Deletes the user's todos and archived todos on {@code shard} in one transaction.
+     */
+    private void deleteRows(Long userId, String shard) throws SQLException {
+        try (Connection connection = directory.dataSource(shard).getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                for (String table : new String[]{"todos", "todos_archive"}) {
+                    try (PreparedStatement delete = connection.prepareStatement("DELETE FROM " + table + " WHERE user_id = ?")) {
+                        delete.setLong(1, userId);
+                        delete.executeUpdate();
+                    }
+                }
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Drops the unit's cached todos, which no longer match its tables.
+     */
+    private void evictTodos(String shard) {
+        EntityManagerFactory factory = (EntityManagerFactory) context.lookup("persistence/" + ShardingConfig.unitName(shard));
+        factory.getCache().evict(Todo.class);
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.todo.shard;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Consistent hash ring mapping user ids to shards. Every shard owns {@code virtualNodes}
+ * points on the ring, so appending a shard only takes over about 1/N of the users, evenly
+ * from all the others. Hashes do not depend on the JVM, so every node agrees on the ring.
+ */
+public final class ShardRing {
+    private final NavigableMap<Long, String> ring = new TreeMap<>();
+
+    public ShardRing(List<String> shards, int virtualNodes) {
+        MessageDigest md5 = md5();
+        for (String shard : shards) {
+            for (int i = 0; i < virtualNodes; i++) {
+                byte[] digest = md5.digest((shard + "#" + i).getBytes(StandardCharsets.UTF_8));
+                long point = 0;
+                for (int b = 0; b < 8; b++) {
+                    point = (point << 8) | (digest[b] & 0xFF);
+                }
+                ring.putIfAbsent(point, shard);
+            }
+        }
+    }
+
+    public String shardFor(long userId) {
+        Map.Entry<Long, String> entry = ring.ceilingEntry(mix(userId));
+        return entry != null ? entry.getValue() : ring.firstEntry().getValue();
+    }
+
+    /**
+     * SplitMix64 finalizer: spreads consecutive ids over the whole ring.
+     */
+    private static long mix(long value) {
+        long z = value + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static MessageDigest md5() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 not available", e);
+        }
+    }
+}
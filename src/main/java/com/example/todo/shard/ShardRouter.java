@@ -0,0 +1,174 @@
+package com.example.todo.shard;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Routes a user's todos to their shard: the one recorded in {@link ShardDirectory}, or for a
+ * user seen for the first time, the one the {@link ShardRing} picks.
+ *
+ * Every transaction that touches a user's todos is counted until it completes, so that
+ * {@link ShardMigrator} can hold new transactions back and wait for running ones before it
+ * moves the user to another shard.
+ */
+@ApplicationScoped
+public class ShardRouter {
+    private static final Logger logger = LogManager.getLogger(ShardRouter.class);
+    private static final long MOVE_WAIT_MILLIS = Long.getLong("todo.shards.moveWaitMillis", 10_000L);
+
+    @Resource(lookup = "java:openejb/Resource/todoShards")
+    private ShardingConfig config;
+
+    @Resource
+    private TransactionSynchronizationRegistry transactionRegistry;
+
+    @Inject
+    private ShardDirectory directory;
+
+    private ShardRing ring;
+    private final Map<Long, String> placements = new ConcurrentHashMap<>();
+    private final Map<Long, CountDownLatch> moving = new ConcurrentHashMap<>();
+    private final Map<Long, AtomicInteger> inFlight = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void init() {
+        ring = new ShardRing(config.getShards(), config.getVirtualNodes());
+        logger.info("Routing todos over {} shard(s): {}", config.getShards().size(), config.getShards());
+    }
+
+    /**
+     * Returns the persistence unit holding the user's todos, waiting while the user is being
+     * moved. The current transaction then counts as in flight for the user until it completes.
+     */
+    public String unitFor(Long userId) {
+        return ShardingConfig.unitName(enter(userId));
+    }
+
+    public List<String> getShards() {
+        return config.getShards();
+    }
+
+    public int ordinal(String shard) {
+        return config.ordinal(shard);
+    }
+
+    /**
+     * The shard the ring assigns to the user, which may differ from where the user's todos are.
+     */
+    public String targetShard(Long userId) {
+        return ring.shardFor(userId);
+    }
+
+    public String shardOf(Long userId) {
+        String shard = placements.get(userId);
+        if (shard == null) {
+            shard = directory.placement(userId, ring.shardFor(userId));
+            placements.put(userId, shard);
+        }
+        return shard;
+    }
+
+    /**
+     * Holds back new transactions for the user and waits for running ones to complete.
+     *
+     * @throws IllegalStateException if the user is already being moved or does not drain in time
+     */
+    public void beginMove(Long userId) throws InterruptedException {
+        if (moving.putIfAbsent(userId, new CountDownLatch(1)) != null) {
+            throw new IllegalStateException("User id " + userId + " is already being moved");
+        }
+        AtomicInteger count = inFlight.computeIfAbsent(userId, id -> new AtomicInteger());
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(MOVE_WAIT_MILLIS);
+        while (count.get() > 0) {
+            if (System.nanoTime() > deadline) {
+                endMove(userId, null);
+                throw new IllegalStateException("Transactions of user id " + userId + " did not complete in time");
+            }
+            Thread.sleep(5);
+        }
+    }
+
+    /**
+     * Releases the transactions held back by {@link #beginMove}, routing them to {@code shard}
+     * (null if the move failed).
+     */
+    public void endMove(Long userId, String shard) {
+        if (shard != null) {
+            placements.put(userId, shard);
+        } else {
+            placements.remove(userId);
+        }
+        CountDownLatch latch = moving.remove(userId);
+        if (latch != null) {
+            latch.countDown();
+        }
+    }
+
+    private String enter(Long userId) {
+        boolean active = transactionRegistry != null
+                && transactionRegistry.getTransactionStatus() == Status.STATUS_ACTIVE;
+        String key = ShardRouter.class.getName() + "." + userId;
+        if (active && transactionRegistry.getResource(key) != null) {
+            return shardOf(userId);
+        }
+
+        while (true) {
+            CountDownLatch move = moving.get(userId);
+            if (move != null) {
+                await(userId, move);
+            }
+            AtomicInteger count = inFlight.computeIfAbsent(userId, id -> new AtomicInteger());
+            count.incrementAndGet();
+            if (moving.containsKey(userId)) {
+                count.decrementAndGet();
+                continue;
+            }
+            if (!active) {
+                count.decrementAndGet();
+                return shardOf(userId);
+            }
+            try {
+                transactionRegistry.registerInterposedSynchronization(new Synchronization() {
+                    @Override
+                    public void beforeCompletion() {
+                    }
+
+                    @Override
+                    public void afterCompletion(int status) {
+                        count.decrementAndGet();
+                    }
+                });
+            } catch (RuntimeException e) {
+                count.decrementAndGet();
+                throw e;
+            }
+            transactionRegistry.putResource(key, Boolean.TRUE);
+            return shardOf(userId);
+        }
+    }
+
+    private void await(Long userId, CountDownLatch move) {
+        try {
+            if (!move.await(MOVE_WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+                throw new IllegalStateException("User id " + userId + " is being moved to another shard");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while user id " + userId + " is being moved", e);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.todo.shard;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Shard settings, created by TomEE from the {@code todoShards} resource in
+ * {@code WEB-INF/resources.xml}.
+ *
+ * {@code shards} lists the datasources that hold todos, primary {@code todoDS} first; the
+ * persistence unit of a datasource {@code todoXDS} is {@code todoXPU}, with a read-only
+ * {@code todoXReadPU} on {@code todoXReadDS}. A shard's position in the list fixes its todo
+ * id range, so shards may only be appended.
+ *
+ * Only the shards in {@link #DECLARED} can be listed. Their datasources and units are declared
+ * in {@code resources.xml} and {@code persistence.xml}, and the units are referenced by name in
+ * the {@code @PersistenceContexts} and {@code @PersistenceUnits} of {@code TodoService},
+ * {@code WarmupService} and {@code ShardMigrator}; a new shard must be added to all of them.
+ */
+public class ShardingConfig {
+    public static final String PRIMARY = "todoDS";
+    /** Shard n generates todo ids from {@code n << 44}, which keeps ids exact in JavaScript. */
+    public static final int ID_RANGE_BITS = 44;
+    /** Shards with datasources and persistence units declared in the WAR, in id range order. */
+    public static final List<String> DECLARED = Collections.unmodifiableList(Arrays.asList(
+            PRIMARY, "todoShard1DS", "todoShard2DS", "todoShard3DS"));
+
+    private List<String> shards = Collections.singletonList(PRIMARY);
+    private int virtualNodes = 160;
+
+    public List<String> getShards() {
+        return shards;
+    }
+
+    public void setShards(String shards) {
+        List<String> names = new ArrayList<>();
+        for (String name : shards.split("\\s*,\\s*")) {
+            if (name.isEmpty()) {
+                continue;
+            }
+            if (!name.endsWith("DS") || names.contains(name)) {
+                throw new IllegalArgumentException("Invalid shard list '" + shards + "': names must be unique and end in DS");
+            }
+            if (!DECLARED.contains(name)) {
+                throw new IllegalArgumentException("Invalid shard list '" + shards + "': " + name
+                        + " has no datasource and persistence units; declared shards are " + DECLARED);
+            }
+            names.add(name);
+        }
+        if (names.isEmpty() || !PRIMARY.equals(names.get(0))) {
+            throw new IllegalArgumentException("Invalid shard list '" + shards + "': it must start with " + PRIMARY);
+        }
+        this.shards = Collections.unmodifiableList(names);
+    }
+
+    public int getVirtualNodes() {
+        return virtualNodes;
+    }
+
+    public void setVirtualNodes(int virtualNodes) {
+        this.virtualNodes = Math.max(1, virtualNodes);
+    }
+
+    public int ordinal(String shard) {
+        int ordinal = shards.indexOf(shard);
+        if (ordinal < 0) {
+            throw new IllegalArgumentException("Unknown shard: " + shard);
+        }
+        return ordinal;
+    }
+
+    public static long firstTodoId(int ordinal) {
+        return Math.max(1, (long) ordinal << ID_RANGE_BITS);
+    }
+
+    public static String unitName(String shard) {
+        return shard.substring(0, shard.length() - 2) + "PU";
+    }
+
+    /**
+     * The read-only unit paired with a unit, {@code todoReadPU} for {@code todoPU}.
+     */
+    public static String readUnitName(String unit) {
+        return unit.substring(0, unit.length() - 2) + "ReadPU";
+    }
+
+    public static String dataSourceName(String shard) {
+        return "java:openejb/Resource/" + shard;
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.todo.shiro;
+
+import com.example.todo.realm.JpaRealm;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.shiro.authc.AuthenticationException;
+import org.apache.shiro.authc.AuthenticationInfo;
+import org.apache.shiro.authc.AuthenticationToken;
+import org.apache.shiro.authc.LogoutAware;
+import org.apache.shiro.authc.UsernamePasswordToken;
+import org.apache.shiro.authz.AuthorizationException;
+import org.apache.shiro.authz.Authorizer;
+import org.apache.shiro.authz.Permission;
+import org.apache.shiro.realm.Realm;
+import org.apache.shiro.subject.PrincipalCollection;
+
+import javax.enterprise.inject.spi.CDI;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Realm registered with the Shiro security manager at startup that resolves the CDI-managed
+ * {@link JpaRealm} on first use and delegates to it afterwards.
+ * This keeps context initialization free of blocking CDI lookups and retry loops.
+ */
+public class LazyJpaRealm implements Realm, Authorizer, LogoutAware {
+    private static final Logger logger = LogManager.getLogger(LazyJpaRealm.class);
+
+    private final long createdAt = System.nanoTime();
+    private volatile JpaRealm delegate;
+
+    /**
+     * Returns the CDI realm, resolving it on the first call.
+     */
+    private JpaRealm getDelegate() {
+        JpaRealm realm = delegate;
+        if (realm == null) {
+            synchronized (this) {
+                realm = delegate;
+                if (realm == null) {
+                    long start = System.nanoTime();
+                    realm = CDI.current().select(JpaRealm.class).get();
+                    delegate = realm;
+                    logger.info("Resolved JpaRealm from CDI in {} ms ({} ms after Shiro startup)",
+                            (System.nanoTime() - start) / 1_000_000,
+                            (System.nanoTime() - createdAt) / 1_000_000);
+                }
+            }
+        }
+        return realm;
+    }
+
+    @Override
+    public String getName() {
+        return "JpaRealm";
+    }
+
+    @Override
+    public boolean supports(AuthenticationToken token) {
+        return token instanceof UsernamePasswordToken;
+    }
+
+    @Override
+    public AuthenticationInfo getAuthenticationInfo(AuthenticationToken token) throws AuthenticationException {
+        return getDelegate().getAuthenticationInfo(token);
+    }
+
+    @Override
+    public void onLogout(PrincipalCollection principals) {
+        // Nothing to clean up if the realm was never used
+        JpaRealm realm = delegate;
+        if (realm != null) {
+            realm.onLogout(principals);
+        }
+    }
+
+    @Override
+    public boolean isPermitted(PrincipalCollection principals, String permission) {
+        return getDelegate().isPermitted(principals, permission);
+    }
+
+    @Override
+    public boolean isPermitted(PrincipalCollection subjectPrincipal, Permission permission) {
+        return getDelegate().isPermitted(subjectPrincipal, permission);
+    }
+
+    @Override
+    public boolean[] isPermitted(PrincipalCollection subjectPrincipal, String... permissions) {
+        return getDelegate().isPermitted(subjectPrincipal, permissions);
+    }
+
+    @Override
+    public boolean[] isPermitted(PrincipalCollection subjectPrincipal, List<Permission> permissions) {
+        return getDelegate().isPermitted(subjectPrincipal, permissions);
+    }
+
+    @Override
+    public boolean isPermittedAll(PrincipalCollection subjectPrincipal, String... permissions) {
+        return getDelegate().isPermittedAll(subjectPrincipal, permissions);
+    }
+
+    @Override
+    public boolean isPermittedAll(PrincipalCollection subjectPrincipal, Collection<Permission> permissions) {
+        return getDelegate().isPermittedAll(subjectPrincipal, permissions);
+    }
+
+    @Override
+    public void checkPermission(PrincipalCollection subjectPrincipal, String permission) throws AuthorizationException {
+        getDelegate().checkPermission(subjectPrincipal, permission);
+    }
+
+    @Override
+    public void checkPermission(PrincipalCollection subjectPrincipal, Permission permission) throws AuthorizationException {
+        getDelegate().checkPermission(subjectPrincipal, permission);
+    }
+
+    @Override
+    public void checkPermissions(PrincipalCollection subjectPrincipal, String... permissions) throws AuthorizationException {
+        getDelegate().checkPermissions(subjectPrincipal, permissions);
+    }
+
+    @Override
+    public void checkPermissions(PrincipalCollection subjectPrincipal, Collection<Permission> permissions) throws AuthorizationException {
+        getDelegate().checkPermissions(subjectPrincipal, permissions);
+    }
+
+    @Override
+    public boolean hasRole(PrincipalCollection subjectPrincipal, String roleIdentifier) {
+        return getDelegate().hasRole(subjectPrincipal, roleIdentifier);
+    }
+
+    @Override
+    public boolean[] hasRoles(PrincipalCollection subjectPrincipal, List<String> roleIdentifiers) {
+        return getDelegate().hasRoles(subjectPrincipal, roleIdentifiers);
+    }
+
+    @Override
+    public boolean hasAllRoles(PrincipalCollection subjectPrincipal, Collection<String> roleIdentifiers) {
+        return getDelegate().hasAllRoles(subjectPrincipal, roleIdentifiers);
+    }
+
+    @Override
+    public void checkRole(PrincipalCollection subjectPrincipal, String roleIdentifier) throws AuthorizationException {
+        getDelegate().checkRole(subjectPrincipal, roleIdentifier);
+    }
+
+    @Override
+    public void checkRoles(PrincipalCollection subjectPrincipal, Collection<String> roleIdentifiers) throws AuthorizationException {
+        getDelegate().checkRoles(subjectPrincipal, roleIdentifiers);
+    }
+
+    @Override
+    public void checkRoles(PrincipalCollection subjectPrincipal, String... roleIdentifiers) throws AuthorizationException {
+        getDelegate().checkRoles(subjectPrincipal, roleIdentifiers);
+    }
+}
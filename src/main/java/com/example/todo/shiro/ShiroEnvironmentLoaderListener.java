@@ -1,7 +1,5 @@
 package com.example.todo.shiro;
 
-import com.example.todo.realm.JpaRealm;
-import com.example.todo.service.UserService;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.shiro.mgt.SecurityManager;
@@ -10,12 +8,8 @@ import org.apache.shiro.web.env.IniWebEnvironment;
 import org.apache.shiro.web.env.WebEnvironment;
 import org.apache.shiro.web.mgt.DefaultWebSecurityManager;
 
-import javax.enterprise.inject.spi.CDI;
-import javax.naming.InitialContext;
-import javax.naming.NamingException;
 import javax.servlet.ServletContext;
 import javax.servlet.ServletContextEvent;
-import java.lang.reflect.Field;
 
 public class ShiroEnvironmentLoaderListener extends EnvironmentLoaderListener {
     private static final Logger logger = LogManager.getLogger(ShiroEnvironmentLoaderListener.class);
@@ -23,6 +17,7 @@ public class ShiroEnvironmentLoaderListener extends EnvironmentLoaderListener {
     @Override
     protected WebEnvironment createEnvironment(ServletContext servletContext) {
         logger.info("Creating Shiro web environment");
+        long start = System.nanoTime();
         
         // Use default IniWebEnvironment which will automatically load shiro.ini
         // from WEB-INF/shiro.ini (configured via shiroConfigLocations in web.xml)
@@ -31,16 +26,18 @@ public class ShiroEnvironmentLoaderListener extends EnvironmentLoaderListener {
         // Configuration location is set via shiroConfigLocations context param in web.xml
         env.init();
         
-        logger.info("Shiro web environment created");
+        logger.info("Shiro web environment created in {} ms", elapsedMillis(start));
         return env;
     }
 
     @Override
     public void contextInitialized(ServletContextEvent sce) {
         logger.info("Initializing Shiro environment with CDI integration");
+        long start = System.nanoTime();
         super.contextInitialized(sce);
+        long environmentMillis = elapsedMillis(start);
         
-        // Try to inject CDI realm after context is fully initialized
+        long wiringStart = System.nanoTime();
         ServletContext servletContext = sce.getServletContext();
         WebEnvironment env = (WebEnvironment) servletContext.getAttribute(ENVIRONMENT_ATTRIBUTE_KEY);
         
@@ -52,52 +49,10 @@ public class ShiroEnvironmentLoaderListener extends EnvironmentLoaderListener {
                 
                 // Check if realm is already set
                 if (webSecurityManager.getRealms() == null || webSecurityManager.getRealms().isEmpty()) {
-                    logger.info("No realms configured, attempting to inject JpaRealm from CDI");
-                    
-                    // Get the realm from CDI now that context is initialized
-                    // Try multiple times with delays in case CDI is not immediately available
-                    JpaRealm realm = null;
-                    int maxAttempts = 5;
-                    for (int attempt = 1; attempt <= maxAttempts; attempt++) {
-                        try {
-                            realm = CDI.current().select(JpaRealm.class).get();
-                            logger.info("Successfully retrieved JpaRealm from CDI on attempt {}", attempt);
-                            break;
-                        } catch (Exception e) {
-                            logger.warn("Attempt {} to get JpaRealm from CDI failed: {}", attempt, e.getMessage());
-                            if (attempt < maxAttempts) {
-                                try {
-                                    Thread.sleep(500); // Wait 500ms before retry
-                                } catch (InterruptedException ie) {
-                                    Thread.currentThread().interrupt();
-                                    break;
-                                }
-                            }
-                        }
-                    }
-                    
-                    if (realm != null) {
-                        webSecurityManager.setRealm(realm);
-                        logger.info("Successfully injected JpaRealm from CDI after context initialization");
-                    } else {
-                        // Try to create realm manually with UserService from JNDI as fallback
-                        logger.warn("CDI injection failed, attempting to create JpaRealm manually with JNDI lookup");
-                        try {
-                            UserService userService = lookupUserService();
-                            if (userService != null) {
-                                realm = new JpaRealm();
-                                // Inject UserService via reflection as fallback
-                                injectUserService(realm, userService);
-                                webSecurityManager.setRealm(realm);
-                                logger.info("Successfully created JpaRealm with JNDI-looked-up UserService");
-                            } else {
-                                throw new IllegalStateException("Could not obtain UserService via JNDI");
-                            }
-                        } catch (Exception e) {
-                            logger.error("Failed to inject JpaRealm from CDI after {} attempts and fallback also failed", maxAttempts, e);
-                            throw new IllegalStateException("Failed to configure Shiro realm. JpaRealm could not be retrieved from CDI and fallback failed.", e);
-                        }
-                    }
+                    // The CDI JpaRealm is resolved on first authentication, so startup never
+                    // blocks waiting for the CDI container
+                    webSecurityManager.setRealm(new LazyJpaRealm());
+                    logger.info("Registered lazy JpaRealm delegate with the security manager");
                 } else {
                     logger.info("Realm already configured: {}", webSecurityManager.getRealms());
                 }
@@ -107,55 +62,12 @@ public class ShiroEnvironmentLoaderListener extends EnvironmentLoaderListener {
         } else {
             logger.error("WebEnvironment not found in servlet context");
         }
+        
+        logger.info("Shiro startup timing: environment {} ms, realm wiring {} ms, total {} ms",
+                environmentMillis, elapsedMillis(wiringStart), elapsedMillis(start));
     }
     
-    /**
-     * Lookup UserService via JNDI as fallback when CDI is not available
-     */
-    private UserService lookupUserService() {
-        try {
-            InitialContext ctx = new InitialContext();
-            // Try common JNDI names for EJBs
-            String[] jndiNames = {
-                "java:module/UserService",
-                "java:app/jsf-todo-app/UserService",
-                "java:comp/env/ejb/UserService",
-                "java:global/jsf-todo-app/UserService"
-            };
-            
-            for (String jndiName : jndiNames) {
-                try {
-                    Object obj = ctx.lookup(jndiName);
-                    if (obj instanceof UserService) {
-                        logger.info("Found UserService via JNDI: {}", jndiName);
-                        return (UserService) obj;
-                    }
-                } catch (NamingException e) {
-                    logger.debug("JNDI lookup failed for {}: {}", jndiName, e.getMessage());
-                }
-            }
-            
-            logger.warn("Could not find UserService via any JNDI name");
-            return null;
-        } catch (Exception e) {
-            logger.error("Error during JNDI lookup for UserService", e);
-            return null;
-        }
-    }
-    
-    /**
-     * Inject UserService into JpaRealm using reflection as fallback
-     */
-    private void injectUserService(JpaRealm realm, UserService userService) {
-        try {
-            Field userServiceField = JpaRealm.class.getDeclaredField("userService");
-            userServiceField.setAccessible(true);
-            userServiceField.set(realm, userService);
-            logger.info("Successfully injected UserService into JpaRealm via reflection");
-        } catch (Exception e) {
-            logger.error("Failed to inject UserService into JpaRealm via reflection", e);
-            throw new IllegalStateException("Could not inject UserService into JpaRealm", e);
-        }
+    private static long elapsedMillis(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
     }
 }
-
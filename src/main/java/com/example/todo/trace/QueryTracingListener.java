@@ -0,0 +1,62 @@
+package com.example.todo.trace;
+
+import org.eclipse.persistence.exceptions.ExceptionHandler;
+import org.eclipse.persistence.queries.DatabaseQuery;
+import org.eclipse.persistence.sessions.Session;
+import org.eclipse.persistence.sessions.SessionEvent;
+import org.eclipse.persistence.sessions.SessionEventAdapter;
+
+/**
+ * EclipseLink session listener that records every executed query as a span of the current
+ * request trace. Registered through {@code eclipselink.session-event-listener} in
+ * {@code persistence.xml}.
+ *
+ * EclipseLink raises no event for a failed query, so the listener also installs an
+ * exception handler on the session that closes the open span before the error propagates;
+ * otherwise the rest of the request's queries would go untraced.
+ */
+public class QueryTracingListener extends SessionEventAdapter {
+    private static final ThreadLocal<RequestTrace.Span> OPEN_SPAN = new ThreadLocal<>();
+
+    @Override
+    public void preLogin(SessionEvent event) {
+        // Client sessions and units of work inherit the handler of the server session
+        Session session = event.getSession();
+        ExceptionHandler previous = session.getExceptionHandler();
+        session.setExceptionHandler(exception -> {
+            closeOpenSpan();
+            if (previous != null) {
+                return previous.handleException(exception);
+            }
+            throw exception;
+        });
+    }
+
+    @Override
+    public void preExecuteQuery(SessionEvent event) {
+        RequestTrace trace = RequestTrace.current();
+        RequestTrace.Span open = OPEN_SPAN.get();
+        // Only the outermost query is timed; a span left open by an earlier request on this
+        // thread is discarded
+        if (trace == null || (open != null && open.belongsTo(trace))) {
+            return;
+        }
+        DatabaseQuery query = event.getQuery();
+        String name = query.getName() != null && !query.getName().isEmpty()
+                ? query.getName() : query.getClass().getSimpleName();
+        OPEN_SPAN.set(RequestTrace.span(SpanKind.QUERY, name));
+    }
+
+    @Override
+    public void postExecuteQuery(SessionEvent event) {
+        closeOpenSpan();
+    }
+
+    private static void closeOpenSpan() {
+        RequestTrace.Span span = OPEN_SPAN.get();
+        if (span != null) {
+            OPEN_SPAN.remove();
+            span.close();
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.example.todo.trace;
+
+import org.apache.logging.log4j.ThreadContext;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * Timing record of one request, bound to the request thread.
+ *
+ * Spans nest: each {@link #span(SpanKind, String)} is closed by try-with-resources and adds
+ * its inclusive time to its {@link SpanKind}. Only the first {@link #MAX_SPANS} spans are
+ * kept for the detailed breakdown; totals stay exact beyond that, so a request that renders
+ * thousands of rows costs a fixed amount of memory.
+ *
+ * The correlation id lives in the Log4j {@link ThreadContext} under {@link #REQUEST_ID};
+ * {@link #propagate(Runnable)} carries it into work handed to other threads.
+ */
+public final class RequestTrace {
+    public static final String REQUEST_ID = "requestId";
+    public static final String USER_ID = "userId";
+    public static final String VIEW_ID = "viewId";
+
+    static final int MAX_SPANS = 64;
+
+    private static final ThreadLocal<RequestTrace> CURRENT = new ThreadLocal<>();
+    private static final Span NOOP = new Span(null, null, null, 0, 0);
+
+    private final String requestId;
+    private final long startNanos = System.nanoTime();
+    private final long[] kindNanos = new long[SpanKind.values().length];
+    private final int[] kindCounts = new int[SpanKind.values().length];
+    private final Span[] spans = new Span[MAX_SPANS];
+    private int spanCount;
+    private int droppedSpans;
+    private int depth;
+
+    private RequestTrace(String requestId) {
+        this.requestId = requestId;
+    }
+
+    /**
+     * Starts a trace for the current thread and puts its id into the ThreadContext.
+     */
+    public static RequestTrace begin(String requestId) {
+        RequestTrace trace = new RequestTrace(requestId);
+        CURRENT.set(trace);
+        ThreadContext.put(REQUEST_ID, requestId);
+        return trace;
+    }
+
+    /**
+     * Ends the current thread's trace and clears the tracing keys from the ThreadContext.
+     */
+    public static void end() {
+        CURRENT.remove();
+        ThreadContext.remove(REQUEST_ID);
+        ThreadContext.remove(USER_ID);
+        ThreadContext.remove(VIEW_ID);
+    }
+
+    public static RequestTrace current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Opens a span on the current trace; a no-op when the thread is not tracing a request.
+     */
+    public static Span span(SpanKind kind, String name) {
+        RequestTrace trace = CURRENT.get();
+        return trace != null ? trace.open(kind, name) : NOOP;
+    }
+
+    /**
+     * Wraps a task so it runs with the caller's ThreadContext (correlation id, user, view).
+     */
+    public static Runnable propagate(Runnable task) {
+        Map<String, String> context = captureContext();
+        return () -> {
+            Map<String, String> previous = ThreadContext.getContext();
+            ThreadContext.putAll(context);
+            try {
+                task.run();
+            } finally {
+                ThreadContext.clearMap();
+                ThreadContext.putAll(previous);
+            }
+        };
+    }
+
+    /**
+     * Wraps a task so it runs with the caller's ThreadContext (correlation id, user, view).
+     */
+    public static <T> Callable<T> propagate(Callable<T> task) {
+        Map<String, String> context = captureContext();
+        return () -> {
+            Map<String, String> previous = ThreadContext.getContext();
+            ThreadContext.putAll(context);
+            try {
+                return task.call();
+            } finally {
+                ThreadContext.clearMap();
+                ThreadContext.putAll(previous);
+            }
+        };
+    }
+
+    /**
+     * Copy of the current ThreadContext, e.g. to pass into an {@code @Asynchronous} EJB.
+     */
+    public static Map<String, String> captureContext() {
+        Map<String, String> context = ThreadContext.getContext();
+        return context.isEmpty() ? Collections.emptyMap() : new HashMap<>(context);
+    }
+
+    private Span open(SpanKind kind, String name) {
+        Span span = new Span(this, kind, name, depth, System.nanoTime());
+        depth++;
+        if (spanCount < MAX_SPANS) {
+            spans[spanCount++] = span;
+        } else {
+            droppedSpans++;
+        }
+        return span;
+    }
+
+    private void close(Span span, long durationNanos) {
+        depth--;
+        kindNanos[span.kind.ordinal()] += durationNanos;
+        kindCounts[span.kind.ordinal()]++;
+    }
+
+    public String getRequestId() {
+        return requestId;
+    }
+
+    public long elapsedNanos() {
+        return System.nanoTime() - startNanos;
+    }
+
+    /**
+     * One-line latency breakdown, e.g. {@code total=41.2ms phase=39.8ms(6) service=8.1ms(2) query=6.7ms(3)}.
+     */
+    public String summary() {
+        StringBuilder summary = new StringBuilder("total=").append(millis(elapsedNanos()));
+        for (SpanKind kind : SpanKind.values()) {
+            if (kind != SpanKind.FILTER && kindCounts[kind.ordinal()] > 0) {
+                summary.append(' ').append(kind.label()).append('=').append(millis(kindNanos[kind.ordinal()]))
+                        .append('(').append(kindCounts[kind.ordinal()]).append(')');
+            }
+        }
+        return summary.toString();
+    }
+
+    /**
+     * Indented list of the recorded spans, for DEBUG output.
+     */
+    public String spanTree() {
+        StringBuilder tree = new StringBuilder();
+        for (int i = 0; i < spanCount; i++) {
+            Span span = spans[i];
+            tree.append('\n');
+            for (int d = 0; d <= span.depth; d++) {
+                tree.append("  ");
+            }
+            tree.append(span.kind.label()).append(' ').append(span.name).append(' ')
+                    .append(span.durationNanos >= 0 ? millis(span.durationNanos) : "open");
+        }
+        if (droppedSpans > 0) {
+            tree.append("\n  ... ").append(droppedSpans).append(" more span(s)");
+        }
+        return tree.toString();
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.1fms", nanos / 1_000_000.0);
+    }
+
+    /**
+     * A timed section of a request; close it to record its duration.
+     */
+    public static final class Span implements AutoCloseable {
+        private final RequestTrace trace;
+        private final SpanKind kind;
+        private final String name;
+        private final int depth;
+        private final long startNanos;
+        private long durationNanos = -1;
+
+        private Span(RequestTrace trace, SpanKind kind, String name, int depth, long startNanos) {
+            this.trace = trace;
+            this.kind = kind;
+            this.name = name;
+            this.depth = depth;
+            this.startNanos = startNanos;
+        }
+
+        /**
+         * Returns the measured duration, or -1 while the span is open.
+         */
+        public long getDurationNanos() {
+            return durationNanos;
+        }
+
+        boolean belongsTo(RequestTrace other) {
+            return trace == other;
+        }
+
+        @Override
+        public void close() {
+            if (trace != null && durationNanos < 0) {
+                durationNanos = System.nanoTime() - startNanos;
+                trace.close(this, durationNanos);
+            }
+        }
+    }
+}
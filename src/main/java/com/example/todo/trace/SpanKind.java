@@ -0,0 +1,16 @@
+package com.example.todo.trace;
+
+/**
+ * Layers a request's time is broken down by in the request summary.
+ */
+public enum SpanKind {
+    FILTER,
+    PHASE,
+    ACTION,
+    SERVICE,
+    QUERY;
+
+    String label() {
+        return name().toLowerCase();
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.todo.trace;
+
+import javax.enterprise.util.Nonbinding;
+import javax.interceptor.InterceptorBinding;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Records each call of the annotated method, or of every method of the annotated bean, as a
+ * span of the current request trace.
+ */
+@Inherited
+@InterceptorBinding
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.METHOD})
+public @interface Traced {
+
+    @Nonbinding
+    SpanKind value() default SpanKind.SERVICE;
+}
@@ -0,0 +1,39 @@
+package com.example.todo.trace;
+
+import javax.annotation.Priority;
+import javax.interceptor.AroundInvoke;
+import javax.interceptor.Interceptor;
+import javax.interceptor.InvocationContext;
+import java.lang.reflect.Method;
+
+/**
+ * Wraps {@link Traced} calls in a span named {@code Class.method}.
+ */
+@Traced
+@Interceptor
+@Priority(Interceptor.Priority.APPLICATION)
+public class TracingInterceptor {
+
+    @AroundInvoke
+    public Object trace(InvocationContext context) throws Exception {
+        if (RequestTrace.current() == null) {
+            return context.proceed();
+        }
+        Method method = context.getMethod();
+        RequestTrace.Span span = RequestTrace.span(kindOf(method),
+                method.getDeclaringClass().getSimpleName() + "." + method.getName());
+        try {
+            return context.proceed();
+        } finally {
+            span.close();
+        }
+    }
+
+    private static SpanKind kindOf(Method method) {
+        Traced traced = method.getAnnotation(Traced.class);
+        if (traced == null) {
+            traced = method.getDeclaringClass().getAnnotation(Traced.class);
+        }
+        return traced != null ? traced.value() : SpanKind.SERVICE;
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.todo.transfer;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Progress of one background import, shared between the importing thread and whoever polls it.
+ */
+public class ImportJob {
+    static final int MAX_ERRORS = 20;
+
+    public enum State {
+        QUEUED, RUNNING, COMPLETED, FAILED, CANCELLED
+    }
+
+    private final String id;
+    private final Long userId;
+    private final TodoFormat format;
+    private final long totalBytes;
+    private final Instant submitted = Instant.now();
+    private final List<String> errors = new ArrayList<>();
+
+    private volatile State state = State.QUEUED;
+    private volatile long bytesRead;
+    private volatile long imported;
+    private volatile long rejected;
+    private volatile boolean cancelRequested;
+    private volatile String failure;
+    private volatile Instant finished;
+
+    ImportJob(String id, Long userId, TodoFormat format, long totalBytes) {
+        this.id = id;
+        this.userId = userId;
+        this.format = format;
+        this.totalBytes = totalBytes;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public TodoFormat getFormat() {
+        return format;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public boolean isFinished() {
+        return finished != null;
+    }
+
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * Share of the input processed, 0 to 100.
+     */
+    public int getPercent() {
+        if (state == State.COMPLETED) {
+            return 100;
+        }
+        return totalBytes > 0 ? (int) Math.min(99, bytesRead * 100 / totalBytes) : 0;
+    }
+
+    public long getImported() {
+        return imported;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    /**
+     * The first {@value #MAX_ERRORS} rejected records, with their reasons.
+     */
+    public List<String> getErrors() {
+        synchronized (errors) {
+            return Collections.unmodifiableList(new ArrayList<>(errors));
+        }
+    }
+
+    public String getFailure() {
+        return failure;
+    }
+
+    public Instant getSubmitted() {
+        return submitted;
+    }
+
+    public Instant getFinished() {
+        return finished;
+    }
+
+    /**
+     * Asks the job to stop after the current batch; batches already committed are kept.
+     */
+    public void cancel() {
+        cancelRequested = true;
+    }
+
+    boolean isCancelRequested() {
+        return cancelRequested;
+    }
+
+    void started() {
+        state = State.RUNNING;
+    }
+
+    void progress(long bytesRead, long importedNow) {
+        this.bytesRead = bytesRead;
+        this.imported += importedNow;
+    }
+
+    void rejected(String reason) {
+        rejected++;
+        synchronized (errors) {
+            if (errors.size() < MAX_ERRORS) {
+                errors.add(reason);
+            }
+        }
+    }
+
+    void finished(State state, String failure) {
+        this.failure = failure;
+        this.state = state;
+        this.finished = Instant.now();
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.todo.transfer;
+
+import com.example.todo.model.Todo;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * RFC 4180 CSV in UTF-8: comma separated, CRLF line ends, fields quoted when they contain a
+ * comma, quote or line break (quotes doubled). A leading byte order mark is skipped.
+ */
+final class TodoCsv {
+    static final String[] COLUMNS = {"id", "title", "description", "completed", "createdDate", "completedDate"};
+
+    private TodoCsv() {
+    }
+
+    static final class Writer implements TodoFormat.Writer {
+        private final java.io.Writer out;
+
+        Writer(OutputStream out) throws IOException {
+            this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+            this.out.write(String.join(",", COLUMNS));
+            this.out.write("\r\n");
+        }
+
+        @Override
+        public void write(Todo todo) throws IOException {
+            if (todo == null) {
+                return;
+            }
+            out.write(String.valueOf(todo.getId()));
+            field(todo.getTitle());
+            field(todo.getDescription());
+            field(String.valueOf(Boolean.TRUE.equals(todo.getCompleted())));
+            field(TodoFormat.format(todo.getCreatedDate()));
+            field(TodoFormat.format(todo.getCompletedDate()));
+            out.write("\r\n");
+        }
+
+        private void field(String value) throws IOException {
+            out.write(',');
+            if (value == null) {
+                return;
+            }
+            boolean quote = false;
+            for (int i = 0; i < value.length() && !quote; i++) {
+                char c = value.charAt(i);
+                quote = c == ',' || c == '"' || c == '\r' || c == '\n';
+            }
+            if (!quote) {
+                out.write(value);
+                return;
+            }
+            out.write('"');
+            out.write(value.replace("\"", "\"\""));
+            out.write('"');
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    static final class Reader implements TodoFormat.Reader {
+        private final BufferedReader in;
+        private final Map<String, Integer> columns = new HashMap<>();
+        private final List<String> fields = new ArrayList<>();
+        private final StringBuilder field = new StringBuilder();
+        private long record;
+
+        Reader(InputStream in) throws IOException {
+            this.in = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 64 * 1024);
+            this.in.mark(1);
+            if (this.in.read() != '\uFEFF') {
+                this.in.reset();
+            }
+            if (!readRecord()) {
+                throw new IllegalStateException("The CSV file is empty; expected a header row");
+            }
+            for (int i = 0; i < fields.size(); i++) {
+                columns.putIfAbsent(fields.get(i).trim().toLowerCase(Locale.ROOT), i);
+            }
+            if (!columns.containsKey("title")) {
+                throw new IllegalStateException("The CSV header has no title column: " + String.join(",", fields));
+            }
+        }
+
+        @Override
+        public Todo next() throws IOException {
+            do {
+                if (!readRecord()) {
+                    return null;
+                }
+                record++;
+            } while (fields.size() == 1 && fields.get(0).isEmpty());
+            return TodoFormat.draft(record, column("title"), column("description"),
+                    TodoFormat.bool(record, column("completed")), column("createddate"), column("completeddate"));
+        }
+
+        private String column(String name) {
+            Integer index = columns.get(name);
+            return index != null && index < fields.size() ? fields.get(index) : null;
+        }
+
+        /**
+         * Reads one record into {@link #fields}; false at the end of the input.
+         */
+        private boolean readRecord() throws IOException {
+            fields.clear();
+            field.setLength(0);
+            int c = in.read();
+            if (c < 0) {
+                return false;
+            }
+            boolean quoted = false;
+            while (true) {
+                if (quoted) {
+                    if (c < 0) {
+                        throw new IllegalStateException("Unterminated quoted field after record " + record);
+                    }
+                    if (c == '"') {
+                        c = in.read();
+                        if (c != '"') {
+                            quoted = false;
+                            continue;
+                        }
+                    }
+                    field.append((char) c);
+                } else if (c == '"' && field.length() == 0) {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\n' || c < 0) {
+                    break;
+                } else if (c != '\r') {
+                    field.append((char) c);
+                }
+                c = in.read();
+            }
+            fields.add(field.toString());
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.todo.transfer;
+
+import com.example.todo.model.Todo;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+
+/**
+ * File formats for exporting and importing todos. Writers emit one todo at a time and readers
+ * parse one record at a time, so neither holds a whole list in memory.
+ *
+ * CSV has a header row naming the columns {@code id,title,description,completed,createdDate,completedDate}
+ * (in any order on import; only {@code title} is required). JSON is an array of objects with
+ * the same fields. Dates are ISO-8601 local date-times. Exported ids are for reference only:
+ * imported todos always get new ids.
+ */
+public enum TodoFormat {
+    CSV("text/csv") {
+        @Override
+        public Writer writer(OutputStream out) throws IOException {
+            return new TodoCsv.Writer(out);
+        }
+
+        @Override
+        public Reader reader(InputStream in) throws IOException {
+            return new TodoCsv.Reader(in);
+        }
+    },
+    JSON("application/json") {
+        @Override
+        public Writer writer(OutputStream out) {
+            return new TodoJson.Writer(out);
+        }
+
+        @Override
+        public Reader reader(InputStream in) {
+            return new TodoJson.Reader(in);
+        }
+    };
+
+    static final int MAX_TITLE = 500;
+    static final int MAX_DESCRIPTION = 2000;
+
+    private final String mediaType;
+
+    TodoFormat(String mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    public String getExtension() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * The format named {@code csv} or {@code json}, or the one whose media type starts
+     * {@code value} (a Content-Type with parameters); null if none matches.
+     */
+    public static TodoFormat of(String value) {
+        if (value == null) {
+            return null;
+        }
+        String normalized = value.trim().toLowerCase(Locale.ROOT);
+        for (TodoFormat format : values()) {
+            if (normalized.equals(format.getExtension()) || normalized.startsWith(format.mediaType)) {
+                return format;
+            }
+        }
+        return null;
+    }
+
+    public abstract Writer writer(OutputStream out) throws IOException;
+
+    public abstract Reader reader(InputStream in) throws IOException;
+
+    public interface Writer extends Closeable {
+        void write(Todo todo) throws IOException;
+    }
+
+    public interface Reader extends Closeable {
+        /**
+         * Returns the next todo to import, or null at the end of the input.
+         *
+         * @throws IllegalArgumentException if the record cannot be imported; the next call
+         *                                  continues with the following record
+         */
+        Todo next() throws IOException;
+    }
+
+    /**
+     * Builds a todo from the fields of input record {@code record} (1-based), validating them
+     * the way the UI and the API do.
+     */
+    static Todo draft(long record, String title, String description, Boolean completed,
+                      String createdDate, String completedDate) {
+        if (title == null || title.trim().isEmpty()) {
+            throw new IllegalArgumentException("record " + record + ": title is required");
+        }
+        if (title.trim().length() > MAX_TITLE) {
+            throw new IllegalArgumentException("record " + record + ": title is longer than " + MAX_TITLE + " characters");
+        }
+        if (description != null && description.length() > MAX_DESCRIPTION) {
+            throw new IllegalArgumentException("record " + record + ": description is longer than " + MAX_DESCRIPTION + " characters");
+        }
+        Todo todo = new Todo();
+        todo.setTitle(title.trim());
+        todo.setDescription(description == null || description.isEmpty() ? null : description);
+        todo.setCompleted(Boolean.TRUE.equals(completed));
+        todo.setCreatedDate(dateTime(record, "createdDate", createdDate));
+        if (todo.getCompleted()) {
+            LocalDateTime completedAt = dateTime(record, "completedDate", completedDate);
+            if (completedAt != null) {
+                todo.setCompletedDate(completedAt);
+            }
+        }
+        return todo;
+    }
+
+    static Boolean bool(long record, String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return null;
+        }
+        String normalized = value.trim().toLowerCase(Locale.ROOT);
+        if (normalized.equals("true") || normalized.equals("1")) {
+            return Boolean.TRUE;
+        }
+        if (normalized.equals("false") || normalized.equals("0")) {
+            return Boolean.FALSE;
+        }
+        throw new IllegalArgumentException("record " + record + ": completed must be true or false, not '" + value + "'");
+    }
+
+    private static LocalDateTime dateTime(long record, String field, String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            return LocalDateTime.parse(value.trim());
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("record " + record + ": " + field + " is not an ISO date-time: '" + value + "'");
+        }
+    }
+
+    static String format(LocalDateTime dateTime) {
+        return dateTime != null ? dateTime.toString() : null;
+    }
+}
@@ -0,0 +1,217 @@
+package com.example.todo.transfer;
+
+import com.example.todo.model.Todo;
+import com.example.todo.service.TodoService;
+import com.example.todo.trace.RequestTrace;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.annotation.Resource;
+import javax.enterprise.concurrent.ManagedExecutorService;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
+
+/**
+ * Runs todo imports as background jobs. The upload is first copied to a spool file in
+ * {@code todo.import.dir} (default: a {@code todo-imports} directory in the temp dir), so the
+ * request ends as soon as the data is received; a managed executor thread then parses the file
+ * as a stream and inserts the todos with {@link TodoService#importTodos} in batches of
+ * {@code todo.import.batchSize}, one transaction each.
+ *
+ * Invalid records are skipped and counted. A job that fails or is cancelled keeps the batches
+ * committed so far. A user can run one import at a time; the last {@value #RETAINED_JOBS}
+ * finished jobs stay available for polling.
+ */
+@ApplicationScoped
+public class TodoImportService {
+    private static final Logger logger = LogManager.getLogger(TodoImportService.class);
+    private static final int BATCH_SIZE = Math.max(1, Integer.getInteger("todo.import.batchSize", 1000));
+    private static final long MAX_BYTES = Long.getLong("todo.import.maxBytes", 256L << 20);
+    private static final int RETAINED_JOBS = 100;
+
+    private final Map<String, ImportJob> jobs = new ConcurrentHashMap<>();
+    // Job id per user with an import being received, queued or running
+    private final Map<Long, String> activeImports = new ConcurrentHashMap<>();
+
+    @Resource
+    private ManagedExecutorService executor;
+
+    @Inject
+    private TodoService todoService;
+
+    /**
+     * Receives an upload and queues its import for the user.
+     *
+     * @throws IllegalStateException      if the user already has an import queued or running
+     * @throws IllegalArgumentException    if the upload is larger than {@code todo.import.maxBytes}
+     * @throws RejectedExecutionException if the executor does not take the job; it is kept as failed
+     */
+    public ImportJob submit(Long userId, TodoFormat format, InputStream body) throws IOException {
+        // Claim the user's slot before receiving the upload, so concurrent uploads cannot both start
+        String id = UUID.randomUUID().toString();
+        String running = activeImports.putIfAbsent(userId, id);
+        if (running != null) {
+            throw new IllegalStateException("Import " + running + " is still running");
+        }
+
+        Path file = null;
+        try {
+            Path dir = Paths.get(System.getProperty("todo.import.dir",
+                    Paths.get(System.getProperty("java.io.tmpdir"), "todo-imports").toString()));
+            Files.createDirectories(dir);
+            file = Files.createTempFile(dir, "import-", "." + format.getExtension());
+            long size = spool(body, file);
+
+            ImportJob job = new ImportJob(id, userId, format, size);
+            synchronized (jobs) {
+                jobs.put(job.getId(), job);
+                prune();
+            }
+            Path spooled = file;
+            try {
+                executor.execute(RequestTrace.propagate(() -> run(job, spooled)));
+            } catch (RejectedExecutionException e) {
+                job.finished(ImportJob.State.FAILED, "Import could not be started: " + e.getMessage());
+                logger.error("Import {} for user id {} was rejected by the executor", id, userId, e);
+                throw e;
+            }
+            logger.info("Queued import {} of {} bytes of {} for user id: {}", id, size, format, userId);
+            return job;
+        } catch (IOException | RuntimeException e) {
+            activeImports.remove(userId, id);
+            if (file != null) {
+                Files.deleteIfExists(file);
+            }
+            throw e;
+        }
+    }
+
+    public ImportJob find(String id) {
+        return jobs.get(id);
+    }
+
+    /**
+     * All retained jobs, oldest first.
+     */
+    public Collection<ImportJob> getJobs() {
+        return jobs.values().stream()
+                .sorted(Comparator.comparing(ImportJob::getSubmitted))
+                .collect(Collectors.toList());
+    }
+
+    private static long spool(InputStream body, Path file) throws IOException {
+        byte[] buffer = new byte[64 * 1024];
+        long size = 0;
+        try (OutputStream out = Files.newOutputStream(file)) {
+            for (int n; (n = body.read(buffer)) > 0; ) {
+                size += n;
+                if (size > MAX_BYTES) {
+                    throw new IllegalArgumentException("Imports are limited to " + MAX_BYTES + " bytes");
+                }
+                out.write(buffer, 0, n);
+            }
+        }
+        return size;
+    }
+
+    private void run(ImportJob job, Path file) {
+        job.started();
+        long start = System.nanoTime();
+        try (CountingInputStream in = new CountingInputStream(Files.newInputStream(file));
+             TodoFormat.Reader reader = job.getFormat().reader(in)) {
+            List<Todo> batch = new ArrayList<>(BATCH_SIZE);
+            while (!job.isCancelRequested()) {
+                Todo todo;
+                try {
+                    todo = reader.next();
+                } catch (IllegalArgumentException e) {
+                    job.rejected(e.getMessage());
+                    continue;
+                }
+                if (todo != null) {
+                    batch.add(todo);
+                }
+                if (batch.size() >= BATCH_SIZE || todo == null && !batch.isEmpty()) {
+                    job.progress(in.getCount(), todoService.importTodos(batch, job.getUserId()));
+                    batch.clear();
+                }
+                if (todo == null) {
+                    break;
+                }
+            }
+            job.progress(in.getCount(), 0);
+            job.finished(job.isCancelRequested() ? ImportJob.State.CANCELLED : ImportJob.State.COMPLETED, null);
+            logger.info("Import {} {}: {} todo(s) imported, {} rejected in {} ms", job.getId(), job.getState(),
+                    job.getImported(), job.getRejected(), (System.nanoTime() - start) / 1_000_000);
+        } catch (Exception e) {
+            job.finished(ImportJob.State.FAILED, e.getMessage() != null ? e.getMessage() : e.toString());
+            logger.error("Import {} failed after {} todo(s)", job.getId(), job.getImported(), e);
+        } finally {
+            activeImports.remove(job.getUserId(), job.getId());
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                logger.warn("Could not delete import spool file {}: {}", file, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Drops the oldest finished jobs beyond {@value #RETAINED_JOBS}.
+     */
+    private void prune() {
+        List<ImportJob> finished = jobs.values().stream()
+                .filter(ImportJob::isFinished)
+                .sorted(Comparator.comparing(ImportJob::getSubmitted))
+                .collect(Collectors.toList());
+        for (int i = 0; i < finished.size() - RETAINED_JOBS; i++) {
+            jobs.remove(finished.get(i).getId());
+        }
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        long getCount() {
+            return count;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.todo.transfer;
+
+import com.example.todo.model.Todo;
+
+import javax.json.Json;
+import javax.json.JsonNumber;
+import javax.json.JsonObject;
+import javax.json.JsonValue;
+import javax.json.stream.JsonGenerator;
+import javax.json.stream.JsonParser;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * JSON arrays of todo objects, written and parsed as streams. On import the array may also be
+ * wrapped in an object as {@code {"todos": [...]}}, the shape of {@code GET /api/todos}.
+ */
+final class TodoJson {
+    private TodoJson() {
+    }
+
+    static final class Writer implements TodoFormat.Writer {
+        private final JsonGenerator json;
+
+        Writer(OutputStream out) {
+            json = Json.createGenerator(out);
+            json.writeStartArray();
+        }
+
+        @Override
+        public void write(Todo todo) {
+            json.writeStartObject()
+                    .write("id", todo.getId())
+                    .write("title", todo.getTitle())
+                    .write("completed", Boolean.TRUE.equals(todo.getCompleted()));
+            writeNullable("description", todo.getDescription());
+            writeNullable("createdDate", TodoFormat.format(todo.getCreatedDate()));
+            writeNullable("completedDate", TodoFormat.format(todo.getCompletedDate()));
+            json.writeEnd();
+        }
+
+        private void writeNullable(String name, String value) {
+            if (value != null) {
+                json.write(name, value);
+            } else {
+                json.writeNull(name);
+            }
+        }
+
+        @Override
+        public void close() {
+            json.writeEnd();
+            json.close();
+        }
+    }
+
+    static final class Reader implements TodoFormat.Reader {
+        private final JsonParser parser;
+        private long record;
+
+        Reader(InputStream in) {
+            parser = Json.createParser(in);
+            JsonParser.Event event = parser.hasNext() ? parser.next() : null;
+            if (event == JsonParser.Event.START_OBJECT) {
+                while (parser.hasNext() && (event = parser.next()) == JsonParser.Event.KEY_NAME
+                        && !"todos".equals(parser.getString())) {
+                    JsonParser.Event value = parser.next();
+                    if (value == JsonParser.Event.START_OBJECT) {
+                        parser.skipObject();
+                    } else if (value == JsonParser.Event.START_ARRAY) {
+                        parser.skipArray();
+                    }
+                }
+                event = parser.hasNext() ? parser.next() : null;
+            }
+            if (event != JsonParser.Event.START_ARRAY) {
+                throw new IllegalStateException("Expected a JSON array of todos");
+            }
+        }
+
+        @Override
+        public Todo next() {
+            JsonParser.Event event = parser.next();
+            if (event == JsonParser.Event.END_ARRAY) {
+                return null;
+            }
+            record++;
+            if (event != JsonParser.Event.START_OBJECT) {
+                if (event == JsonParser.Event.START_ARRAY) {
+                    parser.skipArray();
+                }
+                throw new IllegalArgumentException("record " + record + ": expected an object");
+            }
+            JsonObject fields = parser.getObject();
+            return TodoFormat.draft(record, string(fields, "title"), string(fields, "description"),
+                    bool(fields), string(fields, "createdDate"), string(fields, "completedDate"));
+        }
+
+        private String string(JsonObject fields, String name) {
+            JsonValue value = fields.get(name);
+            if (value == null || value.getValueType() == JsonValue.ValueType.NULL) {
+                return null;
+            }
+            if (value.getValueType() != JsonValue.ValueType.STRING) {
+                throw new IllegalArgumentException("record " + record + ": " + name + " must be a string");
+            }
+            return fields.getString(name);
+        }
+
+        private Boolean bool(JsonObject fields) {
+            JsonValue value = fields.get("completed");
+            if (value == null || value.getValueType() == JsonValue.ValueType.NULL) {
+                return null;
+            }
+            if (value.getValueType() == JsonValue.ValueType.TRUE || value.getValueType() == JsonValue.ValueType.FALSE) {
+                return value == JsonValue.TRUE;
+            }
+            if (value.getValueType() == JsonValue.ValueType.STRING) {
+                return TodoFormat.bool(record, fields.getString("completed"));
+            }
+            if (value instanceof JsonNumber) {
+                return TodoFormat.bool(record, value.toString());
+            }
+            throw new IllegalArgumentException("record " + record + ": completed must be true or false");
+        }
+
+        @Override
+        public void close() {
+            parser.close();
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.example.todo.warmup;
+
+import java.io.IOException;
+import java.net.CookieManager;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Loopback HTTP client for the warm-up: a trimmed-down browser session, as in the load test,
+ * that keeps the session cookie and the current {@code javax.faces.ViewState} and marks every
+ * request with {@value WarmupState#WARMUP_HEADER}, carrying this deploy's token, so it is left
+ * out of the first-request timings.
+ */
+class WarmupClient {
+    private static final String VIEW_STATE = "javax.faces.ViewState";
+    private static final Pattern VIEW_STATE_INPUT = Pattern.compile(
+            "<input[^>]*name=\"" + Pattern.quote(VIEW_STATE) + "\"[^>]*>");
+    private static final Pattern VALUE_ATTRIBUTE = Pattern.compile("value=\"([^\"]*)\"");
+    private static final Pattern VIEW_STATE_UPDATE = Pattern.compile(
+            "<update id=\"[^\"]*" + Pattern.quote(VIEW_STATE) + "[^\"]*\"><!\\[CDATA\\[(.*?)\\]\\]></update>", Pattern.DOTALL);
+    private static final Pattern REDIRECT = Pattern.compile("<redirect url=\"([^\"]*)\"");
+    private static final Pattern RESOURCE = Pattern.compile("(?:src|href)=\"([^\"]*/javax\\.faces\\.resource/[^\"]*)\"");
+
+    private final String baseUrl;
+    private final HttpClient client;
+    private final Duration timeout;
+    private String viewState;
+
+    WarmupClient(String baseUrl, Duration timeout) {
+        this.baseUrl = baseUrl;
+        this.timeout = timeout;
+        this.client = HttpClient.newBuilder()
+                .cookieHandler(new CookieManager())
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .connectTimeout(timeout)
+                .build();
+    }
+
+    /**
+     * GETs a page, following redirects, and remembers its view state.
+     */
+    String get(String path) throws IOException, InterruptedException {
+        HttpResponse<String> response = send(HttpRequest.newBuilder(resolve(path)).GET());
+        for (int redirects = 0; isRedirect(response.statusCode()) && redirects < 5; redirects++) {
+            String location = response.headers().firstValue("Location")
+                    .orElseThrow(() -> new IOException("Redirect without Location"));
+            response = send(HttpRequest.newBuilder(resolve(location)).GET());
+        }
+        checkStatus(response);
+        viewState = extractViewState(response.body());
+        return response.body();
+    }
+
+    /**
+     * GETs a resource or endpoint without view-state handling, optionally with Basic credentials.
+     */
+    String fetch(String path, String username, String password) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(resolve(path)).GET();
+        if (username != null) {
+            String credentials = username + ":" + password;
+            request.header("Authorization", "Basic "
+                    + Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8)));
+        }
+        HttpResponse<String> response = send(request);
+        checkStatus(response);
+        return response.body();
+    }
+
+    /**
+     * Full (non-AJAX) form post; returns the redirect target or null if the page re-rendered.
+     */
+    String submit(String path, String formId, String buttonId) throws IOException, InterruptedException {
+        Map<String, String> params = new LinkedHashMap<>();
+        params.put(formId, formId);
+        params.put(buttonId, "");
+        params.put(VIEW_STATE, requireViewState());
+
+        HttpResponse<String> response = send(formPost(path, params));
+        if (isRedirect(response.statusCode())) {
+            viewState = null;
+            return response.headers().firstValue("Location").orElse(null);
+        }
+        checkStatus(response);
+        viewState = extractViewState(response.body());
+        return null;
+    }
+
+    /**
+     * PrimeFaces AJAX request as sent by a command button or poll; returns the redirect target
+     * of the partial response, or null if there is none.
+     */
+    String ajax(String path, String formId, String sourceId, String execute, String render,
+                Map<String, String> fields) throws IOException, InterruptedException {
+        Map<String, String> params = new LinkedHashMap<>();
+        params.put("javax.faces.partial.ajax", "true");
+        params.put("javax.faces.source", sourceId);
+        params.put("javax.faces.partial.execute", execute);
+        params.put("javax.faces.partial.render", render);
+        params.put(sourceId, sourceId);
+        params.put(formId, formId);
+        params.putAll(fields);
+        params.put(VIEW_STATE, requireViewState());
+
+        HttpResponse<String> response = send(formPost(path, params)
+                .header("Faces-Request", "partial/ajax")
+                .header("X-Requested-With", "XMLHttpRequest"));
+        checkStatus(response);
+
+        Matcher update = VIEW_STATE_UPDATE.matcher(response.body());
+        if (update.find()) {
+            viewState = update.group(1);
+        }
+        Matcher redirect = REDIRECT.matcher(response.body());
+        return redirect.find() ? redirect.group(1).replace("&amp;", "&") : null;
+    }
+
+    /**
+     * JSF resource URLs (scripts, style sheets) referenced by a page.
+     */
+    static Set<String> resources(String html) {
+        Set<String> urls = new LinkedHashSet<>();
+        Matcher matcher = RESOURCE.matcher(html);
+        while (matcher.find()) {
+            urls.add(matcher.group(1).replace("&amp;", "&"));
+        }
+        return urls;
+    }
+
+    private HttpRequest.Builder formPost(String path, Map<String, String> params) {
+        StringBuilder form = new StringBuilder();
+        for (Map.Entry<String, String> param : params.entrySet()) {
+            if (form.length() > 0) {
+                form.append('&');
+            }
+            form.append(URLEncoder.encode(param.getKey(), StandardCharsets.UTF_8)).append('=')
+                    .append(URLEncoder.encode(param.getValue(), StandardCharsets.UTF_8));
+        }
+        return HttpRequest.newBuilder(resolve(path))
+                .header("Content-Type", "application/x-www-form-urlencoded; charset=UTF-8")
+                .POST(HttpRequest.BodyPublishers.ofString(form.toString()));
+    }
+
+    private HttpResponse<String> send(HttpRequest.Builder request) throws IOException, InterruptedException {
+        return client.send(request.header(WarmupState.WARMUP_HEADER, WarmupState.getWarmupToken()).timeout(timeout).build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    private URI resolve(String pathOrUrl) {
+        if (pathOrUrl.startsWith("http://") || pathOrUrl.startsWith("https://")) {
+            return URI.create(pathOrUrl);
+        }
+        URI base = URI.create(baseUrl);
+        if (pathOrUrl.startsWith(base.getPath() + "/")) {
+            // Absolute path including the context root, as in redirects and resource URLs
+            return base.resolve(pathOrUrl);
+        }
+        return URI.create(baseUrl + pathOrUrl);
+    }
+
+    private String requireViewState() throws IOException {
+        if (viewState == null) {
+            throw new IOException("No view state; load a page first");
+        }
+        return viewState;
+    }
+
+    private static String extractViewState(String html) {
+        Matcher input = VIEW_STATE_INPUT.matcher(html);
+        if (!input.find()) {
+            return null;
+        }
+        Matcher value = VALUE_ATTRIBUTE.matcher(input.group());
+        return value.find() ? value.group(1) : null;
+    }
+
+    private static boolean isRedirect(int status) {
+        return status == 301 || status == 302 || status == 303 || status == 307;
+    }
+
+    private static void checkStatus(HttpResponse<String> response) throws IOException {
+        if (response.statusCode() >= 400) {
+            throw new IOException("HTTP " + response.statusCode() + " for " + response.uri());
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.todo.warmup;
+
+import javax.ejb.EJB;
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import javax.servlet.annotation.WebListener;
+
+/**
+ * Starts the {@link WarmupService} once the application is deployed, and withdraws readiness
+ * as soon as it is being stopped, so a load balancer drains it before it goes away.
+ */
+@WebListener
+public class WarmupListener implements ServletContextListener {
+    @EJB
+    private WarmupService warmup;
+
+    @Override
+    public void contextInitialized(ServletContextEvent event) {
+        warmup.start(event.getServletContext().getContextPath());
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent event) {
+        warmup.stop();
+    }
+}
@@ -0,0 +1,287 @@
+package com.example.todo.warmup;
+
+import com.example.todo.shard.ShardRouter;
+import com.example.todo.shard.ShardingConfig;
+import com.example.todo.trace.RequestTrace;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.eclipse.persistence.jpa.JpaEntityManager;
+
+import javax.annotation.Resource;
+import javax.ejb.Lock;
+import javax.ejb.LockType;
+import javax.ejb.SessionContext;
+import javax.ejb.Singleton;
+import javax.ejb.TransactionManagement;
+import javax.ejb.TransactionManagementType;
+import javax.enterprise.concurrent.ManagedExecutorService;
+import javax.inject.Inject;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Parameter;
+import javax.persistence.PersistenceUnit;
+import javax.persistence.PersistenceUnits;
+import javax.persistence.Query;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Warms the application up after a deploy or reload, before {@code /health/ready} reports it
+ * ready (see {@link WarmupState}).
+ *
+ * Every persistence unit in use is opened and runs each of its named queries, so EclipseLink
+ * has its metadata, query plans and pooled connections ready. Then the login page, the todo
+ * list and the REST API are requested over loopback HTTP through the whole filter chain,
+ * which compiles the Facelets, resolves their EL and loads the PrimeFaces renderers and
+ * resources. The list and the API need an account, {@code todo.warmup.username} and
+ * {@code todo.warmup.password}; without one only the login page is warmed. Each step runs
+ * twice, and both timings are kept for the report. Failed steps are logged and skipped: the
+ * application is reported ready once the warm-up finished or ran out of
+ * {@code todo.warmup.timeoutSeconds}.
+ */
+@Singleton
+@Lock(LockType.READ)
+@TransactionManagement(TransactionManagementType.BEAN)
+@PersistenceUnits({
+        @PersistenceUnit(name = "persistence/factory/todoPU", unitName = "todoPU"),
+        @PersistenceUnit(name = "persistence/factory/todoShard1PU", unitName = "todoShard1PU"),
+        @PersistenceUnit(name = "persistence/factory/todoShard2PU", unitName = "todoShard2PU"),
+        @PersistenceUnit(name = "persistence/factory/todoShard3PU", unitName = "todoShard3PU"),
+        @PersistenceUnit(name = "persistence/factory/todoReadPU", unitName = "todoReadPU"),
+        @PersistenceUnit(name = "persistence/factory/todoShard1ReadPU", unitName = "todoShard1ReadPU"),
+        @PersistenceUnit(name = "persistence/factory/todoShard2ReadPU", unitName = "todoShard2ReadPU"),
+        @PersistenceUnit(name = "persistence/factory/todoShard3ReadPU", unitName = "todoShard3ReadPU")
+})
+public class WarmupService {
+    private static final Logger logger = LogManager.getLogger(WarmupService.class);
+    private static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("todo.warmup.enabled", "true"));
+    private static final long TIMEOUT_SECONDS = Long.getLong("todo.warmup.timeoutSeconds", 120L);
+    private static final String BASE_URL = System.getProperty("todo.warmup.baseUrl");
+    private static final String USERNAME = System.getProperty("todo.warmup.username");
+    private static final String PASSWORD = System.getProperty("todo.warmup.password", "");
+    private static final String LIST = "/todo/list.xhtml";
+
+    @Resource
+    private ManagedExecutorService executor;
+
+    @Resource
+    private SessionContext context;
+
+    @Inject
+    private ShardRouter router;
+
+    /**
+     * Starts the warm-up in the background; the application is ready right away when it is
+     * disabled.
+     */
+    public void start(String contextPath) {
+        if (!ENABLED) {
+            WarmupState.markReady("Warm-up disabled");
+            return;
+        }
+        WarmupState.begin("Warming up");
+        executor.execute(RequestTrace.propagate(() -> run(contextPath)));
+    }
+
+    public void stop() {
+        WarmupState.markStopping();
+    }
+
+    private void run(String contextPath) {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        try {
+            for (String shard : router.getShards()) {
+                String unit = ShardingConfig.unitName(shard);
+                warmUnit(unit, deadline);
+                warmUnit(ShardingConfig.readUnitName(unit), deadline);
+            }
+            String baseUrl = BASE_URL != null ? BASE_URL : "http://localhost:" + httpPort() + contextPath;
+            if (awaitServer(baseUrl, deadline)) {
+                warmPages(new WarmupClient(baseUrl, Duration.ofSeconds(30)), deadline);
+            } else {
+                logger.warn("Server at {} did not accept requests within {} s; pages not warmed", baseUrl, TIMEOUT_SECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Warm-up interrupted");
+        } catch (RuntimeException e) {
+            logger.error("Warm-up failed", e);
+        } finally {
+            long failed = WarmupState.getSteps().stream().filter(step -> step.getError() != null).count();
+            String summary = String.format(Locale.ROOT, "Warmed up in %d ms: %d step(s)%s",
+                    (System.nanoTime() - start) / 1_000_000, WarmupState.getSteps().size(),
+                    failed > 0 ? ", " + failed + " failed" : "");
+            WarmupState.markReady(summary);
+            logger.info(summary);
+        }
+    }
+
+    /**
+     * Opens the unit and runs each named query with placeholder parameters that match no rows.
+     */
+    private void warmUnit(String unit, long deadline) throws InterruptedException {
+        step("jpa " + unit, deadline, () -> {
+            EntityManagerFactory factory = (EntityManagerFactory) context.lookup("persistence/factory/" + unit);
+            EntityManager em = factory.createEntityManager();
+            try {
+                Set<String> names = new TreeSet<>(em.unwrap(JpaEntityManager.class).getServerSession().getQueries().keySet());
+                for (String name : names) {
+                    Query query = em.createNamedQuery(name).setMaxResults(1);
+                    for (Parameter<?> parameter : query.getParameters()) {
+                        query.setParameter(parameter.getName(), placeholder(parameter.getParameterType()));
+                    }
+                    query.getResultList();
+                }
+                return names.size() + " named queries";
+            } finally {
+                em.close();
+            }
+        });
+    }
+
+    private static Object placeholder(Class<?> type) {
+        if (type == String.class) {
+            return "";
+        }
+        if (type == Boolean.class) {
+            return Boolean.FALSE;
+        }
+        return -1L;
+    }
+
+    private void warmPages(WarmupClient client, long deadline) throws InterruptedException {
+        Set<String> resources = new LinkedHashSet<>();
+        String login = step("GET /login.xhtml", deadline, () -> client.get("/login.xhtml"));
+        if (login != null) {
+            resources.addAll(WarmupClient.resources(login));
+        }
+        if (USERNAME == null) {
+            fetchResources(client, resources, deadline);
+            logger.info("todo.warmup.username not set; the todo list and the REST API are not warmed");
+            return;
+        }
+
+        String redirect = stepOnce("POST /login.xhtml", deadline, () -> {
+            String target = client.ajax("/login.xhtml", "loginForm", "loginForm:loginBtn", "loginForm", "loginForm",
+                    Map.of("loginForm:username", USERNAME, "loginForm:password", PASSWORD));
+            if (target == null) {
+                throw new IOException("Login as " + USERNAME + " did not redirect");
+            }
+            return target;
+        });
+        if (redirect != null) {
+            String list = step("GET " + LIST, deadline, () -> client.get(LIST));
+            if (list != null) {
+                resources.addAll(WarmupClient.resources(list));
+                step("POST " + LIST + " (poll)", deadline, () -> client.ajax(LIST, "pollForm", "pollForm:keepAlivePoll",
+                        "pollForm:keepAlivePoll", "@none", Map.of()));
+                stepOnce("POST " + LIST + " (logout)", deadline,
+                        () -> client.submit(LIST, "logoutForm", "logoutForm:logoutBtn"));
+            }
+        }
+        step("GET /api/todos", deadline, () -> client.fetch("/api/todos", USERNAME, PASSWORD));
+        fetchResources(client, resources, deadline);
+    }
+
+    private void fetchResources(WarmupClient client, Set<String> resources, long deadline) throws InterruptedException {
+        stepOnce("GET " + resources.size() + " JSF resource(s)", deadline, () -> {
+            for (String resource : resources) {
+                client.fetch(resource, null, null);
+            }
+            return "";
+        });
+    }
+
+    /**
+     * Waits until the HTTP connector accepts requests; it starts after the application.
+     */
+    private boolean awaitServer(String baseUrl, long deadline) throws InterruptedException {
+        WarmupClient probe = new WarmupClient(baseUrl, Duration.ofSeconds(2));
+        while (true) {
+            try {
+                probe.fetch("/health/live", null, null);
+                return true;
+            } catch (IOException e) {
+                if (System.nanoTime() > deadline) {
+                    return false;
+                }
+                Thread.sleep(500);
+            }
+        }
+    }
+
+    /**
+     * Port of the first plain HTTP connector, or 8080 if none is registered yet.
+     */
+    private static int httpPort() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            List<ObjectName> connectors = new ArrayList<>(server.queryNames(new ObjectName("Catalina:type=Connector,*"), null));
+            for (ObjectName connector : connectors) {
+                String protocol = String.valueOf(server.getAttribute(connector, "protocol"));
+                if ("http".equals(server.getAttribute(connector, "scheme")) && !protocol.contains("AJP")) {
+                    return ((Number) server.getAttribute(connector, "port")).intValue();
+                }
+            }
+        } catch (Exception e) {
+            logger.debug("Unable to look up the HTTP connector port", e);
+        }
+        return 8080;
+    }
+
+    private String step(String name, long deadline, Action action) throws InterruptedException {
+        return timeStep(name, deadline, action, true);
+    }
+
+    private String stepOnce(String name, long deadline, Action action) throws InterruptedException {
+        return timeStep(name, deadline, action, false);
+    }
+
+    /**
+     * Runs and times a step, a second time if {@code twice}; returns its first result, or null if it
+     * failed or the warm-up ran out of time.
+     */
+    private String timeStep(String name, long deadline, Action action, boolean twice) throws InterruptedException {
+        if (System.nanoTime() > deadline) {
+            WarmupState.addStep(new WarmupState.Step(name, 0, -1, "skipped, warm-up timed out"));
+            return null;
+        }
+        long start = System.nanoTime();
+        try {
+            String result = action.run();
+            long cold = System.nanoTime() - start;
+            long warm = -1;
+            if (twice) {
+                start = System.nanoTime();
+                action.run();
+                warm = System.nanoTime() - start;
+            }
+            WarmupState.addStep(new WarmupState.Step(name, cold, warm, null));
+            logger.debug("Warm-up step {}: {} ms cold, {} ms warm", name, cold / 1_000_000, warm / 1_000_000);
+            return result;
+        } catch (InterruptedException e) {
+            throw e;
+        } catch (Exception e) {
+            logger.warn("Warm-up step {} failed: {}", name, e.toString());
+            WarmupState.addStep(new WarmupState.Step(name, System.nanoTime() - start, -1, e.toString()));
+            return null;
+        }
+    }
+
+    @FunctionalInterface
+    private interface Action {
+        String run() throws Exception;
+    }
+}
@@ -0,0 +1,204 @@
+package com.example.todo.warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Pattern;
+
+/**
+ * Readiness of the application and the timings behind it: the steps of the warm-up run by
+ * {@link WarmupService}, and the latency of the first real request to each route.
+ * Held in statics, like the pool metrics, so the request path reads it without a container
+ * call; a redeploy starts over with a fresh class.
+ */
+public final class WarmupState {
+    /**
+     * Header marking the warm-up's own requests; it only counts with the value of
+     * {@link #getWarmupToken()}.
+     */
+    public static final String WARMUP_HEADER = "X-Todo-Warmup";
+
+    private static final int MAX_FIRST_REQUESTS = 32;
+    // Numeric ids and UUIDs, as in /api/todos/42 and /api/todos/import/<job id>
+    private static final Pattern ID_SEGMENT = Pattern.compile(
+            "-?\\d+|[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}");
+    private static final String WARMUP_TOKEN = newToken();
+
+    private static final List<Step> STEPS = new CopyOnWriteArrayList<>();
+    private static final Map<String, FirstRequest> FIRST_REQUESTS = new ConcurrentHashMap<>();
+    private static volatile boolean ready;
+    private static volatile boolean stopping;
+    private static volatile String summary = "Warm-up has not started";
+
+    private WarmupState() {
+    }
+
+    /**
+     * True once the warm-up finished and until the application is stopped.
+     */
+    public static boolean isReady() {
+        return ready && !stopping;
+    }
+
+    public static String getSummary() {
+        return summary;
+    }
+
+    public static List<Step> getSteps() {
+        return Collections.unmodifiableList(STEPS);
+    }
+
+    /**
+     * Secret the warm-up sends in {@value #WARMUP_HEADER}, new for every deploy.
+     */
+    static String getWarmupToken() {
+        return WARMUP_TOKEN;
+    }
+
+    /**
+     * True if the header value is this deploy's warm-up token, so clients cannot keep their
+     * requests out of the first-request timings.
+     */
+    public static boolean isWarmupRequest(String headerValue) {
+        return headerValue != null && MessageDigest.isEqual(
+                headerValue.getBytes(StandardCharsets.UTF_8), WARMUP_TOKEN.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * First real request per route, in no particular order.
+     */
+    public static Map<String, FirstRequest> getFirstRequests() {
+        return new LinkedHashMap<>(FIRST_REQUESTS);
+    }
+
+    /**
+     * Records the request if it is the first one to its route; warm-up requests are not passed
+     * in. Requests for unknown paths are ignored, so probes for random URLs do not use up the
+     * {@value #MAX_FIRST_REQUESTS} routes kept.
+     */
+    public static void recordRequest(String method, String path, int status, long nanos) {
+        if (status == 404 || FIRST_REQUESTS.size() >= MAX_FIRST_REQUESTS) {
+            return;
+        }
+        FIRST_REQUESTS.putIfAbsent(method + " " + routeOf(path), new FirstRequest(status, nanos, isReady()));
+    }
+
+    /**
+     * The path with path parameters dropped and id segments replaced by {@code {id}}, so
+     * {@code /api/todos/42} and {@code /api/todos/43} are one route.
+     */
+    static String routeOf(String path) {
+        String[] segments = path.split("/", -1);
+        StringBuilder route = new StringBuilder(path.length());
+        for (int i = 0; i < segments.length; i++) {
+            String segment = segments[i];
+            int parameters = segment.indexOf(';');
+            if (parameters >= 0) {
+                segment = segment.substring(0, parameters);
+            }
+            if (i > 0) {
+                route.append('/');
+            }
+            route.append(ID_SEGMENT.matcher(segment).matches() ? "{id}" : segment);
+        }
+        return route.toString();
+    }
+
+    private static String newToken() {
+        byte[] bytes = new byte[16];
+        new SecureRandom().nextBytes(bytes);
+        StringBuilder token = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            token.append(String.format(Locale.ROOT, "%02x", b));
+        }
+        return token.toString();
+    }
+
+    static void begin(String message) {
+        STEPS.clear();
+        ready = false;
+        summary = message;
+    }
+
+    static void addStep(Step step) {
+        STEPS.add(step);
+    }
+
+    static void markReady(String message) {
+        summary = message;
+        ready = true;
+    }
+
+    static void markStopping() {
+        stopping = true;
+        summary = "Application is stopping";
+    }
+
+    /**
+     * One warm-up step, timed on its first (cold) and second (warm) run; {@code warmNanos} is
+     * -1 for steps run once, {@code error} null unless the step failed.
+     */
+    public static final class Step {
+        private final String name;
+        private final long coldNanos;
+        private final long warmNanos;
+        private final String error;
+
+        Step(String name, long coldNanos, long warmNanos, String error) {
+            this.name = name;
+            this.coldNanos = coldNanos;
+            this.warmNanos = warmNanos;
+            this.error = error;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getColdNanos() {
+            return coldNanos;
+        }
+
+        public long getWarmNanos() {
+            return warmNanos;
+        }
+
+        public String getError() {
+            return error;
+        }
+    }
+
+    /**
+     * Latency of the first request to a route, and whether it arrived after the warm-up.
+     */
+    public static final class FirstRequest {
+        private final int status;
+        private final long nanos;
+        private final boolean afterWarmup;
+
+        FirstRequest(int status, long nanos, boolean afterWarmup) {
+            this.status = status;
+            this.nanos = nanos;
+            this.afterWarmup = afterWarmup;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        public boolean isAfterWarmup() {
+            return afterWarmup;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+-- Completed todos moved out of todos by TodoArchiver; ids are kept, so they stay unique
+CREATE TABLE IF NOT EXISTS todos_archive (
+    id BIGINT PRIMARY KEY,
+    title VARCHAR(500) NOT NULL,
+    description VARCHAR(2000),
+    completed BOOLEAN NOT NULL,
+    createdDate TIMESTAMP NOT NULL,
+    completedDate TIMESTAMP,
+    user_id BIGINT NOT NULL,
+    archivedDate TIMESTAMP NOT NULL,
+    CONSTRAINT fk_todo_archive_user FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
+);
+
+-- Archived todos are listed per user, newest id first
+CREATE INDEX IF NOT EXISTS idx_todos_archive_user_id ON todos_archive(user_id, id);
+
+-- Lets the archiver find a user's old completed todos without scanning the rest
+CREATE INDEX IF NOT EXISTS idx_todos_user_completed ON todos(user_id, completedDate);
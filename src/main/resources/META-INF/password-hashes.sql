@@ -0,0 +1,4 @@
+-- Replace the clear-text seed passwords from data.sql with salted hashes (see PasswordHashService)
+UPDATE users SET password = '$shiro1$SHA-256$50000$Lw1tfA2JP0EcQhFZ3Ce2sA==$YPM6X9b5Nkpg6/wZ0USnTWSV2JHxeSuBTZ9dLYjmQ+4=' WHERE username = 'admin' AND password = 'admin123';
+UPDATE users SET password = '$shiro1$SHA-256$50000$91m6VeR74fIexoDvFm/7Bw==$Ay9RGgdwFd+s128HqBvqzUimiulo3NqNWSiOHtaudn0=' WHERE username = 'user1' AND password = 'user123';
+UPDATE users SET password = '$shiro1$SHA-256$50000$gfls8uJjpyBiea+2wXSedg==$awuHgWq0WxLsOIXxB3DBbapnH/GLaJI2drNC8xe2g58=' WHERE username = 'user2' AND password = 'user123';
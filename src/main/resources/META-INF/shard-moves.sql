@@ -0,0 +1,2 @@
+-- Shard a user was moved away from while its rows there are not deleted yet (see ShardMigrator)
+ALTER TABLE user_shards ADD COLUMN IF NOT EXISTS previous_shard VARCHAR(64);
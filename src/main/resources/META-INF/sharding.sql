@@ -0,0 +1,12 @@
+-- Shard holding each user's todos (primary datasource only)
+CREATE TABLE IF NOT EXISTS user_shards (
+    user_id BIGINT PRIMARY KEY,
+    shard VARCHAR(64) NOT NULL,
+    assigned_at TIMESTAMP NOT NULL,
+    CONSTRAINT fk_user_shard_user FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
+);
+
+-- Users that existed before sharding keep their todos on the primary datasource
+INSERT INTO user_shards (user_id, shard, assigned_at)
+SELECT id, 'todoDS', CURRENT_TIMESTAMP FROM users
+WHERE id NOT IN (SELECT user_id FROM user_shards);
@@ -0,0 +1,160 @@
+/**
+ * Todo Row Updates
+ * Applies row-level results of todo actions to the table instead of re-rendering it.
+ * Actions return the affected row in the hidden row fragment together with the
+ * callback params "rowAction" (insert, replace or remove) and "todoId".
+ * Changes made in other tabs or sessions arrive over the "todoChanges" WebSocket
+ * channel (see onPush) and are applied the same way.
+ */
+(function() {
+    'use strict';
+    
+    const TABLE_BODY_ID = 'todoTableBody';
+    const FRAGMENT_ID = 'mainTodoForm:rowFragment';
+    const EMPTY_ROW_CLASS = 'todo-empty';
+    const COUNT_ID = 'mainTodoForm:todoCount';
+    
+    let pendingDeleteId = null;
+    
+    function tableBody() {
+        return document.getElementById(TABLE_BODY_ID);
+    }
+    
+    function findRow(todoId) {
+        return tableBody().querySelector('tr[data-todo-id="' + todoId + '"]');
+    }
+    
+    function fragmentRow() {
+        const fragment = document.getElementById(FRAGMENT_ID);
+        return fragment ? fragment.querySelector('tr[data-todo-id]') : null;
+    }
+    
+    /**
+     * Show or hide the "no todos" row depending on whether any todo rows remain
+     */
+    function updateEmptyRow() {
+        const body = tableBody();
+        const emptyRow = body.querySelector('tr.' + EMPTY_ROW_CLASS);
+        const hasTodos = body.querySelector('tr[data-todo-id]') !== null;
+        if (emptyRow) {
+            emptyRow.style.display = hasTodos ? 'none' : '';
+        }
+    }
+    
+    function removeRow(todoId) {
+        const existing = findRow(todoId);
+        if (existing) {
+            existing.parentNode.removeChild(existing);
+        }
+    }
+    
+    /**
+     * Replace rows already in the table and insert new ones at the top
+     */
+    function upsertFragmentRows() {
+        const fragment = document.getElementById(FRAGMENT_ID);
+        if (!fragment) {
+            return;
+        }
+        const body = tableBody();
+        const rows = Array.prototype.slice.call(fragment.querySelectorAll('tr[data-todo-id]'));
+        rows.reverse().forEach(function(row) {
+            const existing = findRow(row.getAttribute('data-todo-id'));
+            if (existing) {
+                existing.parentNode.replaceChild(row, existing);
+            } else {
+                body.insertBefore(row, body.firstChild);
+            }
+        });
+    }
+    
+    /**
+     * oncomplete handler for todo actions
+     */
+    function apply(xhr, status, args) {
+        if (!args || args.validationFailed || !args.rowAction) {
+            return;
+        }
+        
+        const existing = findRow(args.todoId);
+        if (args.rowAction === 'upsert') {
+            upsertFragmentRows();
+            (args.removedIds || []).forEach(removeRow);
+        } else if (args.rowAction === 'remove') {
+            if (existing) {
+                existing.parentNode.removeChild(existing);
+            }
+        } else {
+            const row = fragmentRow();
+            if (!row) {
+                return;
+            }
+            // A pushed change may already have added the row
+            if (existing) {
+                existing.parentNode.replaceChild(row, existing);
+            } else if (args.rowAction === 'insert') {
+                const body = tableBody();
+                body.insertBefore(row, body.firstChild);
+            }
+        }
+        updateEmptyRow();
+    }
+    
+    /**
+     * onmessage handler for the todoChanges WebSocket channel. Removed rows are dropped
+     * locally; changed or new rows are fetched in one request.
+     */
+    function onPush(message) {
+        if (!message) {
+            return;
+        }
+        if (message.resync) {
+            window.location.reload();
+            return;
+        }
+        const removed = message.removed || [];
+        if (removed.length > 0) {
+            removed.forEach(removeRow);
+            const count = document.getElementById(COUNT_ID);
+            if (count) {
+                count.textContent = tableBody().querySelectorAll('tr[data-todo-id]').length;
+            }
+            updateEmptyRow();
+        }
+        const upserted = message.upserted || [];
+        if (upserted.length > 0) {
+            refreshRowsCommand([{name: 'todoIds', value: upserted.join(',')}]);
+        }
+    }
+    
+    function toggle(todoId) {
+        toggleTodoCommand([{name: 'todoId', value: todoId}]);
+    }
+    
+    function edit(todoId) {
+        editTodoCommand([{name: 'todoId', value: todoId}]);
+    }
+    
+    function remove(todoId) {
+        pendingDeleteId = todoId;
+        PF('deleteConfirmDialog').show();
+    }
+    
+    function confirmRemove() {
+        PF('deleteConfirmDialog').hide();
+        if (pendingDeleteId !== null) {
+            deleteTodoCommand([{name: 'todoId', value: pendingDeleteId}]);
+            pendingDeleteId = null;
+        }
+    }
+    
+    // Expose functions for external use
+    window.TodoRows = {
+        apply: apply,
+        onPush: onPush,
+        toggle: toggle,
+        edit: edit,
+        remove: remove,
+        confirmRemove: confirmRemove
+    };
+})();